@@ -32,8 +32,23 @@
 package net.fortuna.ical4j.connector;
 
 import net.fortuna.ical4j.connector.dav.enums.MediaType;
+import net.fortuna.ical4j.connector.filter.ComponentFilter;
+import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.model.Calendar;
 import net.fortuna.ical4j.model.ConstraintViolationException;
+import net.fortuna.ical4j.util.Calendars;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * $Id$
@@ -123,6 +138,17 @@ public interface CalendarCollection extends ObjectCollection<Calendar> {
      */
     Calendar removeCalendar(String uid) throws FailedOperationException, ObjectStoreException, ObjectNotFoundException;
     
+    /**
+     * Returns the calendar objects matching the specified filter. Implementations should translate the filter to a
+     * query evaluated by the underlying store where possible, rather than retrieving every calendar object.
+     * @param filter a root (VCALENDAR) filter
+     * @return the matching calendar objects
+     * @throws ObjectStoreException where an unexpected error occurs
+     */
+    default Calendar[] getComponents(ComponentFilter filter) throws ObjectStoreException {
+        return Arrays.stream(getComponents()).filter(filter).toArray(Calendar[]::new);
+    }
+
     /**
      * Merges the specified calendar object with this collecton. This is done by
      * decomposing the calendar object into a set of objects per unique identifier (UID)
@@ -131,6 +157,51 @@ public interface CalendarCollection extends ObjectCollection<Calendar> {
      * @throws FailedOperationException where the merge operation fails
      */
     void merge(Calendar calendar) throws FailedOperationException, ObjectStoreException;
+
+    /**
+     * Merges an iCalendar stream with this collection. The stream is parsed incrementally, and each set of
+     * components with a unique identifier (UID) is added to the collection as it is parsed, such that the
+     * stream is not held in memory.
+     * @param in a (UTF-8 encoded) iCalendar stream, which is not closed
+     * @return the number of calendar objects merged
+     * @throws ObjectStoreException where the stream cannot be parsed or a calendar object cannot be added
+     * @throws IOException where an error occurs reading the stream
+     * @see CalendarImporter
+     */
+    default int merge(InputStream in) throws ObjectStoreException, IOException {
+        try {
+            return new CalendarImporter((calendar, continuation) -> {
+                try {
+                    if (continuation) {
+                        String uid = Calendars.getUid(calendar).getValue();
+                        Calendar existing = CalendarImporter.append(getCalendar(uid), calendar);
+                        removeCalendar(uid);
+                        addCalendar(existing);
+                    } else {
+                        addCalendar(calendar);
+                    }
+                } catch (ConstraintViolationException | ObjectNotFoundException | FailedOperationException e) {
+                    throw new ObjectStoreException("Unable to merge calendar object", e);
+                }
+            }).importCalendar(in);
+        } catch (ParserException e) {
+            throw new ObjectStoreException("Invalid calendar data", e);
+        }
+    }
+
+    /**
+     * Merges an iCalendar file with this collection.
+     * @param file an iCalendar file
+     * @return the number of calendar objects merged
+     * @throws ObjectStoreException where the file cannot be parsed or a calendar object cannot be added
+     * @throws IOException where an error occurs reading the file
+     * @see #merge(InputStream)
+     */
+    default int merge(Path file) throws ObjectStoreException, IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return merge(in);
+        }
+    }
     
     /**
      * Exports the entire collection as a single calendar object.
@@ -138,4 +209,32 @@ public interface CalendarCollection extends ObjectCollection<Calendar> {
      * @throws ObjectStoreException where an unexpected error occurs
      */
     Calendar export() throws ObjectStoreException;
+
+    /**
+     * Exports the entire collection as a single iCalendar stream. Implementations should write each calendar
+     * object as it is read, such that the collection is not held in memory.
+     * @param writer the export destination, which is flushed but not closed
+     * @throws ObjectStoreException where an unexpected error occurs
+     * @throws IOException where an error occurs writing to the destination
+     * @see CalendarExporter
+     */
+    default void export(Writer writer) throws ObjectStoreException, IOException {
+        CalendarExporter exporter = new CalendarExporter(writer);
+        for (Calendar calendar : getComponents()) {
+            exporter.add(calendar);
+        }
+        exporter.complete();
+    }
+
+    /**
+     * Exports the entire collection as a single (UTF-8 encoded) iCalendar stream.
+     * @param out the export destination, which is flushed but not closed
+     * @throws ObjectStoreException where an unexpected error occurs
+     * @throws IOException where an error occurs writing to the destination
+     */
+    default void export(OutputStream out) throws ObjectStoreException, IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        export(writer);
+        writer.flush();
+    }
 }
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector;
+
+import net.fortuna.ical4j.data.FoldingWriter;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+import net.fortuna.ical4j.model.component.VTimeZone;
+import net.fortuna.ical4j.model.property.ProdId;
+import net.fortuna.ical4j.model.property.Version;
+import net.fortuna.ical4j.util.Strings;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes the components of many calendar objects as a single iCalendar stream, such that a collection may be
+ * exported without holding all objects in memory. A single VCALENDAR header is written, and VTIMEZONE components
+ * are written only once per TZID.
+ */
+public class CalendarExporter {
+
+    public static final String DEFAULT_PROD_ID = "-//Ben Fortuna//iCal4j Connector 1.0//EN";
+
+    private final Writer writer;
+
+    private final Set<String> timezones = new HashSet<>();
+
+    private int componentCount;
+
+    /**
+     * Writes the calendar header to the specified writer.
+     * @param writer the export destination
+     * @param prodId the product identifier of the exported calendar
+     * @throws IOException where an error occurs writing to the destination
+     */
+    public CalendarExporter(Writer writer, String prodId) throws IOException {
+        this.writer = new FoldingWriter(writer, FoldingWriter.REDUCED_FOLD_LENGTH);
+        this.writer.write("BEGIN:" + Calendar.VCALENDAR + Strings.LINE_SEPARATOR);
+        this.writer.write(new ProdId(prodId).toString());
+        this.writer.write(Version.VERSION_2_0.toString());
+    }
+
+    public CalendarExporter(Writer writer) throws IOException {
+        this(writer, DEFAULT_PROD_ID);
+    }
+
+    /**
+     * Writes the components of a calendar object, omitting any timezones that have already been written.
+     * @param calendar a calendar object
+     * @throws IOException where an error occurs writing to the destination
+     */
+    public void add(Calendar calendar) throws IOException {
+        for (Component component : calendar.getComponents()) {
+            if (!isDuplicateTimeZone(component, timezones)) {
+                writer.write(component.toString());
+                componentCount++;
+            }
+        }
+    }
+
+    /**
+     * Writes the calendar footer and flushes the destination. The destination is not closed.
+     * @throws IOException where an error occurs writing to the destination
+     */
+    public void complete() throws IOException {
+        writer.write("END:" + Calendar.VCALENDAR + Strings.LINE_SEPARATOR);
+        writer.flush();
+    }
+
+    /**
+     * @return the number of components written
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    /**
+     * Combines the components of many calendar objects into a single calendar, including each VTIMEZONE component
+     * only once per TZID.
+     * @param calendars the calendar objects to combine
+     * @param prodId the product identifier of the combined calendar
+     * @return a calendar containing all components of the specified calendar objects
+     */
+    public static Calendar aggregate(Iterable<Calendar> calendars, String prodId) {
+        Calendar aggregate = new Calendar();
+        aggregate.getProperties().add(new ProdId(prodId));
+        aggregate.getProperties().add(Version.VERSION_2_0);
+        Set<String> timezones = new HashSet<>();
+        for (Calendar calendar : calendars) {
+            for (CalendarComponent component : calendar.getComponents()) {
+                if (!isDuplicateTimeZone(component, timezones)) {
+                    aggregate.getComponents().add(component);
+                }
+            }
+        }
+        return aggregate;
+    }
+
+    private static boolean isDuplicateTimeZone(Component component, Set<String> timezones) {
+        if (component instanceof VTimeZone) {
+            Property tzId = component.getProperty(Property.TZID);
+            return tzId != null && !timezones.add(tzId.getValue());
+        }
+        return false;
+    }
+}
@@ -0,0 +1,384 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector;
+
+import net.fortuna.ical4j.data.CalendarParserFactory;
+import net.fortuna.ical4j.data.ContentHandler;
+import net.fortuna.ical4j.data.ContentHandlerContext;
+import net.fortuna.ical4j.data.DefaultContentHandler;
+import net.fortuna.ical4j.data.ParserException;
+import net.fortuna.ical4j.data.UnfoldingReader;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.ComponentList;
+import net.fortuna.ical4j.model.Parameter;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.TimeZone;
+import net.fortuna.ical4j.model.TimeZoneRegistry;
+import net.fortuna.ical4j.model.TimeZoneRegistryFactory;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+import net.fortuna.ical4j.model.component.VTimeZone;
+import net.fortuna.ical4j.model.property.ProdId;
+import net.fortuna.ical4j.model.property.Version;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses an iCalendar stream component by component, passing each group of components with the same UID to a
+ * {@link Handler} as a separate calendar object. Memory use is therefore bounded by the largest group rather than
+ * the size of the stream.
+ *
+ * Components with the same UID (e.g. a recurring event and its overrides) are grouped where they are adjacent in the
+ * stream. Where a UID reappears later in the stream the components are passed as a continuation of the earlier
+ * group. VTIMEZONE components are retained for the duration of the import, and each calendar object includes the
+ * timezones referenced by its components.
+ *
+ * A VTIMEZONE may appear after the components that reference it, so a calendar object referencing a timezone that
+ * has not yet been parsed is deferred until the timezone is parsed or the stream ends. At most
+ * {@link #DEFAULT_MAX_DEFERRED} calendar objects are deferred, after which the oldest is passed to the handler with
+ * the timezones available at that point.
+ */
+public class CalendarImporter {
+
+    /**
+     * Receives the calendar objects parsed from a stream.
+     */
+    @FunctionalInterface
+    public interface Handler {
+
+        /**
+         * @param calendar a calendar object containing components with a single UID
+         * @param continuation indicates that components with the same UID were previously passed to the handler
+         * @throws ObjectStoreException where the calendar object cannot be processed
+         */
+        void accept(Calendar calendar, boolean continuation) throws ObjectStoreException;
+    }
+
+    /**
+     * The maximum number of calendar objects held while waiting for referenced timezones.
+     */
+    public static final int DEFAULT_MAX_DEFERRED = 1000;
+
+    private final Handler handler;
+
+    private final int maxDeferred;
+
+    private final ContentHandlerContext context = new ContentHandlerContext();
+
+    private final TimeZoneRegistry timeZoneRegistry = TimeZoneRegistryFactory.getInstance().createRegistry();
+
+    private final Map<String, VTimeZone> timezones = new HashMap<>();
+
+    private final Set<String> uids = new HashSet<>();
+
+    private final List<CalendarComponent> group = new ArrayList<>();
+
+    /**
+     * Calendar objects waiting for referenced timezones, keyed by UID (or a unique key where there is no UID).
+     */
+    private final Map<Object, Calendar> deferred = new LinkedHashMap<>();
+
+    private String groupUid;
+
+    private String prodId = CalendarExporter.DEFAULT_PROD_ID;
+
+    private int count;
+
+    /**
+     * @param handler receives each calendar object parsed from the stream
+     */
+    public CalendarImporter(Handler handler) {
+        this(handler, DEFAULT_MAX_DEFERRED);
+    }
+
+    /**
+     * @param handler receives each calendar object parsed from the stream
+     * @param maxDeferred the maximum number of calendar objects held while waiting for referenced timezones
+     */
+    public CalendarImporter(Handler handler, int maxDeferred) {
+        this.handler = handler;
+        this.maxDeferred = maxDeferred;
+    }
+
+    /**
+     * @param in a (UTF-8 encoded) iCalendar stream
+     * @return the number of calendar objects passed to the handler
+     * @throws IOException where an error occurs reading the stream
+     * @throws ParserException where the stream is not valid iCalendar data
+     * @throws ObjectStoreException where the handler fails
+     */
+    public int importCalendar(InputStream in) throws IOException, ParserException, ObjectStoreException {
+        return importCalendar(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param reader an iCalendar stream
+     * @return the number of calendar objects passed to the handler
+     * @throws IOException where an error occurs reading the stream
+     * @throws ParserException where the stream is not valid iCalendar data
+     * @throws ObjectStoreException where the handler fails
+     */
+    public int importCalendar(Reader reader) throws IOException, ParserException, ObjectStoreException {
+        try {
+            CalendarParserFactory.getInstance().get().parse(new UnfoldingReader(reader), new SplittingHandler());
+        } catch (HandlerException e) {
+            throw e.getCause();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count;
+    }
+
+    /**
+     * Combines a continuation with a previously imported calendar object.
+     * @param calendar a previously imported calendar object
+     * @param continuation additional components for the same UID
+     * @return a calendar object containing the components of both
+     */
+    public static Calendar append(Calendar calendar, Calendar continuation) {
+        ComponentList<CalendarComponent> components = new ComponentList<>();
+        components.addAll(calendar.getComponents());
+        Calendar combined = new Calendar(calendar.getProperties(), components);
+        for (CalendarComponent component : continuation.getComponents()) {
+            if (!(component instanceof VTimeZone) || combined.getComponents().stream().noneMatch(c ->
+                    c instanceof VTimeZone && ((VTimeZone) c).getTimeZoneId().equals(((VTimeZone) component).getTimeZoneId()))) {
+                combined.getComponents().add(component);
+            }
+        }
+        return combined;
+    }
+
+    private void componentParsed(CalendarComponent component) {
+        if (component instanceof VTimeZone) {
+            VTimeZone vTimeZone = (VTimeZone) component;
+            timezones.put(vTimeZone.getTimeZoneId().getValue(), vTimeZone);
+            timeZoneRegistry.register(new TimeZone(vTimeZone));
+            emitDeferred(false);
+            return;
+        }
+        Property uid = component.getProperty(Property.UID);
+        String uidValue = uid != null ? uid.getValue() : null;
+        if (uidValue == null || !uidValue.equals(groupUid)) {
+            flush();
+        }
+        groupUid = uidValue;
+        group.add(component);
+    }
+
+    private void flush() {
+        if (group.isEmpty()) {
+            return;
+        }
+        Calendar calendar = new Calendar();
+        calendar.getProperties().add(new ProdId(prodId));
+        calendar.getProperties().add(Version.VERSION_2_0);
+        calendar.getComponents().addAll(group);
+        group.clear();
+
+        Object key = groupUid != null ? groupUid : new Object();
+        Calendar pending = deferred.remove(key);
+        if (pending != null) {
+            // preserve the order of components for a UID that is waiting for a timezone..
+            calendar = append(pending, calendar);
+        }
+        if (!getReferencedTimeZones(calendar, false).isEmpty()) {
+            deferred.put(key, calendar);
+            if (deferred.size() > maxDeferred) {
+                Map.Entry<Object, Calendar> oldest = deferred.entrySet().iterator().next();
+                deferred.remove(oldest.getKey());
+                emit(oldest.getKey(), oldest.getValue());
+            }
+        } else {
+            emit(key, calendar);
+        }
+    }
+
+    /**
+     * Passes deferred calendar objects to the handler. Unless all objects are passed, an object with the UID of the
+     * current group is retained so that it is combined with the group.
+     * @param all indicates whether to pass all deferred objects, rather than only those with no unresolved timezones
+     */
+    private void emitDeferred(boolean all) {
+        for (Iterator<Map.Entry<Object, Calendar>> i = deferred.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<Object, Calendar> entry = i.next();
+            if (all || !entry.getKey().equals(groupUid) && getReferencedTimeZones(entry.getValue(), false).isEmpty()) {
+                i.remove();
+                emit(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void emit(Object key, Calendar calendar) {
+        ComponentList<CalendarComponent> components = new ComponentList<>();
+        getReferencedTimeZones(calendar, true).forEach(tzId -> components.add(timezones.get(tzId)));
+        components.addAll(calendar.getComponents());
+        Calendar object = new Calendar(calendar.getProperties(), components);
+
+        boolean continuation = key instanceof String && !uids.add((String) key);
+        try {
+            handler.accept(object, continuation);
+        } catch (ObjectStoreException e) {
+            throw new HandlerException(e);
+        }
+        count++;
+    }
+
+    /**
+     * @param calendar a calendar object
+     * @param resolved indicates whether to return the identifiers of referenced timezones that have been parsed, or
+     *                 of those that have not
+     * @return the identifiers of referenced timezones
+     */
+    private Set<String> getReferencedTimeZones(Calendar calendar, boolean resolved) {
+        Set<String> referenced = new LinkedHashSet<>();
+        for (Component component : calendar.getComponents()) {
+            for (Property property : component.getProperties()) {
+                Parameter tzId = property.getParameter(Parameter.TZID);
+                if (tzId != null && timezones.containsKey(tzId.getValue()) == resolved) {
+                    referenced.add(tzId.getValue());
+                }
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * Passes the content of each top-level component to a separate content handler, such that components are built
+     * (and released) individually.
+     */
+    private final class SplittingHandler implements ContentHandler {
+
+        private int depth;
+
+        private DefaultContentHandler componentHandler;
+
+        private boolean prodIdProperty;
+
+        @Override
+        public void startCalendar() {
+        }
+
+        @Override
+        public void endCalendar() {
+            flush();
+            emitDeferred(true);
+        }
+
+        @Override
+        public void startComponent(String name) {
+            if (depth++ == 0) {
+                componentHandler = new DefaultContentHandler(parsed -> parsed.getComponents().forEach(
+                        CalendarImporter.this::componentParsed), timeZoneRegistry, context);
+                componentHandler.startCalendar();
+            }
+            componentHandler.startComponent(name);
+        }
+
+        @Override
+        public void endComponent(String name) {
+            componentHandler.endComponent(name);
+            if (--depth == 0) {
+                try {
+                    componentHandler.endCalendar();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                componentHandler = null;
+            }
+        }
+
+        @Override
+        public void startProperty(String name) {
+            if (depth > 0) {
+                componentHandler.startProperty(name);
+            } else {
+                prodIdProperty = Property.PRODID.equalsIgnoreCase(name);
+            }
+        }
+
+        @Override
+        public void propertyValue(String value) {
+            if (depth > 0) {
+                componentHandler.propertyValue(value);
+            } else if (prodIdProperty) {
+                prodId = value;
+            }
+        }
+
+        @Override
+        public void endProperty(String name) throws URISyntaxException, ParseException, IOException {
+            if (depth > 0) {
+                componentHandler.endProperty(name);
+            }
+        }
+
+        @Override
+        public void parameter(String name, String value) throws URISyntaxException {
+            if (depth > 0) {
+                componentHandler.parameter(name, value);
+            }
+        }
+    }
+
+    /**
+     * Propagates a handler failure through the parser.
+     */
+    private static final class HandlerException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        HandlerException(ObjectStoreException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ObjectStoreException getCause() {
+            return (ObjectStoreException) super.getCause();
+        }
+    }
+}
@@ -31,9 +31,13 @@
  */
 package net.fortuna.ical4j.connector;
 
+import net.fortuna.ical4j.data.FoldingWriter;
 import net.fortuna.ical4j.model.ConstraintViolationException;
 import net.fortuna.ical4j.vcard.VCard;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * $Id$
  *
@@ -60,4 +64,18 @@ public interface CardCollection extends ObjectCollection<VCard> {
      * @throws FailedOperationException
      */
     VCard removeCard(String uid) throws ObjectNotFoundException, FailedOperationException;
+
+    /**
+     * Exports the entire collection as a stream of vCard objects.
+     * @param writer the export destination, which is flushed but not closed
+     * @throws ObjectStoreException where an unexpected error occurs
+     * @throws IOException where an error occurs writing to the destination
+     */
+    default void export(Writer writer) throws ObjectStoreException, IOException {
+        FoldingWriter foldingWriter = new FoldingWriter(writer, FoldingWriter.REDUCED_FOLD_LENGTH);
+        for (VCard card : getComponents()) {
+            foldingWriter.write(card.toString());
+        }
+        foldingWriter.flush();
+    }
 }
@@ -35,9 +35,9 @@ import net.fortuna.ical4j.connector.ObjectCollection;
 import net.fortuna.ical4j.connector.ObjectStoreException;
 import net.fortuna.ical4j.connector.dav.enums.MediaType;
 import net.fortuna.ical4j.connector.dav.enums.ResourceType;
-import net.fortuna.ical4j.connector.dav.property.BaseDavPropertyName;
-import net.fortuna.ical4j.connector.dav.property.CalDavPropertyName;
 import net.fortuna.ical4j.connector.dav.response.PropFindResponseHandler;
+import net.fortuna.ical4j.connector.event.ObjectStoreEvent;
+import net.fortuna.ical4j.connector.event.ObjectStoreEventDispatcher;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.config.RequestConfig;
@@ -48,16 +48,12 @@ import org.apache.jackrabbit.webdav.property.DavProperty;
 import org.apache.jackrabbit.webdav.property.DavPropertyName;
 import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
 import org.apache.jackrabbit.webdav.property.DavPropertySet;
-import org.apache.jackrabbit.webdav.security.SecurityConstants;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 
 /**
  * @param <T> the supported collection object type
@@ -73,6 +69,8 @@ public abstract class AbstractDavObjectCollection<T> implements ObjectCollection
     private final String id;
     
     protected DavPropertySet properties;
+
+    private volatile CollectionProperties propertySnapshot;
     
     private String _ownerName = null;
     
@@ -117,117 +115,39 @@ public abstract class AbstractDavObjectCollection<T> implements ObjectCollection
      * Returns a list of the kinds of resource type for this collection. For example, for a collection that supports
      * iCalendar object, "calendar" will be one of the resource types.
      */
-    @SuppressWarnings("unchecked")
-	public ResourceType[] getResourceTypes() {
-        List<ResourceType> resourceTypes = new ArrayList<ResourceType>();
-
-        try {
-            ArrayList<Node> resourceTypeProp;
-            resourceTypeProp = getProperty(BaseDavPropertyName.RESOURCETYPE, ArrayList.class);
-            if (resourceTypeProp != null) {
-                for (Node child : resourceTypeProp) {
-                    if (child instanceof Element) {
-                        String nameNode = child.getNodeName();
-                        if (nameNode != null) {
-                            ResourceType type = ResourceType.findByDescription(nameNode);
-                            if (type != null) {
-                                resourceTypes.add(type);
-                            }
-                        }
-                    }
-                }
-            }
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
-
-        return resourceTypes.toArray(new ResourceType[resourceTypes.size()]);
+    public ResourceType[] getResourceTypes() {
+        return getPropertySnapshot().getResourceTypes().toArray(new ResourceType[0]);
     }
     
     /**
      * Returns a list of supported media types. For example, a CalDAV server will probably return 2.0 as the supported
      * version and text/calendar as the content-type.
      */
-    @SuppressWarnings("unchecked")
-	public MediaType[] getSupportedMediaTypes() {
-        List<MediaType> mediaTypes = new ArrayList<MediaType>();
-
-        try {
-            ArrayList<Node> mediaTypeProp;
-            mediaTypeProp = getProperty(CalDavPropertyName.SUPPORTED_CALENDAR_DATA, ArrayList.class);
-            if (mediaTypeProp != null) {
-                for (Node child : mediaTypeProp) {
-                    if (child instanceof Element) {
-                        String nameNode = child.getNodeName();
-                        if ((nameNode != null) && ("calendar-data".equals(nameNode))) {
-                            String contentType = ((Element) child).getAttribute("content-type");
-                            String version = ((Element) child).getAttribute("version");
-                            MediaType type = MediaType.findByContentTypeAndVersion(contentType, version);
-                            if (type != null) {
-                                mediaTypes.add(type);
-                            }
-                        }
-                    }
-                }
-            }
-            return mediaTypes.toArray(new MediaType[mediaTypes.size()]);
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+    public MediaType[] getSupportedMediaTypes() {
+        return getPropertySnapshot().getSupportedMediaTypes().toArray(new MediaType[0]);
     }
     
     /**
      * Indicates the maximum amount of additional storage available to be allocated to a resource.
      */
     public Long getQuotaAvailableBytes() {
-        try {
-            Long calTimezoneProp = getProperty(BaseDavPropertyName.QUOTA_AVAILABLE_BYTES, Long.class);
-            if (calTimezoneProp != null) {
-                return calTimezoneProp;
-            }
-            return new Long(0);
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        Long quotaAvailableBytes = getPropertySnapshot().getQuotaAvailableBytes();
+        return quotaAvailableBytes != null ? quotaAvailableBytes : Long.valueOf(0);
     }
     
     /**
      * Contains the amount of storage counted against the quota on a resource.
      */
     public Long getQuotaUsedBytes() {
-        try {
-            Long calTimezoneProp = getProperty(BaseDavPropertyName.QUOTA_USED_BYTES, Long.class);
-            if (calTimezoneProp != null) {
-                return calTimezoneProp;
-            }
-            return new Long(0);
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        Long quotaUsedBytes = getPropertySnapshot().getQuotaUsedBytes();
+        return quotaUsedBytes != null ? quotaUsedBytes : Long.valueOf(0);
     }
     
     /**
      * Href (link) to the owner of this collection
      */
     public String getOwnerHref() {
-        String ownerHref = null;
-        try {
-            ArrayList<Node> ownerProp;
-            ownerProp = getProperty(SecurityConstants.OWNER, ArrayList.class);
-            if (ownerProp != null) {
-                for (Node child : ownerProp) {
-                    if (child instanceof Element) {
-                        String nameNode = child.getNodeName();
-                        if ((nameNode != null) && ("href".equals(nameNode))) {
-                            ownerHref = child.getTextContent();
-                        }
-                    }
-                }
-            }
-            return ownerHref;
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        return getPropertySnapshot().getOwnerHref();
     }
 
     /**
@@ -265,6 +185,66 @@ public abstract class AbstractDavObjectCollection<T> implements ObjectCollection
     }
 
     /**
+     * @return a snapshot of the collection properties, which is created when first required
+     */
+    final CollectionProperties getPropertySnapshot() {
+        CollectionProperties snapshot = propertySnapshot;
+        if (snapshot == null) {
+            snapshot = new CollectionProperties(properties);
+            propertySnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Replaces the properties of this collection, discarding any previous snapshot.
+     * @param properties the collection properties
+     */
+    protected final void setProperties(DavPropertySet properties) {
+        this.properties = properties;
+        this.propertySnapshot = null;
+        this._ownerName = null;
+    }
+
+    /**
+     * @return the names of properties requested when refreshing the collection properties
+     */
+    protected DavPropertyNameSet getPropertyNamesForFetch() {
+        DavPropertyNameSet names = new DavPropertyNameSet();
+        for (DavPropertyName name : properties.getPropertyNames()) {
+            names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * Retrieves the current properties of this collection from the server. Properties are otherwise retrieved only
+     * when the collection is created, such that getters do not contact the server.
+     * @throws ObjectStoreException where the properties cannot be retrieved
+     */
+    public void refreshProperties() throws ObjectStoreException {
+        HttpPropfind method;
+        try {
+            method = new HttpPropfind(getPath(), getPropertyNamesForFetch(), 0);
+        } catch (IOException e) {
+            throw new ObjectStoreException("Unable to refresh properties", e);
+        }
+        PropFindResponseHandler responseHandler = new PropFindResponseHandler(method);
+        try {
+            responseHandler.accept(getStore().getClient().execute(method));
+            if (!responseHandler.exists()) {
+                throw new ObjectStoreException("Unable to refresh properties: " + getPath());
+            }
+            DavPropertySet propertySet = responseHandler.getPropertySet();
+            setProperties(propertySet != null ? propertySet : new DavPropertySet());
+        } catch (IOException e) {
+            throw new ObjectStoreException("Unable to refresh properties", e);
+        }
+    }
+
+    /**
+     * Returns the value of the specified property converted to the specified type. Text and numeric values, and
+     * XML values (as a list of nodes), are converted without reflection.
      * @param <P> the property type
      * @param propertyName a property name
      * @param type the class for the property type returned (HACK!!)
@@ -276,34 +256,40 @@ public abstract class AbstractDavObjectCollection<T> implements ObjectCollection
     @SuppressWarnings({ "unchecked", "rawtypes" })
 	public final <P> P getProperty(DavPropertyName propertyName, Class<P> type)
         throws IOException, ObjectStoreException, DavException {
-        
-        DavPropertySet props = properties;
-        if (props.get(propertyName) != null) {
-            Object value = props.get(propertyName).getValue();
-            try {
-                if (Collection.class.isAssignableFrom(type)) {
-                    P result = type.newInstance();
-                    if (value instanceof Collection<?>) {
-                        ((Collection<?>) result).addAll((Collection) value);
-                    } else {
-                        // doesn't look like a collection for Apple's iCloud
-                        // might just be a single node
-                        ((Collection) result).add(value);
-                    }
-                    return result;
-                }
-                else {
-                    Constructor<P> constructor = type.getConstructor(value.getClass());
-                    return constructor.newInstance(value);
+
+        Object value = getPropertySnapshot().getValue(propertyName);
+        if (value == null) {
+            return null;
+        }
+        try {
+            if (Collection.class.isAssignableFrom(type)) {
+                P result = type.isAssignableFrom(ArrayList.class) ? (P) new ArrayList<>() : type.newInstance();
+                if (value instanceof Collection<?>) {
+                    ((Collection<?>) result).addAll((Collection) value);
+                } else {
+                    // doesn't look like a collection for Apple's iCloud
+                    // might just be a single node
+                    ((Collection) result).add(value);
                 }
-            } catch (IllegalAccessException
-                    | InvocationTargetException
-                    | InstantiationException
-                    | NoSuchMethodException e) {
-                throw new RuntimeException(e);
+                return result;
+            } else if (type == String.class) {
+                return (P) CollectionProperties.toText(value);
+            } else if (type == Integer.class) {
+                return (P) Integer.valueOf(CollectionProperties.toText(value).trim());
+            } else if (type == Long.class) {
+                return (P) Long.valueOf(CollectionProperties.toText(value).trim());
+            } else if (type.isInstance(value)) {
+                return type.cast(value);
+            } else {
+                Constructor<P> constructor = type.getConstructor(value.getClass());
+                return constructor.newInstance(value);
             }
+        } catch (IllegalAccessException
+                | InvocationTargetException
+                | InstantiationException
+                | NoSuchMethodException e) {
+            throw new RuntimeException(e);
         }
-        return null;
     }
 
     /**
@@ -313,13 +299,27 @@ public abstract class AbstractDavObjectCollection<T> implements ObjectCollection
      */
     public final void delete() throws HttpResponseException, IOException, ObjectStoreException {
         HttpDelete deleteMethod = new HttpDelete(getPath());
-        HttpResponse httpResponse = getStore().getClient().execute(deleteMethod);
+        HttpResponse httpResponse = getStore().getClient().executeAndRelease(deleteMethod);
         if (!deleteMethod.succeeded(httpResponse)) {
             throw new ObjectStoreException(httpResponse.getStatusLine().getStatusCode() + ": "
                     + httpResponse.getStatusLine().getReasonPhrase());
         }
     }
 
+    /**
+     * Notifies the store event dispatcher (if any) of a change to an object in the collection.
+     * @param type the type of change
+     * @param uid the UID of the affected object
+     * @param href the path of the affected object
+     * @param etag the entity tag of the object following the change, or null if unknown
+     */
+    protected final void fireComponentEvent(ObjectStoreEvent.Type type, String uid, String href, String etag) {
+        ObjectStoreEventDispatcher<?> dispatcher = getStore().getEventDispatcher();
+        if (dispatcher != null) {
+            dispatcher.componentChanged(getStore(), this, type, uid, href, etag);
+        }
+    }
+
     /**
      * @return true if the collection exists, otherwise false
      * @throws HttpResponseException where an error occurs calling the HTTP method
@@ -36,11 +36,15 @@ import net.fortuna.ical4j.connector.ObjectCollection;
 import net.fortuna.ical4j.connector.ObjectStore;
 import net.fortuna.ical4j.connector.ObjectStoreException;
 import net.fortuna.ical4j.connector.dav.enums.SupportedFeature;
+import net.fortuna.ical4j.connector.event.ObjectStoreEvent;
+import net.fortuna.ical4j.connector.event.ObjectStoreEventDispatcher;
 import net.fortuna.ical4j.util.Configurator;
+import org.apache.commons.logging.LogFactory;
 
 import java.io.IOException;
 import java.net.URL;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * @param <C>
@@ -57,13 +61,14 @@ public abstract class AbstractDavObjectStore<C extends ObjectCollection<?>> impl
 	private DavClient davClient;
 	
 	private String username;
-    private String bearerAuth;
 	
 	private final URL rootUrl;
 	
 	private List<SupportedFeature> supportedFeatures;
 
     private String userId;
+
+    private volatile ObjectStoreEventDispatcher<?> eventDispatcher;
 	
     /**
      * Server implementation-specific path resolution.
@@ -77,7 +82,11 @@ public abstract class AbstractDavObjectStore<C extends ObjectCollection<?>> impl
     public AbstractDavObjectStore(URL url, PathResolver pathResolver) {
     	this.rootUrl = url;
         this.pathResolver = pathResolver;
-        this.clientFactory = new DavClientFactory("true".equals(Configurator.getProperty("ical4j.connector.dav.preemptiveauth").orElse("false")));
+        this.clientFactory = new DavClientFactory("true".equals(Configurator.getProperty("ical4j.connector.dav.preemptiveauth").orElse("false")),
+                !"false".equals(getProfileProperty("ical4j.connector.dav.compression").orElse("true")),
+                new ResiliencePolicy(this::getProfileProperty),
+                "true".equals(getProfileProperty("ical4j.connector.dav.capabilitycache").orElse("false"))
+                        ? CapabilityCache.getDefault() : null);
     }
 
     public AbstractDavObjectStore(URL url, PathResolver pathResolver, String userId) {
@@ -85,6 +94,15 @@ public abstract class AbstractDavObjectStore<C extends ObjectCollection<?>> impl
         this.userId = userId;
     }
 
+    /**
+     * @param name a configuration property name
+     * @return the configured property value, which may be overridden for the server implementation
+     * @see PathResolver#getProfileProperty(String)
+     */
+    protected final Optional<String> getProfileProperty(String name) {
+        return pathResolver != null ? pathResolver.getProfileProperty(name) : Configurator.getProperty(name);
+    }
+
     /**
      * @return the path
      */
@@ -113,11 +131,20 @@ public abstract class AbstractDavObjectStore<C extends ObjectCollection<?>> impl
 
 
     public final boolean connect( String bearerAuth ) throws ObjectStoreException {
+        return connect(() -> new BearerToken(bearerAuth));
+    }
+
+    /**
+     * Connects to the server using bearer tokens obtained from the specified supplier. Tokens are refreshed as
+     * required without reconnecting.
+     * @param tokenSupplier obtains bearer tokens
+     * @return true if connected
+     * @throws ObjectStoreException where the connection fails
+     */
+    public final boolean connect(BearerTokenSupplier tokenSupplier) throws ObjectStoreException {
         try {
             davClient = clientFactory.newInstance(rootUrl, rootUrl.getFile(), rootUrl.getFile());
-            davClient.begin( bearerAuth );
-
-            this.bearerAuth = bearerAuth;
+            supportedFeatures = davClient.begin(tokenSupplier);
         } catch (IOException ioe) {
             throw new ObjectStoreException( ioe );
         } catch (FailedOperationException foe) {
@@ -167,6 +194,13 @@ public abstract class AbstractDavObjectStore<C extends ObjectCollection<?>> impl
      * {@inheritDoc}
      */
     public final void disconnect() {
+        if (davClient != null) {
+            try {
+                davClient.close();
+            } catch (IOException e) {
+                LogFactory.getLog(AbstractDavObjectStore.class).warn("Error releasing connections", e);
+            }
+        }
     	davClient = null;
     	username = null;
     }
@@ -217,5 +251,35 @@ public abstract class AbstractDavObjectStore<C extends ObjectCollection<?>> impl
         this.userId = userId;
     }
 
+    /**
+     * @return the dispatcher notified of changes to the store, or null if events are not enabled
+     */
+    public final ObjectStoreEventDispatcher<?> getEventDispatcher() {
+        return eventDispatcher;
+    }
+
+    /**
+     * @param eventDispatcher a dispatcher notified of changes to collections in the store and their objects
+     */
+    public final void setEventDispatcher(ObjectStoreEventDispatcher<?> eventDispatcher) {
+        this.eventDispatcher = eventDispatcher;
+    }
+
+    /**
+     * Notifies the event dispatcher (if any) of an added or removed collection.
+     * @param type the type of change
+     * @param collection the affected collection
+     */
+    protected final void fireCollectionEvent(ObjectStoreEvent.Type type, C collection) {
+        ObjectStoreEventDispatcher<?> dispatcher = eventDispatcher;
+        if (dispatcher != null) {
+            if (type == ObjectStoreEvent.Type.COLLECTION_REMOVED) {
+                dispatcher.collectionRemoved(this, collection);
+            } else {
+                dispatcher.collectionAdded(this, collection);
+            }
+        }
+    }
+
 
 }
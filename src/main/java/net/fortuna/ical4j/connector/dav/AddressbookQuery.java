@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import org.apache.jackrabbit.webdav.xml.DomUtil;
+import org.apache.jackrabbit.webdav.xml.Namespace;
+import org.apache.jackrabbit.webdav.xml.XmlSerializable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An addressbook-query report (RFC 6352 section 8.6) that is evaluated by the server. Address objects may be
+ * filtered by property and parameter values, and the properties returned in each address object may be limited,
+ * such that large values (e.g. PHOTO) are only transferred where required.
+ *
+ * <pre>
+ * AddressbookQuery query = new AddressbookQuery()
+ *         .propFilter(new AddressbookQuery.PropFilter("EMAIL").textMatch("example.com", MatchType.CONTAINS))
+ *         .properties("FN", "EMAIL", "TEL");
+ * VCard[] cards = collection.query(query);
+ * </pre>
+ */
+public class AddressbookQuery implements XmlSerializable {
+
+    /**
+     * The default collation for text matching, as required by RFC 6352.
+     */
+    public static final String DEFAULT_COLLATION = "i;unicode-casemap";
+
+    /**
+     * The types of text match supported by a text-match element.
+     */
+    public enum MatchType {
+        EQUALS("equals"), CONTAINS("contains"), STARTS_WITH("starts-with"), ENDS_WITH("ends-with");
+
+        private final String value;
+
+        MatchType(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * A condition on the text value of a property or parameter.
+     */
+    private static final class TextMatch {
+
+        private final String text;
+
+        private final MatchType matchType;
+
+        private final boolean negate;
+
+        private final String collation;
+
+        TextMatch(String text, MatchType matchType, boolean negate, String collation) {
+            this.text = text;
+            this.matchType = matchType;
+            this.negate = negate;
+            this.collation = collation;
+        }
+
+        Element toXml(Document document) {
+            Element textMatch = DomUtil.createElement(document, CalDavConstants.PROPERTY_TEXT_MATCH, NAMESPACE, text);
+            textMatch.setAttribute(CalDavConstants.ATTRIBUTE_COLLATION, collation);
+            textMatch.setAttribute(CalDavConstants.ATTRIBUTE_MATCH_TYPE, matchType.getValue());
+            textMatch.setAttribute(CalDavConstants.ATTRIBUTE_NEGATE_CONDITION, negate ? "yes" : "no");
+            return textMatch;
+        }
+    }
+
+    /**
+     * A condition on a parameter of a property.
+     */
+    private static final class ParamFilter {
+
+        private final String name;
+
+        private final TextMatch textMatch;
+
+        ParamFilter(String name, TextMatch textMatch) {
+            this.name = name;
+            this.textMatch = textMatch;
+        }
+
+        Element toXml(Document document) {
+            Element paramFilter = DomUtil.createElement(document, CalDavConstants.PROPERTY_PARAM_FILTER, NAMESPACE);
+            paramFilter.setAttribute(CalDavConstants.ATTRIBUTE_NAME, name);
+            if (textMatch != null) {
+                paramFilter.appendChild(textMatch.toXml(document));
+            } else {
+                paramFilter.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_IS_NOT_DEFINED,
+                        NAMESPACE));
+            }
+            return paramFilter;
+        }
+    }
+
+    /**
+     * A condition on a property of an address object. A property filter with no conditions matches address objects
+     * where the property is defined.
+     */
+    public static final class PropFilter {
+
+        private final String name;
+
+        private boolean allOf;
+
+        private boolean notDefined;
+
+        private final List<TextMatch> textMatches = new ArrayList<>();
+
+        private final List<ParamFilter> paramFilters = new ArrayList<>();
+
+        /**
+         * @param name the name of the property to match (e.g. EMAIL)
+         */
+        public PropFilter(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return this filter, modified such that all conditions must match (by default any condition may match)
+         */
+        public PropFilter allOf() {
+            this.allOf = true;
+            return this;
+        }
+
+        /**
+         * @return this filter, modified to match address objects where the property is not defined
+         */
+        public PropFilter isNotDefined() {
+            this.notDefined = true;
+            return this;
+        }
+
+        /**
+         * @param text the text to match
+         * @param matchType the type of match
+         * @return this filter, with an additional text match condition
+         */
+        public PropFilter textMatch(String text, MatchType matchType) {
+            return textMatch(text, matchType, false);
+        }
+
+        /**
+         * @param text the text to match
+         * @param matchType the type of match
+         * @param negate indicates that the condition matches where the text does not match
+         * @return this filter, with an additional text match condition
+         */
+        public PropFilter textMatch(String text, MatchType matchType, boolean negate) {
+            textMatches.add(new TextMatch(text, matchType, negate, DEFAULT_COLLATION));
+            return this;
+        }
+
+        /**
+         * @param name the name of a parameter (e.g. TYPE)
+         * @param text the text to match
+         * @param matchType the type of match
+         * @return this filter, with an additional parameter condition
+         */
+        public PropFilter paramFilter(String name, String text, MatchType matchType) {
+            paramFilters.add(new ParamFilter(name, new TextMatch(text, matchType, false, DEFAULT_COLLATION)));
+            return this;
+        }
+
+        /**
+         * @param name the name of a parameter that must not be defined
+         * @return this filter, with an additional parameter condition
+         */
+        public PropFilter paramNotDefined(String name) {
+            paramFilters.add(new ParamFilter(name, null));
+            return this;
+        }
+
+        Element toXml(Document document) {
+            Element propFilter = DomUtil.createElement(document, CalDavConstants.PROPERTY_PROP_FILTER, NAMESPACE);
+            propFilter.setAttribute(CalDavConstants.ATTRIBUTE_NAME, name);
+            if (notDefined) {
+                propFilter.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_IS_NOT_DEFINED,
+                        NAMESPACE));
+                return propFilter;
+            }
+            propFilter.setAttribute(CalDavConstants.ATTRIBUTE_TEST, allOf ? "allof" : "anyof");
+            for (TextMatch textMatch : textMatches) {
+                propFilter.appendChild(textMatch.toXml(document));
+            }
+            for (ParamFilter paramFilter : paramFilters) {
+                propFilter.appendChild(paramFilter.toXml(document));
+            }
+            return propFilter;
+        }
+    }
+
+    private static final Namespace NAMESPACE = CalDavConstants.CARDDAV_NAMESPACE;
+
+    private boolean allOf;
+
+    private final List<PropFilter> propFilters = new ArrayList<>();
+
+    private final List<String> properties = new ArrayList<>();
+
+    private int limit;
+
+    /**
+     * @return this query, modified such that all property filters must match (by default any filter may match)
+     */
+    public AddressbookQuery allOf() {
+        this.allOf = true;
+        return this;
+    }
+
+    /**
+     * @param propFilter a condition on a property of matching address objects
+     * @return this query
+     */
+    public AddressbookQuery propFilter(PropFilter propFilter) {
+        propFilters.add(propFilter);
+        return this;
+    }
+
+    /**
+     * Limits the properties returned in each address object. Properties required by the vCard format (e.g. VERSION)
+     * are returned by the server regardless.
+     * @param names the names of properties to return (e.g. FN, EMAIL)
+     * @return this query
+     */
+    public AddressbookQuery properties(String... names) {
+        properties.addAll(Arrays.asList(names));
+        return this;
+    }
+
+    /**
+     * @param limit the maximum number of address objects to return, or zero for no limit
+     * @return this query
+     */
+    public AddressbookQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * @return true if the query selects properties, such that matching address objects are not returned in full
+     */
+    public boolean isPartial() {
+        return !properties.isEmpty();
+    }
+
+    /**
+     * @param document the owner of the new element
+     * @return an addressbook-query report body
+     */
+    @Override
+    public Element toXml(Document document) {
+        Element query = DomUtil.createElement(document, "addressbook-query", NAMESPACE);
+
+        Element prop = DomUtil.createElement(document, DavConstants.XML_PROP, DavConstants.NAMESPACE);
+        prop.appendChild(DomUtil.createElement(document, DavConstants.PROPERTY_GETETAG, DavConstants.NAMESPACE));
+        Element addressData = DomUtil.createElement(document, CalDavConstants.PROPERTY_ADDRESS_DATA, NAMESPACE);
+        for (String name : properties) {
+            Element property = DomUtil.createElement(document, CalDavConstants.PROPERTY_PROP, NAMESPACE);
+            property.setAttribute(CalDavConstants.ATTRIBUTE_NAME, name);
+            addressData.appendChild(property);
+        }
+        prop.appendChild(addressData);
+        query.appendChild(prop);
+
+        Element filter = DomUtil.createElement(document, CalDavConstants.PROPERTY_FILTER, NAMESPACE);
+        filter.setAttribute(CalDavConstants.ATTRIBUTE_TEST, allOf ? "allof" : "anyof");
+        for (PropFilter propFilter : propFilters) {
+            filter.appendChild(propFilter.toXml(document));
+        }
+        query.appendChild(filter);
+
+        if (limit > 0) {
+            Element limitElement = DomUtil.createElement(document, CalDavConstants.PROPERTY_LIMIT, NAMESPACE);
+            limitElement.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_NRESULTS, NAMESPACE,
+                    Integer.toString(limit)));
+            query.appendChild(limitElement);
+        }
+        return query;
+    }
+}
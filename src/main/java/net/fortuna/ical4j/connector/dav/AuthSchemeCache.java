@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScheme;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.auth.BasicScheme;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread-safe cache of authentication schemes negotiated with each host. Once a client has successfully authenticated
+ * with a host in response to a Basic challenge, the scheme is cached and used to authenticate subsequent requests
+ * preemptively, avoiding a challenge round-trip for each request. Credentials are not cached, and continue to be
+ * provided by each client.
+ *
+ * Only Basic schemes are cached. A Digest scheme is bound to a server nonce and a request counter, and a cached copy
+ * would repeat the same nonce count for each request, which servers reject as a replay. Digest requests are therefore
+ * challenged as usual.
+ *
+ * A cache is normally used by a single client. Where enabled, clients authenticating as the same user may share a cache
+ * via {@link #getShared(String)}, such that new clients also authenticate preemptively. A scheme that subsequently
+ * fails to authenticate is removed from the cache, such that the next request is challenged.
+ */
+public class AuthSchemeCache extends BasicAuthCache {
+
+    private static final Map<String, AuthSchemeCache> SHARED = new ConcurrentHashMap<>();
+
+    /**
+     * @param username the name of an authenticated user
+     * @return the cache shared by all clients authenticating as the specified user
+     */
+    public static AuthSchemeCache getShared(String username) {
+        return SHARED.computeIfAbsent(username, u -> new AuthSchemeCache());
+    }
+
+    /**
+     * Caches the specified scheme where it may be safely reused by subsequent requests, otherwise removes any scheme
+     * cached for the host.
+     * @param host a target host
+     * @param authScheme a scheme that successfully authenticated a request
+     */
+    @Override
+    public void put(HttpHost host, AuthScheme authScheme) {
+        if (authScheme instanceof BasicScheme) {
+            super.put(host, authScheme);
+        } else {
+            super.remove(host);
+        }
+    }
+
+    /**
+     * Caches a Basic scheme for the specified host where no other scheme is known, such that requests are
+     * authenticated preemptively.
+     * @param host a target host
+     */
+    public synchronized void putBasicIfAbsent(HttpHost host) {
+        if (get(host) == null) {
+            put(host, new BasicScheme());
+        }
+    }
+
+    /**
+     * @param host a target host
+     * @return the name of the cached scheme for the host, or null if no scheme is cached
+     */
+    public String getSchemeName(HttpHost host) {
+        AuthScheme scheme = get(host);
+        return scheme != null ? scheme.getSchemeName() : null;
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Maintains a current bearer token obtained from a {@link BearerTokenSupplier}.
+ *
+ * Tokens are refreshed in the background before they expire, such that requests are not delayed. The refresh time of
+ * each token is randomised within a window before expiry, so that many tokens issued at the same time are not
+ * refreshed at the same time, and background refreshes share a small pool of threads. Only a single refresh is
+ * performed at a time, with concurrent callers awaiting the same result.
+ */
+public class BearerTokenManager {
+
+    /**
+     * Performs background token refreshes for all managers.
+     */
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newFixedThreadPool(4, r -> {
+        Thread thread = new Thread(r, "dav-token-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final BearerTokenSupplier supplier;
+
+    private final long refreshWindow;
+
+    private BearerToken token;
+
+    private long refreshAt;
+
+    private CompletableFuture<BearerToken> refresh;
+
+    /**
+     * @param supplier obtains new tokens
+     * @param refreshWindow the period (in milliseconds) before expiry during which a token may be refreshed
+     */
+    public BearerTokenManager(BearerTokenSupplier supplier, long refreshWindow) {
+        this.supplier = supplier;
+        this.refreshWindow = refreshWindow;
+    }
+
+    /**
+     * @param supplier obtains new tokens
+     */
+    public BearerTokenManager(BearerTokenSupplier supplier) {
+        this(supplier, 300000);
+    }
+
+    /**
+     * Returns the current token, obtaining a new token where there is no current token or it has expired. A
+     * background refresh is started where the current token is due to expire.
+     * @return a valid token
+     * @throws IOException where a new token is required but cannot be obtained
+     */
+    public String getToken() throws IOException {
+        Runnable task = null;
+        CompletableFuture<BearerToken> pending;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (token != null && !token.isExpired(now)) {
+                if (now >= refreshAt && refresh == null) {
+                    REFRESH_EXECUTOR.execute(newRefresh());
+                }
+                return token.getValue();
+            }
+            if (refresh == null) {
+                task = newRefresh();
+            }
+            pending = refresh;
+        }
+        return await(pending, task).getValue();
+    }
+
+    /**
+     * Refreshes the specified token, where it was rejected by the server. If the token has already been replaced
+     * (e.g. by a concurrent request) the current token is returned without refreshing.
+     * @param rejected a token rejected by the server
+     * @return the replacement token, which may be the same as the rejected token where the supplier doesn't issue a
+     * new token
+     * @throws IOException where a new token cannot be obtained
+     */
+    public String refresh(String rejected) throws IOException {
+        Runnable task = null;
+        CompletableFuture<BearerToken> pending;
+        synchronized (this) {
+            if (token != null && !token.getValue().equals(rejected) && !token.isExpired(System.currentTimeMillis())) {
+                return token.getValue();
+            }
+            if (refresh == null) {
+                task = newRefresh();
+            }
+            pending = refresh;
+        }
+        return await(pending, task).getValue();
+    }
+
+    /**
+     * Starts a new refresh, returning the task that will obtain the new token.
+     */
+    private Runnable newRefresh() {
+        CompletableFuture<BearerToken> pending = new CompletableFuture<>();
+        refresh = pending;
+        return () -> {
+            try {
+                BearerToken refreshed = supplier.get();
+                synchronized (this) {
+                    token = refreshed;
+                    refreshAt = nextRefresh(refreshed);
+                    refresh = null;
+                }
+                pending.complete(refreshed);
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    // retry a failed background refresh on a subsequent request..
+                    refresh = null;
+                }
+                pending.completeExceptionally(e);
+            }
+        };
+    }
+
+    private long nextRefresh(BearerToken token) {
+        if (token.getExpiresAt() == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        long window = Math.min(refreshWindow, Math.max(0, token.getExpiresAt() - System.currentTimeMillis()) / 2);
+        return token.getExpiresAt() - window / 2 - ThreadLocalRandom.current().nextLong(window / 2 + 1);
+    }
+
+    /**
+     * Awaits a pending refresh, first running the refresh task on the calling thread where specified.
+     */
+    private static BearerToken await(CompletableFuture<BearerToken> pending, Runnable task) throws IOException {
+        if (task != null) {
+            task.run();
+        }
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted awaiting token refresh");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Token refresh failed", e.getCause());
+        }
+    }
+}
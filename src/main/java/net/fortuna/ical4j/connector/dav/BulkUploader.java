@@ -0,0 +1,474 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import net.fortuna.ical4j.connector.ObjectStoreException;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.ConstraintViolationException;
+import net.fortuna.ical4j.model.property.Uid;
+import net.fortuna.ical4j.util.Calendars;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpHost;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Uploads a large number of calendar objects to a collection using concurrent PUT requests.
+ *
+ * The number of requests in flight is bounded, and is halved whenever the server indicates it is overloaded
+ * (429 or 503 responses), pausing all uploads for the period specified by any Retry-After header. The limit is
+ * then gradually increased as uploads succeed. This throttling state is shared by all uploaders to the same host,
+ * and throttled requests are retried only by the uploader (i.e. not also by the {@link DavClient}). Progress may be
+ * recorded in a {@link Checkpoint} such that an interrupted upload can be resumed without repeating completed items.
+ */
+public class BulkUploader {
+
+    private static final Log LOG = LogFactory.getLog(BulkUploader.class);
+
+    /**
+     * The delay before retrying a throttled request where the server does not specify one.
+     */
+    private static final long DEFAULT_RETRY_AFTER = 1000;
+
+    /**
+     * The outcome of uploading a single calendar object.
+     */
+    public enum Status {
+        UPLOADED, SKIPPED, FAILED
+    }
+
+    /**
+     * Records the outcome of uploading a single calendar object.
+     */
+    public static final class Result {
+
+        private final String uri;
+
+        private final Status status;
+
+        private final String etag;
+
+        private final ObjectStoreException error;
+
+        Result(String uri, Status status, String etag, ObjectStoreException error) {
+            this.uri = uri;
+            this.status = status;
+            this.etag = etag;
+            this.error = error;
+        }
+
+        /**
+         * @return the URI of the calendar object, relative to the collection
+         */
+        public String getUri() {
+            return uri;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the entity tag of the uploaded calendar object, or null if not uploaded
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return the reason the upload failed, or null if successful
+         */
+        public ObjectStoreException getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Records the calendar objects that have been uploaded successfully.
+     */
+    public interface Checkpoint {
+
+        /**
+         * @param uri the URI of a calendar object, relative to the collection
+         * @return true if the calendar object has previously been uploaded
+         */
+        boolean isComplete(String uri);
+
+        /**
+         * @param uri the URI of a calendar object that was uploaded successfully
+         */
+        void complete(String uri);
+    }
+
+    /**
+     * A checkpoint that records uploaded calendar objects in a file, one URI per line.
+     */
+    public static class FileCheckpoint implements Checkpoint, AutoCloseable {
+
+        private final Set<String> completed;
+
+        private final BufferedWriter writer;
+
+        /**
+         * @param file a checkpoint file. Calendar objects recorded in an existing file are considered complete
+         * @throws IOException where the file cannot be read or written
+         */
+        public FileCheckpoint(Path file) throws IOException {
+            completed = ConcurrentHashMap.newKeySet();
+            if (Files.exists(file)) {
+                completed.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+            }
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        }
+
+        @Override
+        public boolean isComplete(String uri) {
+            return completed.contains(uri);
+        }
+
+        @Override
+        public synchronized void complete(String uri) {
+            if (completed.add(uri)) {
+                try {
+                    writer.write(uri);
+                    writer.newLine();
+                    writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Limits the concurrent uploads to a host, adapting to throttled responses.
+     */
+    static final class Throttle {
+
+        private static final Map<String, Throttle> INSTANCES = new ConcurrentHashMap<>();
+
+        private final int maxConcurrency;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition available = lock.newCondition();
+
+        private int concurrency;
+
+        private int inFlight;
+
+        private int successes;
+
+        private long resumeAt;
+
+        private Throttle(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            this.concurrency = maxConcurrency;
+        }
+
+        /**
+         * @param host a host URI
+         * @param maxConcurrency the maximum number of concurrent requests, applied where the host has no throttle
+         * @return the shared throttle for the specified host
+         */
+        static Throttle forHost(String host, int maxConcurrency) {
+            return INSTANCES.computeIfAbsent(host, h -> new Throttle(maxConcurrency));
+        }
+
+        int getConcurrency() {
+            lock.lock();
+            try {
+                return concurrency;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                while (true) {
+                    long wait = resumeAt - System.currentTimeMillis();
+                    if (wait > 0) {
+                        available.await(wait, TimeUnit.MILLISECONDS);
+                    } else if (inFlight >= concurrency) {
+                        available.await();
+                    } else {
+                        break;
+                    }
+                }
+                inFlight++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(boolean success) {
+            lock.lock();
+            try {
+                inFlight--;
+                // additive increase after a full round of successful requests..
+                if (success && ++successes >= concurrency && concurrency < maxConcurrency) {
+                    concurrency++;
+                    successes = 0;
+                }
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void throttle(long retryAfter) {
+            lock.lock();
+            try {
+                concurrency = Math.max(1, concurrency / 2);
+                successes = 0;
+                resumeAt = Math.max(resumeAt, System.currentTimeMillis()
+                        + (retryAfter >= 0 ? retryAfter : DEFAULT_RETRY_AFTER));
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final CalDavCalendarCollection collection;
+
+    private final int maxConcurrency;
+
+    private final int maxAttempts;
+
+    private final Throttle throttle;
+
+    /**
+     * @param collection the collection to upload to
+     * @param maxConcurrency the maximum number of concurrent requests
+     * @param maxAttempts the maximum number of attempts to upload each calendar object when throttled
+     */
+    public BulkUploader(CalDavCalendarCollection collection, int maxConcurrency, int maxAttempts) {
+        this.collection = collection;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        URL url = collection.getStore().getHostURL();
+        this.throttle = Throttle.forHost(new HttpHost(url.getHost(), url.getPort(), url.getProtocol()).toURI(),
+                this.maxConcurrency);
+    }
+
+    /**
+     * @return the current limit on concurrent requests to the host
+     */
+    public int getConcurrency() {
+        return throttle.getConcurrency();
+    }
+
+    /**
+     * Uploads the specified calendar objects as new objects in the collection.
+     * @param calendars calendar objects, each containing components with a single UID
+     * @param checkpoint records progress, or null to upload all calendar objects
+     * @return the result of uploading each calendar object, in the order specified
+     * @throws InterruptedException where the current thread is interrupted before all uploads are complete
+     */
+    public List<Result> upload(List<Calendar> calendars, Checkpoint checkpoint) throws InterruptedException {
+        try (Upload upload = begin(checkpoint)) {
+            for (Calendar calendar : calendars) {
+                upload.submit(calendar);
+            }
+            return upload.complete();
+        }
+    }
+
+    /**
+     * Begins an upload of calendar objects that are supplied incrementally, such as when parsing a large stream.
+     * @param checkpoint records progress, or null to upload all calendar objects
+     * @return a new upload session
+     */
+    public Upload begin(Checkpoint checkpoint) {
+        return new Upload(checkpoint);
+    }
+
+    /**
+     * An upload session that accepts calendar objects as they become available. The number of calendar objects
+     * waiting to be uploaded is bounded, such that {@link #submit(Calendar)} blocks where the server cannot keep up.
+     */
+    public final class Upload implements AutoCloseable {
+
+        private final Checkpoint checkpoint;
+
+        private final ExecutorService executor;
+
+        private final Semaphore pending;
+
+        private final List<Future<Result>> futures = new ArrayList<>();
+
+        /**
+         * The most recent upload of each UID.
+         */
+        private final Map<String, Future<Result>> uploads = new HashMap<>();
+
+        private Upload(Checkpoint checkpoint) {
+            this.checkpoint = checkpoint;
+            this.executor = Executors.newFixedThreadPool(maxConcurrency);
+            this.pending = new Semaphore(maxConcurrency * 2);
+        }
+
+        /**
+         * @param calendar a calendar object containing components with a single UID
+         * @throws InterruptedException where the current thread is interrupted while waiting to submit
+         */
+        public void submit(Calendar calendar) throws InterruptedException {
+            pending.acquire();
+            Future<Result> future;
+            try {
+                future = executor.submit(() -> {
+                    try {
+                        return upload(calendar, checkpoint);
+                    } finally {
+                        pending.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pending.release();
+                throw e;
+            }
+            futures.add(future);
+            try {
+                Uid uid = Calendars.getUid(calendar);
+                if (uid != null) {
+                    uploads.put(uid.getValue(), future);
+                }
+            } catch (ConstraintViolationException e) {
+                // the upload fails and is reported in the result..
+            }
+        }
+
+        /**
+         * Waits for the upload of a previously submitted calendar object, such that it may be modified without
+         * conflicting with the upload.
+         * @param uid the UID of a calendar object
+         * @return the result of uploading the calendar object, or null if no calendar object with the UID was
+         * submitted
+         * @throws InterruptedException where the current thread is interrupted while waiting
+         */
+        public Result await(String uid) throws InterruptedException {
+            Future<Result> future = uploads.get(uid);
+            if (future == null) {
+                return null;
+            }
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                // results are always returned, so this is unexpected..
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        /**
+         * Waits for all submitted calendar objects to be uploaded.
+         * @return the result of uploading each calendar object, in the order submitted
+         * @throws InterruptedException where the current thread is interrupted before all uploads are complete
+         */
+        public List<Result> complete() throws InterruptedException {
+            List<Result> results = new ArrayList<>(futures.size());
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // results are always returned, so this is unexpected..
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        }
+
+        /**
+         * Cancels any uploads that have not completed.
+         */
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result upload(Calendar calendar, Checkpoint checkpoint) throws InterruptedException {
+        String uri;
+        try {
+            uri = collection.defaultUriFromUid(Calendars.getUid(calendar).getValue());
+        } catch (ConstraintViolationException e) {
+            return new Result(null, Status.FAILED, null, new ObjectStoreException("Invalid calendar object", e));
+        }
+        if (checkpoint != null && checkpoint.isComplete(uri)) {
+            return new Result(uri, Status.SKIPPED, null, null);
+        }
+        for (int attempt = 1; ; attempt++) {
+            throttle.acquire();
+            boolean success = false;
+            try {
+                String etag = collection.writeCalendarOnServer(uri, calendar, true, false);
+                success = true;
+                if (checkpoint != null) {
+                    checkpoint.complete(uri);
+                }
+                return new Result(uri, Status.UPLOADED, etag, null);
+            } catch (ThrottledException e) {
+                throttle.throttle(e.getRetryAfter());
+                if (attempt >= maxAttempts) {
+                    return new Result(uri, Status.FAILED, null, e);
+                }
+                LOG.debug("Upload throttled (" + e.getMessage() + "), retrying: " + uri);
+            } catch (ObjectStoreException e) {
+                return new Result(uri, Status.FAILED, null, e);
+            } catch (RuntimeException e) {
+                return new Result(uri, Status.FAILED, null, new ObjectStoreException(e));
+            } finally {
+                throttle.release(success);
+            }
+        }
+    }
+}
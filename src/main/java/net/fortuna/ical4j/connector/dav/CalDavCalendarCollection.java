@@ -32,6 +32,8 @@
 package net.fortuna.ical4j.connector.dav;
 
 import net.fortuna.ical4j.connector.CalendarCollection;
+import net.fortuna.ical4j.connector.CalendarExporter;
+import net.fortuna.ical4j.connector.CalendarImporter;
 import net.fortuna.ical4j.connector.FailedOperationException;
 import net.fortuna.ical4j.connector.ObjectNotFoundException;
 import net.fortuna.ical4j.connector.ObjectStoreException;
@@ -43,17 +45,26 @@ import net.fortuna.ical4j.connector.dav.property.BaseDavPropertyName;
 import net.fortuna.ical4j.connector.dav.property.CSDavPropertyName;
 import net.fortuna.ical4j.connector.dav.property.CalDavPropertyName;
 import net.fortuna.ical4j.connector.dav.property.ICalPropertyName;
+import net.fortuna.ical4j.connector.event.ObjectStoreEvent;
+import net.fortuna.ical4j.connector.filter.ComponentFilter;
+import net.fortuna.ical4j.connector.filter.TimeRange;
 import net.fortuna.ical4j.data.CalendarBuilder;
 import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.model.Calendar;
 import net.fortuna.ical4j.model.Component;
 import net.fortuna.ical4j.model.ConstraintViolationException;
 import net.fortuna.ical4j.model.DateTime;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.VFreeBusy;
+import net.fortuna.ical4j.model.property.FreeBusy;
 import net.fortuna.ical4j.model.property.Uid;
 import net.fortuna.ical4j.util.Calendars;
+import net.fortuna.ical4j.util.Configurator;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.util.EntityUtils;
 import org.apache.jackrabbit.webdav.DavConstants;
 import org.apache.jackrabbit.webdav.*;
 import org.apache.jackrabbit.webdav.client.methods.HttpDelete;
@@ -61,19 +72,25 @@ import org.apache.jackrabbit.webdav.client.methods.XmlEntity;
 import org.apache.jackrabbit.webdav.property.*;
 import org.apache.jackrabbit.webdav.security.SecurityConstants;
 import org.apache.jackrabbit.webdav.version.report.ReportInfo;
-import org.apache.jackrabbit.webdav.version.report.ReportType;
 import org.apache.jackrabbit.webdav.xml.DomUtil;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.io.StringReader;
+import java.io.Writer;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * $Id$
@@ -86,6 +103,21 @@ import java.util.List;
 public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calendar> implements CalendarCollection {
 
     private static final org.apache.commons.logging.Log LOG = LogFactory.getLog(CalDavCalendarCollection.class);
+
+    /**
+     * The number of calendar objects retained per collection for conditional retrieval, as specified by the
+     * <code>ical4j.connector.dav.calendarcache.size</code> configuration property.
+     */
+    private static final int CALENDAR_CACHE_SIZE = Integer.parseInt(
+            Configurator.getProperty("ical4j.connector.dav.calendarcache.size").orElse("100"));
+
+    /**
+     * Calendar data is retained unparsed, such that each retrieval returns a new instance that may be modified by the
+     * caller without affecting the retained data.
+     */
+    private final EntityTagStore entityTags = new EntityTagStore(CALENDAR_CACHE_SIZE);
+
+    private volatile ConflictResolver conflictResolver;
     
     /**
      * Only {@link CalDavCalendarStore} should be calling this, so default modifier is applied.
@@ -114,7 +146,7 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
 
     CalDavCalendarCollection(CalDavCalendarStore calDavCalendarStore, String id, DavPropertySet _properties) {
         this(calDavCalendarStore, id, null, null);
-        this.properties = _properties;
+        setProperties(_properties);
     }
 
     /**
@@ -131,7 +163,7 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
         System.out.println("properties: " + properties.getContentSize());
         mkCalendarMethod.setEntity(XmlEntity.create(mkcalendar));
 
-        HttpResponse httpResponse = getStore().getClient().execute(mkCalendarMethod);
+        HttpResponse httpResponse = getStore().getClient().executeAndRelease(mkCalendarMethod);
         if (!mkCalendarMethod.succeeded(httpResponse)) {
             throw new ObjectStoreException(httpResponse.getStatusLine().getStatusCode() + ": " + httpResponse.getStatusLine().getReasonPhrase());
         }
@@ -172,53 +204,70 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
             properties.add(DavPropertyName.GETETAG);
             properties.add(CalDavPropertyName.CALENDAR_DATA);
 
-            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-            Element filter = DomUtil.createElement(document, CalDavConstants.PROPERTY_FILTER,
-                    CalDavConstants.CALDAV_NAMESPACE);
-            Element calFilter = DomUtil.createElement(document, CalDavConstants.PROPERTY_COMP_FILTER,
-                    CalDavConstants.CALDAV_NAMESPACE);
-            calFilter.setAttribute(CalDavConstants.ATTRIBUTE_NAME, Calendar.VCALENDAR);
-            Element eventFilter = DomUtil.createElement(document, CalDavConstants.PROPERTY_COMP_FILTER,
-                    CalDavConstants.CALDAV_NAMESPACE);
-            eventFilter.setAttribute(CalDavConstants.ATTRIBUTE_NAME, componentType);
-            calFilter.appendChild(eventFilter);
-            filter.appendChild(calFilter);
+            Element filter = XmlSupport.newComponentFilter(componentType);
 
             ReportInfo info = new ReportInfo(ReportMethod.CALENDAR_QUERY, 1, properties);
             info.setContentElement(filter);
 
             ReportMethod method = new ReportMethod(getPath(), info);
             HttpResponse httpResponse = getStore().getClient().execute(method);
-            if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_MULTI_STATUS) {
-                return method.getCalendars(httpResponse);
-            } else {
-                return new Calendar[0];
+            try {
+                if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_MULTI_STATUS) {
+                    return method.getCalendars(httpResponse, this::updateEntityTags);
+                } else {
+                    return new Calendar[0];
+                }
+            } finally {
+                EntityUtils.consumeQuietly(httpResponse.getEntity());
             }
-        } catch (DavException | IOException | ParserConfigurationException | ParserException e) {
+        } catch (DavException | IOException | ParserException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Retrieves calendar objects containing components of the specified type in pages, such that each response from
+     * the server is bounded.
+     * @param componentType the type of component
+     * @param pageSize the maximum number of calendar objects requested per page
+     * @return an iterator over pages of calendar objects
+     * @see CalendarPageIterator
+     */
+    public CalendarPageIterator getComponentsByType(String componentType, int pageSize) {
+        return resume(new CalendarPageIterator.Continuation(componentType, pageSize, null, null));
+    }
+
+    /**
+     * Resumes a paged query from a previously captured state.
+     * @param continuation the state of a paged query
+     * @return an iterator over the remaining pages of calendar objects
+     */
+    public CalendarPageIterator resume(CalendarPageIterator.Continuation continuation) {
+        return new CalendarPageIterator((window, limit, consumer) -> queryWindow(continuation.getComponentType(),
+                window, limit, consumer), continuation);
+    }
+
+    /**
+     * @return false where the server indicates the results are truncated
+     */
+    private boolean queryWindow(String componentType, TimeRange window, int limit,
+                                BiConsumer<String, Calendar> consumer) throws ObjectStoreException, IOException {
+        return report(new CalendarQuery(componentType).timeRange(window.getStart(), window.getEnd()).limit(limit),
+                consumer);
+    }
+
     /**
      * Provides a human-readable description of the calendar collection.
      */
     public String getDescription() {
-        try {
-            return getProperty(CalDavPropertyName.CALENDAR_DESCRIPTION, String.class);
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        return getPropertySnapshot().getDescription();
     }
 
     /**
      * Human-readable name of the collection.
      */
     public String getDisplayName() {
-        try {
-            return getProperty(DavPropertyName.DISPLAYNAME, String.class);
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        return getPropertySnapshot().getDisplayName();
     }
 
     /**
@@ -226,11 +275,7 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
      * object resource stored in a calendar collection.
      */
     public Integer getMaxAttendeesPerInstance() {
-        try {
-            return getProperty(CalDavPropertyName.MAX_ATTENDEES_PER_INSTANCE, Integer.class);
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        return getPropertySnapshot().getMaxAttendeesPerInstance();
     }
 
     /**
@@ -238,11 +283,7 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
      * any DATE or DATE-TIME value in a calendar object resource stored in a calendar collection.
      */
     public String getMaxDateTime() {
-        try {
-            return getProperty(CalDavPropertyName.MAX_DATE_TIME, String.class);
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        return getPropertySnapshot().getMaxDateTime();
     }
 
     /**
@@ -250,11 +291,7 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
      * stored in a calendar collection can generate.
      */
     public Integer getMaxInstances() {
-        try {
-            return getProperty(CalDavPropertyName.MAX_INSTANCES, Integer.class);
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        return getPropertySnapshot().getMaxInstances();
     }
 
     /**
@@ -262,15 +299,8 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
      * when a calendar object resource is stored in a calendar collection. 0 = no limits.
      */
     public long getMaxResourceSize() {
-        try {
-            Long size = getProperty(CalDavPropertyName.MAX_RESOURCE_SIZE, Long.class);
-            if (size != null) {
-                return size;
-            }
-            return 0;
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        Long size = getPropertySnapshot().getMaxResourceSize();
+        return size != null ? size : 0;
     }
 
     /**
@@ -278,37 +308,14 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
      * for any DATE or DATE-TIME value in a calendar object resource stored in a calendar collection.
      */
     public String getMinDateTime() {
-        try {
-            return getProperty(CalDavPropertyName.MIN_DATE_TIME, String.class);
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        return getPropertySnapshot().getMinDateTime();
     }
 
     /**
      * Get the list of calendar components (VEVENT, VTODO, etc.) that this collection supports.
      */
     public String[] getSupportedComponentTypes() {
-        List<String> supportedComponents = new ArrayList<String>();
-
-        ArrayList<Node> supportedCalCompSetProp;
-        try {
-            supportedCalCompSetProp = getProperty(CalDavPropertyName.SUPPORTED_CALENDAR_COMPONENT_SET, ArrayList.class);
-            if (supportedCalCompSetProp != null) {
-                for (Node child : supportedCalCompSetProp) {
-                    if (child instanceof Element) {
-                        Node nameNode = child.getAttributes().getNamedItem("name");
-                        if (nameNode != null) {
-                            supportedComponents.add(nameNode.getTextContent());
-                        }
-                    }
-                }
-            }
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
-
-        return supportedComponents.toArray(new String[supportedComponents.size()]);
+        return getPropertySnapshot().getSupportedComponentTypes().toArray(new String[0]);
     }
 
     /**
@@ -317,32 +324,25 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
      */
     public Calendar getTimeZone() {
         try {
-            String calTimezoneProp = getProperty(CalDavPropertyName.CALENDAR_TIMEZONE, String.class);
+            String calTimezoneProp = getPropertySnapshot().getCalendarTimezone();
 
             if (calTimezoneProp != null) {
                 CalendarBuilder builder = new CalendarBuilder();
                 return builder.build(new StringReader(calTimezoneProp));
             }
             return new Calendar();
-        } catch (ObjectStoreException | IOException | DavException | ParserException e) {
+        } catch (IOException | ParserException e) {
             throw new RuntimeException(e);
         }
     }
     
     public String getColor() {
-        try {
-            return getProperty(ICalPropertyName.CALENDAR_COLOR, String.class);
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        return getPropertySnapshot().getColor();
     }
     
     public int getOrder() {
-        try {
-            return getProperty(ICalPropertyName.CALENDAR_ORDER, Integer.class);
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        Integer order = getPropertySnapshot().getOrder();
+        return order != null ? order : 0;
     }
 
     /**
@@ -387,20 +387,85 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
         return writeCalendarOnServer(defaultUriFromUid(uid.getValue()), calendar, isNew);
     }
 
+    /**
+     * Writes a calendar object to the server. Updates are conditional on the object not having been modified since
+     * its tags were last seen, and where a conflict occurs the configured {@link ConflictResolver} (if any) is used to
+     * merge the local and remote versions.
+     * @param uri the URI (relative to this collection's path) where the calendar is to be stored
+     * @param calendar a calendar object instance
+     * @param isNew indicates whether the calendar object is expected not to exist on the server
+     * @return the entity tag of the stored calendar object, or null if not returned by the server
+     * @throws PreconditionFailedException where the object has been modified on the server and the conflict is not
+     * resolved
+     * @throws ObjectStoreException where an unexpected error occurs
+     */
     public String writeCalendarOnServer(String uri, Calendar calendar, boolean isNew) throws ObjectStoreException {
+        return writeCalendarOnServer(uri, calendar, isNew, true);
+    }
+
+    /**
+     * @param retryThrottled indicates whether the client should retry requests that are throttled by the server.
+     *                       Where false, a {@link ThrottledException} is thrown such that the caller may apply its
+     *                       own throttling
+     */
+    String writeCalendarOnServer(String uri, Calendar calendar, boolean isNew, boolean retryThrottled)
+            throws ObjectStoreException {
+        String etag;
+        try {
+            etag = putCalendar(uri, calendar, isNew, retryThrottled);
+        } catch (PreconditionFailedException e) {
+            ConflictResolver resolver = conflictResolver;
+            if (isNew || resolver == null) {
+                throw e;
+            }
+            Calendar remote;
+            try {
+                // also refreshes the tags of the remote version..
+                remote = getCalendarFromUri(uri);
+            } catch (ObjectNotFoundException onfe) {
+                throw e;
+            }
+            Calendar merged = remote != null ? resolver.resolve(calendar, remote) : null;
+            if (merged == null) {
+                throw e;
+            }
+            etag = putCalendar(uri, merged, false, retryThrottled);
+        }
+        fireComponentEvent(isNew ? ObjectStoreEvent.Type.COMPONENT_ADDED : ObjectStoreEvent.Type.COMPONENT_UPDATED,
+                getUidValue(calendar), uri, etag);
+        return etag;
+    }
+
+    private static String getUidValue(Calendar calendar) {
+        try {
+            Uid uid = Calendars.getUid(calendar);
+            return uid != null ? uid.getValue() : null;
+        } catch (ConstraintViolationException e) {
+            return null;
+        }
+    }
+
+    private String putCalendar(String uri, Calendar calendar, boolean isNew, boolean retryThrottled)
+            throws ObjectStoreException {
         String path = getPath();
         if (!path.endsWith("/")) {
             path = path.concat("/");
         }
         PutMethod putMethod = new PutMethod(path + uri);
-        // putMethod.setAllEtags(true);
+        String etag = null;
         if (isNew) {
             putMethod.addHeader("If-None-Match", "*");
         } else {
-            // this doesn't work for iCloud - you need to provide the actual ETag which we don't store atm
-            // putMethod.addHeader("If-Match", "*");
+            EntityTagStore.EntityTags tags = entityTags.get(uri);
+            if (tags != null && tags.getScheduleTag() != null) {
+                // allow server-side changes by scheduling operations, as per RFC 6638..
+                etag = tags.getScheduleTag();
+                putMethod.addHeader("If-Schedule-Tag-Match", etag);
+            } else if (tags != null) {
+                etag = tags.getEtag();
+                putMethod.addHeader("If-Match", etag);
+            }
         }
-        // putMethod.setRequestBody(calendar);
 
         try {
             putMethod.setCalendar(calendar);
@@ -409,20 +474,26 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
         }
 
         try {
-            // TODO: get ETag and Schedule-Tag headers and store them locally
-            HttpResponse httpResponse = getStore().getClient().execute(putMethod);
-            if ((httpResponse.getStatusLine().getStatusCode() != DavServletResponse.SC_CREATED)
+            HttpResponse httpResponse = getStore().getClient().executeAndRelease(putMethod, retryThrottled);
+            if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_PRECONDITION_FAILED) {
+                entityTags.remove(uri);
+                throw new PreconditionFailedException("Calendar modified on server: " + httpResponse.getStatusLine(),
+                        uri, etag);
+            } else if (ThrottledException.isThrottled(httpResponse.getStatusLine().getStatusCode())) {
+                throw new ThrottledException("Server busy: " + httpResponse.getStatusLine(),
+                        httpResponse.getStatusLine().getStatusCode(), ThrottledException.getRetryAfter(httpResponse));
+            } else if ((httpResponse.getStatusLine().getStatusCode() != DavServletResponse.SC_CREATED)
                     && (httpResponse.getStatusLine().getStatusCode() != DavServletResponse.SC_NO_CONTENT)) {
                 throw new ObjectStoreException("Error creating calendar on server: " + httpResponse.getStatusLine());
             }
             // get Etag and Schedule-Tag headers and store them locally
-            Header etagHeader = httpResponse.getFirstHeader("ETag");
-            if (etagHeader == null) {
+            entityTags.update(uri, httpResponse);
+            EntityTagStore.EntityTags tags = entityTags.get(uri);
+            if (tags == null) {
                 LOG.error("ETag header not found in response for URI: " + uri);
                 return null;
             } else {
-                String etag = etagHeader.getValue();
-                LOG.debug("ETag header found in response for uri: " + uri + " - " + etag);
+                LOG.debug("ETag header found in response for uri: " + uri + " - " + tags.getEtag());
                 // also log X-Apple-Request-UUID and via header
                 Header appleRequestUUIDHeader = httpResponse.getFirstHeader("X-Apple-Request-UUID");
                 if (appleRequestUUIDHeader != null) {
@@ -432,7 +503,7 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
                 if (viaHeader != null) {
                     LOG.debug("via header found in response for uri: " + uri + " - " + viaHeader.getValue());
                 }
-                return etag;
+                return tags.getEtag();
             }
 
         } catch (IOException ioe) {
@@ -440,6 +511,21 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
         }
     }
 
+    /**
+     * @return the last known entity tags of calendar objects in this collection
+     */
+    public EntityTagStore getEntityTags() {
+        return entityTags;
+    }
+
+    /**
+     * @param conflictResolver merges local and remote versions of a calendar object where an update conflicts with
+     * changes on the server, or null to report all conflicts
+     */
+    public void setConflictResolver(ConflictResolver conflictResolver) {
+        this.conflictResolver = conflictResolver;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -459,22 +545,36 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
             path = path.concat("/");
         }
         GetMethod method = new GetMethod(path + uri);
-        HttpResponse httpResponse;
-        try {
-            httpResponse = getStore().getClient().execute(method);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        EntityTagStore.EntityTags cached = entityTags.get(uri);
+        String cachedData = cached != null ? cached.getContent() : null;
+        if (cachedData != null) {
+            method.setIfNoneMatch(cached.getEtag());
         }
-        if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_OK) {
-            try {
-                return method.getCalendar(httpResponse);
-            } catch (IOException | ParserException e) {
-                throw new RuntimeException(e);
+        try {
+            String calendarData = getStore().getClient().execute(method, httpResponse -> {
+                if (cachedData != null && method.isNotModified(httpResponse)) {
+                    if (httpResponse.containsHeader(EntityTagStore.HEADER_ETAG)) {
+                        entityTags.update(uri, httpResponse);
+                    }
+                    return cachedData;
+                } else if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_OK) {
+                    String result = method.getCalendarData(httpResponse);
+                    entityTags.update(uri, httpResponse, result);
+                    return result;
+                }
+                entityTags.remove(uri);
+                throw new HttpResponseException(httpResponse.getStatusLine().getStatusCode(),
+                        httpResponse.getStatusLine().getReasonPhrase());
+            });
+            return calendarData != null ? new CalendarBuilder().build(new StringReader(calendarData)) : null;
+        } catch (HttpResponseException e) {
+            if (e.getStatusCode() == DavServletResponse.SC_NOT_FOUND) {
+                throw new ObjectNotFoundException(String.format("Calendar not found: %s", uri));
             }
-        } else if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_NOT_FOUND) {
-            throw new ObjectNotFoundException(String.format("Calendar not found: %s", uri));
+            return null;
+        } catch (IOException | ParserException e) {
+            throw new RuntimeException(e);
         }
-        return null;
     }
 
     /**
@@ -495,13 +595,15 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
         HttpDelete deleteMethod = new HttpDelete(getPath() + "/" + uri);
         HttpResponse httpResponse;
         try {
-            httpResponse = getStore().getClient().execute(deleteMethod);
+            entityTags.remove(uri);
+            httpResponse = getStore().getClient().executeAndRelease(deleteMethod);
         } catch (IOException e) {
             throw new ObjectStoreException(e);
         }
         if (!deleteMethod.succeeded(httpResponse)) {
             throw new FailedOperationException(httpResponse.getStatusLine().toString());
         }
+        fireComponentEvent(ObjectStoreEvent.Type.COMPONENT_REMOVED, getUidValue(calendar), uri, null);
 
         return calendar;
     }
@@ -510,13 +612,111 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
      * {@inheritDoc}
      */
     public final void merge(Calendar calendar) throws FailedOperationException, ObjectStoreException {
+        merge(calendar, null);
+    }
+
+    /**
+     * Merges the specified calendar into this collection, uploading each calendar object concurrently. The number
+     * of concurrent requests is limited by the <code>ical4j.connector.dav.bulk.concurrency</code> property
+     * (default 4), and is reduced automatically where the server indicates it is overloaded.
+     * @param calendar a calendar containing one or more calendar objects
+     * @param checkpoint records uploaded calendar objects such that an interrupted merge may be resumed, or null
+     * @return the result of uploading each calendar object
+     * @throws ObjectStoreException where one or more calendar objects could not be uploaded
+     */
+    public List<BulkUploader.Result> merge(Calendar calendar, BulkUploader.Checkpoint checkpoint)
+            throws ObjectStoreException {
+        Calendar[] uidCalendars = Calendars.split(calendar);
+
+        List<BulkUploader.Result> results;
         try {
-            Calendar[] uidCalendars = Calendars.split(calendar);
-            for (int i = 0; i < uidCalendars.length; i++) {
-                addCalendar(uidCalendars[i]);
+            results = newBulkUploader().upload(Arrays.asList(uidCalendars), checkpoint);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ObjectStoreException("Merge interrupted", e);
+        }
+        checkUploadResults(results);
+        return results;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int merge(InputStream in) throws ObjectStoreException, IOException {
+        return merge(in, null).size();
+    }
+
+    /**
+     * Merges an iCalendar stream into this collection, uploading each calendar object concurrently as it is parsed.
+     * Where components for a UID are not contiguous in the stream, the additional components are merged with the
+     * uploaded calendar object as they are parsed, once the pending upload of that calendar object is complete.
+     * @param in a (UTF-8 encoded) iCalendar stream, which is not closed
+     * @param checkpoint records uploaded calendar objects such that an interrupted merge may be resumed, or null
+     * @return the result of uploading each calendar object
+     * @throws ObjectStoreException where the stream cannot be parsed or calendar objects could not be uploaded
+     * @throws IOException where an error occurs reading the stream
+     * @see #merge(Calendar, BulkUploader.Checkpoint)
+     */
+    public List<BulkUploader.Result> merge(InputStream in, BulkUploader.Checkpoint checkpoint)
+            throws ObjectStoreException, IOException {
+        List<BulkUploader.Result> results;
+        try (BulkUploader.Upload upload = newBulkUploader().begin(checkpoint)) {
+            new CalendarImporter((calendar, continuation) -> {
+                try {
+                    if (continuation) {
+                        mergeContinuation(calendar, upload);
+                    } else {
+                        upload.submit(calendar);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ObjectStoreException("Merge interrupted", e);
+                }
+            }).importCalendar(in);
+            results = upload.complete();
+        } catch (ParserException e) {
+            throw new ObjectStoreException("Invalid calendar data", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ObjectStoreException("Merge interrupted", e);
+        }
+        checkUploadResults(results);
+        return results;
+    }
+
+    /**
+     * Merges additional components with a calendar object uploaded earlier in the same merge.
+     */
+    private void mergeContinuation(Calendar continuation, BulkUploader.Upload upload)
+            throws ObjectStoreException, InterruptedException {
+        try {
+            String uid = Calendars.getUid(continuation).getValue();
+            BulkUploader.Result result = upload.await(uid);
+            if (result != null && result.getStatus() == BulkUploader.Status.FAILED) {
+                // the failed upload is reported on completion..
+                return;
             }
-        } catch (ConstraintViolationException cve) {
-            throw new FailedOperationException("Invalid calendar format", cve);
+            updateCalendar(CalendarImporter.append(getCalendar(uid), continuation));
+        } catch (ConstraintViolationException | ObjectNotFoundException e) {
+            throw new ObjectStoreException("Unable to merge calendar object", e);
+        }
+    }
+
+    private BulkUploader newBulkUploader() {
+        int concurrency = Integer.parseInt(getStore().getProfileProperty("ical4j.connector.dav.bulk.concurrency")
+                .orElse("4"));
+        int attempts = Integer.parseInt(getStore().getProfileProperty("ical4j.connector.dav.bulk.attempts")
+                .orElse("5"));
+        return new BulkUploader(this, concurrency, attempts);
+    }
+
+    private static void checkUploadResults(List<BulkUploader.Result> results) throws ObjectStoreException {
+        List<BulkUploader.Result> failures = results.stream()
+                .filter(r -> r.getStatus() == BulkUploader.Status.FAILED).collect(Collectors.toList());
+        if (!failures.isEmpty()) {
+            throw new ObjectStoreException(failures.size() + " of " + results.size()
+                    + " calendar objects failed to upload", failures.get(0).getError());
         }
     }
 
@@ -524,7 +724,44 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
      * {@inheritDoc}
      */
     public Calendar export() throws ObjectStoreException {
-        throw new UnsupportedOperationException("not implemented");
+        List<Calendar> calendars = new ArrayList<Calendar>();
+        try {
+            getObjectsByFilter(XmlSupport.newCalendarFilter(), XmlSupport.newCalendarData(), calendars::add);
+        } catch (IOException | DavException | ParserConfigurationException | ParserException e) {
+            throw new ObjectStoreException("Unable to export collection", e);
+        }
+        return CalendarExporter.aggregate(calendars, getProdId());
+    }
+
+    /**
+     * Exports all calendar objects in the collection, writing each object as it is parsed from the calendar-query
+     * response.
+     * @param writer the export destination
+     * @throws ObjectStoreException where an unexpected error occurs
+     * @throws IOException where an error occurs writing to the destination
+     */
+    @Override
+    public void export(Writer writer) throws ObjectStoreException, IOException {
+        CalendarExporter exporter = new CalendarExporter(writer, getProdId());
+        try {
+            getObjectsByFilter(XmlSupport.newCalendarFilter(), XmlSupport.newCalendarData(), calendar -> {
+                try {
+                    exporter.add(calendar);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (DavException | ParserConfigurationException | ParserException e) {
+            throw new ObjectStoreException("Unable to export collection", e);
+        }
+        exporter.complete();
+    }
+
+    private String getProdId() {
+        String prodId = ((CalDavCalendarStore) getStore()).getProdId();
+        return prodId != null ? prodId : CalendarExporter.DEFAULT_PROD_ID;
     }
 
     /**
@@ -534,6 +771,97 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
         return getComponentsByType(Component.VEVENT);
     }
     
+    /**
+     * Retrieves the calendar objects matching the specified query. Where the query selects properties, each calendar
+     * object contains only the selected properties of matching components (and any VTIMEZONE components). Where the
+     * server truncates the results (e.g. as requested with {@link CalendarQuery#limit(int)}), only the returned
+     * calendar objects are consumed.
+     * <p>
+     * Entity tags are not recorded for the results of a {@linkplain CalendarQuery#isPartial() partial} query, as
+     * writing such a calendar object would replace the full object on the server. Retrieve the full object (e.g. using
+     * {@link #getCalendar(String)}) before modifying it with {@link #updateCalendar(Calendar)}.
+     * </p>
+     * @param query a calendar-query
+     * @param consumer receives each matching calendar object
+     * @throws ObjectStoreException where the query fails
+     */
+    public void query(CalendarQuery query, Consumer<Calendar> consumer) throws ObjectStoreException {
+        try {
+            report(query, (href, calendar) -> consumer.accept(calendar));
+        } catch (IOException e) {
+            throw new ObjectStoreException("calendar-query failed", e);
+        }
+    }
+
+    /**
+     * Executes a calendar-query, passing each calendar object to the consumer as the response is parsed.
+     * @param consumer receives the href and calendar object of each result
+     * @return false where the server indicates the results are truncated (e.g. by CALDAV:limit)
+     */
+    private boolean report(CalendarQuery query, BiConsumer<String, Calendar> consumer)
+            throws ObjectStoreException, IOException {
+        ReportInfo info = XmlSupport.newReportInfo(ReportMethod.CALENDAR_QUERY, query.toXml(XmlSupport.newDocument()),
+                DavConstants.DEPTH_1);
+        ReportMethod method = new ReportMethod(getPath(), info);
+        HttpResponse httpResponse = getStore().getClient().execute(method);
+        try {
+            int statusCode = httpResponse.getStatusLine().getStatusCode();
+            if (statusCode == DavServletResponse.SC_INSUFFICIENT_SPACE_ON_RESOURCE) {
+                return false;
+            } else if (statusCode != DavServletResponse.SC_MULTI_STATUS) {
+                throw new ObjectStoreException("calendar-query failed: " + httpResponse.getStatusLine());
+            }
+            // tags of partial representations must not be used to condition an update of the full object..
+            BiConsumer<String, DavPropertySet> tags = query.isPartial() ? (href, properties) -> { }
+                    : this::updateEntityTags;
+            AtomicBoolean complete = new AtomicBoolean(true);
+            method.getResponses(httpResponse, response -> {
+                if (Arrays.stream(response.getStatus()).anyMatch(status ->
+                        status.getStatusCode() == DavServletResponse.SC_INSUFFICIENT_SPACE_ON_RESOURCE)) {
+                    complete.set(false);
+                    return;
+                }
+                DavPropertySet properties = response.getProperties(DavServletResponse.SC_OK);
+                tags.accept(response.getHref(), properties);
+                DavProperty<?> calendarData = properties.get(CalDavPropertyName.CALENDAR_DATA);
+                if (calendarData != null && calendarData.getValue() instanceof String) {
+                    consumer.accept(response.getHref(), new CalendarBuilder().build(
+                            new StringReader((String) calendarData.getValue())));
+                }
+            });
+            return complete.get();
+        } catch (DavException | ParserException e) {
+            throw new ObjectStoreException("calendar-query failed", e);
+        } finally {
+            EntityUtils.consumeQuietly(httpResponse.getEntity());
+        }
+    }
+
+    /**
+     * @param query a calendar-query
+     * @return the matching calendar objects
+     * @throws ObjectStoreException where the query fails
+     * @see #query(CalendarQuery, Consumer)
+     */
+    public Calendar[] query(CalendarQuery query) throws ObjectStoreException {
+        List<Calendar> calendars = new ArrayList<>();
+        query(query, calendars::add);
+        return calendars.toArray(new Calendar[0]);
+    }
+
+    /**
+     * Translates the specified filter to a calendar-query, such that the filter is evaluated by the server.
+     * @param filter a root (VCALENDAR) filter
+     * @return the matching calendar objects
+     * @throws ObjectStoreException where the query fails
+     */
+    @Override
+    public Calendar[] getComponents(ComponentFilter filter) throws ObjectStoreException {
+        String componentType = filter.getComponentFilters().isEmpty() ? Component.VEVENT
+                : filter.getComponentFilters().get(0).getName();
+        return query(new CalendarQuery(componentType).filter(filter));
+    }
+
     /**
      * Get a list of calendar objects of VEVENT type for a specific time period.
      * 
@@ -547,33 +875,44 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
      */
     public Calendar[] getEventsForTimePeriod(DateTime startTime, DateTime endTime)
             throws IOException, DavException, ParserConfigurationException, ParserException {
+        List<Calendar> events = new ArrayList<Calendar>();
+        getEventsForTimePeriod(startTime, endTime, events::add);
+        return events.toArray(new Calendar[events.size()]);
+    }
 
-        DocumentBuilderFactory BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
-        BUILDER_FACTORY.setNamespaceAware(true);
-        BUILDER_FACTORY.setIgnoringComments(true);
-        BUILDER_FACTORY.setIgnoringElementContentWhitespace(true);
-        BUILDER_FACTORY.setCoalescing(true);
-
-        Document document = BUILDER_FACTORY.newDocumentBuilder().newDocument();
+    /**
+     * Retrieves calendar objects of VEVENT type for a specific time period in pages, such that each response from
+     * the server is bounded.
+     * @param startTime the start of the time period
+     * @param endTime the end of the time period
+     * @param pageSize the maximum number of calendar objects requested per page
+     * @return an iterator over pages of calendar objects
+     * @see CalendarPageIterator
+     */
+    public CalendarPageIterator getEventsForTimePeriod(DateTime startTime, DateTime endTime, int pageSize) {
+        return resume(new CalendarPageIterator.Continuation(Component.VEVENT, pageSize, startTime, endTime));
+    }
 
-        org.w3c.dom.Element calData = DomUtil.createElement(document, CalDavConstants.PROPERTY_CALENDAR_DATA,
-                CalDavConstants.CALDAV_NAMESPACE);
-        
-        org.w3c.dom.Element calFilter = DomUtil.createElement(document, CalDavConstants.PROPERTY_COMP_FILTER,
-                CalDavConstants.CALDAV_NAMESPACE);
-        calFilter.setAttribute(CalDavConstants.ATTRIBUTE_NAME, Calendar.VCALENDAR);
-        org.w3c.dom.Element eventFilter = DomUtil.createElement(document, CalDavConstants.PROPERTY_COMP_FILTER,
-                CalDavConstants.CALDAV_NAMESPACE);
-        eventFilter.setAttribute(CalDavConstants.ATTRIBUTE_NAME, Component.VEVENT);
-        org.w3c.dom.Element timeRange = DomUtil.createElement(document, CalDavConstants.PROPERTY_TIME_RANGE,
-                CalDavConstants.CALDAV_NAMESPACE);
+    /**
+     * Passes each calendar object of VEVENT type for a specific time period to the specified consumer as it is
+     * parsed, so that callers computing aggregates (e.g. busy time) need not retain every object.
+     *
+     * @param startTime
+     * @param endTime
+     * @param consumer receives each calendar object in the result
+     * @throws IOException
+     * @throws DavException
+     * @throws ParserConfigurationException
+     * @throws ParserException
+     */
+    public void getEventsForTimePeriod(DateTime startTime, DateTime endTime, Consumer<Calendar> consumer)
+            throws IOException, DavException, ParserConfigurationException, ParserException {
 
-        timeRange.setAttribute(CalDavConstants.ATTRIBUTE_START, startTime.toString());
-        timeRange.setAttribute(CalDavConstants.ATTRIBUTE_END, endTime.toString());
-        eventFilter.appendChild(timeRange);
-        calFilter.appendChild(eventFilter);
+        Element calData = XmlSupport.newCalendarData();
+        Element calFilter = XmlSupport.newTimeRangeFilter(Component.VEVENT, startTime.toString(),
+                endTime.toString());
 
-        return getObjectsByFilter(calFilter, calData);
+        getObjectsByFilter(calFilter, calData, consumer);
     }
     
     /**
@@ -605,21 +944,30 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
     public Calendar[] getObjectsByFilter(org.w3c.dom.Element filter, org.w3c.dom.Element calData)
             throws IOException, DavException, ParserConfigurationException, ParserException {
         ArrayList<Calendar> events = new ArrayList<Calendar>();
+        getObjectsByFilter(filter, calData, events::add);
+        return events.toArray(new Calendar[events.size()]);
+    }
 
-        ReportInfo rinfo = new ReportInfo(ReportType.register(CalDavConstants.PROPERTY_CALENDAR_QUERY,
-                CalDavConstants.CALDAV_NAMESPACE,
-                org.apache.jackrabbit.webdav.security.report.PrincipalMatchReport.class), 1);
-
-        DocumentBuilderFactory BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
-        BUILDER_FACTORY.setNamespaceAware(true);
-        BUILDER_FACTORY.setIgnoringComments(true);
-        BUILDER_FACTORY.setIgnoringElementContentWhitespace(true);
-        BUILDER_FACTORY.setCoalescing(true);
+    /**
+     * Executes a calendar-query REPORT with the specified filter and passes each calendar object to the specified
+     * consumer as it is parsed.
+     *
+     * @param filter
+     * @param calData
+     * @param consumer receives each calendar object in the result
+     * @throws IOException
+     * @throws DavException
+     * @throws ParserConfigurationException
+     * @throws ParserException
+     * @see #getObjectsByFilter(Element, Element)
+     */
+    public void getObjectsByFilter(org.w3c.dom.Element filter, org.w3c.dom.Element calData,
+                                   Consumer<Calendar> consumer)
+            throws IOException, DavException, ParserConfigurationException, ParserException {
+        ReportInfo rinfo = new ReportInfo(ReportMethod.CALENDAR_QUERY, 1);
 
-        Document document = BUILDER_FACTORY.newDocumentBuilder().newDocument();
-        org.w3c.dom.Element property = DomUtil
-                .createElement(document, DavConstants.XML_PROP, CalDavConstants.NAMESPACE);
-        property.appendChild(DomUtil.createElement(document, DavConstants.PROPERTY_GETETAG, CalDavConstants.NAMESPACE));
+        Document document = XmlSupport.newDocument();
+        org.w3c.dom.Element property = XmlSupport.newCalendarQueryProperties(document);
 
         Node importedCalData = document.importNode(calData, true);
         property.appendChild(importedCalData);
@@ -636,27 +984,12 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
 
         ReportMethod method = new ReportMethod(this.getPath(), rinfo);
         HttpResponse httpResponse = this.getStore().getClient().execute(method);
-        MultiStatus multiStatus = method.getResponseBodyAsMultiStatus(httpResponse);
-        MultiStatusResponse[] responses = multiStatus.getResponses();
-        for (int i = 0; i < responses.length; i++) {
-            for (int j = 0; j < responses[i].getStatus().length; j++) {
-                Status status = responses[i].getStatus()[j];
-                for (DavPropertyIterator iNames = responses[i].getProperties(status.getStatusCode()).iterator(); iNames
-                        .hasNext();) {
-                    DavProperty name = iNames.nextProperty();
-                    if (name.getValue() instanceof String) {
-                        if ((name.getName().getNamespace().equals(CalDavConstants.CALDAV_NAMESPACE))
-                                && (name.getName().getName().equals(CalDavConstants.PROPERTY_CALENDAR_DATA))) {
-                            StringReader sin = new StringReader((String) name.getValue());
-                            CalendarBuilder builder = new CalendarBuilder();
-                            Calendar calendar = builder.build(sin);
-                            events.add(calendar);
-                        }
-                    }
-                }
-            }
+        try {
+            // parse each calendar object as it is read, rather than building a document for the entire response..
+            method.getCalendars(httpResponse, this::updateEntityTags, (href, calendar) -> consumer.accept(calendar));
+        } finally {
+            EntityUtils.consumeQuietly(httpResponse.getEntity());
         }
-        return events.toArray(new Calendar[events.size()]);
     }
     
     /**
@@ -675,12 +1008,97 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
     }
     
     /**
-     * TODO: implement free-busy-query
-     * @return
+     * @return an empty array
+     * @deprecated free-busy queries require a time range, use {@link #doFreeBusyQuery(DateTime, DateTime)}
      */
+    @Deprecated
     public Calendar[] doFreeBusyQuery() {
         return new Calendar[0];
     }
+
+    /**
+     * Returns busy time for the specified time period using a CALDAV:free-busy-query REPORT (RFC 4791 section 7.10).
+     * Where the server doesn't support the report, busy time is calculated locally from a time-range query over
+     * the events in this collection. Other failures (e.g. authorization or server errors) are not masked by the local
+     * calculation.
+     *
+     * @param startTime the start of the free-busy period
+     * @param endTime the end of the free-busy period
+     * @return a VFREEBUSY component with merged busy periods
+     * @throws ObjectStoreException where the report fails for a reason other than being unsupported
+     * @see ReportMethod#isUnsupported(HttpResponse)
+     */
+    public VFreeBusy doFreeBusyQuery(DateTime startTime, DateTime endTime) throws ObjectStoreException {
+        FreeBusyCalculator calculator = new FreeBusyCalculator(startTime, endTime);
+        try {
+            ReportInfo info = new ReportInfo(ReportMethod.FREEBUSY_QUERY, 1);
+            Document document = XmlSupport.newDocument();
+            Element timeRange = DomUtil.createElement(document, CalDavConstants.PROPERTY_TIME_RANGE,
+                    CalDavConstants.CALDAV_NAMESPACE);
+            timeRange.setAttribute(CalDavConstants.ATTRIBUTE_START, utc(startTime).toString());
+            timeRange.setAttribute(CalDavConstants.ATTRIBUTE_END, utc(endTime).toString());
+            info.setContentElement(timeRange);
+
+            ReportMethod method = new ReportMethod(getPath(), info);
+            HttpResponse httpResponse = getStore().getClient().execute(method);
+            if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_OK) {
+                Calendar result;
+                try {
+                    result = method.getCalendar(httpResponse);
+                } finally {
+                    EntityUtils.consumeQuietly(httpResponse.getEntity());
+                }
+                if (result != null) {
+                    for (Component component : result.getComponents(Component.VFREEBUSY)) {
+                        for (Property freeBusy : component.getProperties(Property.FREEBUSY)) {
+                            calculator.add((FreeBusy) freeBusy);
+                        }
+                    }
+                }
+            } else {
+                boolean unsupported;
+                try {
+                    unsupported = ReportMethod.isUnsupported(httpResponse);
+                } finally {
+                    EntityUtils.consumeQuietly(httpResponse.getEntity());
+                }
+                if (!unsupported) {
+                    throw new ObjectStoreException("free-busy-query failed: " + httpResponse.getStatusLine());
+                }
+                LOG.debug("free-busy-query not supported (" + httpResponse.getStatusLine()
+                        + "), calculating busy time locally");
+                getEventsForTimePeriod(startTime, endTime, calendar -> {
+                    for (Component event : calendar.getComponents(Component.VEVENT)) {
+                        calculator.add(event);
+                    }
+                });
+            }
+        } catch (IOException | DavException | ParserConfigurationException | ParserException e) {
+            throw new ObjectStoreException("Error querying free-busy time", e);
+        }
+        return calculator.toVFreeBusy();
+    }
+
+    /**
+     * Records the entity tag of a calendar object returned in a multistatus response.
+     */
+    private void updateEntityTags(String href, DavPropertySet properties) {
+        DavProperty<?> etag = properties.get(DavPropertyName.GETETAG);
+        if (etag != null && etag.getValue() != null) {
+            String uri = EntityTagStore.uriFromHref(href);
+            EntityTagStore.EntityTags tags = entityTags.get(uri);
+            // a schedule tag is only valid with the entity tag it was returned with..
+            if (tags == null || !etag.getValue().toString().equals(tags.getEtag())) {
+                entityTags.put(uri, etag.getValue().toString(), null);
+            }
+        }
+    }
+
+    private static DateTime utc(DateTime dateTime) {
+        DateTime utc = new DateTime(dateTime);
+        utc.setUtc(true);
+        return utc;
+    }
     
     public static final DavPropertyNameSet propertiesForFetch() {
         DavPropertyNameSet principalsProps = new DavPropertyNameSet();
@@ -723,13 +1141,18 @@ public class CalDavCalendarCollection extends AbstractDavObjectCollection<Calend
         return principalsProps;
     }
     
+    @Override
+    protected DavPropertyNameSet getPropertyNamesForFetch() {
+        return propertiesForFetch();
+    }
+
     @Override
     public String toString() {
         return "Display Name: " +  getDisplayName() + ", id: " + getId();
     }
 
 
-    private String defaultUriFromUid(String uid) {
+    String defaultUriFromUid(String uid) {
         return uid + ".ics";
     }
 }
@@ -39,23 +39,29 @@ import net.fortuna.ical4j.connector.dav.method.PrincipalPropertySearchInfo;
 import net.fortuna.ical4j.connector.dav.method.PrincipalPropertySearchMethod;
 import net.fortuna.ical4j.connector.dav.property.CalDavPropertyName;
 import net.fortuna.ical4j.connector.dav.response.PropFindResponseHandler;
+import net.fortuna.ical4j.connector.event.ObjectStoreEvent;
 import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Parameter;
 import net.fortuna.ical4j.model.component.VFreeBusy;
 import net.fortuna.ical4j.model.parameter.Cn;
 import net.fortuna.ical4j.model.parameter.CuType;
 import net.fortuna.ical4j.model.property.*;
-import net.fortuna.ical4j.util.FixedUidGenerator;
+import net.fortuna.ical4j.util.Configurator;
+import net.fortuna.ical4j.util.RandomUidGenerator;
 import net.fortuna.ical4j.util.UidGenerator;
+import org.apache.commons.logging.LogFactory;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
 import org.apache.jackrabbit.webdav.DavException;
 import org.apache.jackrabbit.webdav.DavServletResponse;
 import org.apache.jackrabbit.webdav.MultiStatus;
 import org.apache.jackrabbit.webdav.MultiStatusResponse;
+import org.apache.jackrabbit.webdav.Status;
 import org.apache.jackrabbit.webdav.client.methods.BaseDavRequest;
 import org.apache.jackrabbit.webdav.client.methods.HttpPropfind;
 import org.apache.jackrabbit.webdav.client.methods.HttpReport;
@@ -71,16 +77,21 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static net.fortuna.ical4j.connector.dav.enums.ResourceType.*;
@@ -96,9 +107,29 @@ import static net.fortuna.ical4j.connector.dav.enums.ResourceType.*;
 public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCalendarCollection> implements
         CalendarStore<CalDavCalendarCollection> {
 
+    private static final org.apache.commons.logging.Log LOG = LogFactory.getLog(CalDavCalendarStore.class);
+
+    private static final UidGenerator UID_GENERATOR = new RandomUidGenerator();
+
+    /**
+     * Executes concurrent free-busy lookups for all stores. The pool is sized by the
+     * <code>ical4j.connector.dav.maxconnections</code> configuration property, as lookups beyond the connection limit
+     * would only wait for a connection.
+     */
+    private static final ExecutorService FREE_BUSY_EXECUTOR = Executors.newFixedThreadPool(
+            Integer.parseInt(Configurator.getProperty("ical4j.connector.dav.maxconnections").orElse("20")), r -> {
+                Thread thread = new Thread(r, "dav-free-busy");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     private final String prodId;
     private String displayName;
 
+    private volatile String scheduleOutbox;
+
+    private volatile PrincipalDirectory principalDirectory;
+
     /**
      * @param prodId application product identifier
      * @param url the URL of a CalDAV server instance
@@ -124,6 +155,7 @@ public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCale
         } catch (IOException e) {
             throw new ObjectStoreException(String.format("unable to add collection '%s'", id), e);
         }
+        fireCollectionEvent(ObjectStoreEvent.Type.COLLECTION_ADDED, collection);
         return collection;
     }
 
@@ -139,6 +171,7 @@ public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCale
         } catch (IOException e) {
             throw new ObjectStoreException(String.format("unable to add collection '%s'", id), e);
         }
+        fireCollectionEvent(ObjectStoreEvent.Type.COLLECTION_ADDED, collection);
         return collection;
     }
 
@@ -152,6 +185,7 @@ public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCale
         } catch (IOException e) {
             throw new ObjectStoreException(String.format("unable to add collection '%s'", id), e);
         }
+        fireCollectionEvent(ObjectStoreEvent.Type.COLLECTION_ADDED, collection);
         return collection;
     }
 
@@ -361,24 +395,7 @@ public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCale
 
         String methodUri = this.pathResolver.getPrincipalPath(getUserName());
 
-        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-
-        Element writeDisplayNameProperty = DomUtil.createElement(document, "property", DavConstants.NAMESPACE);
-        writeDisplayNameProperty.setAttribute("name", DavConstants.PROPERTY_DISPLAYNAME);
-
-        Element writePrincipalUrlProperty = DomUtil.createElement(document, "property", DavConstants.NAMESPACE);
-        writePrincipalUrlProperty.setAttribute("name", SecurityConstants.PRINCIPAL_URL.getName());
-
-        Element writeUserAddressSetProperty = DomUtil.createElement(document, "property", DavConstants.NAMESPACE);
-        writeUserAddressSetProperty.setAttribute("name", CalDavConstants.PROPERTY_USER_ADDRESS_SET);
-        writeUserAddressSetProperty.setAttribute("namespace", CalDavConstants.CALDAV_NAMESPACE.getURI());
-
-        Element proxyWriteForElement = DomUtil.createElement(document, "property", DavConstants.NAMESPACE);
-        proxyWriteForElement.setAttribute("name", type);
-        proxyWriteForElement.setAttribute("namespace", CalDavConstants.CS_NAMESPACE.getURI());
-        proxyWriteForElement.appendChild(writeDisplayNameProperty);
-        proxyWriteForElement.appendChild(writePrincipalUrlProperty);
-        proxyWriteForElement.appendChild(writeUserAddressSetProperty);
+        Element proxyWriteForElement = XmlSupport.newProxyPrincipals(type);
 
         ReportInfo rinfo = new ReportInfo(ReportType.register(DeltaVConstants.XML_EXPAND_PROPERTY,
                 DeltaVConstants.NAMESPACE, org.apache.jackrabbit.webdav.version.report.ExpandPropertyReport.class), 0);
@@ -386,29 +403,32 @@ public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCale
 
         BaseDavRequest method = new HttpReport(methodUri, rinfo);
         HttpResponse httpResponse = getClient().execute(method);
-
-        if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_MULTI_STATUS) {
-            MultiStatus multiStatus = method.getResponseBodyAsMultiStatus(httpResponse);
-            MultiStatusResponse[] responses = multiStatus.getResponses();
-            for (int i = 0; i < responses.length; i++) {
-                DavPropertySet properties = responses[i].getProperties(DavServletResponse.SC_OK);
-                DavProperty<?> writeForProperty = properties.get(CalDavConstants.PROPERTY_PROXY_WRITE_FOR,
-                        CalDavConstants.CS_NAMESPACE);
-                List<CalDavCalendarCollection> writeCollections = getDelegateCollections(writeForProperty);
-                for (CalDavCalendarCollection writeCollection: writeCollections) {
-                    writeCollection.setReadOnly(false);
-                    collections.add(writeCollection);
-                }
-                DavProperty<?> readForProperty = properties.get(CalDavConstants.PROPERTY_PROXY_READ_FOR,
-                        CalDavConstants.CS_NAMESPACE);
-                List<CalDavCalendarCollection> readCollections = getDelegateCollections(readForProperty);
-                for (CalDavCalendarCollection readCollection: readCollections) {
-                    readCollection.setReadOnly(true);
-                    collections.add(readCollection);
+        try {
+            if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_MULTI_STATUS) {
+                MultiStatus multiStatus = method.getResponseBodyAsMultiStatus(httpResponse);
+                MultiStatusResponse[] responses = multiStatus.getResponses();
+                for (int i = 0; i < responses.length; i++) {
+                    DavPropertySet properties = responses[i].getProperties(DavServletResponse.SC_OK);
+                    DavProperty<?> writeForProperty = properties.get(CalDavConstants.PROPERTY_PROXY_WRITE_FOR,
+                            CalDavConstants.CS_NAMESPACE);
+                    List<CalDavCalendarCollection> writeCollections = getDelegateCollections(writeForProperty);
+                    for (CalDavCalendarCollection writeCollection: writeCollections) {
+                        writeCollection.setReadOnly(false);
+                        collections.add(writeCollection);
+                    }
+                    DavProperty<?> readForProperty = properties.get(CalDavConstants.PROPERTY_PROXY_READ_FOR,
+                            CalDavConstants.CS_NAMESPACE);
+                    List<CalDavCalendarCollection> readCollections = getDelegateCollections(readForProperty);
+                    for (CalDavCalendarCollection readCollection: readCollections) {
+                        readCollection.setReadOnly(true);
+                        collections.add(readCollection);
+                    }
                 }
             }
+        } finally {
+            EntityUtils.consumeQuietly(httpResponse.getEntity());
         }
-        return collections;        
+        return collections;
     }
     
     public List<CalDavCalendarCollection> getWriteDelegatedCollections() throws Exception {
@@ -431,6 +451,7 @@ public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCale
         } catch (IOException e) {
             throw new ObjectStoreException(String.format("unable to remove collection '%s'", id), e);
         }
+        fireCollectionEvent(ObjectStoreEvent.Type.COLLECTION_REMOVED, collection);
         return collection;
     }
 
@@ -487,6 +508,20 @@ public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCale
         return responseHandler.getDavPropertyUri(type);
     }
 
+    /**
+     * Returns the schedule outbox URL of the connected user. The URL is discovered on first use and cached for the
+     * lifetime of the store.
+     * @return the schedule outbox URL
+     */
+    public String getScheduleOutbox() throws ParserConfigurationException, IOException, DavException {
+        String outbox = scheduleOutbox;
+        if (outbox == null) {
+            outbox = findScheduleOutbox();
+            scheduleOutbox = outbox;
+        }
+        return outbox;
+    }
+
     /**
      * This method will return free-busy information for each attendee. If the free-busy information can't be retrieve
      * (for example, users on an foreign server), check the isSuccess method to see if free-busy lookup was successful.
@@ -496,15 +531,93 @@ public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCale
     public ArrayList<ScheduleResponse> findFreeBusyInfoForAttendees(Organizer organizer, ArrayList<Attendee> attendees,
             DtStart startTime, DtEnd endTime, String calendarURI) throws ParserConfigurationException, IOException, DavException,
             ParseException, ParserException, SAXException {
-        Random ramdomizer = new Random();
-        ArrayList<ScheduleResponse> responses = new ArrayList<ScheduleResponse>();
 
-        HttpPost postMethod;
-        if (calendarURI != null) {
-            postMethod = new HttpPost(calendarURI);
-        } else {
-            postMethod = new HttpPost(findScheduleOutbox());
+        String outbox = calendarURI != null ? calendarURI : getScheduleOutbox();
+        return new ArrayList<>(postFreeBusyRequest(outbox, organizer, attendees, startTime, endTime));
+    }
+
+    /**
+     * Retrieves free-busy information for many organizer/attendee lookups, sending the schedule outbox requests
+     * concurrently. At most <code>maxInFlight</code> requests are in progress at any time for each call, and requests
+     * for all stores are executed by a shared pool of threads.
+     *
+     * @param lookups the attendees to look up for each organizer
+     * @param startTime start of the free-busy period
+     * @param endTime end of the free-busy period
+     * @param maxInFlight the maximum number of concurrent requests
+     * @return free-busy responses for each organizer, keyed by recipient. Where a recipient appears in the lookups of
+     * more than one organizer a response is returned for each organizer. Where the schedule outbox request for an
+     * organizer is rejected or fails, a response of unknown request status is returned for each of its recipients
+     * with the HTTP status or error, and the lookups of other organizers are unaffected.
+     * @throws ObjectStoreException where the schedule outbox cannot be found, or the lookup is interrupted
+     * @see ScheduleResponse#unknown(String, int, Exception)
+     */
+    public Map<Organizer, Map<String, ScheduleResponse>> findFreeBusyInfo(
+            Map<Organizer, ? extends Collection<Attendee>> lookups, DtStart startTime, DtEnd endTime,
+            int maxInFlight) throws ObjectStoreException {
+
+        if (lookups.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final String outbox;
+        try {
+            outbox = getScheduleOutbox();
+        } catch (ParserConfigurationException | IOException | DavException e) {
+            throw new ObjectStoreException("Unable to find schedule outbox", e);
         }
+
+        Queue<Map.Entry<Organizer, ? extends Collection<Attendee>>> pending =
+                new ConcurrentLinkedQueue<>(lookups.entrySet());
+        Map<Organizer, List<ScheduleResponse>> received = new ConcurrentHashMap<>();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, Math.min(maxInFlight, lookups.size())); i++) {
+            workers.add(FREE_BUSY_EXECUTOR.submit(() -> {
+                Map.Entry<Organizer, ? extends Collection<Attendee>> lookup;
+                while ((lookup = pending.poll()) != null) {
+                    List<ScheduleResponse> organizerResponses;
+                    try {
+                        organizerResponses = postFreeBusyRequest(outbox, lookup.getKey(), lookup.getValue(),
+                                startTime, endTime);
+                    } catch (IOException | DavException | RuntimeException e) {
+                        // report the failure for this organizer only..
+                        LOG.debug("Free-busy lookup failed for organizer: " + lookup.getKey().getValue(), e);
+                        organizerResponses = unknownResponses(lookup.getValue(), 0, e);
+                    }
+                    received.put(lookup.getKey(), organizerResponses);
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ObjectStoreException("Free-busy lookup interrupted", e);
+        } catch (ExecutionException e) {
+            throw new ObjectStoreException("Free-busy lookup failed", e.getCause());
+        } finally {
+            // abandon remaining lookups where interrupted..
+            pending.clear();
+            workers.forEach(worker -> worker.cancel(true));
+        }
+
+        Map<Organizer, Map<String, ScheduleResponse>> responses = new LinkedHashMap<>();
+        for (Organizer organizer : lookups.keySet()) {
+            Map<String, ScheduleResponse> recipients = new LinkedHashMap<>();
+            for (ScheduleResponse response : received.getOrDefault(organizer, Collections.emptyList())) {
+                recipients.put(response.getRecipient(), response);
+            }
+            responses.put(organizer, recipients);
+        }
+        return responses;
+    }
+
+    private List<ScheduleResponse> postFreeBusyRequest(String outbox, Organizer organizer,
+            Collection<Attendee> attendees, DtStart startTime, DtEnd endTime) throws IOException, DavException {
+
+        HttpPost postMethod = new HttpPost(outbox);
         postMethod.addHeader(DavConstants.HEADER_CONTENT_TYPE, "text/calendar; charset=utf-8");
 
         Calendar calendar = new Calendar();
@@ -522,68 +635,86 @@ public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCale
         fbComponent.getProperties().add(startTime);
         fbComponent.getProperties().add(endTime);
 
-        String strAttendee = "";
-        if (attendees != null) {
-            for (Iterator<Attendee> itrAttendee = attendees.iterator(); itrAttendee.hasNext();) {
-                Attendee attendee = itrAttendee.next();
+        if (attendees != null && !attendees.isEmpty()) {
+            StringJoiner recipients = new StringJoiner(",");
+            for (Attendee attendee : attendees) {
                 fbComponent.getProperties().add(attendee);
-                strAttendee += attendee.getValue() + ",";
+                recipients.add(attendee.getValue());
             }
-            strAttendee = strAttendee.substring(0, strAttendee.length() - 1);
             // Was removed from the draft, but some servers still need it
-            postMethod.addHeader("Recipient", strAttendee);
+            postMethod.addHeader("Recipient", recipients.toString());
         }
 
-        UidGenerator ug = new FixedUidGenerator(ramdomizer.nextInt() + "");
-        fbComponent.getProperties().add(ug.generateUid());
+        fbComponent.getProperties().add(UID_GENERATOR.generateUid());
         calendar.getComponents().add(fbComponent);
 
-        postMethod.setEntity(new StringEntity(calendar.toString()));
+        postMethod.setEntity(new StringEntity(calendar.toString(), StandardCharsets.UTF_8));
         HttpResponse httpResponse = getClient().execute(postMethod);
-        if (httpResponse.getStatusLine().getStatusCode() < 300) {
-            try {
-                DocumentBuilderFactory xmlFactory = DocumentBuilderFactory.newInstance();
-                xmlFactory.setNamespaceAware(true);
-                DocumentBuilder xmlBuilder = xmlFactory.newDocumentBuilder();
-                Document xmlDoc = xmlBuilder.parse(postMethod.getEntity().getContent());
-                NodeList nodes = xmlDoc.getElementsByTagNameNS(CalDavConstants.CALDAV_NAMESPACE.getURI(),
-                        DavPropertyName.XML_RESPONSE);
-                for (int nodeItr = 0; nodeItr < nodes.getLength(); nodeItr++) {
-                    responses.add(new ScheduleResponse((Element) nodes.item(nodeItr)));
-                }
-            } catch (Exception e) {
-                MultiStatus multiStatus;
-                try {
-                    Document doc = getResponseBodyAsDocument(postMethod.getEntity());
-                    multiStatus = MultiStatus.createFromXml(doc.getDocumentElement());
-                } catch (IOException ex) {
-                    throw new DavException(httpResponse.getStatusLine().getStatusCode(), ex);
-                }
-                MultiStatusResponse[] resp = multiStatus.getResponses();
+        HttpEntity entity = httpResponse.getEntity();
+        if (httpResponse.getStatusLine().getStatusCode() >= 300 || entity == null) {
+            EntityUtils.consumeQuietly(entity);
+            return unknownResponses(attendees, httpResponse.getStatusLine().getStatusCode(), null);
+        }
+        Document xmlDoc;
+        try (InputStream in = entity.getContent()) {
+            xmlDoc = XmlSupport.parse(in);
+        } catch (SAXException e) {
+            throw new DavException(httpResponse.getStatusLine().getStatusCode(), e);
+        }
+        return parseScheduleResponses(xmlDoc);
+    }
+
+    /**
+     * @return a response of unknown request status for each attendee
+     */
+    private static List<ScheduleResponse> unknownResponses(Collection<Attendee> attendees, int statusCode,
+                                                           Exception error) {
+        List<ScheduleResponse> responses = new ArrayList<>();
+        if (attendees != null) {
+            for (Attendee attendee : attendees) {
+                responses.add(ScheduleResponse.unknown(attendee.getValue(), statusCode, error));
             }
         }
         return responses;
     }
 
-    private Document getResponseBodyAsDocument(HttpEntity entity) throws IOException {
-
-        if (entity == null) {
-            return null;
-        } else {
-            // read response and try to build a xml document
-            InputStream in = entity.getContent();
-            try {
-                return DomUtil.parseDocument(in);
-            } catch (ParserConfigurationException ex) {
-                throw new IOException("XML parser configuration error", ex);
-            } catch (SAXException ex) {
-                throw new IOException("XML parsing error", ex);
-            } finally {
-                in.close();
+    /**
+     * Parses the responses to a schedule outbox request. Where the body is not a valid CALDAV:schedule-response, it is
+     * parsed as a DAV:multistatus response (as returned by some servers) with a response of unknown request status
+     * for each recipient.
+     * @see ScheduleResponse#unknown(String, int, Exception)
+     */
+    static List<ScheduleResponse> parseScheduleResponses(Document xmlDoc) throws DavException {
+        List<ScheduleResponse> responses = new ArrayList<ScheduleResponse>();
+        try {
+            NodeList nodes = xmlDoc.getElementsByTagNameNS(CalDavConstants.CALDAV_NAMESPACE.getURI(),
+                    DavPropertyName.XML_RESPONSE);
+            for (int nodeItr = 0; nodeItr < nodes.getLength(); nodeItr++) {
+                responses.add(new ScheduleResponse((Element) nodes.item(nodeItr)));
             }
+            if (!responses.isEmpty() || !DomUtil.matches(xmlDoc.getDocumentElement(),
+                    DavConstants.XML_MULTISTATUS, DavConstants.NAMESPACE)) {
+                return responses;
+            }
+        } catch (IOException | ParserException | RuntimeException e) {
+            LOG.debug("Invalid schedule-response, parsing as multistatus", e);
+        }
+        responses.clear();
+        MultiStatus multiStatus;
+        try {
+            multiStatus = MultiStatus.createFromXml(xmlDoc.getDocumentElement());
+        } catch (IllegalArgumentException e) {
+            throw new DavException(DavServletResponse.SC_INTERNAL_SERVER_ERROR, e);
+        }
+        for (MultiStatusResponse response : multiStatus.getResponses()) {
+            // no request status is reported, so the outcome of each lookup is unknown..
+            Status[] status = response.getStatus();
+            responses.add(ScheduleResponse.unknown(response.getHref(),
+                    status.length > 0 ? status[0].getStatusCode() : 0, null));
         }
+        return responses;
     }
-    
+
     public List<Attendee> getIndividuals(String nameToSearch) throws ParserConfigurationException, IOException, DavException, URISyntaxException {
         return getUserTypes(CuType.INDIVIDUAL, nameToSearch);
     }
@@ -599,54 +730,71 @@ public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCale
     public List<Attendee> getAllResources() throws ParserConfigurationException, IOException, DavException, URISyntaxException {
         return getAllPrincipalsForType(CuType.RESOURCE);
     }
+
+    /**
+     * Returns a locally cached directory of all rooms and resources, suitable for type-ahead searches. The
+     * directory is reloaded after the number of seconds specified by the
+     * <code>ical4j.connector.dav.principaldirectory.ttl</code> configuration property (default one hour).
+     * @return the principal directory for this store
+     */
+    public PrincipalDirectory getPrincipalDirectory() {
+        PrincipalDirectory directory = principalDirectory;
+        if (directory == null) {
+            synchronized (this) {
+                if (principalDirectory == null) {
+                    long ttl = Long.parseLong(Configurator.getProperty("ical4j.connector.dav.principaldirectory.ttl")
+                            .orElse("3600"));
+                    principalDirectory = new PrincipalDirectory(this::loadPrincipalDirectory, ttl * 1000);
+                }
+                directory = principalDirectory;
+            }
+        }
+        return directory;
+    }
+
+    /**
+     * Searches the cached principal directory for rooms matching the specified name or email address.
+     * @param query a search string
+     * @param limit the maximum number of results
+     * @return matching rooms
+     * @throws ObjectStoreException where the principal directory cannot be loaded
+     */
+    public List<Attendee> findRooms(String query, int limit) throws ObjectStoreException {
+        return getPrincipalDirectory().search(CuType.ROOM, query, limit);
+    }
+
+    /**
+     * Searches the cached principal directory for resources matching the specified name or email address.
+     * @param query a search string
+     * @param limit the maximum number of results
+     * @return matching resources
+     * @throws ObjectStoreException where the principal directory cannot be loaded
+     */
+    public List<Attendee> findResources(String query, int limit) throws ObjectStoreException {
+        return getPrincipalDirectory().search(CuType.RESOURCE, query, limit);
+    }
+
+    private List<Attendee> loadPrincipalDirectory() throws ParserConfigurationException, IOException, DavException,
+            URISyntaxException {
+        List<Attendee> principals = new ArrayList<>();
+        for (CuType type : Arrays.asList(CuType.ROOM, CuType.RESOURCE)) {
+            for (Attendee principal : getAllPrincipalsForType(type)) {
+                if (principal.getParameter(Parameter.CUTYPE) == null) {
+                    principal.getParameters().add(type);
+                }
+                principals.add(principal);
+            }
+        }
+        return principals;
+    }
     
     protected Element propertiesForPropSearch(Document document) {
-        Element firstNameProperty = DomUtil.createElement(document, "first-name", CalDavConstants.CS_NAMESPACE);
-        Element recordTypeProperty = DomUtil.createElement(document, "record-type", CalDavConstants.CS_NAMESPACE);
-        Element calUserAddressSetProperty = DomUtil.createElement(document, CalDavConstants.PROPERTY_USER_ADDRESS_SET, CalDavConstants.CALDAV_NAMESPACE);
-        Element lastNameProperty = DomUtil.createElement(document, "last-name", CalDavConstants.CS_NAMESPACE);
-        Element principalUrlProperty = DomUtil.createElement(document, "principal-URL", CalDavConstants.NAMESPACE);
-        Element calUserTypeProperty = DomUtil.createElement(document, CalDavConstants.PROPERTY_USER_TYPE, CalDavConstants.CALDAV_NAMESPACE);
-        Element displayNameForProperty = DomUtil.createElement(document, "displayname", CalDavConstants.NAMESPACE);
-        Element emailAddressSetProperty = DomUtil.createElement(document, "email-address-set", CalDavConstants.CS_NAMESPACE);
-
-        Element properties = DomUtil.createElement(document, "prop", DavConstants.NAMESPACE);
-        properties.appendChild(firstNameProperty);
-        properties.appendChild(recordTypeProperty);
-        properties.appendChild(calUserAddressSetProperty);
-        properties.appendChild(lastNameProperty);
-        properties.appendChild(principalUrlProperty);
-        properties.appendChild(calUserTypeProperty);
-        properties.appendChild(displayNameForProperty);
-        properties.appendChild(emailAddressSetProperty);
-        
-        return properties;
+        return XmlSupport.newPrincipalProperties(document);
     }
     
     public List<Attendee> getAllPrincipalsForType(CuType type) throws ParserConfigurationException, IOException, DavException, URISyntaxException {
-        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-
-        Element displayName = DomUtil.createElement(document, "calendar-user-type", CalDavConstants.CALDAV_NAMESPACE);
-        
-        Element displayNameProperty = DomUtil.createElement(document, "prop", DavConstants.NAMESPACE);
-        displayNameProperty.appendChild(displayName);
-        
-        Element containsMatch = DomUtil.createElement(document, "match", DavConstants.NAMESPACE);
-        containsMatch.setAttribute("match-type", "equals");
-        containsMatch.setTextContent(type.getValue());
-
-        Element propertySearchDisplayName = DomUtil.createElement(document, "property-search", DavConstants.NAMESPACE);
-        propertySearchDisplayName.appendChild(displayNameProperty);
-        propertySearchDisplayName.appendChild(containsMatch);
-                
-        Element properties = propertiesForPropSearch(document);
-                
-        Element principalPropSearch = DomUtil.createElement(document, "principal-property-search", DavConstants.NAMESPACE);
-        principalPropSearch.setAttribute("type", type.getValue());
-        principalPropSearch.setAttribute("test", "anyof");
-        principalPropSearch.appendChild(propertySearchDisplayName);
-        principalPropSearch.appendChild(properties);
-                
+        Element principalPropSearch = XmlSupport.newPrincipalsByType(type.getValue());
+        principalPropSearch.appendChild(propertiesForPropSearch(principalPropSearch.getOwnerDocument()));
         return executePrincipalPropSearch(principalPropSearch);
     }
     
@@ -668,46 +816,8 @@ public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCale
      * @throws URISyntaxException 
      */
     protected List<Attendee> getUserTypes(CuType type, String nameToSearch) throws ParserConfigurationException, IOException, DavException, URISyntaxException {
-        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-
-        Element displayName = DomUtil.createElement(document, "displayname", DavConstants.NAMESPACE);
-        
-        Element displayNameProperty = DomUtil.createElement(document, "prop", DavConstants.NAMESPACE);
-        displayNameProperty.appendChild(displayName);
-        
-        Element containsMatch = DomUtil.createElement(document, "match", DavConstants.NAMESPACE);
-        containsMatch.setAttribute("match-type", "contains");
-        containsMatch.setTextContent(nameToSearch);
-        
-        Element propertySearchDisplayName = DomUtil.createElement(document, "property-search", DavConstants.NAMESPACE);
-        propertySearchDisplayName.appendChild(displayNameProperty);
-        propertySearchDisplayName.appendChild(containsMatch);
-
-        Element emailAddressSet = DomUtil.createElement(document, "email-address-set", CalDavConstants.CS_NAMESPACE);
-
-        Element emailSetProperty = DomUtil.createElement(document, "prop", DavConstants.NAMESPACE);
-        emailSetProperty.appendChild(emailAddressSet);
- 
-        Element startsWith = DomUtil.createElement(document, "match", DavConstants.NAMESPACE);
-        startsWith.setAttribute("match-type", "starts-with");
-        if (startsWith != null) {
-            startsWith.setTextContent(nameToSearch);
-        }
-        
-        Element propertySearchEmail = DomUtil.createElement(document, "property-search", DavConstants.NAMESPACE);
-        propertySearchEmail.setTextContent(nameToSearch);
-        propertySearchEmail.appendChild(emailSetProperty);
-        propertySearchEmail.appendChild(startsWith);
-        
-        Element properties = propertiesForPropSearch(document);
-                
-        Element principalPropSearch = DomUtil.createElement(document, "principal-property-search", DavConstants.NAMESPACE);
-        principalPropSearch.setAttribute("type", type.getValue());
-        principalPropSearch.setAttribute("test", "anyof");
-        principalPropSearch.appendChild(propertySearchDisplayName);
-        principalPropSearch.appendChild(propertySearchEmail);
-        principalPropSearch.appendChild(properties);
-                
+        Element principalPropSearch = XmlSupport.newPrincipalsByName(type.getValue(), nameToSearch);
+        principalPropSearch.appendChild(propertiesForPropSearch(principalPropSearch.getOwnerDocument()));
         return executePrincipalPropSearch(principalPropSearch);
     }
     
@@ -717,67 +827,69 @@ public final class CalDavCalendarStore extends AbstractDavObjectStore<CalDavCale
         String methodUri = this.pathResolver.getPrincipalPath(getUserName());
         BaseDavRequest method = new PrincipalPropertySearchMethod(methodUri, rinfo);
         HttpResponse httpResponse = getClient().execute(method);
-        
         List<Attendee> resources = new ArrayList<Attendee>();
-        
-        if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_MULTI_STATUS) {
-            MultiStatus multiStatus = method.getResponseBodyAsMultiStatus(httpResponse);
-            MultiStatusResponse[] responses = multiStatus.getResponses();
-            for (int i = 0; i < responses.length; i++) {
+        try {
+            if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_MULTI_STATUS) {
+                MultiStatus multiStatus = method.getResponseBodyAsMultiStatus(httpResponse);
+                MultiStatusResponse[] responses = multiStatus.getResponses();
+                for (int i = 0; i < responses.length; i++) {
                 
-                Attendee resource = new Attendee();
-                DavPropertySet propertiesInResponse = responses[i].getProperties(DavServletResponse.SC_OK);
+                    Attendee resource = new Attendee();
+                    DavPropertySet propertiesInResponse = responses[i].getProperties(DavServletResponse.SC_OK);
 
-                DavProperty<?> displayNameFromResponse = propertiesInResponse.get("displayname",
-                        CalDavConstants.NAMESPACE);
-                if ((displayNameFromResponse != null) && (displayNameFromResponse.getValue() != null)) {
-                    resource.getParameters().add(new Cn((String)displayNameFromResponse.getValue()));
-                }
+                    DavProperty<?> displayNameFromResponse = propertiesInResponse.get("displayname",
+                            CalDavConstants.NAMESPACE);
+                    if ((displayNameFromResponse != null) && (displayNameFromResponse.getValue() != null)) {
+                        resource.getParameters().add(new Cn((String)displayNameFromResponse.getValue()));
+                    }
                 
-                DavProperty<?> emailSet = propertiesInResponse.get("email-address-set",
-                        CalDavConstants.CS_NAMESPACE);
+                    DavProperty<?> emailSet = propertiesInResponse.get("email-address-set",
+                            CalDavConstants.CS_NAMESPACE);
                 
-                if (emailSet != null && emailSet.getValue() != null) {
-                    Object emailSetValue = emailSet.getValue();
-                    if (emailSetValue instanceof java.util.ArrayList) {
-                        for (Object email: (java.util.ArrayList)emailSetValue) {
-                            if (email instanceof org.w3c.dom.Node) {
-                                String emailAddress = ((org.w3c.dom.Node)email).getTextContent();
-                                if (emailAddress != null && emailAddress.trim().length() > 0) {
-                                    if (!emailAddress.startsWith("mailto:")) {
-                                        emailAddress = "mailto:".concat(emailAddress);
+                    if (emailSet != null && emailSet.getValue() != null) {
+                        Object emailSetValue = emailSet.getValue();
+                        if (emailSetValue instanceof java.util.ArrayList) {
+                            for (Object email: (java.util.ArrayList)emailSetValue) {
+                                if (email instanceof org.w3c.dom.Node) {
+                                    String emailAddress = ((org.w3c.dom.Node)email).getTextContent();
+                                    if (emailAddress != null && emailAddress.trim().length() > 0) {
+                                        if (!emailAddress.startsWith("mailto:")) {
+                                            emailAddress = "mailto:".concat(emailAddress);
+                                        }
+                                        resource.setCalAddress(new URI(emailAddress));
                                     }
-                                    resource.setCalAddress(new URI(emailAddress));
                                 }
                             }
                         }
-                    }
-                } else {
-                    DavProperty<?> calendarUserAddressSet = propertiesInResponse.get(CalDavConstants.PROPERTY_USER_ADDRESS_SET,
-                            CalDavConstants.CALDAV_NAMESPACE);
-                    if (calendarUserAddressSet != null && calendarUserAddressSet.getValue() != null) {
-                        Object value = calendarUserAddressSet.getValue();
-                        if (value instanceof java.util.ArrayList) {
-                            for (Object addressSet: (java.util.ArrayList)value) {
-                                if (addressSet instanceof org.w3c.dom.Node) {
-                                    String url = ((org.w3c.dom.Node)addressSet).getTextContent();
-                                    if (url.startsWith("urn:uuid")) {
-                                        resource.setCalAddress(new URI(url));
+                    } else {
+                        DavProperty<?> calendarUserAddressSet = propertiesInResponse.get(CalDavConstants.PROPERTY_USER_ADDRESS_SET,
+                                CalDavConstants.CALDAV_NAMESPACE);
+                        if (calendarUserAddressSet != null && calendarUserAddressSet.getValue() != null) {
+                            Object value = calendarUserAddressSet.getValue();
+                            if (value instanceof java.util.ArrayList) {
+                                for (Object addressSet: (java.util.ArrayList)value) {
+                                    if (addressSet instanceof org.w3c.dom.Node) {
+                                        String url = ((org.w3c.dom.Node)addressSet).getTextContent();
+                                        if (url.startsWith("urn:uuid")) {
+                                            resource.setCalAddress(new URI(url));
+                                        }
                                     }
                                 }
                             }
                         }
                     }
-                }
                 
-                DavProperty<?> calendarUserType = propertiesInResponse.get(CalDavConstants.PROPERTY_USER_TYPE,
-                        CalDavConstants.CALDAV_NAMESPACE);
-                if ((calendarUserType != null) && (calendarUserType.getValue() != null)) {
-                    resource.getParameters().add(new CuType((String)calendarUserType.getValue()));
-                }
+                    DavProperty<?> calendarUserType = propertiesInResponse.get(CalDavConstants.PROPERTY_USER_TYPE,
+                            CalDavConstants.CALDAV_NAMESPACE);
+                    if ((calendarUserType != null) && (calendarUserType.getValue() != null)) {
+                        resource.getParameters().add(new CuType((String)calendarUserType.getValue()));
+                    }
                 
-                resources.add(resource);
+                    resources.add(resource);
+                }
             }
+        } finally {
+            EntityUtils.consumeQuietly(httpResponse.getEntity());
         }
         return resources;
     }
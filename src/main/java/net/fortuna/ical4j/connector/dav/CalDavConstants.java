@@ -287,6 +287,81 @@ public interface CalDavConstants extends DavConstants {
      * 
      */
     public static final String PROPERTY_TIME_RANGE = "time-range";
+
+    /**
+     * Matches a property of a calendar component or address object. RFC 4791, RFC 6352
+     */
+    public static final String PROPERTY_PROP_FILTER = "prop-filter";
+
+    /**
+     * Matches a property parameter. RFC 4791, RFC 6352
+     */
+    public static final String PROPERTY_PARAM_FILTER = "param-filter";
+
+    /**
+     * Matches a substring of a property or parameter value. RFC 4791, RFC 6352
+     */
+    public static final String PROPERTY_TEXT_MATCH = "text-match";
+
+    /**
+     * Matches where a component, property or parameter is not present. RFC 4791, RFC 6352
+     */
+    public static final String PROPERTY_IS_NOT_DEFINED = "is-not-defined";
+
+    /**
+     * Limits the number of results returned by a query. RFC 5323, RFC 6352
+     */
+    public static final String PROPERTY_LIMIT = "limit";
+
+    /**
+     * The maximum number of results returned by a query. RFC 5323, RFC 6352
+     */
+    public static final String PROPERTY_NRESULTS = "nresults";
+
+    /**
+     * Specifies a property to return in address data or calendar data. RFC 4791, RFC 6352
+     */
+    public static final String PROPERTY_PROP = "prop";
+
+    /**
+     * Specifies that all sub-components are returned in calendar data. RFC 4791
+     */
+    public static final String PROPERTY_ALLCOMP = "allcomp";
+
+    /**
+     * Specifies that all properties are returned in calendar data. RFC 4791
+     */
+    public static final String PROPERTY_ALLPROP = "allprop";
+
+    /**
+     * Limits the overridden recurrence instances returned in calendar data to a time range. RFC 4791
+     */
+    public static final String PROPERTY_LIMIT_RECURRENCE_SET = "limit-recurrence-set";
+
+    /**
+     * Limits the FREEBUSY periods returned in calendar data to a time range. RFC 4791
+     */
+    public static final String PROPERTY_LIMIT_FREEBUSY_SET = "limit-freebusy-set";
+
+    /**
+     * Indicates whether all or any filters must match ("allof" or "anyof"). RFC 6352
+     */
+    public static final String ATTRIBUTE_TEST = "test";
+
+    /**
+     * The type of text match ("equals", "contains", "starts-with" or "ends-with"). RFC 6352
+     */
+    public static final String ATTRIBUTE_MATCH_TYPE = "match-type";
+
+    /**
+     * The collation used to compare text. RFC 4791, RFC 6352
+     */
+    public static final String ATTRIBUTE_COLLATION = "collation";
+
+    /**
+     * Inverts the result of a text match ("yes" or "no"). RFC 4791, RFC 6352
+     */
+    public static final String ATTRIBUTE_NEGATE_CONDITION = "negate-condition";
     
     /**
      * 
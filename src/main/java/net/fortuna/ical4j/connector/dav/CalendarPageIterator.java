@@ -0,0 +1,337 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import net.fortuna.ical4j.connector.ObjectStoreException;
+import net.fortuna.ical4j.connector.filter.TimeRange;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.DateTime;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Retrieves the results of a calendar-query in pages, such that each response from the server is bounded. Each page
+ * is the result of a query over a time window, limited to the page size with CALDAV:limit. Where the server
+ * indicates the results of a window are truncated (with a 507 status), or the query times out, the window is divided
+ * in two and each half is queried in turn. Where the results of the smallest window are still truncated, that window
+ * is queried without a limit. A window is divided no more than {@value #MAX_TIMEOUT_SPLITS} times due to timeouts,
+ * after which a further timeout fails the query.
+ *
+ * Calendar objects that overlap more than one window are returned only once. To bound the state of the iterator, the
+ * href of a returned object is retained only while the object may overlap a remaining window. The state of the
+ * iterator may be captured as a {@link Continuation}, from which retrieval may be resumed later (e.g. by another
+ * request).
+ *
+ * <pre>
+ * CalendarPageIterator pages = collection.getComponentsByType(Component.VEVENT, 100);
+ * while (pages.hasNext()) {
+ *     Calendar[] page = pages.next();
+ *     ...
+ * }
+ * </pre>
+ */
+public class CalendarPageIterator {
+
+    private static final Log LOG = LogFactory.getLog(CalendarPageIterator.class);
+
+    /**
+     * The smallest time window that is divided further.
+     */
+    private static final long MIN_WINDOW = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * The span of a bounded window divided from an unbounded window.
+     */
+    private static final long OPEN_WINDOW_SPAN = TimeUnit.DAYS.toMillis(3652);
+
+    /**
+     * The maximum number of times a window is divided due to timeouts.
+     */
+    static final int MAX_TIMEOUT_SPLITS = 4;
+
+    /**
+     * A margin applied to the end of returned objects, such that objects with floating or date values are retained
+     * regardless of the time zone applied by the server.
+     */
+    private static final long FLOATING_MARGIN = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * The outcome of a query over a single time window.
+     */
+    private enum Outcome {
+        COMPLETE, TRUNCATED, TIMED_OUT
+    }
+
+    /**
+     * Executes a query over a single time window.
+     */
+    @FunctionalInterface
+    interface WindowQuery {
+
+        /**
+         * @param window the time window to query
+         * @param limit the maximum number of results requested, or zero for no limit
+         * @param consumer receives the href and calendar object of each result
+         * @return false where the server indicates the results are truncated
+         * @throws ObjectStoreException where the query fails
+         * @throws IOException where a communication error occurs
+         */
+        boolean query(TimeRange window, int limit, BiConsumer<String, Calendar> consumer)
+                throws ObjectStoreException, IOException;
+    }
+
+    /**
+     * The remaining time windows of a paged query, and the resources already returned that may overlap them.
+     */
+    public static final class Continuation implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String componentType;
+
+        private final int pageSize;
+
+        private final Deque<Window> windows;
+
+        /*
+         * The hrefs of returned objects, and the end of the period spanned by each object (or null if unbounded).
+         */
+        private final Map<String, Long> hrefs;
+
+        Continuation(String componentType, int pageSize, DateTime start, DateTime end) {
+            this.componentType = componentType;
+            this.pageSize = pageSize;
+            this.windows = new ArrayDeque<>();
+            this.hrefs = new HashMap<>();
+            windows.add(new Window(start != null ? start.getTime() : null, end != null ? end.getTime() : null, 0));
+        }
+
+        private Continuation(Continuation continuation) {
+            this.componentType = continuation.componentType;
+            this.pageSize = continuation.pageSize;
+            this.windows = new ArrayDeque<>(continuation.windows);
+            this.hrefs = new HashMap<>(continuation.hrefs);
+        }
+
+        /**
+         * @return the type of component matched by the query
+         */
+        public String getComponentType() {
+            return componentType;
+        }
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        private Continuation copy() {
+            return new Continuation(this);
+        }
+    }
+
+    /**
+     * A time window, where a null bound is unbounded.
+     */
+    private static final class Window implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Long start;
+
+        private final Long end;
+
+        /*
+         * The number of times the windows this window was divided from timed out.
+         */
+        private final int timeouts;
+
+        private Window(Long start, Long end, int timeouts) {
+            this.start = start;
+            this.end = end;
+            this.timeouts = timeouts;
+        }
+
+        private TimeRange toTimeRange() {
+            return new TimeRange(start != null ? new DateTime(start) : null, end != null ? new DateTime(end) : null);
+        }
+
+        /**
+         * @return false if this is a bounded window no larger than the smallest window that is divided
+         */
+        private boolean isDivisible() {
+            return start == null || end == null || end - start > MIN_WINDOW;
+        }
+
+        /**
+         * @param timeouts the number of timeouts of this window and the windows it was divided from
+         * @return the halves of this window
+         */
+        private List<Window> split(int timeouts) {
+            long pivot;
+            if (start == null && end == null) {
+                pivot = System.currentTimeMillis();
+            } else if (start == null) {
+                pivot = end - OPEN_WINDOW_SPAN;
+            } else if (end == null) {
+                pivot = start + OPEN_WINDOW_SPAN;
+            } else {
+                pivot = start + (end - start) / 2;
+            }
+            List<Window> halves = new ArrayList<>();
+            halves.add(new Window(start, pivot, timeouts));
+            halves.add(new Window(pivot, end, timeouts));
+            return halves;
+        }
+    }
+
+    private final WindowQuery query;
+
+    private final Continuation state;
+
+    /**
+     * @param query executes the query for each time window
+     * @param continuation the initial state of the iterator, which is not modified
+     */
+    CalendarPageIterator(WindowQuery query, Continuation continuation) {
+        this.query = query;
+        this.state = continuation.copy();
+    }
+
+    /**
+     * @return true if there are time windows remaining to be queried
+     */
+    public boolean hasNext() {
+        return !state.windows.isEmpty();
+    }
+
+    /**
+     * Retrieves the next page of results. A page may be empty where no calendar objects are found in a time window.
+     * @return the calendar objects in the next page
+     * @throws ObjectStoreException where the query fails, results are truncated for the smallest time window without
+     * a limit, or the query times out for a window that is not divided further
+     */
+    public Calendar[] next() throws ObjectStoreException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        while (true) {
+            Window window = state.windows.peekFirst();
+            Map<String, Calendar> results = new LinkedHashMap<>();
+            Outcome outcome = query(window, state.pageSize, results);
+            if (outcome == Outcome.TRUNCATED && !window.isDivisible()) {
+                // the smallest window is still truncated, so retrieve all of its results..
+                LOG.debug("Querying truncated calendar-query without a limit: " + window.toTimeRange());
+                results.clear();
+                if (query(window, 0, results) != Outcome.COMPLETE) {
+                    throw new ObjectStoreException("Results truncated for minimum time window: "
+                            + window.toTimeRange());
+                }
+                outcome = Outcome.COMPLETE;
+            }
+            state.windows.removeFirst();
+            if (outcome == Outcome.COMPLETE) {
+                List<Calendar> page = new ArrayList<>();
+                for (Map.Entry<String, Calendar> result : results.entrySet()) {
+                    if (!state.hrefs.containsKey(result.getKey())) {
+                        state.hrefs.put(result.getKey(), getEnd(result.getValue()));
+                        page.add(result.getValue());
+                    }
+                }
+                retainOverlapping();
+                return page.toArray(new Calendar[0]);
+            }
+            List<Window> halves = window.split(outcome == Outcome.TIMED_OUT ? window.timeouts + 1 : window.timeouts);
+            LOG.debug("Dividing " + (outcome == Outcome.TIMED_OUT ? "timed out" : "truncated") + " calendar-query: "
+                    + window.toTimeRange());
+            state.windows.addFirst(halves.get(1));
+            state.windows.addFirst(halves.get(0));
+        }
+    }
+
+    /**
+     * @return the end of the period spanned by a returned object including the margin, or null if unbounded
+     */
+    private Long getEnd(Calendar calendar) {
+        TimeRange span = TimeRange.span(calendar, state.componentType);
+        return span != null && span.getEnd() != null ? span.getEnd().getTime() + FLOATING_MARGIN : null;
+    }
+
+    /**
+     * Discards the hrefs of returned objects that end before the remaining windows, as they cannot be returned again.
+     */
+    private void retainOverlapping() {
+        Window next = state.windows.peekFirst();
+        if (next == null) {
+            state.hrefs.clear();
+        } else if (next.start != null) {
+            state.hrefs.values().removeIf(end -> end != null && end <= next.start);
+        }
+    }
+
+    /**
+     * @throws ObjectStoreException where the query fails, or times out for a window that is not divided further
+     */
+    private Outcome query(Window window, int limit, Map<String, Calendar> results) throws ObjectStoreException {
+        try {
+            return query.query(window.toTimeRange(), limit, results::put) ? Outcome.COMPLETE : Outcome.TRUNCATED;
+        } catch (SocketTimeoutException | RequestTimeoutException e) {
+            if (limit == 0 || !window.isDivisible() || window.timeouts >= MAX_TIMEOUT_SPLITS) {
+                throw new ObjectStoreException("calendar-query timed out: " + window.toTimeRange(), e);
+            }
+            LOG.debug("calendar-query timed out: " + window.toTimeRange());
+            return Outcome.TIMED_OUT;
+        } catch (IOException e) {
+            throw new ObjectStoreException("calendar-query failed", e);
+        }
+    }
+
+    /**
+     * @return the current state of the iterator, from which retrieval may be resumed
+     */
+    public Continuation getContinuation() {
+        return state.copy();
+    }
+}
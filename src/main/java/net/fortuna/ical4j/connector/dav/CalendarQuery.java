@@ -0,0 +1,324 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import net.fortuna.ical4j.connector.filter.ComponentFilter;
+import net.fortuna.ical4j.connector.filter.ParameterFilter;
+import net.fortuna.ical4j.connector.filter.PropertyFilter;
+import net.fortuna.ical4j.connector.filter.TextMatch;
+import net.fortuna.ical4j.connector.filter.TimeRange;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.DateTime;
+import net.fortuna.ical4j.model.Property;
+import org.apache.jackrabbit.webdav.xml.DomUtil;
+import org.apache.jackrabbit.webdav.xml.Namespace;
+import org.apache.jackrabbit.webdav.xml.XmlSerializable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A calendar-query report (RFC 4791 section 7.8) for components of a single type. The calendar data returned for
+ * each calendar object may be limited to selected properties, and recurrence overrides and free-busy periods may be
+ * limited to a time range, such that list views need only transfer the values they display.
+ *
+ * <pre>
+ * CalendarQuery query = new CalendarQuery(Component.VEVENT)
+ *         .timeRange(start, end)
+ *         .properties(Property.UID, Property.SUMMARY, Property.DTSTART, Property.DTEND, Property.RRULE)
+ *         .limit(100);
+ * Calendar[] events = collection.query(query);
+ * </pre>
+ */
+public class CalendarQuery implements XmlSerializable {
+
+    private static final Namespace NAMESPACE = CalDavConstants.CALDAV_NAMESPACE;
+
+    private final String componentType;
+
+    private final List<String> properties = new ArrayList<>();
+
+    private DateTime start;
+
+    private DateTime end;
+
+    private DateTime recurrenceSetStart;
+
+    private DateTime recurrenceSetEnd;
+
+    private DateTime freeBusySetStart;
+
+    private DateTime freeBusySetEnd;
+
+    private int limit;
+
+    private ComponentFilter filter;
+
+    /**
+     * @param componentType the type of component to match (e.g. VEVENT)
+     */
+    public CalendarQuery(String componentType) {
+        this.componentType = componentType;
+    }
+
+    /**
+     * @return the type of component matched by the query
+     */
+    public String getComponentType() {
+        return componentType;
+    }
+
+    /**
+     * @param start the inclusive start of the time range, or null if unbounded
+     * @param end the exclusive end of the time range, or null if unbounded
+     * @return this query, modified to match only components that overlap the time range
+     */
+    public CalendarQuery timeRange(DateTime start, DateTime end) {
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    /**
+     * Replaces the default filter (on component type and time range) with the specified filter, which is translated
+     * to an equivalent CalDAV filter element.
+     * @param filter a root (VCALENDAR) filter
+     * @return this query
+     */
+    public CalendarQuery filter(ComponentFilter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Limits the properties returned for each matching component. VTIMEZONE components are always returned in full,
+     * such that date-time values may be resolved.
+     * @param names the names of properties to return (e.g. UID, SUMMARY)
+     * @return this query
+     */
+    public CalendarQuery properties(String... names) {
+        properties.addAll(Arrays.asList(names));
+        return this;
+    }
+
+    /**
+     * @param start the inclusive start of the time range
+     * @param end the exclusive end of the time range
+     * @return this query, modified to return only recurrence overrides that overlap the time range
+     */
+    public CalendarQuery limitRecurrenceSet(DateTime start, DateTime end) {
+        this.recurrenceSetStart = start;
+        this.recurrenceSetEnd = end;
+        return this;
+    }
+
+    /**
+     * @param start the inclusive start of the time range
+     * @param end the exclusive end of the time range
+     * @return this query, modified to return only FREEBUSY periods that overlap the time range
+     */
+    public CalendarQuery limitFreeBusySet(DateTime start, DateTime end) {
+        this.freeBusySetStart = start;
+        this.freeBusySetEnd = end;
+        return this;
+    }
+
+    /**
+     * @param limit the maximum number of calendar objects to return, or zero for no limit
+     * @return this query
+     */
+    public CalendarQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * @return true if the query selects properties or limits recurrence overrides or FREEBUSY periods, such that
+     * matching calendar objects are not returned in full
+     */
+    public boolean isPartial() {
+        return !properties.isEmpty() || recurrenceSetStart != null || freeBusySetStart != null;
+    }
+
+    /**
+     * @param document the owner of the new element
+     * @return a calendar-query report body
+     */
+    @Override
+    public Element toXml(Document document) {
+        Element query = DomUtil.createElement(document, CalDavConstants.PROPERTY_CALENDAR_QUERY, NAMESPACE);
+
+        Element prop = DomUtil.createElement(document, DavConstants.XML_PROP, DavConstants.NAMESPACE);
+        prop.appendChild(DomUtil.createElement(document, DavConstants.PROPERTY_GETETAG, DavConstants.NAMESPACE));
+        prop.appendChild(calendarDataToXml(document));
+        query.appendChild(prop);
+
+        Element filterElement = DomUtil.createElement(document, CalDavConstants.PROPERTY_FILTER, NAMESPACE);
+        if (filter != null) {
+            filterElement.appendChild(componentFilterToXml(document, filter));
+        } else {
+            Element calendarFilter = named(document, CalDavConstants.PROPERTY_COMP_FILTER, Calendar.VCALENDAR);
+            Element componentFilter = named(document, CalDavConstants.PROPERTY_COMP_FILTER, componentType);
+            if (start != null || end != null) {
+                componentFilter.appendChild(timeRange(document, new TimeRange(start, end)));
+            }
+            calendarFilter.appendChild(componentFilter);
+            filterElement.appendChild(calendarFilter);
+        }
+        query.appendChild(filterElement);
+
+        if (limit > 0) {
+            Element limitElement = DomUtil.createElement(document, CalDavConstants.PROPERTY_LIMIT, NAMESPACE);
+            limitElement.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_NRESULTS, NAMESPACE,
+                    Integer.toString(limit)));
+            query.appendChild(limitElement);
+        }
+        return query;
+    }
+
+    private Element calendarDataToXml(Document document) {
+        Element calendarData = DomUtil.createElement(document, CalDavConstants.PROPERTY_CALENDAR_DATA, NAMESPACE);
+        if (!properties.isEmpty()) {
+            Element calendar = named(document, CalDavConstants.PROPERTY_COMPONENT, Calendar.VCALENDAR);
+
+            Element timezone = named(document, CalDavConstants.PROPERTY_COMPONENT, Component.VTIMEZONE);
+            timezone.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_ALLCOMP, NAMESPACE));
+            timezone.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_ALLPROP, NAMESPACE));
+            calendar.appendChild(timezone);
+
+            Element component = named(document, CalDavConstants.PROPERTY_COMPONENT, componentType);
+            for (String name : properties) {
+                component.appendChild(named(document, CalDavConstants.PROPERTY_PROP, name));
+            }
+            calendar.appendChild(component);
+
+            calendar.appendChild(named(document, CalDavConstants.PROPERTY_PROP, Property.VERSION));
+            calendar.appendChild(named(document, CalDavConstants.PROPERTY_PROP, Property.PRODID));
+            calendarData.appendChild(calendar);
+        }
+        if (recurrenceSetStart != null && recurrenceSetEnd != null) {
+            calendarData.appendChild(timeRange(document, CalDavConstants.PROPERTY_LIMIT_RECURRENCE_SET,
+                    recurrenceSetStart, recurrenceSetEnd));
+        }
+        if (freeBusySetStart != null && freeBusySetEnd != null) {
+            calendarData.appendChild(timeRange(document, CalDavConstants.PROPERTY_LIMIT_FREEBUSY_SET,
+                    freeBusySetStart, freeBusySetEnd));
+        }
+        return calendarData;
+    }
+
+    private static Element componentFilterToXml(Document document, ComponentFilter componentFilter) {
+        Element element = named(document, CalDavConstants.PROPERTY_COMP_FILTER, componentFilter.getName());
+        if (componentFilter.isNotDefined()) {
+            element.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_IS_NOT_DEFINED, NAMESPACE));
+            return element;
+        }
+        if (componentFilter.getTimeRange() != null) {
+            element.appendChild(timeRange(document, componentFilter.getTimeRange()));
+        }
+        for (PropertyFilter propertyFilter : componentFilter.getPropertyFilters()) {
+            element.appendChild(propertyFilterToXml(document, propertyFilter));
+        }
+        for (ComponentFilter child : componentFilter.getComponentFilters()) {
+            element.appendChild(componentFilterToXml(document, child));
+        }
+        return element;
+    }
+
+    private static Element propertyFilterToXml(Document document, PropertyFilter propertyFilter) {
+        Element element = named(document, CalDavConstants.PROPERTY_PROP_FILTER, propertyFilter.getName());
+        if (propertyFilter.isNotDefined()) {
+            element.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_IS_NOT_DEFINED, NAMESPACE));
+            return element;
+        }
+        if (propertyFilter.getTimeRange() != null) {
+            element.appendChild(timeRange(document, propertyFilter.getTimeRange()));
+        } else if (propertyFilter.getTextMatch() != null) {
+            element.appendChild(textMatch(document, propertyFilter.getTextMatch()));
+        }
+        for (ParameterFilter parameterFilter : propertyFilter.getParameterFilters()) {
+            Element paramFilter = named(document, CalDavConstants.PROPERTY_PARAM_FILTER, parameterFilter.getName());
+            if (parameterFilter.isNotDefined()) {
+                paramFilter.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_IS_NOT_DEFINED,
+                        NAMESPACE));
+            } else if (parameterFilter.getTextMatch() != null) {
+                paramFilter.appendChild(textMatch(document, parameterFilter.getTextMatch()));
+            }
+            element.appendChild(paramFilter);
+        }
+        return element;
+    }
+
+    private static Element textMatch(Document document, TextMatch textMatch) {
+        Element element = DomUtil.createElement(document, CalDavConstants.PROPERTY_TEXT_MATCH, NAMESPACE,
+                textMatch.getText());
+        element.setAttribute(CalDavConstants.ATTRIBUTE_COLLATION, textMatch.getCollation());
+        if (textMatch.isNegate()) {
+            element.setAttribute(CalDavConstants.ATTRIBUTE_NEGATE_CONDITION, "yes");
+        }
+        return element;
+    }
+
+    private static Element timeRange(Document document, TimeRange timeRange) {
+        Element element = DomUtil.createElement(document, CalDavConstants.PROPERTY_TIME_RANGE, NAMESPACE);
+        if (timeRange.getStart() != null) {
+            element.setAttribute(CalDavConstants.ATTRIBUTE_START, utc(timeRange.getStart()));
+        }
+        if (timeRange.getEnd() != null) {
+            element.setAttribute(CalDavConstants.ATTRIBUTE_END, utc(timeRange.getEnd()));
+        }
+        return element;
+    }
+
+    private static Element named(Document document, String elementName, String name) {
+        Element element = DomUtil.createElement(document, elementName, NAMESPACE);
+        element.setAttribute(CalDavConstants.ATTRIBUTE_NAME, name);
+        return element;
+    }
+
+    private static Element timeRange(Document document, String elementName, DateTime start, DateTime end) {
+        Element element = DomUtil.createElement(document, elementName, NAMESPACE);
+        element.setAttribute(CalDavConstants.ATTRIBUTE_START, utc(start));
+        element.setAttribute(CalDavConstants.ATTRIBUTE_END, utc(end));
+        return element;
+    }
+
+    private static String utc(DateTime dateTime) {
+        DateTime utc = new DateTime(dateTime);
+        utc.setUtc(true);
+        return utc.toString();
+    }
+}
@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import net.fortuna.ical4j.connector.dav.enums.SupportedFeature;
+import net.fortuna.ical4j.util.Configurator;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Caches the capabilities discovered when connecting to a server, such that subsequent connections may skip
+ * discovery. Capabilities are keyed by host, principal path and the identity of the authenticated user, and include the
+ * features supported by the server and the negotiated authentication scheme. The identity includes a keyed digest of
+ * the credentials, such that capabilities discovered with one set of credentials are not used with another.
+ *
+ * Cached capabilities are used until they expire, and are revalidated in the background once half of the time to
+ * expiry has elapsed. Capabilities may optionally be persisted to a file, such that they are retained across
+ * restarts. The default cache is configured with the following properties:
+ *
+ * <pre>
+ * ical4j.connector.dav.capabilitycache.ttl - time (in seconds) to retain capabilities (default 86400)
+ * ical4j.connector.dav.capabilitycache.file - path of a file in which to persist capabilities (optional)
+ * </pre>
+ */
+public class CapabilityCache {
+
+    private static final Log LOG = LogFactory.getLog(CapabilityCache.class);
+
+    /**
+     * Performs background revalidation for all caches.
+     */
+    private static final ExecutorService REVALIDATION_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "dav-capability-revalidation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile CapabilityCache defaultInstance;
+
+    /**
+     * Capabilities discovered for a server.
+     */
+    public static final class Capabilities {
+
+        private final List<SupportedFeature> supportedFeatures;
+
+        private final String authScheme;
+
+        private final long timestamp;
+
+        /**
+         * @param supportedFeatures features supported by the server
+         * @param authScheme the name of the negotiated authentication scheme, or null if not known
+         * @param timestamp the time (in milliseconds since the epoch) the capabilities were discovered
+         */
+        public Capabilities(List<SupportedFeature> supportedFeatures, String authScheme, long timestamp) {
+            this.supportedFeatures = Collections.unmodifiableList(new ArrayList<>(supportedFeatures));
+            this.authScheme = authScheme;
+            this.timestamp = timestamp;
+        }
+
+        public List<SupportedFeature> getSupportedFeatures() {
+            return supportedFeatures;
+        }
+
+        public String getAuthScheme() {
+            return authScheme;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    /**
+     * The name of the persisted property containing the key used to digest credentials.
+     */
+    private static final String SALT_PROPERTY = "salt";
+
+    private final Map<String, Capabilities> entries = new ConcurrentHashMap<>();
+
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+    private final long ttl;
+
+    private final Path file;
+
+    private byte[] salt;
+
+    /**
+     * @param ttl the time (in milliseconds) to retain capabilities
+     * @param file a file in which to persist capabilities, or null to retain capabilities in memory only
+     */
+    public CapabilityCache(long ttl, Path file) {
+        this.ttl = ttl;
+        this.file = file;
+        if (file != null && Files.exists(file)) {
+            load();
+        }
+        if (salt == null) {
+            salt = new byte[32];
+            new SecureRandom().nextBytes(salt);
+        }
+    }
+
+    /**
+     * @return the default cache, shared by all stores
+     */
+    public static CapabilityCache getDefault() {
+        CapabilityCache instance = defaultInstance;
+        if (instance == null) {
+            synchronized (CapabilityCache.class) {
+                if (defaultInstance == null) {
+                    long ttl = Long.parseLong(Configurator.getProperty("ical4j.connector.dav.capabilitycache.ttl")
+                            .orElse("86400"));
+                    defaultInstance = new CapabilityCache(ttl * 1000, Configurator.getProperty(
+                            "ical4j.connector.dav.capabilitycache.file").map(Paths::get).orElse(null));
+                }
+                instance = defaultInstance;
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param host a host URI
+     * @param principalPath the principal path used for discovery
+     * @param username the authenticated user, or null if not known
+     * @param secret the password or bearer token used to authenticate, or null for an anonymous session
+     * @return a cache key
+     */
+    public String key(String host, String principalPath, String username, String secret) {
+        if (secret == null) {
+            return host + principalPath;
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(salt, "HmacSHA256"));
+            byte[] digest = mac.doFinal(secret.getBytes(StandardCharsets.UTF_8));
+            return host + principalPath + "#" + (username != null ? username : "") + ":"
+                    + Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param key a cache key
+     * @return cached capabilities, or null if not cached or expired
+     */
+    public Capabilities get(String key) {
+        Capabilities capabilities = entries.get(key);
+        if (capabilities != null && System.currentTimeMillis() - capabilities.getTimestamp() >= ttl) {
+            return null;
+        }
+        return capabilities;
+    }
+
+    /**
+     * @param key a cache key
+     * @return true if the cached capabilities for the specified key are due to be revalidated
+     */
+    public boolean isStale(String key) {
+        Capabilities capabilities = entries.get(key);
+        return capabilities == null || System.currentTimeMillis() - capabilities.getTimestamp() >= ttl / 2;
+    }
+
+    public void put(String key, Capabilities capabilities) {
+        entries.put(key, capabilities);
+        persist();
+    }
+
+    public void remove(String key) {
+        if (entries.remove(key) != null) {
+            persist();
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        persist();
+    }
+
+    /**
+     * Revalidates the capabilities for the specified key in the background. Capabilities are removed from the cache
+     * where revalidation fails, such that subsequent connections perform discovery.
+     * @param key a cache key
+     * @param discovery discovers current capabilities
+     */
+    public void revalidate(String key, Callable<Capabilities> discovery) {
+        if (revalidating.add(key)) {
+            REVALIDATION_EXECUTOR.execute(() -> {
+                try {
+                    put(key, discovery.call());
+                } catch (Exception e) {
+                    LOG.warn("Capability revalidation failed: " + key, e);
+                    remove(key);
+                } finally {
+                    revalidating.remove(key);
+                }
+            });
+        }
+    }
+
+    private void load() {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            LOG.warn("Unable to load capability cache: " + file, e);
+            return;
+        }
+        String savedSalt = properties.getProperty(SALT_PROPERTY);
+        if (savedSalt != null) {
+            salt = Base64.getDecoder().decode(savedSalt);
+        }
+        for (String key : properties.stringPropertyNames()) {
+            // timestamp|authScheme|feature,feature..
+            String[] values = properties.getProperty(key).split("\\|", -1);
+            if (values.length == 3) {
+                List<SupportedFeature> features = Arrays.stream(values[2].split(","))
+                        .map(SupportedFeature::findByDescription).filter(Objects::nonNull)
+                        .collect(Collectors.toList());
+                entries.put(key, new Capabilities(features, values[1].isEmpty() ? null : values[1],
+                        Long.parseLong(values[0])));
+            }
+        }
+    }
+
+    private synchronized void persist() {
+        if (file == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty(SALT_PROPERTY, Base64.getEncoder().encodeToString(salt));
+        entries.forEach((key, capabilities) -> properties.setProperty(key, capabilities.getTimestamp() + "|"
+                + (capabilities.getAuthScheme() != null ? capabilities.getAuthScheme() : "") + "|"
+                + capabilities.getSupportedFeatures().stream().map(SupportedFeature::description)
+                .collect(Collectors.joining(","))));
+        try {
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "DAV server capabilities");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Unable to persist capability cache: " + file, e);
+        }
+    }
+}
@@ -41,22 +41,40 @@ import net.fortuna.ical4j.connector.dav.method.ReportMethod;
 import net.fortuna.ical4j.connector.dav.property.BaseDavPropertyName;
 import net.fortuna.ical4j.connector.dav.property.CalDavPropertyName;
 import net.fortuna.ical4j.connector.dav.property.CardDavPropertyName;
+import net.fortuna.ical4j.connector.event.ObjectStoreEvent;
 import net.fortuna.ical4j.model.Calendar;
 import net.fortuna.ical4j.model.ConstraintViolationException;
 import net.fortuna.ical4j.vcard.Property.Id;
 import net.fortuna.ical4j.vcard.VCard;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
 import org.apache.jackrabbit.webdav.DavException;
 import org.apache.jackrabbit.webdav.DavServletResponse;
+import org.apache.jackrabbit.webdav.client.methods.HttpDelete;
 import org.apache.jackrabbit.webdav.client.methods.XmlEntity;
+import org.apache.jackrabbit.webdav.property.DavProperty;
 import org.apache.jackrabbit.webdav.property.DavPropertyName;
 import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
 import org.apache.jackrabbit.webdav.property.DavPropertySet;
 import org.apache.jackrabbit.webdav.property.DefaultDavProperty;
 import org.apache.jackrabbit.webdav.security.SecurityConstants;
 import org.apache.jackrabbit.webdav.version.report.ReportInfo;
+import org.w3c.dom.Document;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * $Id$
@@ -68,6 +86,15 @@ import java.io.IOException;
  */
 public class CardDavCollection extends AbstractDavObjectCollection<VCard> implements CardCollection {
 
+    private static final Log LOG = LogFactory.getLog(CardDavCollection.class);
+
+    private final EntityTagStore entityTags = new EntityTagStore();
+
+    /**
+     * Indicates that the server has reported it does not support the sync-collection report for this collection.
+     */
+    private volatile boolean syncUnsupported;
+
     /**
      * Only {@link CardDavStore} should be calling this, so default modifier is applied.
      * 
@@ -95,7 +122,7 @@ public class CardDavCollection extends AbstractDavObjectCollection<VCard> implem
 
     CardDavCollection(CardDavStore CardDavCalendarStore, String id, DavPropertySet _properties) {
         this(CardDavCalendarStore, id, null, null);
-        this.properties = _properties;
+        setProperties(_properties);
     }
 
     /**
@@ -112,7 +139,7 @@ public class CardDavCollection extends AbstractDavObjectCollection<VCard> implem
         System.out.println("properties: " + properties.getContentSize());
         mkCalendarMethod.setEntity(XmlEntity.create(mkcalendar));
 
-        HttpResponse httpResponse = getStore().getClient().execute(mkCalendarMethod);
+        HttpResponse httpResponse = getStore().getClient().executeAndRelease(mkCalendarMethod);
         if (!mkCalendarMethod.succeeded(httpResponse)) {
             throw new ObjectStoreException(httpResponse.getStatusLine().getStatusCode() + ": "
                     + httpResponse.getStatusLine().getReasonPhrase());
@@ -123,11 +150,7 @@ public class CardDavCollection extends AbstractDavObjectCollection<VCard> implem
      * Human-readable name of the collection.
      */
     public String getDisplayName() {
-        try {
-            return getProperty(DavPropertyName.DISPLAYNAME, String.class);
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
+        return getPropertySnapshot().getDisplayName();
     }
 
     /**
@@ -135,22 +158,17 @@ public class CardDavCollection extends AbstractDavObjectCollection<VCard> implem
      * when a calendar object resource is stored in a calendar collection. 0 = no limits.
      */
     public long getMaxResourceSize() {
-        try {
-            Long size = getProperty(CalDavPropertyName.MAX_RESOURCE_SIZE, Long.class);
-            if (size != null) {
-                return size;
-            }
-        } catch (ObjectStoreException | IOException | DavException e) {
-            throw new RuntimeException(e);
-        }
-        return 0;
+        Long size = getPropertySnapshot().getMaxResourceSize();
+        return size != null ? size : 0;
     }
 
     /**
-     * {@inheritDoc}
+     * vCard objects cannot be represented as a calendar.
+     * @deprecated use {@link #export(java.io.Writer)} to export vCard objects
      */
+    @Deprecated
     public Calendar export() throws ObjectStoreException {
-        throw new UnsupportedOperationException("not implemented");
+        throw new UnsupportedOperationException("vCard collections cannot be exported as a calendar");
     }
         
     public static final DavPropertyNameSet propertiesForFetch() {
@@ -193,6 +211,11 @@ public class CardDavCollection extends AbstractDavObjectCollection<VCard> implem
         return principalsProps;
     }
 
+    @Override
+    protected DavPropertyNameSet getPropertyNamesForFetch() {
+        return propertiesForFetch();
+    }
+
     /* (non-Javadoc)
      * @see net.fortuna.ical4j.connector.ObjectCollection#getDescription()
      */
@@ -201,28 +224,263 @@ public class CardDavCollection extends AbstractDavObjectCollection<VCard> implem
         return null;
     }
 
-    /* (non-Javadoc)
-     * @see net.fortuna.ical4j.connector.ObjectCollection#getComponents()
+    /**
+     * Returns all vCard objects in the collection. Where the server supports the sync-collection report, members are
+     * listed first and then retrieved in batches using addressbook-multiget, otherwise all vCard objects are retrieved
+     * in a single addressbook-query. Once the server reports that sync-collection is not supported, subsequent calls
+     * use addressbook-query only.
+     * @throws ObjectStoreException where the vCard objects cannot be retrieved
+     * @see ReportMethod#isUnsupported(HttpResponse)
      */
     public VCard[] getComponents() throws ObjectStoreException {
+        List<VCard> cards = new ArrayList<>();
+        if (!syncUnsupported) {
+            try {
+                sync(null, cards::add);
+                return cards.toArray(new VCard[0]);
+            } catch (ObjectStoreException e) {
+                if (!syncUnsupported) {
+                    throw e;
+                }
+                cards.clear();
+            }
+        }
+        query(new AddressbookQuery(), cards::add);
+        return cards.toArray(new VCard[0]);
+    }
+
+    /**
+     * @return false if the server has reported that it does not support the sync-collection report for this
+     * collection, otherwise true
+     */
+    public boolean isSyncSupported() {
+        return !syncUnsupported;
+    }
+
+    /**
+     * Retrieves the vCard objects matching the specified query. The query is evaluated by the server, and only the
+     * requested properties of each vCard object are returned.
+     * <p>
+     * Entity tags are not recorded for the results of a {@linkplain AddressbookQuery#isPartial() partial} query, as
+     * writing such a vCard object would replace the full object on the server.
+     * </p>
+     * @param query an addressbook-query
+     * @param consumer receives each matching vCard object
+     * @throws ObjectStoreException where the query fails
+     */
+    public void query(AddressbookQuery query, Consumer<VCard> consumer) throws ObjectStoreException {
+        queryMembers(query, (uri, card) -> consumer.accept(card));
+    }
+
+    /**
+     * @param consumer receives the URI (relative to this collection) of each matching vCard object, and the object
+     */
+    private void queryMembers(AddressbookQuery query, BiConsumer<String, VCard> consumer) throws ObjectStoreException {
         try {
-            DavPropertyNameSet properties = new DavPropertyNameSet();
-            properties.add(DavPropertyName.GETETAG);
-            properties.add(CardDavPropertyName.ADDRESS_DATA);
+            ReportInfo info = XmlSupport.newReportInfo(ReportMethod.ADDRESSBOOK_QUERY,
+                    query.toXml(XmlSupport.newDocument()), DavConstants.DEPTH_1);
+            ReportMethod method = new ReportMethod(getPath(), info);
+            HttpResponse httpResponse = getStore().getClient().execute(method);
+            try {
+                if (httpResponse.getStatusLine().getStatusCode() != DavServletResponse.SC_MULTI_STATUS) {
+                    throw new ObjectStoreException("addressbook-query failed: " + httpResponse.getStatusLine());
+                }
+                // tags of partial representations must not be used to condition an update of the full object..
+                method.getVCards(httpResponse, query.isPartial() ? (href, properties) -> { } : this::updateEntityTags,
+                        (href, card) -> consumer.accept(EntityTagStore.uriFromHref(href), card));
+            } finally {
+                EntityUtils.consumeQuietly(httpResponse.getEntity());
+            }
+        } catch (IOException | DavException e) {
+            throw new ObjectStoreException("addressbook-query failed", e);
+        }
+    }
+
+    /**
+     * @param query an addressbook-query
+     * @return the matching vCard objects
+     * @throws ObjectStoreException where the query fails
+     * @see #query(AddressbookQuery, Consumer)
+     */
+    public VCard[] query(AddressbookQuery query) throws ObjectStoreException {
+        List<VCard> cards = new ArrayList<>();
+        query(query, cards::add);
+        return cards.toArray(new VCard[0]);
+    }
+
+    /**
+     * Retrieves the specified vCard objects using addressbook-multiget reports (RFC 6352). Large requests are split
+     * into batches, the size of which is limited by the <code>ical4j.connector.dav.multiget.batchsize</code>
+     * property (default 100).
+     * @param uris the URIs (relative to this collection) of vCard objects to retrieve
+     * @param consumer receives each vCard object as it is retrieved
+     * @throws ObjectStoreException where an unexpected error occurs
+     */
+    public void getCardsByMultiget(Collection<String> uris, Consumer<VCard> consumer) throws ObjectStoreException {
+        multiget(uris, (uri, card) -> consumer.accept(card));
+    }
 
-            ReportInfo info = new ReportInfo(ReportMethod.ADDRESSBOOK_QUERY, 1, properties);
+    private void multiget(Collection<String> uris, BiConsumer<String, VCard> consumer) throws ObjectStoreException {
+        int batchSize = Integer.parseInt(getStore().getProfileProperty("ical4j.connector.dav.multiget.batchsize")
+                .orElse("100"));
+        List<String> batch = new ArrayList<>(Math.min(batchSize, uris.size()));
+        for (String uri : uris) {
+            batch.add(getHref(uri));
+            if (batch.size() >= batchSize) {
+                multigetBatch(batch, consumer);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            multigetBatch(batch, consumer);
+        }
+    }
 
+    /**
+     * @param uris the URIs (relative to this collection) of vCard objects to retrieve
+     * @return the vCard objects that exist in the collection
+     * @throws ObjectStoreException where an unexpected error occurs
+     * @see #getCardsByMultiget(Collection, Consumer)
+     */
+    public VCard[] getCardsByMultiget(Collection<String> uris) throws ObjectStoreException {
+        List<VCard> cards = new ArrayList<>();
+        getCardsByMultiget(uris, cards::add);
+        return cards.toArray(new VCard[0]);
+    }
+
+    private void multigetBatch(List<String> hrefs, BiConsumer<String, VCard> consumer) throws ObjectStoreException {
+        try {
+            ReportInfo info = XmlSupport.newReportInfo(ReportMethod.ADDRESSBOOK_MULTIGET,
+                    XmlSupport.newAddressbookMultiget(hrefs), DavConstants.DEPTH_0);
             ReportMethod method = new ReportMethod(getPath(), info);
             HttpResponse httpResponse = getStore().getClient().execute(method);
-            if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_MULTI_STATUS) {
-                return method.getVCards(httpResponse);
-            } else if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_NOT_FOUND) {
-                return new VCard[0];
+            try {
+                if (httpResponse.getStatusLine().getStatusCode() != DavServletResponse.SC_MULTI_STATUS) {
+                    throw new ObjectStoreException("addressbook-multiget failed: " + httpResponse.getStatusLine());
+                }
+                method.getVCards(httpResponse, this::updateEntityTags,
+                        (href, card) -> consumer.accept(EntityTagStore.uriFromHref(href), card));
+            } finally {
+                EntityUtils.consumeQuietly(httpResponse.getEntity());
             }
         } catch (IOException | DavException e) {
-            throw new RuntimeException(e);
+            throw new ObjectStoreException("addressbook-multiget failed", e);
+        }
+    }
+
+    /**
+     * Lists the members of this collection that have changed since a previous synchronization, using a
+     * sync-collection report (RFC 6578). Where the specified sync token is no longer valid, all members are listed
+     * and the result is marked as a reset.
+     * @param syncToken the token returned by a previous synchronization, or null to list all members
+     * @return the changed and removed members of the collection
+     * @throws ObjectStoreException where the server does not support the report or an unexpected error occurs
+     */
+    public SyncCollectionResult getChanges(String syncToken) throws ObjectStoreException {
+        try {
+            ReportInfo info = XmlSupport.newReportInfo(ReportMethod.SYNC_COLLECTION,
+                    XmlSupport.newSyncCollection(syncToken), DavConstants.DEPTH_0);
+            ReportMethod method = new ReportMethod(getPath(), info);
+            HttpResponse httpResponse = getStore().getClient().execute(method);
+            try {
+                int statusCode = httpResponse.getStatusLine().getStatusCode();
+                if (syncToken != null && (statusCode == DavServletResponse.SC_FORBIDDEN
+                        || statusCode == DavServletResponse.SC_CONFLICT)) {
+                    // DAV:valid-sync-token precondition failed..
+                    LOG.debug("Sync token rejected (" + httpResponse.getStatusLine() + "), listing all members");
+                    EntityUtils.consumeQuietly(httpResponse.getEntity());
+                    SyncCollectionResult result = getChanges(null);
+                    return new SyncCollectionResult(result.getSyncToken(), result.getChanged(), result.getRemoved(),
+                            result.isTruncated(), true);
+                } else if (statusCode != DavServletResponse.SC_MULTI_STATUS) {
+                    if (ReportMethod.isUnsupported(httpResponse)) {
+                        syncUnsupported = true;
+                    }
+                    throw new ObjectStoreException("sync-collection failed: " + httpResponse.getStatusLine());
+                }
+                Document document = method.getResponseBodyAsDocument(httpResponse.getEntity());
+                return SyncCollectionResult.fromXml(document.getDocumentElement(), false);
+            } finally {
+                EntityUtils.consumeQuietly(httpResponse.getEntity());
+            }
+        } catch (IOException e) {
+            throw new ObjectStoreException("sync-collection failed", e);
+        }
+    }
+
+    /**
+     * Retrieves the vCard objects that have changed since a previous synchronization. Changes are listed using
+     * sync-collection reports (repeated where the server truncates the result), and changed vCard objects are
+     * retrieved in batches using addressbook-multiget, such that a large address book is never transferred in a
+     * single response.
+     * @param syncToken the token returned by a previous synchronization, or null to retrieve all vCard objects
+     * @param consumer receives each added or modified vCard object
+     * @return the combined changes, including the sync token to use for the next synchronization
+     * @throws ObjectStoreException where the server does not support the required reports or an unexpected error
+     * occurs
+     */
+    public SyncCollectionResult sync(String syncToken, Consumer<VCard> consumer) throws ObjectStoreException {
+        return syncCards(syncToken, (uri, card) -> consumer.accept(card));
+    }
+
+    /**
+     * @param syncToken the token returned by a previous synchronization, or null to retrieve all vCard objects
+     * @param consumer receives the URI (relative to this collection) of each added or modified vCard object, and the
+     *                 object itself. The entity tag of the object is available from {@link #getEntityTags()}
+     * @return the combined changes, including the sync token to use for the next synchronization
+     * @throws ObjectStoreException where the server does not support the required reports or an unexpected error
+     * occurs
+     * @see #sync(String, Consumer)
+     */
+    public SyncCollectionResult syncCards(String syncToken, BiConsumer<String, VCard> consumer)
+            throws ObjectStoreException {
+        Map<String, String> changed = new LinkedHashMap<>();
+        Set<String> removed = new LinkedHashSet<>();
+        boolean reset = false;
+        SyncCollectionResult result;
+        do {
+            result = getChanges(syncToken);
+            reset |= result.isReset();
+            for (Map.Entry<String, String> change : result.getChanged().entrySet()) {
+                removed.remove(change.getKey());
+                changed.put(change.getKey(), change.getValue());
+            }
+            for (String uri : result.getRemoved()) {
+                changed.remove(uri);
+                entityTags.remove(uri);
+                removed.add(uri);
+            }
+            // guard against servers that truncate without advancing the token..
+            if (result.isTruncated() && Objects.equals(syncToken, result.getSyncToken())) {
+                break;
+            }
+            syncToken = result.getSyncToken();
+        } while (result.isTruncated());
+
+        multiget(changed.keySet(), consumer);
+        return new SyncCollectionResult(result.getSyncToken(), changed, removed, result.isTruncated(), reset);
+    }
+
+    /**
+     * @return the last known entity tags of vCard objects in this collection
+     */
+    public EntityTagStore getEntityTags() {
+        return entityTags;
+    }
+
+    private void updateEntityTags(String href, DavPropertySet properties) {
+        DavProperty<?> etag = properties.get(DavPropertyName.GETETAG);
+        if (etag != null && etag.getValue() != null) {
+            entityTags.put(EntityTagStore.uriFromHref(href), etag.getValue().toString(), null);
+        }
+    }
+
+    private String getHref(String uri) {
+        String path = getPath();
+        if (!path.endsWith("/")) {
+            path = path.concat("/");
         }
-        return new VCard[0];
+        return path + uri;
     }
 
     /* (non-Javadoc)
@@ -247,18 +505,70 @@ public class CardDavCollection extends AbstractDavObjectCollection<VCard> implem
         }
 
         try {
-            HttpResponse httpResponse = getStore().getClient().execute(putMethod);
+            HttpResponse httpResponse = getStore().getClient().executeAndRelease(putMethod);
             if ((httpResponse.getStatusLine().getStatusCode() != DavServletResponse.SC_CREATED)
                     && (httpResponse.getStatusLine().getStatusCode() != DavServletResponse.SC_NO_CONTENT)) {
                 throw new ObjectStoreException("Error creating calendar on server: " + httpResponse.getStatusLine());
             }
+            entityTags.update(uid.getValue() + ".vcf", httpResponse);
+            Header etag = httpResponse.getFirstHeader("ETag");
+            fireComponentEvent(httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_CREATED
+                            ? ObjectStoreEvent.Type.COMPONENT_ADDED : ObjectStoreEvent.Type.COMPONENT_UPDATED,
+                    uid.getValue(), uid.getValue() + ".vcf", etag != null ? etag.getValue() : null);
         } catch (IOException ioe) {
             throw new ObjectStoreException("Error creating calendar on server", ioe);
         }        
     }
 
+    /**
+     * Removes the vCard object with the specified UID. The vCard object is retrieved before it is deleted, and
+     * deletion is conditional on it not being modified on the server in the meantime.
+     * @param uid the UID of the vCard object to remove
+     * @return the removed vCard object
+     * @throws ObjectNotFoundException where no vCard object exists with the specified UID
+     * @throws FailedOperationException where the vCard object was modified on the server, or could not be removed
+     */
     @Override
     public VCard removeCard(String uid) throws ObjectNotFoundException, FailedOperationException {
-        return null;
+        // resolve the member URI by UID, as it need not be derived from the UID..
+        Map<String, VCard> cards = new LinkedHashMap<>();
+        try {
+            queryMembers(new AddressbookQuery().propFilter(new AddressbookQuery.PropFilter(Id.UID.name())
+                    .textMatch(uid, AddressbookQuery.MatchType.EQUALS)), cards::put);
+        } catch (ObjectStoreException e) {
+            throw new FailedOperationException("Unable to retrieve card: " + uid, e);
+        }
+        if (cards.isEmpty()) {
+            throw new ObjectNotFoundException("Card not found: " + uid);
+        }
+        String uri = cards.keySet().iterator().next();
+        VCard card = cards.get(uri);
+
+        HttpDelete deleteMethod = new HttpDelete(getHref(uri));
+        EntityTagStore.EntityTags tags = entityTags.get(uri);
+        String etag = tags != null ? tags.getEtag() : null;
+        if (etag != null) {
+            deleteMethod.addHeader("If-Match", etag);
+        }
+        HttpResponse httpResponse;
+        try {
+            httpResponse = getStore().getClient().executeAndRelease(deleteMethod);
+        } catch (IOException e) {
+            throw new FailedOperationException("Unable to delete card: " + uid, e);
+        }
+        int statusCode = httpResponse.getStatusLine().getStatusCode();
+        if (statusCode == DavServletResponse.SC_PRECONDITION_FAILED) {
+            entityTags.remove(uri);
+            throw new FailedOperationException("Card modified on server: " + uid, new PreconditionFailedException(
+                    httpResponse.getStatusLine().toString(), uri, etag));
+        } else if (statusCode == DavServletResponse.SC_NOT_FOUND) {
+            entityTags.remove(uri);
+            throw new ObjectNotFoundException("Card not found: " + uid);
+        } else if (!deleteMethod.succeeded(httpResponse)) {
+            throw new FailedOperationException(httpResponse.getStatusLine().toString());
+        }
+        entityTags.remove(uri);
+        fireComponentEvent(ObjectStoreEvent.Type.COMPONENT_REMOVED, uid, uri, null);
+        return card;
     }
 }
@@ -38,8 +38,10 @@ import net.fortuna.ical4j.connector.ObjectStoreException;
 import net.fortuna.ical4j.connector.dav.enums.ResourceType;
 import net.fortuna.ical4j.connector.dav.property.CardDavPropertyName;
 import net.fortuna.ical4j.connector.dav.response.PropFindResponseHandler;
+import net.fortuna.ical4j.connector.event.ObjectStoreEvent;
 import net.fortuna.ical4j.model.Calendar;
 import org.apache.http.HttpResponse;
+import org.apache.http.util.EntityUtils;
 import org.apache.jackrabbit.webdav.DavException;
 import org.apache.jackrabbit.webdav.DavServletResponse;
 import org.apache.jackrabbit.webdav.MultiStatus;
@@ -57,7 +59,6 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.net.URL;
@@ -110,6 +111,7 @@ public final class CardDavStore extends AbstractDavObjectStore<CardDavCollection
         } catch (IOException e) {
             throw new ObjectStoreException(String.format("unable to add collection '%s'", id), e);
         }
+        fireCollectionEvent(ObjectStoreEvent.Type.COLLECTION_ADDED, collection);
         return collection;
     }
 
@@ -123,6 +125,7 @@ public final class CardDavStore extends AbstractDavObjectStore<CardDavCollection
         } catch (IOException e) {
             throw new ObjectStoreException(String.format("unable to add collection '%s'", id), e);
         }
+        fireCollectionEvent(ObjectStoreEvent.Type.COLLECTION_ADDED, collection);
         return collection;
     }
 
@@ -305,7 +308,7 @@ public final class CardDavStore extends AbstractDavObjectStore<CardDavCollection
 
         String methodUri = this.pathResolver.getPrincipalPath(getUserName());
 
-        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Document document = XmlSupport.newDocument();
 
         Element writeDisplayNameProperty = DomUtil.createElement(document, "property", DavConstants.NAMESPACE);
         writeDisplayNameProperty.setAttribute("name", DavConstants.PROPERTY_DISPLAYNAME);
@@ -348,19 +351,22 @@ public final class CardDavStore extends AbstractDavObjectStore<CardDavCollection
 
         BaseDavRequest method = new HttpReport(methodUri, rinfo);
         HttpResponse httpResponse = getClient().execute(method);
-
-        if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_MULTI_STATUS) {
-            MultiStatus multiStatus = method.getResponseBodyAsMultiStatus(httpResponse);
-            MultiStatusResponse[] responses = multiStatus.getResponses();
-            for (int i = 0; i < responses.length; i++) {
-                DavPropertySet properties = responses[i].getProperties(DavServletResponse.SC_OK);
-                DavProperty<?> writeForProperty = properties.get(CalDavConstants.PROPERTY_PROXY_WRITE_FOR,
-                        CalDavConstants.CS_NAMESPACE);
-                collections.addAll(getDelegateCollections(writeForProperty));
-                DavProperty<?> readForProperty = properties.get(CalDavConstants.PROPERTY_PROXY_READ_FOR,
-                        CalDavConstants.CS_NAMESPACE);
-                collections.addAll(getDelegateCollections(readForProperty));
+        try {
+            if (httpResponse.getStatusLine().getStatusCode() == DavServletResponse.SC_MULTI_STATUS) {
+                MultiStatus multiStatus = method.getResponseBodyAsMultiStatus(httpResponse);
+                MultiStatusResponse[] responses = multiStatus.getResponses();
+                for (int i = 0; i < responses.length; i++) {
+                    DavPropertySet properties = responses[i].getProperties(DavServletResponse.SC_OK);
+                    DavProperty<?> writeForProperty = properties.get(CalDavConstants.PROPERTY_PROXY_WRITE_FOR,
+                            CalDavConstants.CS_NAMESPACE);
+                    collections.addAll(getDelegateCollections(writeForProperty));
+                    DavProperty<?> readForProperty = properties.get(CalDavConstants.PROPERTY_PROXY_READ_FOR,
+                            CalDavConstants.CS_NAMESPACE);
+                    collections.addAll(getDelegateCollections(readForProperty));
+                }
             }
+        } finally {
+            EntityUtils.consumeQuietly(httpResponse.getEntity());
         }
         return collections;
     }
@@ -375,6 +381,7 @@ public final class CardDavStore extends AbstractDavObjectStore<CardDavCollection
         } catch (IOException e) {
             throw new ObjectStoreException(String.format("unable to remove collection '%s'", id), e);
         }
+        fireCollectionEvent(ObjectStoreEvent.Type.COLLECTION_REMOVED, collection);
         return collection;
     }
 
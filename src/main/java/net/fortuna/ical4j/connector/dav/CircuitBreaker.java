@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks failed requests to a server, and rejects further requests for a period once a threshold of consecutive
+ * failures is reached. After this period a single trial request is permitted, and the circuit is closed again if the
+ * trial succeeds.
+ *
+ * Circuit breakers are shared by all clients connecting to the same host, and the state of each may be monitored via
+ * {@link #getInstances()}.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final Map<String, CircuitBreaker> INSTANCES = new ConcurrentHashMap<>();
+
+    private final String name;
+
+    private final int failureThreshold;
+
+    private final long openDuration;
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openedAt;
+
+    private boolean trialInFlight;
+
+    private long rejectedCount;
+
+    /**
+     * @param name identifies the protected resource
+     * @param failureThreshold the number of consecutive failures that will open the circuit, or zero to disable
+     * @param openDuration the number of milliseconds to reject requests once the circuit is open
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openDuration) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Returns the circuit breaker for the specified host, creating a new instance where required.
+     * @param host a host URI (e.g. https://dav.example.com:443)
+     * @param failureThreshold the number of consecutive failures that will open the circuit for a new instance
+     * @param openDuration the number of milliseconds to reject requests for a new instance
+     * @return the shared circuit breaker for the host
+     */
+    public static CircuitBreaker forHost(String host, int failureThreshold, long openDuration) {
+        return INSTANCES.computeIfAbsent(host, h -> new CircuitBreaker(h, failureThreshold, openDuration));
+    }
+
+    /**
+     * @return all shared circuit breakers, keyed by host
+     */
+    public static Map<String, CircuitBreaker> getInstances() {
+        return Collections.unmodifiableMap(INSTANCES);
+    }
+
+    /**
+     * Determines whether a request may proceed. Callers that are permitted to proceed must subsequently record the
+     * outcome via {@link #recordSuccess()}, {@link #recordFailure()} or {@link #release()}.
+     * @return true if the request may proceed, otherwise false
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDuration) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED || (state == State.HALF_OPEN && !trialInFlight)) {
+            trialInFlight = state == State.HALF_OPEN;
+            return true;
+        }
+        rejectedCount++;
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (failureThreshold > 0 && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+        trialInFlight = false;
+    }
+
+    /**
+     * Records the completion of a permitted request where the outcome is not attributable to the server (e.g. the
+     * request was interrupted), such that the request is counted as neither a success nor a failure.
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Closes the circuit, permitting all requests.
+     */
+    public synchronized void reset() {
+        recordSuccess();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return the time (in milliseconds since the epoch) the circuit was last opened, or zero if never opened
+     */
+    public synchronized long getOpenedAt() {
+        return openedAt;
+    }
+
+    /**
+     * @return the total number of requests rejected by this circuit breaker
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker[" + name + ": " + getState() + "]";
+    }
+}
@@ -0,0 +1,293 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import net.fortuna.ical4j.connector.dav.enums.MediaType;
+import net.fortuna.ical4j.connector.dav.enums.ResourceType;
+import net.fortuna.ical4j.connector.dav.property.BaseDavPropertyName;
+import net.fortuna.ical4j.connector.dav.property.CalDavPropertyName;
+import net.fortuna.ical4j.connector.dav.property.CardDavPropertyName;
+import net.fortuna.ical4j.connector.dav.property.ICalPropertyName;
+import org.apache.jackrabbit.webdav.property.DavProperty;
+import org.apache.jackrabbit.webdav.property.DavPropertyName;
+import org.apache.jackrabbit.webdav.property.DavPropertySet;
+import org.apache.jackrabbit.webdav.security.SecurityConstants;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the properties of a DAV collection, in which the values of well-known properties are
+ * converted once to typed values. Collection getters read the snapshot directly, rather than converting DAV property
+ * values (and walking DOM nodes) on every call.
+ */
+final class CollectionProperties {
+
+    private final DavPropertySet properties;
+
+    private final String displayName;
+
+    private final String description;
+
+    private final String color;
+
+    private final Integer order;
+
+    private final String calendarTimezone;
+
+    private final Long maxResourceSize;
+
+    private final Integer maxAttendeesPerInstance;
+
+    private final Integer maxInstances;
+
+    private final String minDateTime;
+
+    private final String maxDateTime;
+
+    private final Long quotaAvailableBytes;
+
+    private final Long quotaUsedBytes;
+
+    private final String ownerHref;
+
+    private final List<ResourceType> resourceTypes;
+
+    private final List<MediaType> supportedMediaTypes;
+
+    private final List<String> supportedComponentTypes;
+
+    /**
+     * @param properties the DAV properties of a collection, which must not be subsequently modified
+     */
+    CollectionProperties(DavPropertySet properties) {
+        this.properties = properties;
+        this.displayName = text(DavPropertyName.DISPLAYNAME);
+        this.description = text(CalDavPropertyName.CALENDAR_DESCRIPTION);
+        this.color = text(ICalPropertyName.CALENDAR_COLOR);
+        this.order = integer(ICalPropertyName.CALENDAR_ORDER);
+        this.calendarTimezone = text(CalDavPropertyName.CALENDAR_TIMEZONE);
+        Long size = longValue(CalDavPropertyName.MAX_RESOURCE_SIZE);
+        this.maxResourceSize = size != null ? size : longValue(CardDavPropertyName.MAX_RESOURCE_SIZE);
+        this.maxAttendeesPerInstance = integer(CalDavPropertyName.MAX_ATTENDEES_PER_INSTANCE);
+        this.maxInstances = integer(CalDavPropertyName.MAX_INSTANCES);
+        this.minDateTime = text(CalDavPropertyName.MIN_DATE_TIME);
+        this.maxDateTime = text(CalDavPropertyName.MAX_DATE_TIME);
+        this.quotaAvailableBytes = longValue(BaseDavPropertyName.QUOTA_AVAILABLE_BYTES);
+        this.quotaUsedBytes = longValue(BaseDavPropertyName.QUOTA_USED_BYTES);
+
+        String href = null;
+        for (Element element : elements(SecurityConstants.OWNER)) {
+            if ("href".equals(localName(element))) {
+                href = element.getTextContent();
+            }
+        }
+        this.ownerHref = href;
+
+        List<ResourceType> types = new ArrayList<>();
+        for (Element element : elements(BaseDavPropertyName.RESOURCETYPE)) {
+            ResourceType type = ResourceType.findByDescription(localName(element));
+            if (type != null) {
+                types.add(type);
+            }
+        }
+        this.resourceTypes = Collections.unmodifiableList(types);
+
+        List<MediaType> mediaTypes = new ArrayList<>();
+        for (Element element : elements(CalDavPropertyName.SUPPORTED_CALENDAR_DATA)) {
+            if (CalDavConstants.PROPERTY_CALENDAR_DATA.equals(localName(element))) {
+                MediaType type = MediaType.findByContentTypeAndVersion(element.getAttribute("content-type"),
+                        element.getAttribute("version"));
+                if (type != null) {
+                    mediaTypes.add(type);
+                }
+            }
+        }
+        this.supportedMediaTypes = Collections.unmodifiableList(mediaTypes);
+
+        List<String> componentTypes = new ArrayList<>();
+        for (Element element : elements(CalDavPropertyName.SUPPORTED_CALENDAR_COMPONENT_SET)) {
+            if (element.hasAttribute(CalDavConstants.ATTRIBUTE_NAME)) {
+                componentTypes.add(element.getAttribute(CalDavConstants.ATTRIBUTE_NAME));
+            }
+        }
+        this.supportedComponentTypes = Collections.unmodifiableList(componentTypes);
+    }
+
+    /**
+     * @return the underlying DAV properties
+     */
+    DavPropertySet getPropertySet() {
+        return properties;
+    }
+
+    String getDisplayName() {
+        return displayName;
+    }
+
+    String getDescription() {
+        return description;
+    }
+
+    String getColor() {
+        return color;
+    }
+
+    Integer getOrder() {
+        return order;
+    }
+
+    String getCalendarTimezone() {
+        return calendarTimezone;
+    }
+
+    Long getMaxResourceSize() {
+        return maxResourceSize;
+    }
+
+    Integer getMaxAttendeesPerInstance() {
+        return maxAttendeesPerInstance;
+    }
+
+    Integer getMaxInstances() {
+        return maxInstances;
+    }
+
+    String getMinDateTime() {
+        return minDateTime;
+    }
+
+    String getMaxDateTime() {
+        return maxDateTime;
+    }
+
+    Long getQuotaAvailableBytes() {
+        return quotaAvailableBytes;
+    }
+
+    Long getQuotaUsedBytes() {
+        return quotaUsedBytes;
+    }
+
+    String getOwnerHref() {
+        return ownerHref;
+    }
+
+    List<ResourceType> getResourceTypes() {
+        return resourceTypes;
+    }
+
+    List<MediaType> getSupportedMediaTypes() {
+        return supportedMediaTypes;
+    }
+
+    List<String> getSupportedComponentTypes() {
+        return supportedComponentTypes;
+    }
+
+    /**
+     * @param name a property name
+     * @return the raw value of the property, or null if the property is not defined
+     */
+    Object getValue(DavPropertyName name) {
+        DavProperty<?> property = properties.get(name);
+        return property != null ? property.getValue() : null;
+    }
+
+    /**
+     * @param name a property name
+     * @return the text value of the property, or null if the property is not defined
+     */
+    String text(DavPropertyName name) {
+        return toText(getValue(name));
+    }
+
+    private Integer integer(DavPropertyName name) {
+        String text = text(name);
+        try {
+            return text != null ? Integer.valueOf(text.trim()) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Long longValue(DavPropertyName name) {
+        String text = text(name);
+        try {
+            return text != null ? Long.valueOf(text.trim()) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param name a property name
+     * @return the child elements of an XML-valued property
+     */
+    private List<Element> elements(DavPropertyName name) {
+        List<Element> elements = new ArrayList<>();
+        Object value = getValue(name);
+        // a single element may not be wrapped in a collection (e.g. for iCloud)..
+        Collection<?> nodes = value instanceof Collection ? (Collection<?>) value : Collections.singletonList(value);
+        for (Object node : nodes) {
+            if (node instanceof Element) {
+                elements.add((Element) node);
+            }
+        }
+        return elements;
+    }
+
+    static String toText(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        } else if (value instanceof Node) {
+            return ((Node) value).getTextContent();
+        } else if (value instanceof Collection) {
+            StringBuilder b = new StringBuilder();
+            for (Object node : (Collection<?>) value) {
+                if (node instanceof Node) {
+                    b.append(((Node) node).getTextContent());
+                }
+            }
+            return b.toString();
+        }
+        return value.toString();
+    }
+
+    private static String localName(Node node) {
+        return node.getLocalName() != null ? node.getLocalName() : node.getNodeName();
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import org.apache.http.*;
+import org.apache.http.client.entity.DeflateDecompressingEntity;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Negotiates compressed responses and transparently decompresses response bodies as they are read, recording the
+ * number of bytes received over the wire for encoded responses and the number of response body bytes after
+ * decompression.
+ *
+ * Compressed responses are requested by default, as they were by the default HTTP client. Responses encoded with
+ * gzip or deflate are decompressed regardless of whether compression was requested.
+ */
+public class ContentCompression implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final boolean enabled;
+
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+
+    /**
+     * @param enabled indicates whether compressed responses are requested
+     */
+    public ContentCompression(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the number of response body bytes received with a content encoding, before decompression
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * @return the number of response body bytes read for all responses, after decompression
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        if (enabled && !request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, ACCEPT_ENCODING);
+        }
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        HttpEntity entity = response.getEntity();
+        if (entity == null || entity.getContentLength() == 0) {
+            return;
+        }
+        Header contentEncoding = entity.getContentEncoding();
+        String encoding = contentEncoding != null ? contentEncoding.getValue().trim().toLowerCase(Locale.ROOT) : "";
+        switch (encoding) {
+            case "gzip":
+            case "x-gzip":
+                response.setEntity(new CountingEntity(new GzipDecompressingEntity(
+                        new CountingEntity(entity, compressedBytes)), uncompressedBytes));
+                break;
+            case "deflate":
+                response.setEntity(new CountingEntity(new DeflateDecompressingEntity(
+                        new CountingEntity(entity, compressedBytes)), uncompressedBytes));
+                break;
+            case "":
+            case "identity":
+                // not compressed, so no wire bytes are recorded..
+                response.setEntity(new CountingEntity(entity, uncompressedBytes));
+                return;
+            default:
+                // leave unsupported encodings to the caller..
+                return;
+        }
+        response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+        response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+        response.removeHeaders(HttpHeaders.CONTENT_MD5);
+    }
+
+    /**
+     * Counts the bytes read from an entity.
+     */
+    private static class CountingEntity extends HttpEntityWrapper {
+
+        private final AtomicLong count;
+
+        CountingEntity(HttpEntity wrappedEntity, AtomicLong count) {
+            super(wrappedEntity);
+            this.count = count;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new FilterInputStream(super.getContent()) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        count.incrementAndGet();
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        count.addAndGet(n);
+                    }
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            try (InputStream in = getContent()) {
+                byte[] buffer = new byte[4096];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    outStream.write(buffer, 0, n);
+                }
+            }
+        }
+    }
+}
@@ -35,103 +35,535 @@ import net.fortuna.ical4j.connector.FailedOperationException;
 import net.fortuna.ical4j.connector.dav.enums.SupportedFeature;
 import net.fortuna.ical4j.connector.dav.property.CSDavPropertyName;
 import net.fortuna.ical4j.connector.dav.response.PropFindResponseHandler;
+import net.fortuna.ical4j.util.Configurator;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpStatus;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.AuthCache;
 import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.config.AuthSchemes;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.impl.auth.BasicScheme;
-import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.EofSensorInputStream;
+import org.apache.http.conn.EofSensorWatcher;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 import org.apache.jackrabbit.webdav.DavConstants;
 import org.apache.jackrabbit.webdav.client.methods.HttpPropfind;
 import org.apache.jackrabbit.webdav.property.DavPropertyName;
 import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class DavClient {
+/**
+ * A client for a single DAV server. Clients are configured via a {@link Builder}, and a single instance may be used
+ * to execute requests concurrently from multiple threads. Each request is executed in its own context, sharing only
+ * thread-safe state (i.e. pooled connections, credentials and negotiated authentication schemes).
+ */
+public class DavClient implements Closeable {
+
+	/**
+	 * The default maximum number of pooled connections, which limits the number of concurrent requests per client.
+	 */
+	private static final int MAX_CONNECTIONS = Integer.parseInt(
+			Configurator.getProperty("ical4j.connector.dav.maxconnections").orElse("20"));
+
+	/**
+	 * Indicates whether authentication schemes negotiated with a host are shared by all clients authenticating as the
+	 * same user by default.
+	 */
+	private static final boolean SHARED_AUTH_CACHE = "true".equals(
+			Configurator.getProperty("ical4j.connector.dav.sharedauthcache").orElse("false"));
+
+	private static final Log LOG = LogFactory.getLog(DavClient.class);
+
+	/**
+	 * Aborts requests that exceed the request timeout.
+	 */
+	private static final ScheduledExecutorService TIMEOUTS = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "dav-client-timeouts");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The state shared by all requests in a session. A session is replaced as a whole, such that requests in
+	 * progress are not affected when a new session is started. Connections are pooled by the client, and shared by
+	 * all sessions.
+	 */
+	private static final class Session {
+
+		private final CredentialsProvider credentialsProvider;
+
+		private final AuthSchemeCache authCache;
+
+		private final BearerTokenManager bearerTokens;
+
+		/**
+		 * The capability cache key where discovery was skipped, until a request confirms the session is authenticated.
+		 */
+		private volatile String unverifiedCapabilities;
+
+		private Session(CredentialsProvider credentialsProvider, AuthSchemeCache authCache,
+						BearerTokenManager bearerTokens) {
+			this.credentialsProvider = credentialsProvider;
+			this.authCache = authCache;
+			this.bearerTokens = bearerTokens;
+		}
+	}
 
 	/**
-	 * The underlying HTTP client.
+	 * Configures a new client.
 	 */
-	protected HttpClient httpClient;
+	public static final class Builder {
+
+		private final URL url;
+
+		private String principalPath;
+
+		private String userPath;
+
+		private boolean preemptiveAuth;
+
+		private boolean compression = true;
+
+		private ResiliencePolicy resiliencePolicy;
 
-	protected HttpClientContext httpClientContext;
+		private CapabilityCache capabilityCache;
 
-	private String principalPath;
+		private int maxConnections = MAX_CONNECTIONS;
 
-	private String userPath;
+		private boolean sharedAuthCache = SHARED_AUTH_CACHE;
+
+		private Credentials credentials;
+
+		private BearerTokenSupplier bearerTokenSupplier;
+
+		private Builder(URL url) {
+			this.url = url;
+			this.principalPath = url.getFile();
+			this.userPath = url.getFile();
+		}
+
+		/**
+		 * @param principalPath the path of the user principal
+		 * @return this builder
+		 */
+		public Builder principalPath(String principalPath) {
+			this.principalPath = principalPath;
+			return this;
+		}
+
+		/**
+		 * @param userPath the path of the user's collections
+		 * @return this builder
+		 */
+		public Builder userPath(String userPath) {
+			this.userPath = userPath;
+			return this;
+		}
+
+		/**
+		 * @param preemptiveAuth indicates whether to send credentials without waiting for an authentication challenge
+		 * @return this builder
+		 */
+		public Builder preemptiveAuth(boolean preemptiveAuth) {
+			this.preemptiveAuth = preemptiveAuth;
+			return this;
+		}
+
+		/**
+		 * @param compression indicates whether to request compressed responses (enabled by default)
+		 * @return this builder
+		 */
+		public Builder compression(boolean compression) {
+			this.compression = compression;
+			return this;
+		}
+
+		/**
+		 * @param resiliencePolicy timeouts, retry, rate limiting and circuit breaker configuration
+		 * @return this builder
+		 */
+		public Builder resiliencePolicy(ResiliencePolicy resiliencePolicy) {
+			this.resiliencePolicy = resiliencePolicy;
+			return this;
+		}
+
+		/**
+		 * @param capabilityCache a cache of server capabilities, or null to always perform discovery
+		 * @return this builder
+		 */
+		public Builder capabilityCache(CapabilityCache capabilityCache) {
+			this.capabilityCache = capabilityCache;
+			return this;
+		}
+
+		/**
+		 * @param maxConnections the maximum number of pooled connections
+		 * @return this builder
+		 */
+		public Builder maxConnections(int maxConnections) {
+			this.maxConnections = maxConnections;
+			return this;
+		}
+
+		/**
+		 * @param sharedAuthCache indicates whether authentication schemes negotiated with a host are shared with other
+		 *                        clients authenticating as the same user (disabled by default)
+		 * @return this builder
+		 */
+		public Builder sharedAuthCache(boolean sharedAuthCache) {
+			this.sharedAuthCache = sharedAuthCache;
+			return this;
+		}
+
+		/**
+		 * @param username the username used to authenticate requests
+		 * @param password the password used to authenticate requests
+		 * @return this builder
+		 */
+		public Builder credentials(String username, char[] password) {
+			this.credentials = new UsernamePasswordCredentials(username, new String(password));
+			return this;
+		}
+
+		/**
+		 * @param bearerTokenSupplier obtains bearer tokens used to authenticate requests
+		 * @return this builder
+		 */
+		public Builder bearerTokenSupplier(BearerTokenSupplier bearerTokenSupplier) {
+			this.bearerTokenSupplier = bearerTokenSupplier;
+			return this;
+		}
+
+		/**
+		 * @return a new client, ready to execute requests
+		 */
+		public DavClient build() {
+			DavClient client = newClient();
+			client.session = client.newSession(credentials != null ? client.newCredentialsProvider(credentials) : null,
+					bearerTokenSupplier);
+			return client;
+		}
+
+		/**
+		 * @return a new client, which must be started via one of the <code>begin</code> methods before executing
+		 * requests
+		 */
+		DavClient newClient() {
+			return new DavClient(this);
+		}
+	}
 
-	private String bearerAuth;
+	private final String principalPath;
 
-	private CredentialsProvider credentialsProvider;
+	private final String userPath;
 
 	private final boolean preemptiveAuth;
 
+	private final int maxConnections;
+
+	private final boolean sharedAuthCache;
+
+	private final ContentCompression contentCompression;
+
+	private final ResiliencePolicy resiliencePolicy;
+
+	private final CircuitBreaker circuitBreaker;
+
+	private final RateLimiter rateLimiter;
+
+	private final CapabilityCache capabilityCache;
+
+	/**
+	 * The target host.
+	 */
+	protected final HttpHost hostConfiguration;
+
 	/**
-	 * The HTTP client configuration.
+	 * Pooled connections to the target host, which are created once and used by every session.
 	 */
-	protected HttpHost hostConfiguration;
+	private final CloseableHttpClient httpClient;
+
+	private volatile Session session;
 
 	public DavClient(URL url, String principalPath, String userPath) {
 		this(url, principalPath, userPath, false);
 	}
 
 	public DavClient(URL url, String principalPath, String userPath, boolean preemptiveAuth) {
-		this.principalPath = principalPath;
-		this.userPath = userPath;
-		this.preemptiveAuth = preemptiveAuth;
+		this(url, principalPath, userPath, preemptiveAuth, true);
+	}
+
+	/**
+	 * @param url the server URL
+	 * @param principalPath the path of the user principal
+	 * @param userPath the path of the user's collections
+	 * @param preemptiveAuth indicates whether to send credentials without waiting for an authentication challenge
+	 * @param compression indicates whether to request compressed responses
+	 */
+	public DavClient(URL url, String principalPath, String userPath, boolean preemptiveAuth, boolean compression) {
+		this(url, principalPath, userPath, preemptiveAuth, compression, new ResiliencePolicy());
+	}
+
+	/**
+	 * @param url the server URL
+	 * @param principalPath the path of the user principal
+	 * @param userPath the path of the user's collections
+	 * @param preemptiveAuth indicates whether to send credentials without waiting for an authentication challenge
+	 * @param compression indicates whether to request compressed responses
+	 * @param resiliencePolicy timeouts, retry and circuit breaker configuration
+	 */
+	public DavClient(URL url, String principalPath, String userPath, boolean preemptiveAuth, boolean compression,
+					 ResiliencePolicy resiliencePolicy) {
+		this(builder(url).principalPath(principalPath).userPath(userPath).preemptiveAuth(preemptiveAuth)
+				.compression(compression).resiliencePolicy(resiliencePolicy));
+	}
 
-		hostConfiguration = new HttpHost(url.getHost(), url.getPort(), url.getProtocol());
+	private DavClient(Builder builder) {
+		this.principalPath = builder.principalPath;
+		this.userPath = builder.userPath;
+		this.preemptiveAuth = builder.preemptiveAuth;
+		this.maxConnections = builder.maxConnections;
+		this.sharedAuthCache = builder.sharedAuthCache;
+		this.contentCompression = new ContentCompression(builder.compression);
+		this.resiliencePolicy = builder.resiliencePolicy != null ? builder.resiliencePolicy : new ResiliencePolicy();
+		this.capabilityCache = builder.capabilityCache;
+
+		hostConfiguration = new HttpHost(builder.url.getHost(), builder.url.getPort(), builder.url.getProtocol());
+		circuitBreaker = resiliencePolicy.getCircuitBreaker(hostConfiguration.toURI());
+		rateLimiter = resiliencePolicy.getRateLimiter(hostConfiguration.toURI());
+		httpClient = newClientBuilder().build();
+	}
+
+	/**
+	 * @param url the server URL
+	 * @return a builder for a new client
+	 */
+	public static Builder builder(URL url) {
+		return new Builder(url);
 	}
 
 	void begin() {
-		httpClient = HttpClients.createDefault();
+		session = newSession(null, null);
 	}
 
 	void begin(CredentialsProvider credentialsProvider) {
-		httpClient = HttpClients.custom().setDefaultCredentialsProvider(credentialsProvider).build();
-
-		httpClientContext = HttpClientContext.create();
+		session = newSession(credentialsProvider, null);
+	}
 
+	private Session newSession(CredentialsProvider credentialsProvider, BearerTokenSupplier bearerTokenSupplier) {
+		// always provide a (thread-safe) auth cache so schemes negotiated by one request are used by all requests of
+		// the session, and where enabled share schemes with other clients authenticating as the same user..
+		Credentials credentials = getCredentials(credentialsProvider);
+		AuthSchemeCache authCache = sharedAuthCache && credentials != null && credentials.getUserPrincipal() != null
+				? AuthSchemeCache.getShared(credentials.getUserPrincipal().getName()) : new AuthSchemeCache();
 		if (preemptiveAuth) {
-			AuthCache authCache = new BasicAuthCache();
-			authCache.put(hostConfiguration, new BasicScheme());
-			httpClientContext.setAuthCache(authCache);
+			authCache.putBasicIfAbsent(hostConfiguration);
 		}
+		return new Session(credentialsProvider, authCache,
+				bearerTokenSupplier != null ? new BearerTokenManager(bearerTokenSupplier) : null);
 	}
 
-	public List<SupportedFeature> begin(String bearerAuth) throws IOException, FailedOperationException {
-		this.bearerAuth = bearerAuth;
-		return getSupportedFeatures();
+	/**
+	 * @return the credentials provided for the target host, or null if not authenticating with credentials
+	 */
+	private Credentials getCredentials(CredentialsProvider credentialsProvider) {
+		if (credentialsProvider == null) {
+			return null;
+		}
+		return credentialsProvider.getCredentials(new AuthScope(hostConfiguration.getHostName(),
+				hostConfiguration.getPort()));
 	}
 
-	public List<SupportedFeature> begin(String username, char[] password) throws IOException, FailedOperationException {
-		Credentials credentials = new UsernamePasswordCredentials(username, new String(password));
-
+	private CredentialsProvider newCredentialsProvider(Credentials credentials) {
 		CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
 		credentialsProvider.setCredentials(new AuthScope(hostConfiguration.getHostName(), hostConfiguration.getPort()),
 				credentials);
+		return credentialsProvider;
+	}
+
+	private Session getSession() {
+		Session current = session;
+		if (current == null) {
+			throw new IllegalStateException("Session not started");
+		}
+		return current;
+	}
+
+	/**
+	 * Releases pooled connections. Requests may not be executed once a client is closed.
+	 * @throws IOException where connections cannot be released
+	 */
+	@Override
+	public void close() throws IOException {
+		httpClient.close();
+	}
+
+	private HttpClientBuilder newClientBuilder() {
+		// compression is negotiated (and measured) by our own interceptors, and retries are applied by execute()..
+		return HttpClients.custom().setMaxConnPerRoute(maxConnections).setMaxConnTotal(maxConnections)
+				.setDefaultRequestConfig(resiliencePolicy.getRequestConfig())
+				.disableAutomaticRetries()
+				.disableContentCompression()
+				.addInterceptorLast((HttpRequestInterceptor) contentCompression)
+				.addInterceptorFirst((HttpResponseInterceptor) contentCompression);
+	}
+
+	/**
+	 * @return response compression settings and statistics for this client
+	 */
+	public ContentCompression getContentCompression() {
+		return contentCompression;
+	}
 
-		this.credentialsProvider = credentialsProvider;
+	/**
+	 * @return timeouts, retry and circuit breaker configuration for this client
+	 */
+	public ResiliencePolicy getResiliencePolicy() {
+		return resiliencePolicy;
+	}
+
+	/**
+	 * @return the circuit breaker shared by all clients of the target host
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	/**
+	 * @return the rate limiter shared by all clients of the target host
+	 */
+	public RateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	public List<SupportedFeature> begin(String bearerAuth) throws IOException, FailedOperationException {
+		return begin(() -> new BearerToken(bearerAuth));
+	}
+
+	/**
+	 * Initiates a session authenticated with bearer tokens obtained from the specified supplier.
+	 * @param tokenSupplier obtains bearer tokens
+	 * @return features supported by the server
+	 * @throws IOException where communication fails
+	 * @throws FailedOperationException where the server response is invalid
+	 */
+	public List<SupportedFeature> begin(BearerTokenSupplier tokenSupplier) throws IOException, FailedOperationException {
+		session = newSession(null, tokenSupplier);
+		return getSupportedFeatures();
+	}
+
+	public List<SupportedFeature> begin(String username, char[] password) throws IOException, FailedOperationException {
+		session = newSession(newCredentialsProvider(new UsernamePasswordCredentials(username, new String(password))),
+				null);
 		return getSupportedFeatures();
 	}
 
+	/**
+	 * Returns the features supported by the server. Where a capability cache is configured and contains current
+	 * capabilities discovered with the same credentials, the cached features are returned without contacting the
+	 * server and are revalidated in the background as required. In this case the credentials are verified by the
+	 * first request, which fails with an {@link HttpResponseException} (and evicts the cached capabilities) where
+	 * authentication is rejected.
+	 * @return features supported by the server
+	 * @throws IOException where communication fails
+	 * @throws FailedOperationException where the server response is invalid
+	 */
 	public List<SupportedFeature> getSupportedFeatures() throws IOException, FailedOperationException {
-		begin(credentialsProvider);
+		if (session == null) {
+			begin();
+		}
+
+		CapabilityCache cache = capabilityCache;
+		if (cache == null) {
+			return discoverCapabilities().getSupportedFeatures();
+		}
+		Session current = getSession();
+		String key = getCapabilityKey(cache, current);
+		CapabilityCache.Capabilities capabilities = cache.get(key);
+		if (capabilities != null) {
+			if (current.credentialsProvider != null || current.bearerTokens != null) {
+				current.unverifiedCapabilities = key;
+			}
+			applyAuthScheme(capabilities.getAuthScheme());
+			if (cache.isStale(key)) {
+				cache.revalidate(key, this::discoverCapabilities);
+			}
+		} else {
+			capabilities = discoverCapabilities();
+			cache.put(key, capabilities);
+		}
+		return capabilities.getSupportedFeatures();
+	}
+
+	/**
+	 * @return the capability cache key for the server and the identity authenticated by the specified session
+	 */
+	private String getCapabilityKey(CapabilityCache cache, Session current) throws IOException {
+		String username = null;
+		String secret = null;
+		if (current.bearerTokens != null) {
+			secret = current.bearerTokens.getToken();
+		} else {
+			Credentials credentials = getCredentials(current.credentialsProvider);
+			if (credentials != null) {
+				username = credentials.getUserPrincipal() != null ? credentials.getUserPrincipal().getName() : null;
+				secret = credentials.getPassword() != null ? credentials.getPassword() : "";
+			}
+		}
+		return cache.key(hostConfiguration.toURI(), principalPath, username, secret);
+	}
+
+	/**
+	 * Verifies the authentication of a session that skipped discovery, evicting the cached capabilities and
+	 * failing the request where authentication is rejected.
+	 */
+	private void verifyAuthentication(Session current, HttpResponse response) throws HttpResponseException {
+		String key = current.unverifiedCapabilities;
+		if (key == null) {
+			return;
+		}
+		current.unverifiedCapabilities = null;
+		if (response.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED) {
+			capabilityCache.remove(key);
+			EntityUtils.consumeQuietly(response.getEntity());
+			throw new HttpResponseException(HttpStatus.SC_UNAUTHORIZED, "Authentication failed: "
+					+ response.getStatusLine().getReasonPhrase());
+		}
+	}
 
+	private CapabilityCache.Capabilities discoverCapabilities() throws IOException, FailedOperationException {
 		DavPropertyNameSet props = new DavPropertyNameSet();
 		props.add(DavPropertyName.RESOURCETYPE);
 		props.add(CSDavPropertyName.CTAG);
@@ -139,13 +571,10 @@ public class DavClient {
 		props.add(owner);
 
 		HttpPropfind aGet = new HttpPropfind(principalPath, DavConstants.PROPFIND_BY_PROPERTY, props, 0);
-		if (bearerAuth != null) {
-			aGet.addHeader("Authorization", "Bearer " + bearerAuth);
-		}
-
-		RequestConfig.Builder builder = aGet.getConfig() == null ? RequestConfig.custom() : RequestConfig.copy(aGet.getConfig());
+		RequestConfig.Builder builder = RequestConfig.copy(aGet.getConfig() == null
+				? resiliencePolicy.getRequestConfig() : aGet.getConfig());
 		builder.setAuthenticationEnabled(true);
-		if (credentialsProvider != null) {
+		if (getSession().credentialsProvider != null) {
 			// Added to support iCal Server, who don't support Basic auth at all,
 			// only Kerberos and Digest
 			List<String> authPrefs = new ArrayList<String>(2);
@@ -157,15 +586,337 @@ public class DavClient {
 		aGet.setConfig(config);
 
 		PropFindResponseHandler responseHandler = new PropFindResponseHandler(aGet);
-		responseHandler.accept(httpClient.execute(hostConfiguration, aGet, httpClientContext));
-		return responseHandler.getSupportedFeatures();
+		// only response headers are required..
+		responseHandler.accept(executeAndRelease(aGet));
+		return new CapabilityCache.Capabilities(responseHandler.getSupportedFeatures(), getAuthScheme(),
+				System.currentTimeMillis());
+	}
+
+	/**
+	 * @return the name of the authentication scheme negotiated with the server, or null if not known
+	 */
+	private String getAuthScheme() {
+		Session current = getSession();
+		if (current.bearerTokens != null) {
+			return "Bearer";
+		}
+		return current.authCache.getSchemeName(hostConfiguration);
+	}
+
+	/**
+	 * Authenticates subsequent requests preemptively where the authentication scheme is known.
+	 */
+	private void applyAuthScheme(String schemeName) {
+		Session current = getSession();
+		if (current.credentialsProvider != null && AuthSchemes.BASIC.equalsIgnoreCase(schemeName)) {
+			current.authCache.putBasicIfAbsent(hostConfiguration);
+		}
 	}
 
 	public HttpResponse execute(HttpRequestBase method) throws IOException {
 		return execute(hostConfiguration, method);
 	}
 
+	/**
+	 * Executes the specified method. Each request is executed in its own context, which shares only thread-safe
+	 * authentication state, so a client may be used to execute requests concurrently.
+	 *
+	 * Idempotent requests that fail with a transient status (429, 502, 503 or 504), or unconditional idempotent
+	 * requests that fail with an I/O error, are retried according to the {@link ResiliencePolicy}, and requests are rejected without being sent where the circuit
+	 * breaker for the target host is open. Requests wait where necessary (up to the request timeout) to remain within
+	 * the rate and concurrency limits of the target host, and count towards the concurrency limit until the response
+	 * entity is consumed.
+	 * @param _hostConfiguration the target host
+	 * @param method the method to execute
+	 * @return the HTTP response
+	 * @throws IOException where communication fails
+	 * @throws CircuitBreakerOpenException where recent requests to the target host have failed
+	 */
 	public HttpResponse execute(HttpHost _hostConfiguration, HttpRequestBase method) throws IOException {
-		return httpClient.execute(_hostConfiguration, method, httpClientContext);
+		return execute(_hostConfiguration, method, true);
+	}
+
+	private HttpResponse execute(HttpHost _hostConfiguration, HttpRequestBase method, boolean retryStatus)
+			throws IOException {
+		if (method.getConfig() != null) {
+			method.setConfig(resiliencePolicy.applyTo(method.getConfig()));
+		}
+		boolean targetHost = _hostConfiguration.equals(hostConfiguration);
+		CircuitBreaker breaker = targetHost ? circuitBreaker
+				: resiliencePolicy.getCircuitBreaker(_hostConfiguration.toURI());
+		RateLimiter limiter = targetHost ? rateLimiter : resiliencePolicy.getRateLimiter(_hostConfiguration.toURI());
+		Session current = getSession();
+		boolean retryable = resiliencePolicy.isRetryable(method);
+		boolean retryableOnError = resiliencePolicy.isRetryableOnError(method);
+		long deadline = resiliencePolicy.getRequestTimeout() > 0
+				? System.currentTimeMillis() + resiliencePolicy.getRequestTimeout() : Long.MAX_VALUE;
+		boolean timedOut = false;
+
+		for (int retry = 1; ; retry++) {
+			try {
+				if (!limiter.tryAcquire(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS)) {
+					throw new InterruptedIOException(method.getRequestLine() + " timed out awaiting rate limit");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted awaiting rate limit");
+			}
+			boolean throttled = false;
+			boolean permitHeld = true;
+			if (!breaker.tryAcquire()) {
+				limiter.release(false);
+				throw new CircuitBreakerOpenException(breaker);
+			}
+			long delay;
+			try {
+				HttpResponse response = executeOnce(current, _hostConfiguration, method, deadline);
+				if (targetHost) {
+					verifyAuthentication(current, response);
+				}
+				int status = response.getStatusLine().getStatusCode();
+				throttled = ThrottledException.isThrottled(status);
+				// other error statuses (e.g. 501, 507) are valid responses from an available server..
+				if (status == HttpStatus.SC_BAD_GATEWAY || status == HttpStatus.SC_SERVICE_UNAVAILABLE
+						|| status == HttpStatus.SC_GATEWAY_TIMEOUT) {
+					breaker.recordFailure();
+				} else {
+					breaker.recordSuccess();
+				}
+				if (!retryable || !retryStatus || !resiliencePolicy.isRetryable(status)) {
+					permitHeld = !releaseOnConsumed(response, limiter, throttled);
+					return response;
+				}
+				delay = resiliencePolicy.getRetryDelay(retry, ThrottledException.getRetryAfter(response));
+				if (delay < 0 || System.currentTimeMillis() + delay >= deadline) {
+					permitHeld = !releaseOnConsumed(response, limiter, throttled);
+					return response;
+				}
+				EntityUtils.consumeQuietly(response.getEntity());
+				LOG.debug("Retrying " + method.getRequestLine() + " in " + delay + "ms: " + response.getStatusLine());
+			} catch (HttpResponseException e) {
+				// the server is responding, but has rejected the request..
+				breaker.recordSuccess();
+				throw e;
+			} catch (IOException | RuntimeException e) {
+				if (isConnectionFailure(e) && !(timedOut && isTimeout(e))) {
+					breaker.recordFailure();
+				} else {
+					// a timed out request is counted once, regardless of retries..
+					breaker.release();
+				}
+				timedOut |= isTimeout(e);
+				if (!retryableOnError || !(e instanceof IOException)
+						|| !resiliencePolicy.isRetryable((IOException) e)) {
+					throw e;
+				}
+				delay = resiliencePolicy.getRetryDelay(retry, -1);
+				if (delay < 0 || System.currentTimeMillis() + delay >= deadline) {
+					throw e;
+				}
+				LOG.debug("Retrying " + method.getRequestLine() + " in " + delay + "ms: " + e);
+			} finally {
+				if (permitHeld) {
+					limiter.release(throttled);
+				}
+			}
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted before retry");
+			}
+			method.reset();
+		}
+	}
+
+	/**
+	 * @return true if the exception indicates the server could not be reached or did not respond, as opposed to an
+	 * interruption or an error in the client
+	 */
+	private static boolean isConnectionFailure(Exception e) {
+		return e instanceof IOException && (isTimeout(e) || !(e instanceof InterruptedIOException));
+	}
+
+	private static boolean isTimeout(Exception e) {
+		return e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException
+				|| e instanceof RequestTimeoutException;
+	}
+
+	/**
+	 * Defers release of a rate limiter permit until the response entity is consumed, such that the concurrency
+	 * limit also applies to the transfer of response bodies.
+	 * @return true if the permit will be released by the response entity, or false if the response has no entity
+	 */
+	private static boolean releaseOnConsumed(HttpResponse response, RateLimiter limiter, boolean throttled) {
+		if (response.getEntity() == null) {
+			return false;
+		}
+		response.setEntity(new PermitReleasingEntity(response.getEntity(), () -> limiter.release(throttled)));
+		return true;
+	}
+
+	/**
+	 * Runs a callback (once) when the wrapped entity is consumed, closed or aborted.
+	 */
+	private static class PermitReleasingEntity extends HttpEntityWrapper implements EofSensorWatcher {
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private final Runnable release;
+
+		PermitReleasingEntity(HttpEntity entity, Runnable release) {
+			super(entity);
+			this.release = release;
+		}
+
+		private void release() {
+			if (released.compareAndSet(false, true)) {
+				release.run();
+			}
+		}
+
+		@Override
+		public boolean isStreaming() {
+			// ensures that EntityUtils.consume() releases the permit..
+			return !released.get() || super.isStreaming();
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			try {
+				return new EofSensorInputStream(super.getContent(), this);
+			} catch (IOException | RuntimeException e) {
+				release();
+				throw e;
+			}
+		}
+
+		@Override
+		public void writeTo(OutputStream outStream) throws IOException {
+			try {
+				super.writeTo(outStream);
+			} finally {
+				release();
+			}
+		}
+
+		@Override
+		public boolean eofDetected(InputStream wrapped) {
+			release();
+			return true;
+		}
+
+		@Override
+		public boolean streamClosed(InputStream wrapped) {
+			release();
+			return true;
+		}
+
+		@Override
+		public boolean streamAbort(InputStream wrapped) {
+			release();
+			return true;
+		}
+	}
+
+	/**
+	 * Executes a single attempt of the specified method, aborting the request if a response is not received before
+	 * the specified deadline.
+	 */
+	private HttpResponse executeOnce(Session session, HttpHost host, HttpRequestBase method, long deadline)
+			throws IOException {
+		BearerTokenManager tokens = session.bearerTokens;
+		if (tokens == null) {
+			return executeOnce(session, host, method, deadline, null);
+		}
+		String token = tokens.getToken();
+		HttpResponse response = executeOnce(session, host, method, deadline, token);
+		if (response.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED && isRepeatable(method)) {
+			// the token may have been revoked or expired early, so refresh once..
+			String refreshed = tokens.refresh(token);
+			if (!refreshed.equals(token)) {
+				EntityUtils.consumeQuietly(response.getEntity());
+				method.reset();
+				response = executeOnce(session, host, method, deadline, refreshed);
+			}
+		}
+		return response;
+	}
+
+	private static boolean isRepeatable(HttpRequestBase method) {
+		return !(method instanceof HttpEntityEnclosingRequest)
+				|| ((HttpEntityEnclosingRequest) method).getEntity() == null
+				|| ((HttpEntityEnclosingRequest) method).getEntity().isRepeatable();
+	}
+
+	private HttpResponse executeOnce(Session session, HttpHost host, HttpRequestBase method, long deadline,
+									 String bearerToken) throws IOException {
+		if (bearerToken != null) {
+			method.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken);
+		}
+		HttpClientContext context = HttpClientContext.create();
+		context.setAuthCache(session.authCache);
+		if (session.credentialsProvider != null) {
+			context.setCredentialsProvider(session.credentialsProvider);
+		}
+		if (deadline == Long.MAX_VALUE) {
+			return httpClient.execute(host, method, context);
+		}
+		ScheduledFuture<?> timeout = TIMEOUTS.schedule(method::abort,
+				Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+		try {
+			return httpClient.execute(host, method, context);
+		} catch (IOException e) {
+			if (method.isAborted() && timeout.isDone()) {
+				throw new RequestTimeoutException(method.getRequestLine() + " timed out");
+			}
+			throw e;
+		} finally {
+			timeout.cancel(false);
+		}
+	}
+
+	/**
+	 * Executes the specified method and passes the response to the specified handler. The response entity is
+	 * always consumed before this method returns, releasing the connection for reuse.
+	 * @param method the method to execute
+	 * @param responseHandler processes the response
+	 * @param <T> the type of result produced by the handler
+	 * @return the result of processing the response
+	 * @throws IOException where communication fails or the handler is unable to process the response
+	 */
+	public <T> T execute(HttpRequestBase method, org.apache.http.client.ResponseHandler<? extends T> responseHandler)
+			throws IOException {
+		HttpResponse response = execute(hostConfiguration, method);
+		try {
+			return responseHandler.handleResponse(response);
+		} finally {
+			EntityUtils.consumeQuietly(response.getEntity());
+		}
+	}
+
+	/**
+	 * Executes a method where the response body is not required. The response entity is consumed before this method
+	 * returns, however the status line and headers of the returned response remain available.
+	 * @param method the method to execute
+	 * @return the HTTP response
+	 * @throws IOException where communication fails
+	 */
+	public HttpResponse executeAndRelease(HttpRequestBase method) throws IOException {
+		return executeAndRelease(method, true);
+	}
+
+	/**
+	 * Executes a method where the response body is not required, optionally returning transient failure responses
+	 * (such as 429 or 503) without retrying, for callers that apply their own retry or throttling policy.
+	 * @param method the method to execute
+	 * @param retryStatus indicates whether requests failing with a transient status are retried
+	 * @return the HTTP response
+	 * @throws IOException where communication fails
+	 */
+	public HttpResponse executeAndRelease(HttpRequestBase method, boolean retryStatus) throws IOException {
+		HttpResponse response = execute(hostConfiguration, method, retryStatus);
+		EntityUtils.consumeQuietly(response.getEntity());
+		return response;
 	}
 }
@@ -6,11 +6,35 @@ public class DavClientFactory {
 
     private final boolean preemptiveAuth;
 
+    private final boolean compression;
+
+    private final ResiliencePolicy resiliencePolicy;
+
+    private final CapabilityCache capabilityCache;
+
     public DavClientFactory(boolean preemptiveAuth) {
+        this(preemptiveAuth, true);
+    }
+
+    public DavClientFactory(boolean preemptiveAuth, boolean compression) {
+        this(preemptiveAuth, compression, new ResiliencePolicy());
+    }
+
+    public DavClientFactory(boolean preemptiveAuth, boolean compression, ResiliencePolicy resiliencePolicy) {
+        this(preemptiveAuth, compression, resiliencePolicy, null);
+    }
+
+    public DavClientFactory(boolean preemptiveAuth, boolean compression, ResiliencePolicy resiliencePolicy,
+                            CapabilityCache capabilityCache) {
         this.preemptiveAuth = preemptiveAuth;
+        this.compression = compression;
+        this.resiliencePolicy = resiliencePolicy;
+        this.capabilityCache = capabilityCache;
     }
 
     public DavClient newInstance(URL url, String principalPath, String userPath) {
-        return new DavClient(url, principalPath, userPath, preemptiveAuth);
+        return DavClient.builder(url).principalPath(principalPath).userPath(userPath).preemptiveAuth(preemptiveAuth)
+                .compression(compression).resiliencePolicy(resiliencePolicy).capabilityCache(capabilityCache)
+                .newClient();
     }
 }
@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the entity tag (ETag) and schedule tag (RFC 6638) last seen for each resource in a collection, such that
+ * subsequent updates may be made conditional on the resource not having changed on the server. The content of
+ * recently retrieved resources may also be retained with their tags, such that a resource that has not changed is
+ * served from a conditional (304 Not Modified) response without a body.
+ *
+ * Tags are retained for all known resources, whereas content is retained for a bounded number of the most recently
+ * used resources. Resources are identified by their URI relative to the collection.
+ */
+public class EntityTagStore {
+
+    public static final String HEADER_ETAG = "ETag";
+
+    public static final String HEADER_SCHEDULE_TAG = "Schedule-Tag";
+
+    /**
+     * The tags of a single resource.
+     */
+    public static final class EntityTags {
+
+        private final String etag;
+
+        private final String scheduleTag;
+
+        private final String content;
+
+        EntityTags(String etag, String scheduleTag, String content) {
+            this.etag = etag;
+            this.scheduleTag = scheduleTag;
+            this.content = content;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return the schedule tag of a scheduling object resource, or null if not known
+         */
+        public String getScheduleTag() {
+            return scheduleTag;
+        }
+
+        /**
+         * @return the content of the resource with this entity tag, or null if not retained
+         */
+        public String getContent() {
+            return content;
+        }
+    }
+
+    private final int maxContent;
+
+    private final Map<String, EntityTags> tags = new ConcurrentHashMap<>();
+
+    /**
+     * The resources for which content is retained, in order of use.
+     */
+    private final Map<String, Boolean> contentOrder = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Creates a store that retains tags only.
+     */
+    public EntityTagStore() {
+        this(0);
+    }
+
+    /**
+     * @param maxContent the maximum number of resources for which content is retained
+     */
+    public EntityTagStore(int maxContent) {
+        this.maxContent = maxContent;
+    }
+
+    /**
+     * @param uri a resource URI, relative to the collection
+     * @return the last known tags of the resource, or null if not known
+     */
+    public EntityTags get(String uri) {
+        EntityTags entityTags = tags.get(uri);
+        if (entityTags != null && entityTags.content != null) {
+            synchronized (contentOrder) {
+                contentOrder.get(uri);
+            }
+        }
+        return entityTags;
+    }
+
+    /**
+     * Records the tags of a resource. Retained content is discarded where the entity tag has changed.
+     * @param uri a resource URI, relative to the collection
+     * @param etag the current entity tag of the resource. If null any known tags are removed
+     * @param scheduleTag the current schedule tag of the resource, or null if not a scheduling object
+     */
+    public void put(String uri, String etag, String scheduleTag) {
+        EntityTags previous = tags.get(uri);
+        put(uri, etag, scheduleTag, previous != null && Objects.equals(etag, previous.etag) ? previous.content
+                : null);
+    }
+
+    /**
+     * @param uri a resource URI, relative to the collection
+     * @param etag the current entity tag of the resource. If null any known tags are removed
+     * @param scheduleTag the current schedule tag of the resource, or null if not a scheduling object
+     * @param content the content of the resource with the specified entity tag, or null to not retain content
+     */
+    public void put(String uri, String etag, String scheduleTag, String content) {
+        if (etag == null) {
+            remove(uri);
+            return;
+        }
+        String retained = maxContent > 0 ? content : null;
+        tags.put(uri, new EntityTags(etag, scheduleTag, retained));
+        synchronized (contentOrder) {
+            if (retained != null) {
+                contentOrder.put(uri, Boolean.TRUE);
+                if (contentOrder.size() > maxContent) {
+                    String eldest = contentOrder.keySet().iterator().next();
+                    contentOrder.remove(eldest);
+                    tags.computeIfPresent(eldest, (k, v) -> new EntityTags(v.etag, v.scheduleTag, null));
+                }
+            } else {
+                contentOrder.remove(uri);
+            }
+        }
+    }
+
+    /**
+     * Records the tags returned in the headers of a response for the specified resource. Where the entity tag is
+     * unchanged and the response does not include a schedule tag (e.g. a 304 Not Modified response), the known
+     * schedule tag is retained.
+     * @param uri a resource URI, relative to the collection
+     * @param httpResponse a response to a request for the resource
+     */
+    public void update(String uri, HttpResponse httpResponse) {
+        update(uri, httpResponse, null);
+    }
+
+    /**
+     * Records the tags returned in the headers of a response for the specified resource, and the content of the
+     * resource returned in the response body.
+     * @param uri a resource URI, relative to the collection
+     * @param httpResponse a response to a request for the resource
+     * @param content the content of the response, or null to retain any known content for an unchanged entity tag
+     * @see #update(String, HttpResponse)
+     */
+    public void update(String uri, HttpResponse httpResponse, String content) {
+        Header etag = httpResponse.getFirstHeader(HEADER_ETAG);
+        Header scheduleTag = httpResponse.getFirstHeader(HEADER_SCHEDULE_TAG);
+        String etagValue = etag != null ? etag.getValue() : null;
+        String scheduleTagValue = scheduleTag != null ? scheduleTag.getValue() : null;
+
+        EntityTags previous = tags.get(uri);
+        if (previous != null && Objects.equals(etagValue, previous.etag)) {
+            if (scheduleTagValue == null) {
+                scheduleTagValue = previous.scheduleTag;
+            }
+            if (content == null) {
+                content = previous.content;
+            }
+        }
+        put(uri, etagValue, scheduleTagValue, content);
+    }
+
+    /**
+     * @param uri a resource URI, relative to the collection
+     */
+    public void remove(String uri) {
+        tags.remove(uri);
+        synchronized (contentOrder) {
+            contentOrder.remove(uri);
+        }
+    }
+
+    public void clear() {
+        tags.clear();
+        synchronized (contentOrder) {
+            contentOrder.clear();
+        }
+    }
+
+    /**
+     * @param href a resource location as returned in a multistatus response
+     * @return the (decoded) URI of the resource relative to its (parent) collection
+     */
+    public static String uriFromHref(String href) {
+        String uri = href.endsWith("/") ? href.substring(0, href.length() - 1) : href;
+        uri = uri.substring(uri.lastIndexOf('/') + 1);
+        try {
+            // a literal '+' is not a space in a path segment..
+            return URLDecoder.decode(uri.replace("+", "%2B"), StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return uri;
+        }
+    }
+}
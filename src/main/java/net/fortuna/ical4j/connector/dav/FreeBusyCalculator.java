@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.DateTime;
+import net.fortuna.ical4j.model.Parameter;
+import net.fortuna.ical4j.model.ParameterList;
+import net.fortuna.ical4j.model.Period;
+import net.fortuna.ical4j.model.PeriodList;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.VFreeBusy;
+import net.fortuna.ical4j.model.parameter.FbType;
+import net.fortuna.ical4j.model.property.FreeBusy;
+import net.fortuna.ical4j.model.property.Status;
+import net.fortuna.ical4j.model.property.Transp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Accumulates busy time for a fixed time range and produces a single VFREEBUSY component with
+ * merged (normalised) periods for each free-busy type. Components and FREEBUSY properties may be
+ * added one at a time, so busy time can be computed without holding all calendar objects in memory.
+ */
+public class FreeBusyCalculator {
+
+    private final DateTime startTime;
+
+    private final DateTime endTime;
+
+    private final Period range;
+
+    private final Map<FbType, PeriodList> periods;
+
+    /**
+     * @param startTime the inclusive start of the free-busy range
+     * @param endTime the exclusive end of the free-busy range
+     */
+    public FreeBusyCalculator(DateTime startTime, DateTime endTime) {
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.range = new Period(startTime, endTime);
+        this.periods = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds the busy time of a calendar component. Transparent and cancelled events are ignored, as
+     * specified in RFC 4791 section 7.10.
+     * @param component a VEVENT component
+     */
+    public void add(Component component) {
+        if (!Component.VEVENT.equals(component.getName())) {
+            return;
+        }
+        Transp transp = component.getProperty(Property.TRANSP);
+        Status status = component.getProperty(Property.STATUS);
+        if (Transp.TRANSPARENT.equals(transp) || Status.VEVENT_CANCELLED.equals(status)) {
+            return;
+        }
+        FbType type = Status.VEVENT_TENTATIVE.equals(status) ? FbType.BUSY_TENTATIVE : FbType.BUSY;
+        for (Period period : component.calculateRecurrenceSet(range)) {
+            add(type, period);
+        }
+    }
+
+    /**
+     * Adds the periods of a FREEBUSY property. Periods of type FREE are ignored.
+     * @param freeBusy a FREEBUSY property
+     */
+    public void add(FreeBusy freeBusy) {
+        FbType type = freeBusy.getParameter(Parameter.FBTYPE);
+        if (type == null) {
+            type = FbType.BUSY;
+        }
+        if (FbType.FREE.equals(type)) {
+            return;
+        }
+        for (Period period : freeBusy.getPeriods()) {
+            add(type, period);
+        }
+    }
+
+    private void add(FbType type, Period period) {
+        if (!period.intersects(range)) {
+            return;
+        }
+        DateTime start = period.getStart().before(startTime) ? startTime : period.getStart();
+        DateTime end = period.getEnd().after(endTime) ? endTime : period.getEnd();
+        if (!start.before(end)) {
+            return;
+        }
+        periods.computeIfAbsent(type, t -> new PeriodList(true)).add(new Period(start, end));
+    }
+
+    /**
+     * @return true if no busy time has been added
+     */
+    public boolean isEmpty() {
+        return periods.isEmpty();
+    }
+
+    /**
+     * @return a VFREEBUSY component for the range, with one FREEBUSY property per free-busy type
+     */
+    public VFreeBusy toVFreeBusy() {
+        VFreeBusy freeBusy = new VFreeBusy(startTime, endTime);
+        for (Map.Entry<FbType, PeriodList> entry : periods.entrySet()) {
+            ParameterList parameters = new ParameterList();
+            if (!FbType.BUSY.equals(entry.getKey())) {
+                parameters.add(entry.getKey());
+            }
+            freeBusy.getProperties().add(new FreeBusy(parameters, entry.getValue().normalise()));
+        }
+        return freeBusy;
+    }
+}
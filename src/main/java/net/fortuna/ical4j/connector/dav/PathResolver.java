@@ -31,6 +31,13 @@
  */
 package net.fortuna.ical4j.connector.dav;
 
+import net.fortuna.ical4j.util.Configurator;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
 /**
  * Implementations resolve host path elements.
  * 
@@ -90,6 +97,17 @@ public enum PathResolver {
 
     ICLOUD("/%s/principal", "");
 
+    /**
+     * Default configuration for specific server implementations, applied where not otherwise configured.
+     */
+    private static final Map<String, String> PROFILE_DEFAULTS = new HashMap<>();
+    static {
+        PROFILE_DEFAULTS.put("ical4j.connector.dav.ratelimit.rate.icloud", "10");
+        PROFILE_DEFAULTS.put("ical4j.connector.dav.ratelimit.maxinflight.icloud", "8");
+        PROFILE_DEFAULTS.put("ical4j.connector.dav.ratelimit.rate.gcal", "5");
+        PROFILE_DEFAULTS.put("ical4j.connector.dav.ratelimit.maxinflight.gcal", "4");
+    }
+
     private final String userPathBase;
 
     private final String principalPathBase;
@@ -116,4 +134,22 @@ public enum PathResolver {
     public String getPrincipalPath(String username) {
         return String.format(principalPathBase, username);
     }
+
+    /**
+     * Returns a configuration property for this server implementation. Properties may be specified per server
+     * implementation by appending the lower-case resolver name to the property name (e.g.
+     * <code>ical4j.connector.dav.compression.gcal</code>), otherwise the unqualified property applies. Where neither
+     * is configured, a default for the server implementation applies if known (e.g. the request rate limits of
+     * iCloud and Google Calendar).
+     * @param name a configuration property name
+     * @return the configured property value for this server implementation
+     */
+    public Optional<String> getProfileProperty(String name) {
+        String profileName = name + "." + name().toLowerCase(Locale.ROOT);
+        Optional<String> value = Configurator.getProperty(profileName);
+        if (!value.isPresent()) {
+            value = Configurator.getProperty(name);
+        }
+        return value.isPresent() ? value : Optional.ofNullable(PROFILE_DEFAULTS.get(profileName));
+    }
 }
@@ -0,0 +1,297 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import net.fortuna.ical4j.connector.ObjectStoreException;
+import net.fortuna.ical4j.model.Parameter;
+import net.fortuna.ical4j.model.parameter.Cn;
+import net.fortuna.ical4j.model.parameter.CuType;
+import net.fortuna.ical4j.model.property.Attendee;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An in-memory directory of calendar user principals (e.g. rooms and resources) that answers type-ahead
+ * searches locally. Principals are loaded once and reloaded in the background when the configured time-to-live
+ * expires, with searches continuing to use the previous snapshot until the reload completes. Where a reload fails,
+ * further reloads are deferred with an exponentially increasing delay.
+ *
+ * Searches match the start of any word in a principal's display name or email address, followed by
+ * principals that contain the query anywhere in those values.
+ */
+public class PrincipalDirectory {
+
+    private static final Log LOG = LogFactory.getLog(PrincipalDirectory.class);
+
+    /**
+     * Performs background reloads for all directories, such that blocking requests are not run on the common pool.
+     */
+    private static final ExecutorService RELOAD_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "dav-principal-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The initial delay in milliseconds before retrying a failed background reload.
+     */
+    private static final long MIN_RELOAD_BACKOFF = 1000;
+
+    /**
+     * The maximum delay in milliseconds before retrying a failed background reload.
+     */
+    private static final long MAX_RELOAD_BACKOFF = 300000;
+
+    private final Callable<List<Attendee>> loader;
+
+    private final long timeToLive;
+
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+
+    /*
+     * The number of consecutive failed background reloads, updated by the reloading thread only.
+     */
+    private int reloadFailures;
+
+    private volatile long nextReload;
+
+    /**
+     * @param loader loads all principals in the directory
+     * @param timeToLive the time in milliseconds after which the directory is reloaded
+     */
+    public PrincipalDirectory(Callable<List<Attendee>> loader, long timeToLive) {
+        this.loader = loader;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Loads all principals, replacing the current contents of the directory.
+     * @throws ObjectStoreException where principals cannot be loaded
+     */
+    public void refresh() throws ObjectStoreException {
+        try {
+            snapshot = new Snapshot(loader.call(), System.currentTimeMillis());
+        } catch (Exception e) {
+            throw new ObjectStoreException("Unable to load principal directory", e);
+        }
+    }
+
+    /**
+     * @return true if the directory has not been loaded or its contents have expired
+     */
+    public boolean isStale() {
+        Snapshot current = snapshot;
+        return current == null || System.currentTimeMillis() - current.loaded > timeToLive;
+    }
+
+    /**
+     * @param type a calendar user type, or null for all types
+     * @return copies of all principals of the specified type, ordered by display name
+     * @throws ObjectStoreException where the directory cannot be loaded
+     */
+    public List<Attendee> getAll(CuType type) throws ObjectStoreException {
+        List<Attendee> results = new ArrayList<>();
+        for (Entry entry : getSnapshot().entries) {
+            if (entry.matches(type)) {
+                results.add(entry.copy());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param query a search string
+     * @return copies of principals of any type matching the query
+     * @throws ObjectStoreException where the directory cannot be loaded
+     */
+    public List<Attendee> search(String query) throws ObjectStoreException {
+        return search(null, query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param type a calendar user type, or null for all types
+     * @param query a search string. Matching is case-insensitive
+     * @param limit the maximum number of results
+     * @return copies of matching principals, with word prefix matches ahead of substring matches
+     * @throws ObjectStoreException where the directory cannot be loaded
+     */
+    public List<Attendee> search(CuType type, String query, int limit) throws ObjectStoreException {
+        Snapshot current = getSnapshot();
+        String term = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (term.isEmpty()) {
+            List<Attendee> all = getAll(type);
+            return all.size() > limit ? all.subList(0, limit) : all;
+        }
+
+        Set<Entry> matches = new LinkedHashSet<>();
+        for (List<Entry> entries : current.prefixIndex.subMap(term, term + Character.MAX_VALUE).values()) {
+            for (Entry entry : entries) {
+                if (entry.matches(type)) {
+                    matches.add(entry);
+                }
+            }
+        }
+        if (matches.size() < limit) {
+            for (Entry entry : current.entries) {
+                if (entry.matches(type) && entry.contains(term)) {
+                    matches.add(entry);
+                }
+            }
+        }
+
+        List<Attendee> results = new ArrayList<>(Math.min(matches.size(), limit));
+        for (Entry entry : matches) {
+            if (results.size() == limit) {
+                break;
+            }
+            results.add(entry.copy());
+        }
+        return results;
+    }
+
+    private Snapshot getSnapshot() throws ObjectStoreException {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        } else if (isStale() && System.currentTimeMillis() >= nextReload && reloading.compareAndSet(false, true)) {
+            RELOAD_EXECUTOR.execute(() -> {
+                try {
+                    refresh();
+                    reloadFailures = 0;
+                } catch (ObjectStoreException e) {
+                    // defer further reloads rather than retrying on every lookup..
+                    long backoff = Math.min(MAX_RELOAD_BACKOFF, MIN_RELOAD_BACKOFF << Math.min(reloadFailures++, 16));
+                    nextReload = System.currentTimeMillis() + backoff;
+                    LOG.warn("Unable to reload principal directory, retrying in " + backoff + "ms", e);
+                } finally {
+                    reloading.set(false);
+                }
+            });
+        }
+        return current;
+    }
+
+    /**
+     * An immutable, indexed view of the directory contents.
+     */
+    private static class Snapshot {
+
+        private final List<Entry> entries;
+
+        private final NavigableMap<String, List<Entry>> prefixIndex;
+
+        private final long loaded;
+
+        Snapshot(List<Attendee> attendees, long loaded) {
+            List<Entry> entries = new ArrayList<>(attendees.size());
+            for (Attendee attendee : attendees) {
+                entries.add(new Entry(attendee));
+            }
+            entries.sort(Comparator.comparing(e -> e.name));
+
+            NavigableMap<String, List<Entry>> prefixIndex = new TreeMap<>();
+            for (Entry entry : entries) {
+                for (String word : entry.words()) {
+                    prefixIndex.computeIfAbsent(word, w -> new ArrayList<>()).add(entry);
+                }
+            }
+            this.entries = Collections.unmodifiableList(entries);
+            this.prefixIndex = Collections.unmodifiableNavigableMap(prefixIndex);
+            this.loaded = loaded;
+        }
+    }
+
+    private static class Entry {
+
+        private final Attendee attendee;
+
+        private final String name;
+
+        private final String email;
+
+        private final String type;
+
+        Entry(Attendee attendee) {
+            this.attendee = attendee;
+            Cn cn = attendee.getParameter(Parameter.CN);
+            this.name = cn != null ? cn.getValue().toLowerCase(Locale.ROOT) : "";
+            String address = attendee.getValue() != null ? attendee.getValue().toLowerCase(Locale.ROOT) : "";
+            this.email = address.startsWith("mailto:") ? address.substring(7) : address;
+            CuType cuType = attendee.getParameter(Parameter.CUTYPE);
+            this.type = cuType != null ? cuType.getValue() : null;
+        }
+
+        /**
+         * @return a copy of the principal, such that callers cannot modify the directory contents
+         */
+        Attendee copy() {
+            return (Attendee) attendee.copy();
+        }
+
+        boolean matches(CuType cuType) {
+            return cuType == null || cuType.getValue().equalsIgnoreCase(type);
+        }
+
+        boolean contains(String term) {
+            return name.contains(term) || email.contains(term);
+        }
+
+        Set<String> words() {
+            Set<String> words = new HashSet<>();
+            for (String word : name.split("[\\s\\p{Punct}]+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+            if (!email.isEmpty()) {
+                words.add(email);
+            }
+            if (!name.isEmpty()) {
+                words.add(name);
+            }
+            return words;
+        }
+    }
+}
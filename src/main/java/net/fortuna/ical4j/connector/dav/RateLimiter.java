@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the rate and concurrency of requests to a server. Requests are permitted at a sustained rate with bursts
+ * up to a fixed capacity (i.e. a token bucket), and the number of requests in flight is bounded.
+ *
+ * Limits adapt to throttling by the server: where a request is throttled (e.g. a 429 response) the rate and
+ * concurrency limits are halved, and are then gradually restored to the configured maximum while requests succeed.
+ *
+ * Rate limiters are shared by all clients connecting to the same host, and the state of each may be monitored via
+ * {@link #getInstances()}.
+ */
+public class RateLimiter {
+
+    /**
+     * The minimum interval between increases of the limits following throttling.
+     */
+    private static final long RECOVERY_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Map<String, RateLimiter> INSTANCES = new ConcurrentHashMap<>();
+
+    private final String name;
+
+    private final double maxRate;
+
+    private final double capacity;
+
+    private final int maxInFlight;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    private double rate;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    private int inFlightLimit;
+
+    private int inFlight;
+
+    private long lastAdjusted;
+
+    private long throttledCount;
+
+    /**
+     * @param name identifies the protected resource
+     * @param maxRate the maximum sustained number of requests per second, or zero for no limit
+     * @param capacity the maximum number of requests permitted in a burst
+     * @param maxInFlight the maximum number of concurrent requests, or zero for no limit
+     */
+    public RateLimiter(String name, double maxRate, int capacity, int maxInFlight) {
+        this.name = name;
+        this.maxRate = maxRate;
+        this.capacity = Math.max(1, capacity);
+        this.maxInFlight = maxInFlight;
+        this.rate = maxRate;
+        this.tokens = this.capacity;
+        this.inFlightLimit = maxInFlight;
+        this.lastRefill = System.nanoTime();
+        this.lastAdjusted = lastRefill;
+    }
+
+    /**
+     * Returns the rate limiter for the specified host, creating a new instance where required.
+     * @param host a host URI (e.g. https://dav.example.com:443)
+     * @param maxRate the maximum requests per second for a new instance, or zero for no limit
+     * @param capacity the maximum burst of requests for a new instance
+     * @param maxInFlight the maximum concurrent requests for a new instance, or zero for no limit
+     * @return the shared rate limiter for the host
+     */
+    public static RateLimiter forHost(String host, double maxRate, int capacity, int maxInFlight) {
+        return INSTANCES.computeIfAbsent(host, h -> new RateLimiter(h, maxRate, capacity, maxInFlight));
+    }
+
+    /**
+     * @return all shared rate limiters, keyed by host
+     */
+    public static Map<String, RateLimiter> getInstances() {
+        return Collections.unmodifiableMap(INSTANCES);
+    }
+
+    /**
+     * Waits until a request is permitted by the rate and concurrency limits. Callers must subsequently call
+     * {@link #release(boolean)} when the request is complete.
+     * @throws InterruptedException where the current thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        tryAcquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Waits up to the specified time until a request is permitted by the rate and concurrency limits. Where
+     * successful, callers must subsequently call {@link #release(boolean)} when the request is complete.
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if the request is permitted, or false if the timeout elapsed
+     * @throws InterruptedException where the current thread is interrupted while waiting
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                refill(now);
+                if (inFlightLimit > 0 && inFlight >= inFlightLimit) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = available.awaitNanos(remaining);
+                } else if (rate > 0 && tokens < 1) {
+                    long wait = (long) ((1 - tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+                    if (remaining < wait) {
+                        return false;
+                    }
+                    remaining -= wait - available.awaitNanos(wait);
+                } else {
+                    if (rate > 0) {
+                        tokens--;
+                    }
+                    inFlight++;
+                    return true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the completion of a request permitted by {@link #acquire()}.
+     * @param throttled indicates whether the server throttled the request
+     */
+    public void release(boolean throttled) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            refill(now);
+            inFlight--;
+            if (throttled) {
+                throttledCount++;
+                // multiplicative decrease, and drain any remaining burst..
+                if (maxRate > 0) {
+                    rate = Math.max(maxRate / 100, rate / 2);
+                    tokens = Math.min(tokens, 0);
+                }
+                if (maxInFlight > 0) {
+                    inFlightLimit = Math.max(1, inFlightLimit / 2);
+                }
+                lastAdjusted = now;
+            } else if (now - lastAdjusted >= RECOVERY_INTERVAL && (rate < maxRate || inFlightLimit < maxInFlight)) {
+                // additive increase..
+                rate = Math.min(maxRate, rate + maxRate / 10);
+                inFlightLimit = Math.min(maxInFlight, inFlightLimit + 1);
+                lastAdjusted = now;
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill(long now) {
+        if (rate > 0) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+        }
+        lastRefill = now;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the current limit of requests per second, or zero for no limit
+     */
+    public double getRate() {
+        lock.lock();
+        try {
+            return rate;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the current limit of concurrent requests, or zero for no limit
+     */
+    public int getInFlightLimit() {
+        lock.lock();
+        try {
+            return inFlightLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of requests currently in flight
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the total number of requests throttled by the server
+     */
+    public long getThrottledCount() {
+        lock.lock();
+        try {
+            return throttledCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiter[" + name + ": " + getRate() + "/s, " + getInFlight() + "/" + getInFlightLimit() + "]";
+    }
+}
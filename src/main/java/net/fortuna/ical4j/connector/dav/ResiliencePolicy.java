@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import net.fortuna.ical4j.util.Configurator;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.jackrabbit.webdav.DavMethods;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Defines the timeouts, retry, rate limiting and circuit breaker behaviour of a {@link DavClient}. Configuration is read from the
+ * following properties (all durations in milliseconds):
+ *
+ * <pre>
+ * ical4j.connector.dav.timeout.connect - time to establish a connection (default 10000)
+ * ical4j.connector.dav.timeout.socket - maximum inactivity while reading a response (default 60000)
+ * ical4j.connector.dav.timeout.request - time to receive a response, including retries, or 0 for none (default 120000)
+ * ical4j.connector.dav.retry.max - maximum retries of an idempotent request (default 3)
+ * ical4j.connector.dav.retry.backoff - initial delay between retries (default 500)
+ * ical4j.connector.dav.retry.maxbackoff - maximum delay between retries, including any Retry-After (default 30000)
+ * ical4j.connector.dav.circuitbreaker.threshold - consecutive failures that open the circuit, or 0 to disable (default 5)
+ * ical4j.connector.dav.circuitbreaker.duration - time to reject requests once the circuit is open (default 30000)
+ * ical4j.connector.dav.ratelimit.rate - maximum requests per second to a host, or 0 for no limit (default 0)
+ * ical4j.connector.dav.ratelimit.burst - maximum burst of requests to a host (default 1 second of requests)
+ * ical4j.connector.dav.ratelimit.maxinflight - maximum concurrent requests to a host, or 0 for no limit (default
+ * ical4j.connector.dav.maxconnections, or 20)
+ * </pre>
+ *
+ * The concurrency limit is halved whenever a request is throttled, so adapts to overloaded servers by default.
+ * Where properties are obtained from a {@link PathResolver} profile, servers with known rate limits (such as
+ * iCloud and Google Calendar) also apply a default request rate.
+ */
+public class ResiliencePolicy {
+
+    /**
+     * Methods that may be repeated without additional side effects.
+     */
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS",
+            "TRACE", "PUT", "DELETE", DavMethods.METHOD_PROPFIND, DavMethods.METHOD_PROPPATCH,
+            DavMethods.METHOD_REPORT));
+
+    /**
+     * Headers that make a request conditional on the state of the target resource.
+     */
+    private static final String[] CONDITIONAL_HEADERS = {"If-Match", "If-None-Match", "If-Schedule-Tag-Match"};
+
+    private final int connectTimeout;
+
+    private final int socketTimeout;
+
+    private final int requestTimeout;
+
+    private final int maxRetries;
+
+    private final long initialBackoff;
+
+    private final long maxBackoff;
+
+    private final int failureThreshold;
+
+    private final long openDuration;
+
+    private final double maxRate;
+
+    private final int burst;
+
+    private final int maxInFlight;
+
+    public ResiliencePolicy() {
+        this(Configurator::getProperty);
+    }
+
+    /**
+     * @param properties provides configuration properties
+     */
+    public ResiliencePolicy(Function<String, Optional<String>> properties) {
+        this.connectTimeout = Integer.parseInt(properties.apply("ical4j.connector.dav.timeout.connect").orElse("10000"));
+        this.socketTimeout = Integer.parseInt(properties.apply("ical4j.connector.dav.timeout.socket").orElse("60000"));
+        this.requestTimeout = Integer.parseInt(properties.apply("ical4j.connector.dav.timeout.request").orElse("120000"));
+        this.maxRetries = Integer.parseInt(properties.apply("ical4j.connector.dav.retry.max").orElse("3"));
+        this.initialBackoff = Long.parseLong(properties.apply("ical4j.connector.dav.retry.backoff").orElse("500"));
+        this.maxBackoff = Long.parseLong(properties.apply("ical4j.connector.dav.retry.maxbackoff").orElse("30000"));
+        this.failureThreshold = Integer.parseInt(properties.apply("ical4j.connector.dav.circuitbreaker.threshold")
+                .orElse("5"));
+        this.openDuration = Long.parseLong(properties.apply("ical4j.connector.dav.circuitbreaker.duration")
+                .orElse("30000"));
+        this.maxRate = Double.parseDouble(properties.apply("ical4j.connector.dav.ratelimit.rate").orElse("0"));
+        this.burst = Integer.parseInt(properties.apply("ical4j.connector.dav.ratelimit.burst")
+                .orElse(String.valueOf((int) Math.ceil(maxRate))));
+        this.maxInFlight = Integer.parseInt(properties.apply("ical4j.connector.dav.ratelimit.maxinflight")
+                .orElseGet(() -> properties.apply("ical4j.connector.dav.maxconnections").orElse("20")));
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    /**
+     * @return the maximum time (in milliseconds) to receive a response, including retries, or zero for no limit
+     */
+    public int getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @param host a host URI
+     * @return the shared circuit breaker for the specified host
+     */
+    public CircuitBreaker getCircuitBreaker(String host) {
+        return CircuitBreaker.forHost(host, failureThreshold, openDuration);
+    }
+
+    /**
+     * @param host a host URI
+     * @return the shared rate limiter for the specified host
+     */
+    public RateLimiter getRateLimiter(String host) {
+        return RateLimiter.forHost(host, maxRate, burst, maxInFlight);
+    }
+
+    /**
+     * @return default request configuration applying the configured timeouts
+     */
+    public RequestConfig getRequestConfig() {
+        return applyTo(RequestConfig.DEFAULT);
+    }
+
+    /**
+     * @param config a request configuration
+     * @return the specified configuration, with the configured timeouts applied where not already specified
+     */
+    public RequestConfig applyTo(RequestConfig config) {
+        RequestConfig.Builder builder = RequestConfig.copy(config);
+        if (config.getConnectTimeout() < 0) {
+            builder.setConnectTimeout(connectTimeout);
+            builder.setConnectionRequestTimeout(connectTimeout);
+        }
+        if (config.getSocketTimeout() < 0) {
+            builder.setSocketTimeout(socketTimeout);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param request an HTTP request
+     * @return true if the request may be safely repeated
+     */
+    public boolean isRetryable(HttpRequest request) {
+        if (!IDEMPOTENT_METHODS.contains(request.getRequestLine().getMethod())) {
+            return false;
+        }
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            return entity == null || entity.isRepeatable();
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether a request may be repeated after an I/O error. Conditional requests are excluded, as the
+     * server may have applied the request before the failure, in which case a repeated request would fail its
+     * precondition and appear to be a conflicting modification.
+     * @param request an HTTP request
+     * @return true if the request may be safely repeated where the outcome of a previous attempt is unknown
+     */
+    public boolean isRetryableOnError(HttpRequest request) {
+        if (!isRetryable(request)) {
+            return false;
+        }
+        for (String header : CONDITIONAL_HEADERS) {
+            if (request.containsHeader(header)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param statusCode a response status code
+     * @return true if the status indicates a transient failure
+     */
+    public boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode == HttpStatus.SC_BAD_GATEWAY
+                || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE || statusCode == HttpStatus.SC_GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * @param e an exception raised when executing a request
+     * @return true if the exception indicates a transient failure
+     */
+    public boolean isRetryable(IOException e) {
+        if (e instanceof CircuitBreakerOpenException || e instanceof UnknownHostException || e instanceof SSLException) {
+            return false;
+        }
+        // interruptions other than timeouts include aborted requests..
+        return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+    }
+
+    /**
+     * Returns the delay before the specified retry. Where the server has not specified a delay, an exponentially
+     * increasing delay with random jitter is applied to avoid synchronised retries from multiple clients.
+     * @param retry the retry number, starting from one
+     * @param retryAfter the delay requested by the server (in milliseconds), or -1 if not specified
+     * @return the delay in milliseconds, or -1 if the request should not be retried
+     */
+    public long getRetryDelay(int retry, long retryAfter) {
+        if (retry > maxRetries || retryAfter > maxBackoff) {
+            return -1;
+        }
+        if (retryAfter >= 0) {
+            return retryAfter;
+        }
+        long ceiling = Math.min(maxBackoff, initialBackoff << Math.min(retry - 1, 30));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+}
@@ -56,6 +56,11 @@ import java.io.StringReader;
  */
 public class ScheduleResponse {
 
+    /**
+     * The request status code of a response for which the server did not report a request status.
+     */
+    public static final float REQUEST_STATUS_UNKNOWN = -1f;
+
     /*
      * http://tools.ietf.org/html/draft-desruisseaux-caldav-sched-06#section-11.3
      */
@@ -70,6 +75,37 @@ public class ScheduleResponse {
      */
     private Calendar calendarData;
 
+    /*
+     * The HTTP status reported for the recipient where no request status is available.
+     */
+    private int statusCode;
+
+    private Exception error;
+
+    /**
+     * Creates an empty response, to be populated using the setter methods.
+     */
+    public ScheduleResponse() {
+    }
+
+    /**
+     * Creates a response for a recipient where the server did not report a request status, such as where the server
+     * responded with a DAV:multistatus or the schedule outbox request failed. Such responses carry no free-busy data,
+     * and are neither successful nor failed in terms of a request status.
+     * @param recipient the recipient
+     * @param statusCode the HTTP status reported for the recipient or the request, or zero if no response was received
+     * @param error the reason the request failed, or null
+     * @return a response with an unknown request status
+     */
+    public static ScheduleResponse unknown(String recipient, int statusCode, Exception error) {
+        ScheduleResponse response = new ScheduleResponse();
+        response.recipient = recipient;
+        response.requestStatusCode = REQUEST_STATUS_UNKNOWN;
+        response.statusCode = statusCode;
+        response.error = error;
+        return response;
+    }
+
     /*
      * <schedule-response xmlns='urn:ietf:params:xml:ns:caldav'> <response> <recipient> <href
      * xmlns='DAV:'>mailto:probert@macti.ca</href> </recipient> <request-status>3.7;Invalid Calendar
@@ -182,8 +218,30 @@ public class ScheduleResponse {
         this.calendarData = calendarData;
     }
 
+    /**
+     * @return the HTTP status reported for a response with an unknown request status, or zero if not applicable
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the reason the schedule outbox request failed, or null if a response was received
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * @return false if the server did not report a request status for the recipient
+     * @see #unknown(String, int, Exception)
+     */
+    public boolean isRequestStatusKnown() {
+        return requestStatusCode != REQUEST_STATUS_UNKNOWN;
+    }
+
     public boolean isSuccess() {
-        if (requestStatusCode < 3.0) {
+        if (isRequestStatusKnown() && requestStatusCode < 3.0) {
             return true;
         }
         return false;
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import org.apache.jackrabbit.webdav.DavServletResponse;
+import org.apache.jackrabbit.webdav.Status;
+import org.apache.jackrabbit.webdav.xml.DomUtil;
+import org.apache.jackrabbit.webdav.xml.ElementIterator;
+import org.w3c.dom.Element;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The members of a collection that have changed since a previous synchronization, as reported by a DAV:sync-collection
+ * report (RFC 6578).
+ */
+public class SyncCollectionResult {
+
+    private final String syncToken;
+
+    private final Map<String, String> changed;
+
+    private final Set<String> removed;
+
+    private final boolean truncated;
+
+    private final boolean reset;
+
+    /**
+     * @param syncToken the token identifying the synchronized state of the collection
+     * @param changed the entity tags of added or modified members, keyed by URI (relative to the collection)
+     * @param removed the URIs (relative to the collection) of removed members
+     * @param truncated indicates that the server returned only some of the changes
+     * @param reset indicates that a previous sync token was rejected and all members are reported as changed
+     */
+    public SyncCollectionResult(String syncToken, Map<String, String> changed, Set<String> removed,
+                                boolean truncated, boolean reset) {
+        this.syncToken = syncToken;
+        this.changed = Collections.unmodifiableMap(changed);
+        this.removed = Collections.unmodifiableSet(removed);
+        this.truncated = truncated;
+        this.reset = reset;
+    }
+
+    /**
+     * @return the token to use for the next synchronization
+     */
+    public String getSyncToken() {
+        return syncToken;
+    }
+
+    /**
+     * @return the entity tags of added or modified members, keyed by URI (relative to the collection)
+     */
+    public Map<String, String> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return the URIs (relative to the collection) of removed members
+     */
+    public Set<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return true if further changes may be retrieved using the sync token of this result
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return true if the previous sync token was no longer valid, in which case local copies of members not
+     * reported as changed should be discarded
+     */
+    public boolean isReset() {
+        return reset;
+    }
+
+    /**
+     * @param multiStatus the multistatus element of a sync-collection response
+     * @param reset indicates that the report was a full synchronization following an invalid sync token
+     * @return the changes reported in the response
+     */
+    public static SyncCollectionResult fromXml(Element multiStatus, boolean reset) {
+        Map<String, String> changed = new LinkedHashMap<>();
+        Set<String> removed = new LinkedHashSet<>();
+        boolean truncated = false;
+
+        ElementIterator responses = DomUtil.getChildren(multiStatus, DavConstants.XML_RESPONSE, DavConstants.NAMESPACE);
+        while (responses.hasNext()) {
+            Element response = responses.nextElement();
+            String href = DomUtil.getChildTextTrim(response, DavConstants.XML_HREF, DavConstants.NAMESPACE);
+            String status = DomUtil.getChildTextTrim(response, DavConstants.XML_STATUS, DavConstants.NAMESPACE);
+            if (status != null) {
+                int statusCode = Status.parse(status).getStatusCode();
+                if (statusCode == DavServletResponse.SC_NOT_FOUND) {
+                    removed.add(EntityTagStore.uriFromHref(href));
+                } else if (statusCode == DavServletResponse.SC_INSUFFICIENT_SPACE_ON_RESOURCE) {
+                    // the server has limited the number of changes returned..
+                    truncated = true;
+                }
+                continue;
+            }
+            ElementIterator propStats = DomUtil.getChildren(response, DavConstants.XML_PROPSTAT,
+                    DavConstants.NAMESPACE);
+            while (propStats.hasNext()) {
+                Element propStat = propStats.nextElement();
+                String propStatus = DomUtil.getChildTextTrim(propStat, DavConstants.XML_STATUS, DavConstants.NAMESPACE);
+                if (propStatus != null && Status.parse(propStatus).getStatusCode() == DavServletResponse.SC_OK) {
+                    Element prop = DomUtil.getChildElement(propStat, DavConstants.XML_PROP, DavConstants.NAMESPACE);
+                    changed.put(EntityTagStore.uriFromHref(href), prop != null ? DomUtil.getChildTextTrim(prop,
+                            DavConstants.PROPERTY_GETETAG, DavConstants.NAMESPACE) : null);
+                }
+            }
+        }
+        String syncToken = DomUtil.getChildTextTrim(multiStatus, DavConstants.PROPERTY_SYNC_TOKEN,
+                DavConstants.NAMESPACE);
+        return new SyncCollectionResult(syncToken, changed, removed, truncated, reset);
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import net.fortuna.ical4j.connector.ObjectStoreException;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.utils.DateUtils;
+
+import java.util.Date;
+
+/**
+ * Indicates that a request was rejected because the server is overloaded or the client has exceeded a rate limit
+ * (i.e. a 429 Too Many Requests or 503 Service Unavailable response).
+ */
+public class ThrottledException extends ObjectStoreException {
+
+    private static final long serialVersionUID = -6170461954318208543L;
+
+    public static final String HEADER_RETRY_AFTER = "Retry-After";
+
+    private final int statusCode;
+
+    private final long retryAfter;
+
+    /**
+     * @param message error message
+     * @param statusCode the response status code
+     * @param retryAfter the number of milliseconds the server has requested clients wait before retrying, or -1 if
+     *                   not specified
+     */
+    public ThrottledException(String message, int statusCode, long retryAfter) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the number of milliseconds to wait before retrying, or -1 if not specified by the server
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * @param statusCode a response status code
+     * @return true if the status code indicates the request was throttled
+     */
+    public static boolean isThrottled(int statusCode) {
+        return statusCode == 429 || statusCode == 503;
+    }
+
+    /**
+     * Parses the Retry-After header of a response, which may specify either a number of seconds or a date.
+     * @param httpResponse a response
+     * @return the number of milliseconds to wait before retrying, or -1 if not specified
+     */
+    public static long getRetryAfter(HttpResponse httpResponse) {
+        Header header = httpResponse.getFirstHeader(HEADER_RETRY_AFTER);
+        if (header == null) {
+            return -1;
+        }
+        String value = header.getValue().trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(value);
+            return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : -1;
+        }
+    }
+}
@@ -0,0 +1,530 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav;
+
+import net.fortuna.ical4j.model.Calendar;
+import org.apache.jackrabbit.webdav.security.SecurityConstants;
+import org.apache.jackrabbit.webdav.version.report.ReportInfo;
+import org.apache.jackrabbit.webdav.version.report.ReportType;
+import org.apache.jackrabbit.webdav.xml.DomUtil;
+import org.apache.jackrabbit.webdav.xml.ElementIterator;
+import org.apache.jackrabbit.webdav.xml.Namespace;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Shared XML infrastructure for building DAV request bodies and parsing responses. Document builders are created
+ * once per thread from a single factory, and the request bodies of common REPORT methods are pre-built as
+ * immutable templates that are copied into a new document and populated for each request.
+ */
+public final class XmlSupport {
+
+    private static final DocumentBuilderFactory BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
+
+    static {
+        BUILDER_FACTORY.setNamespaceAware(true);
+        BUILDER_FACTORY.setIgnoringComments(true);
+        BUILDER_FACTORY.setIgnoringElementContentWhitespace(true);
+        BUILDER_FACTORY.setCoalescing(true);
+        // responses are untrusted, so reject document types and never resolve external entities (XXE)..
+        try {
+            BUILDER_FACTORY.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            BUILDER_FACTORY.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            BUILDER_FACTORY.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            BUILDER_FACTORY.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            BUILDER_FACTORY.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Unable to secure XML parser", e);
+        }
+        BUILDER_FACTORY.setXIncludeAware(false);
+        BUILDER_FACTORY.setExpandEntityReferences(false);
+    }
+
+    /**
+     * A factory for streaming parsers, used where responses may be too large to hold as a single document.
+     */
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private static final ThreadLocal<DocumentBuilder> BUILDER = ThreadLocal.withInitial(() -> {
+        try {
+            synchronized (BUILDER_FACTORY) {
+                return BUILDER_FACTORY.newDocumentBuilder();
+            }
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * A VCALENDAR comp-filter containing a single (named) component filter.
+     */
+    private static final Template COMPONENT_FILTER = new Template(document -> {
+        Element calFilter = DomUtil.createElement(document, CalDavConstants.PROPERTY_COMP_FILTER,
+                CalDavConstants.CALDAV_NAMESPACE);
+        calFilter.setAttribute(CalDavConstants.ATTRIBUTE_NAME, Calendar.VCALENDAR);
+        calFilter.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_COMP_FILTER,
+                CalDavConstants.CALDAV_NAMESPACE));
+        return calFilter;
+    });
+
+    /**
+     * A VCALENDAR comp-filter containing a single (named) component filter with a time-range.
+     */
+    private static final Template TIME_RANGE_FILTER = new Template(document -> {
+        Element calFilter = COMPONENT_FILTER.newElement(document);
+        getChild(calFilter, CalDavConstants.PROPERTY_COMP_FILTER, CalDavConstants.CALDAV_NAMESPACE)
+                .appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_TIME_RANGE,
+                        CalDavConstants.CALDAV_NAMESPACE));
+        return calFilter;
+    });
+
+    private static final Template CALENDAR_DATA = new Template(document ->
+            DomUtil.createElement(document, CalDavConstants.PROPERTY_CALENDAR_DATA, CalDavConstants.CALDAV_NAMESPACE));
+
+    private static final Template CALENDAR_QUERY_PROPERTIES = new Template(document -> {
+        Element property = DomUtil.createElement(document, DavConstants.XML_PROP, CalDavConstants.NAMESPACE);
+        property.appendChild(DomUtil.createElement(document, DavConstants.PROPERTY_GETETAG,
+                CalDavConstants.NAMESPACE));
+        return property;
+    });
+
+    /**
+     * The properties of address object resources returned by an addressbook-multiget.
+     */
+    private static final Template ADDRESS_DATA_PROPERTIES = new Template(document -> {
+        Element property = DomUtil.createElement(document, DavConstants.XML_PROP, DavConstants.NAMESPACE);
+        property.appendChild(DomUtil.createElement(document, DavConstants.PROPERTY_GETETAG, DavConstants.NAMESPACE));
+        property.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_ADDRESS_DATA,
+                CalDavConstants.CARDDAV_NAMESPACE));
+        return property;
+    });
+
+    /**
+     * A sync-collection report (RFC 6578) requesting the ETag of each changed member.
+     */
+    private static final Template SYNC_COLLECTION = new Template(document -> {
+        Element syncCollection = DomUtil.createElement(document, "sync-collection", DavConstants.NAMESPACE);
+        syncCollection.appendChild(DomUtil.createElement(document, DavConstants.PROPERTY_SYNC_TOKEN,
+                DavConstants.NAMESPACE));
+        syncCollection.appendChild(DomUtil.createElement(document, "sync-level", DavConstants.NAMESPACE, "1"));
+        Element property = DomUtil.createElement(document, DavConstants.XML_PROP, DavConstants.NAMESPACE);
+        property.appendChild(DomUtil.createElement(document, DavConstants.PROPERTY_GETETAG, DavConstants.NAMESPACE));
+        syncCollection.appendChild(property);
+        return syncCollection;
+    });
+
+    /**
+     * The principal properties returned by a principal-property-search.
+     */
+    private static final Template PRINCIPAL_PROPERTIES = new Template(document -> {
+        Element properties = DomUtil.createElement(document, "prop", DavConstants.NAMESPACE);
+        properties.appendChild(DomUtil.createElement(document, "first-name", CalDavConstants.CS_NAMESPACE));
+        properties.appendChild(DomUtil.createElement(document, "record-type", CalDavConstants.CS_NAMESPACE));
+        properties.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_USER_ADDRESS_SET,
+                CalDavConstants.CALDAV_NAMESPACE));
+        properties.appendChild(DomUtil.createElement(document, "last-name", CalDavConstants.CS_NAMESPACE));
+        properties.appendChild(DomUtil.createElement(document, "principal-URL", CalDavConstants.NAMESPACE));
+        properties.appendChild(DomUtil.createElement(document, CalDavConstants.PROPERTY_USER_TYPE,
+                CalDavConstants.CALDAV_NAMESPACE));
+        properties.appendChild(DomUtil.createElement(document, "displayname", CalDavConstants.NAMESPACE));
+        properties.appendChild(DomUtil.createElement(document, "email-address-set", CalDavConstants.CS_NAMESPACE));
+        return properties;
+    });
+
+    /**
+     * A principal-property-search matching the calendar-user-type of principals.
+     */
+    private static final Template PRINCIPALS_BY_TYPE = new Template(document -> {
+        Element search = DomUtil.createElement(document, "principal-property-search", DavConstants.NAMESPACE);
+        search.setAttribute("test", "anyof");
+        search.appendChild(propertySearch(document, DomUtil.createElement(document, "calendar-user-type",
+                CalDavConstants.CALDAV_NAMESPACE), "equals"));
+        return search;
+    });
+
+    /**
+     * A principal-property-search matching the display name or email address of principals.
+     */
+    private static final Template PRINCIPALS_BY_NAME = new Template(document -> {
+        Element search = DomUtil.createElement(document, "principal-property-search", DavConstants.NAMESPACE);
+        search.setAttribute("test", "anyof");
+        search.appendChild(propertySearch(document, DomUtil.createElement(document, "displayname",
+                DavConstants.NAMESPACE), "contains"));
+        search.appendChild(propertySearch(document, DomUtil.createElement(document, "email-address-set",
+                CalDavConstants.CS_NAMESPACE), "starts-with"));
+        return search;
+    });
+
+    /**
+     * An expand-property request for the principals of a proxy group.
+     */
+    private static final Template PROXY_PRINCIPALS = new Template(document -> {
+        Element displayNameProperty = DomUtil.createElement(document, "property", DavConstants.NAMESPACE);
+        displayNameProperty.setAttribute("name", DavConstants.PROPERTY_DISPLAYNAME);
+
+        Element principalUrlProperty = DomUtil.createElement(document, "property", DavConstants.NAMESPACE);
+        principalUrlProperty.setAttribute("name", SecurityConstants.PRINCIPAL_URL.getName());
+
+        Element userAddressSetProperty = DomUtil.createElement(document, "property", DavConstants.NAMESPACE);
+        userAddressSetProperty.setAttribute("name", CalDavConstants.PROPERTY_USER_ADDRESS_SET);
+        userAddressSetProperty.setAttribute("namespace", CalDavConstants.CALDAV_NAMESPACE.getURI());
+
+        Element proxyForElement = DomUtil.createElement(document, "property", DavConstants.NAMESPACE);
+        proxyForElement.setAttribute("namespace", CalDavConstants.CS_NAMESPACE.getURI());
+        proxyForElement.appendChild(displayNameProperty);
+        proxyForElement.appendChild(principalUrlProperty);
+        proxyForElement.appendChild(userAddressSetProperty);
+        return proxyForElement;
+    });
+
+    /**
+     * Constructor made private to prevent instantiation.
+     */
+    private XmlSupport() {
+    }
+
+    /**
+     * @return a namespace-aware document builder for exclusive use by the current thread
+     */
+    public static DocumentBuilder getDocumentBuilder() {
+        DocumentBuilder builder = BUILDER.get();
+        builder.reset();
+        return builder;
+    }
+
+    /**
+     * @return a new empty document
+     */
+    public static Document newDocument() {
+        return getDocumentBuilder().newDocument();
+    }
+
+    /**
+     * @param in an XML input stream
+     * @return the parsed document
+     * @throws IOException where the stream cannot be read
+     * @throws SAXException where the XML is not well-formed or contains a document type declaration
+     */
+    public static Document parse(InputStream in) throws IOException, SAXException {
+        return getDocumentBuilder().parse(in);
+    }
+
+    /**
+     * @param in an XML input stream
+     * @return a namespace-aware streaming parser for the specified stream
+     * @throws XMLStreamException where the parser cannot be created
+     */
+    public static XMLStreamReader newStreamReader(InputStream in) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(in);
+    }
+
+    /**
+     * Reads the element at the current position of a streaming parser into a new document, such that a large
+     * response may be processed one element at a time. On return the parser is positioned at the end of the element.
+     * @param reader a streaming parser positioned at the start of an element
+     * @return the element and its content
+     * @throws XMLStreamException where the XML is not well-formed
+     */
+    public static Element readElement(XMLStreamReader reader) throws XMLStreamException {
+        Document document = newDocument();
+        Element element = newElement(reader, document);
+        document.appendChild(element);
+        Node current = element;
+        while (current != null) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    current = current.appendChild(newElement(reader, document));
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    current = current == element ? null : current.getParentNode();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    current.appendChild(document.createTextNode(reader.getText()));
+                    break;
+                default:
+                    // comments and processing instructions are ignored..
+            }
+        }
+        return element;
+    }
+
+    private static Element newElement(XMLStreamReader reader, Document document) {
+        Element element = document.createElementNS(emptyToNull(reader.getNamespaceURI()),
+                qualifiedName(reader.getPrefix(), reader.getLocalName()));
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                    qualifiedName(XMLConstants.XMLNS_ATTRIBUTE, prefix), reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttributeNS(emptyToNull(reader.getAttributeNamespace(i)),
+                    qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                    reader.getAttributeValue(i));
+        }
+        return element;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        if (prefix == null || prefix.isEmpty()) {
+            return localName;
+        } else if (localName == null || localName.isEmpty()) {
+            return prefix;
+        }
+        return prefix + ":" + localName;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * @param componentType the type of component to match
+     * @return a calendar-query filter matching all components of the specified type
+     */
+    public static Element newComponentFilter(String componentType) {
+        Element filter = DomUtil.createElement(newDocument(), CalDavConstants.PROPERTY_FILTER,
+                CalDavConstants.CALDAV_NAMESPACE);
+        Element calFilter = COMPONENT_FILTER.newElement(filter.getOwnerDocument());
+        getChild(calFilter, CalDavConstants.PROPERTY_COMP_FILTER, CalDavConstants.CALDAV_NAMESPACE)
+                .setAttribute(CalDavConstants.ATTRIBUTE_NAME, componentType);
+        filter.appendChild(calFilter);
+        return filter;
+    }
+
+    /**
+     * @return a VCALENDAR comp-filter matching all calendar objects
+     */
+    public static Element newCalendarFilter() {
+        Element calFilter = DomUtil.createElement(newDocument(), CalDavConstants.PROPERTY_COMP_FILTER,
+                CalDavConstants.CALDAV_NAMESPACE);
+        calFilter.setAttribute(CalDavConstants.ATTRIBUTE_NAME, Calendar.VCALENDAR);
+        return calFilter;
+    }
+
+    /**
+     * @param componentType the type of component to match
+     * @param start the inclusive start of the time range, in UTC
+     * @param end the exclusive end of the time range, in UTC
+     * @return a VCALENDAR comp-filter matching components of the specified type within the time range
+     */
+    public static Element newTimeRangeFilter(String componentType, String start, String end) {
+        Element calFilter = TIME_RANGE_FILTER.newElement();
+        Element componentFilter = getChild(calFilter, CalDavConstants.PROPERTY_COMP_FILTER,
+                CalDavConstants.CALDAV_NAMESPACE);
+        componentFilter.setAttribute(CalDavConstants.ATTRIBUTE_NAME, componentType);
+        Element timeRange = getChild(componentFilter, CalDavConstants.PROPERTY_TIME_RANGE,
+                CalDavConstants.CALDAV_NAMESPACE);
+        timeRange.setAttribute(CalDavConstants.ATTRIBUTE_START, start);
+        timeRange.setAttribute(CalDavConstants.ATTRIBUTE_END, end);
+        return calFilter;
+    }
+
+    /**
+     * @return an empty calendar-data element, requesting complete calendar objects
+     */
+    public static Element newCalendarData() {
+        return CALENDAR_DATA.newElement();
+    }
+
+    /**
+     * @param document the owner of the new element
+     * @return a prop element requesting the ETag of each calendar object
+     */
+    public static Element newCalendarQueryProperties(Document document) {
+        return CALENDAR_QUERY_PROPERTIES.newElement(document);
+    }
+
+    /**
+     * @param document the owner of the new element
+     * @return a prop element requesting the ETag and content of each address object
+     */
+    public static Element newAddressDataProperties(Document document) {
+        return ADDRESS_DATA_PROPERTIES.newElement(document);
+    }
+
+    /**
+     * @param hrefs the locations of address objects to retrieve
+     * @return an addressbook-multiget report body (RFC 6352) requesting the ETag and content of each address object
+     */
+    public static Element newAddressbookMultiget(Collection<String> hrefs) {
+        Element multiget = DomUtil.createElement(newDocument(), "addressbook-multiget",
+                CalDavConstants.CARDDAV_NAMESPACE);
+        multiget.appendChild(newAddressDataProperties(multiget.getOwnerDocument()));
+        for (String href : hrefs) {
+            multiget.appendChild(DomUtil.hrefToXml(href, multiget.getOwnerDocument()));
+        }
+        return multiget;
+    }
+
+    /**
+     * @param syncToken the token returned by a previous synchronization, or null for an initial synchronization
+     * @return a sync-collection report body (RFC 6578) requesting the ETag of each changed member
+     */
+    public static Element newSyncCollection(String syncToken) {
+        Element syncCollection = SYNC_COLLECTION.newElement();
+        if (syncToken != null) {
+            getChild(syncCollection, DavConstants.PROPERTY_SYNC_TOKEN, DavConstants.NAMESPACE)
+                    .setTextContent(syncToken);
+        }
+        return syncCollection;
+    }
+
+    /**
+     * Creates a report request from a complete report body, preserving the order of its content.
+     * @param type the report type, which must match the name of the body element
+     * @param body a report body
+     * @param depth the depth of the report
+     * @return report configuration for the specified body
+     */
+    public static ReportInfo newReportInfo(ReportType type, Element body, int depth) {
+        ReportInfo info = new ReportInfo(type, depth);
+        ElementIterator content = DomUtil.getChildren(body);
+        while (content.hasNext()) {
+            info.setContentElement(content.nextElement());
+        }
+        return info;
+    }
+
+    /**
+     * @param document the owner of the new element
+     * @return a prop element listing the properties returned by a principal-property-search
+     */
+    public static Element newPrincipalProperties(Document document) {
+        return PRINCIPAL_PROPERTIES.newElement(document);
+    }
+
+    /**
+     * @param type the calendar user type of principals to match
+     * @return a principal-property-search matching all principals of the specified type, to which the requested
+     * properties are appended
+     */
+    public static Element newPrincipalsByType(String type) {
+        Element search = PRINCIPALS_BY_TYPE.newElement();
+        search.setAttribute("type", type);
+        getChild(getChild(search, "property-search", DavConstants.NAMESPACE), "match", DavConstants.NAMESPACE)
+                .setTextContent(type);
+        return search;
+    }
+
+    /**
+     * @param type the calendar user type of principals to match
+     * @param name a display name or email address prefix to match
+     * @return a principal-property-search matching principals of the specified type by name, to which the
+     * requested properties are appended
+     */
+    public static Element newPrincipalsByName(String type, String name) {
+        Element search = PRINCIPALS_BY_NAME.newElement();
+        search.setAttribute("type", type);
+        ElementIterator propertySearches = DomUtil.getChildren(search, "property-search", DavConstants.NAMESPACE);
+        while (propertySearches.hasNext()) {
+            getChild(propertySearches.nextElement(), "match", DavConstants.NAMESPACE).setTextContent(name);
+        }
+        return search;
+    }
+
+    /**
+     * @param proxyType the name of a proxy property (e.g. calendar-proxy-write-for)
+     * @return an expand-property body requesting the principals of the proxy group
+     */
+    public static Element newProxyPrincipals(String proxyType) {
+        Element proxyFor = PROXY_PRINCIPALS.newElement();
+        proxyFor.setAttribute("name", proxyType);
+        return proxyFor;
+    }
+
+    private static Element propertySearch(Document document, Element property, String matchType) {
+        Element prop = DomUtil.createElement(document, "prop", DavConstants.NAMESPACE);
+        prop.appendChild(property);
+
+        Element match = DomUtil.createElement(document, "match", DavConstants.NAMESPACE);
+        match.setAttribute("match-type", matchType);
+
+        Element propertySearch = DomUtil.createElement(document, "property-search", DavConstants.NAMESPACE);
+        propertySearch.appendChild(prop);
+        propertySearch.appendChild(match);
+        return propertySearch;
+    }
+
+    private static Element getChild(Element parent, String name, Namespace namespace) {
+        return DomUtil.getChildElement(parent, name, namespace);
+    }
+
+    /**
+     * A pre-built, immutable XML fragment. Each new element is a deep copy of the template, which may be populated
+     * without affecting the template or other copies.
+     */
+    private static final class Template {
+
+        private final Element prototype;
+
+        Template(Function<Document, Element> factory) {
+            Document document = newDocument();
+            this.prototype = factory.apply(document);
+            document.appendChild(prototype);
+        }
+
+        Element newElement() {
+            return newElement(newDocument());
+        }
+
+        Element newElement(Document owner) {
+            // DOM implementations don't guarantee thread-safe reads
+            synchronized (prototype) {
+                return (Element) owner.importNode(prototype, true);
+            }
+        }
+    }
+}
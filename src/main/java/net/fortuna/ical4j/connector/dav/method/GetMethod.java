@@ -34,10 +34,19 @@ package net.fortuna.ical4j.connector.dav.method;
 import net.fortuna.ical4j.data.CalendarBuilder;
 import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.model.Calendar;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
  * $Id$
@@ -63,16 +72,68 @@ public class GetMethod extends HttpGet {
     }
 
     /**
-     * @return a calendar object instance
+     * Makes the request conditional on the resource having changed, such that an unmodified resource is not
+     * returned (i.e. a 304 Not Modified response).
+     * @param etag the entity tag of a previously retrieved resource
+     */
+    public void setIfNoneMatch(String etag) {
+        setHeader("If-None-Match", etag);
+    }
+
+    /**
+     * @return a calendar object instance, or null if the response does not contain a calendar
      * @throws IOException where a communication error occurs
      * @throws ParserException where calendar parsing fails
      */
     public Calendar getCalendar(HttpResponse httpResponse) throws IOException, ParserException {
-        String contentType = httpResponse.getFirstHeader("Content-Type").getValue();
-        if (contentType.startsWith("text/calendar")) {
-            CalendarBuilder builder = new CalendarBuilder();
-            return builder.build(httpResponse.getEntity().getContent());
+        HttpEntity entity = httpResponse.getEntity();
+        Charset charset = getCalendarCharset(entity);
+        if (charset == null) {
+            return null;
+        }
+        try (Reader in = new InputStreamReader(entity.getContent(), charset)) {
+            return new CalendarBuilder().build(in);
+        }
+    }
+
+    /**
+     * @return the unparsed calendar data in the response, or null if the response does not contain a calendar
+     * @throws IOException where a communication error occurs
+     */
+    public String getCalendarData(HttpResponse httpResponse) throws IOException {
+        HttpEntity entity = httpResponse.getEntity();
+        Charset charset = getCalendarCharset(entity);
+        return charset != null ? EntityUtils.toString(entity, charset) : null;
+    }
+
+    /**
+     * @return the charset of calendar data in the entity, or null if the entity does not contain a calendar
+     */
+    private static Charset getCalendarCharset(HttpEntity entity) {
+        if (entity == null) {
+            return null;
         }
-        return null;
+        // assume calendar data where no content type is specified..
+        ContentType contentType = ContentType.get(entity);
+        if (contentType != null && !contentType.getMimeType().equalsIgnoreCase("text/calendar")) {
+            return null;
+        }
+        return contentType != null && contentType.getCharset() != null ? contentType.getCharset()
+                : StandardCharsets.UTF_8;
+    }
+
+    /**
+     * @return the entity tag of the returned resource, or null if not specified
+     */
+    public String getETag(HttpResponse httpResponse) {
+        Header etag = httpResponse.getFirstHeader("ETag");
+        return etag != null ? etag.getValue() : null;
+    }
+
+    /**
+     * @return true if the response indicates the resource has not been modified since last retrieved
+     */
+    public boolean isNotModified(HttpResponse httpResponse) {
+        return httpResponse.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED;
     }
 }
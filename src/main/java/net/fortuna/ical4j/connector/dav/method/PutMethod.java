@@ -33,15 +33,15 @@ package net.fortuna.ical4j.connector.dav.method;
 
 import net.fortuna.ical4j.data.CalendarOutputter;
 import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.util.Configurator;
 import net.fortuna.ical4j.validate.ValidationException;
 import net.fortuna.ical4j.vcard.VCard;
 import net.fortuna.ical4j.vcard.VCardOutputter;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * $Id$
@@ -53,16 +53,35 @@ import java.io.IOException;
  */
 public class PutMethod extends HttpPut {
 
+    /**
+     * The default content encoding of request bodies, as specified by the
+     * <code>ical4j.connector.dav.requestencoding</code> configuration property (gzip or deflate).
+     */
+    private static final StreamingEntity.Encoding DEFAULT_ENCODING = StreamingEntity.Encoding.parse(
+            Configurator.getProperty("ical4j.connector.dav.requestencoding").orElse(null));
+
     private final CalendarOutputter calendarOutputter;
     private final VCardOutputter vCardOutputter;
+
+    private StreamingEntity.Encoding encoding = DEFAULT_ENCODING;
     
     /**
      * @param uri a calendar URI
      */
     public PutMethod(String uri) {
         super(uri);
-        this.calendarOutputter = new CalendarOutputter();
-        this.vCardOutputter = new VCardOutputter();
+        // objects are validated before the request is sent..
+        this.calendarOutputter = new CalendarOutputter(false);
+        this.vCardOutputter = new VCardOutputter(false);
+    }
+
+    /**
+     * Specifies a content encoding for the request body. Note that the body is only compressed if the encoding is
+     * set before the calendar or card.
+     * @param encoding the content encoding applied to the request body
+     */
+    public void setEncoding(StreamingEntity.Encoding encoding) {
+        this.encoding = encoding;
     }
 
     /**
@@ -71,14 +90,14 @@ public class PutMethod extends HttpPut {
      * @throws ValidationException where the specified calendar is not valid
      */
     public void setCalendar(Calendar calendar) throws IOException, ValidationException {
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        calendarOutputter.output(calendar, bytes);
-        setEntity(new ByteArrayEntity(bytes.toByteArray(), ContentType.create("text/calendar")));
+        calendar.validate();
+        setEntity(new StreamingEntity(out -> calendarOutputter.output(calendar, out),
+                ContentType.create("text/calendar", StandardCharsets.UTF_8), encoding));
     }
     
     public void setVCard(VCard card) throws IOException, ValidationException {
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        vCardOutputter.output(card, bytes);
-        setEntity(new ByteArrayEntity(bytes.toByteArray(), ContentType.create("text/vcard")));
+        card.validate();
+        setEntity(new StreamingEntity(out -> vCardOutputter.output(card, out),
+                ContentType.create("text/vcard", StandardCharsets.UTF_8), encoding));
     }
 }
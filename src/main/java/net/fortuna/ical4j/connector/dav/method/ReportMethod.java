@@ -32,6 +32,7 @@
 package net.fortuna.ical4j.connector.dav.method;
 
 import net.fortuna.ical4j.connector.dav.CalDavConstants;
+import net.fortuna.ical4j.connector.dav.XmlSupport;
 import net.fortuna.ical4j.connector.dav.property.CalDavPropertyName;
 import net.fortuna.ical4j.connector.dav.property.CardDavPropertyName;
 import net.fortuna.ical4j.data.CalendarBuilder;
@@ -39,8 +40,11 @@ import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.model.Calendar;
 import net.fortuna.ical4j.vcard.VCard;
 import net.fortuna.ical4j.vcard.VCardBuilder;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.jackrabbit.webdav.DavConstants;
 import org.apache.jackrabbit.webdav.DavException;
+import org.apache.jackrabbit.webdav.DavServletResponse;
 import org.apache.jackrabbit.webdav.MultiStatus;
 import org.apache.jackrabbit.webdav.MultiStatusResponse;
 import org.apache.jackrabbit.webdav.client.methods.HttpReport;
@@ -49,11 +53,17 @@ import org.apache.jackrabbit.webdav.security.report.PrincipalMatchReport;
 import org.apache.jackrabbit.webdav.version.report.ReportInfo;
 import org.apache.jackrabbit.webdav.version.report.ReportType;
 import org.w3c.dom.DOMException;
+import org.xml.sax.SAXException;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * $Id$
@@ -74,6 +84,24 @@ public class ReportMethod extends HttpReport {
             PrincipalMatchReport.class);
     public static final ReportType ADDRESSBOOK_QUERY = ReportType.register("addressbook-query", CalDavConstants.CARDDAV_NAMESPACE,
             PrincipalMatchReport.class);
+    public static final ReportType ADDRESSBOOK_MULTIGET = ReportType.register("addressbook-multiget", CalDavConstants.CARDDAV_NAMESPACE,
+            PrincipalMatchReport.class);
+    public static final ReportType SYNC_COLLECTION = ReportType.register("sync-collection", CalDavConstants.NAMESPACE,
+            PrincipalMatchReport.class);
+
+    /**
+     * Receives each response of a multistatus response body as it is parsed.
+     */
+    @FunctionalInterface
+    public interface ResponseConsumer<E extends Exception> {
+
+        /**
+         * @param response a response parsed from the multistatus body
+         * @throws IOException where the content of the response cannot be read
+         * @throws E where the content of the response cannot be parsed
+         */
+        void accept(MultiStatusResponse response) throws IOException, E;
+    }
 
     /**
      * @param uri a calendar collection URI
@@ -84,6 +112,31 @@ public class ReportMethod extends HttpReport {
         super(uri, reportInfo);
     }
 
+    /**
+     * Indicates whether a failed response reports that the server does not support a REPORT, as distinct from an
+     * authorization or server error. A report is unsupported where the server responds with 405 (Method Not Allowed)
+     * or 501 (Not Implemented), or with a DAV:supported-report precondition (RFC 3253 section 3.6). A 403 (Forbidden)
+     * response without this precondition indicates a missing privilege (e.g. CALDAV:read-free-busy), so is not
+     * considered unsupported. The response body is consumed.
+     * @param httpResponse the response to a REPORT request
+     * @return true if the report is not supported
+     */
+    public static boolean isUnsupported(HttpResponse httpResponse) {
+        int statusCode = httpResponse.getStatusLine().getStatusCode();
+        if (statusCode == DavServletResponse.SC_METHOD_NOT_ALLOWED
+                || statusCode == DavServletResponse.SC_NOT_IMPLEMENTED) {
+            return true;
+        } else if (statusCode >= 400 && statusCode < 500 && httpResponse.getEntity() != null) {
+            try (InputStream in = httpResponse.getEntity().getContent()) {
+                return XmlSupport.parse(in).getElementsByTagNameNS(DavConstants.NAMESPACE.getURI(),
+                        "supported-report").getLength() > 0;
+            } catch (IOException | SAXException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
     /**
      * @return an array of calendar objects
      * @throws IOException where communication fails
@@ -92,35 +145,142 @@ public class ReportMethod extends HttpReport {
      * @throws ParserException where calendar parsing fails
      */
     public Calendar[] getCalendars(HttpResponse httpResponse) throws IOException, DavException, DOMException, ParserException {
+        return getCalendars(httpResponse, (href, props) -> {});
+    }
+
+    /**
+     * @param responseConsumer receives the href and properties of each resource in the response
+     * @return an array of calendar objects
+     * @throws IOException where communication fails
+     * @throws DavException where the DAV method fails
+     * @throws DOMException where XML parsing fails
+     * @throws ParserException where calendar parsing fails
+     */
+    public Calendar[] getCalendars(HttpResponse httpResponse, BiConsumer<String, DavPropertySet> responseConsumer)
+            throws IOException, DavException, DOMException, ParserException {
         List<Calendar> calendars = new ArrayList<Calendar>();
-        MultiStatus multi = getResponseBodyAsMultiStatus(httpResponse);
-        for (MultiStatusResponse response : multi.getResponses()) {
+        getCalendars(httpResponse, responseConsumer, (href, calendar) -> calendars.add(calendar));
+        return calendars.toArray(new Calendar[calendars.size()]);
+    }
+
+    /**
+     * Parses calendar objects from the response body as it is read, such that only a single calendar object is held
+     * in memory regardless of the size of the response.
+     * @param responseConsumer receives the href and properties of each resource in the response
+     * @param calendarConsumer receives the href and calendar object of each resource with calendar data
+     * @throws IOException where communication fails
+     * @throws DavException where the DAV method fails
+     * @throws DOMException where XML parsing fails
+     * @throws ParserException where calendar parsing fails
+     */
+    public void getCalendars(HttpResponse httpResponse, BiConsumer<String, DavPropertySet> responseConsumer,
+                             BiConsumer<String, Calendar> calendarConsumer)
+            throws IOException, DavException, DOMException, ParserException {
+        getResponses(httpResponse, response -> {
             DavPropertySet props = response.getProperties(200);
+            responseConsumer.accept(response.getHref(), props);
             if (props.get(CalDavPropertyName.CALENDAR_DATA) != null) {
                 String value = (String) props.get(CalDavPropertyName.CALENDAR_DATA).getValue();
                 CalendarBuilder builder = new CalendarBuilder();
-                calendars.add(builder.build(new StringReader(value)));
+                calendarConsumer.accept(response.getHref(), builder.build(new StringReader(value)));
             }
+        });
+    }
+
+    /**
+     * Parses the multistatus response body incrementally, passing each response to the specified consumer as it is
+     * read rather than building a document for the entire body.
+     * @param responseConsumer receives each response in the body
+     * @throws IOException where communication fails
+     * @throws DavException where the response is not a multistatus
+     * @throws E where the consumer fails to parse the content of a response
+     */
+    public <E extends Exception> void getResponses(HttpResponse httpResponse, ResponseConsumer<E> responseConsumer)
+            throws IOException, DavException, E {
+        int statusCode = httpResponse.getStatusLine().getStatusCode();
+        HttpEntity entity = httpResponse.getEntity();
+        if (entity == null) {
+            throw new DavException(statusCode, "no response body");
+        }
+        try (InputStream in = entity.getContent()) {
+            XMLStreamReader reader = XmlSupport.newStreamReader(in);
+            try {
+                reader.nextTag();
+                if (!DavConstants.XML_MULTISTATUS.equals(reader.getLocalName())
+                        || !DavConstants.NAMESPACE.getURI().equals(reader.getNamespaceURI())) {
+                    throw new DavException(statusCode, "not a multistatus response: " + reader.getName());
+                }
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT
+                            && DavConstants.XML_RESPONSE.equals(reader.getLocalName())
+                            && DavConstants.NAMESPACE.getURI().equals(reader.getNamespaceURI())) {
+                        responseConsumer.accept(MultiStatusResponse.createFromXml(XmlSupport.readElement(reader)));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to parse multistatus response", e);
         }
-        return calendars.toArray(new Calendar[calendars.size()]);
     }
-    
+
+    /**
+     * Parses a single calendar object from the response body, as returned by a free-busy-query report.
+     * @return a calendar object, or null if the response has no body
+     * @throws IOException where communication fails
+     * @throws ParserException where calendar parsing fails
+     */
+    public Calendar getCalendar(HttpResponse httpResponse) throws IOException, ParserException {
+        HttpEntity entity = httpResponse.getEntity();
+        if (entity == null) {
+            return null;
+        }
+        try (InputStream in = entity.getContent()) {
+            return new CalendarBuilder().build(in);
+        }
+    }
+
     public VCard[] getVCards(HttpResponse httpResponse) throws IOException, DavException, DOMException {
+        return getVCards(httpResponse, (href, props) -> {});
+    }
+
+    /**
+     * @param responseConsumer receives the href and properties of each resource in the response
+     * @return an array of vCard objects
+     * @throws IOException where communication fails
+     * @throws DavException where the DAV method fails
+     * @throws DOMException where XML parsing fails
+     */
+    public VCard[] getVCards(HttpResponse httpResponse, BiConsumer<String, DavPropertySet> responseConsumer)
+            throws IOException, DavException, DOMException {
         List<VCard> cards = new ArrayList<VCard>();
-        MultiStatus multi = getResponseBodyAsMultiStatus(httpResponse);
-        for (MultiStatusResponse response : multi.getResponses()) {
+        getVCards(httpResponse, responseConsumer, (href, card) -> cards.add(card));
+        return cards.toArray(new VCard[cards.size()]);
+    }
+
+    /**
+     * @param responseConsumer receives the href and properties of each resource in the response
+     * @param cardConsumer receives the href and vCard object of each resource with address data
+     * @throws IOException where communication fails
+     * @throws DavException where the DAV method fails
+     * @throws DOMException where XML parsing fails
+     */
+    public void getVCards(HttpResponse httpResponse, BiConsumer<String, DavPropertySet> responseConsumer,
+                          BiConsumer<String, VCard> cardConsumer) throws IOException, DavException, DOMException {
+        getResponses(httpResponse, response -> {
             DavPropertySet props = response.getProperties(200);
+            responseConsumer.accept(response.getHref(), props);
             if (props.get(CardDavPropertyName.ADDRESS_DATA) != null) {
                 String value = (String) props.get(CardDavPropertyName.ADDRESS_DATA).getValue();
                 VCardBuilder builder = new VCardBuilder(new StringReader(value));
                 try {
-                    cards.add(builder.build());
+                    cardConsumer.accept(response.getHref(), builder.build());
                 } catch (ParserException e) {
                     System.out.println(e.getMessage());
                     System.out.println(value);
                 }
             }
-        }
-        return cards.toArray(new VCard[cards.size()]);
+        });
     }
 }
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.dav.method;
+
+import net.fortuna.ical4j.validate.ValidationException;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A repeatable request entity that writes content directly to the connection output stream as it is sent, rather
+ * than buffering it in memory. Content is sent using chunked transfer encoding, and may optionally be compressed
+ * for servers that accept compressed request bodies.
+ */
+public class StreamingEntity extends AbstractHttpEntity {
+
+    /**
+     * Writes entity content to an output stream.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+
+        /**
+         * @param out the stream to write content to
+         * @throws IOException where the content cannot be written
+         * @throws ValidationException where the content is not valid
+         */
+        void writeTo(OutputStream out) throws IOException, ValidationException;
+    }
+
+    /**
+     * Supported content encodings for request bodies.
+     */
+    public enum Encoding {
+        IDENTITY(null), GZIP("gzip"), DEFLATE("deflate");
+
+        private final String value;
+
+        Encoding(String value) {
+            this.value = value;
+        }
+
+        /**
+         * @param value a content-encoding token, or null
+         * @return the corresponding encoding, defaulting to {@link #IDENTITY}
+         */
+        public static Encoding parse(String value) {
+            for (Encoding encoding : values()) {
+                if (encoding.value != null && encoding.value.equalsIgnoreCase(value)) {
+                    return encoding;
+                }
+            }
+            return IDENTITY;
+        }
+    }
+
+    private final ContentWriter writer;
+
+    private final Encoding encoding;
+
+    /**
+     * @param writer writes the entity content
+     * @param contentType the content type of the entity
+     * @param encoding the content encoding applied to the entity
+     */
+    public StreamingEntity(ContentWriter writer, ContentType contentType, Encoding encoding) {
+        this.writer = writer;
+        this.encoding = encoding;
+        setContentType(contentType.toString());
+        setContentEncoding(encoding.value);
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeTo(bytes);
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        OutputStream out = new NonClosingOutputStream(outStream);
+        switch (encoding) {
+            case GZIP:
+                out = new GZIPOutputStream(out);
+                break;
+            case DEFLATE:
+                out = new DeflaterOutputStream(out);
+                break;
+            default:
+        }
+        try {
+            // outputters close the stream they are given, which would end the encoding prematurely..
+            writer.writeTo(new NonClosingOutputStream(out));
+        } catch (ValidationException e) {
+            throw new IOException(e);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * Leaves closing of the underlying stream to its owner.
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.event;
+
+import net.fortuna.ical4j.connector.ObjectCollection;
+import net.fortuna.ical4j.connector.ObjectStore;
+
+/**
+ * Notification of a change to a component (i.e. a calendar object or card) in a collection.
+ *
+ * @param <T> the object type supported by the event source
+ */
+public class ComponentEvent<T> extends ObjectStoreEvent<T> {
+
+    private static final long serialVersionUID = -3209167445871502731L;
+
+    private final String uid;
+
+    private final String href;
+
+    private final String etag;
+
+    /**
+     * @param source the event source
+     * @param collection the affected collection
+     * @param type the type of change
+     * @param uid the UID of the affected component
+     * @param href the location of the component in the collection, or null if not applicable
+     * @param etag the entity tag of the component following the change, or null if not applicable
+     */
+    public ComponentEvent(ObjectStore<ObjectCollection<T>> source, ObjectCollection<T> collection, Type type,
+                          String uid, String href, String etag) {
+        super(source, collection, type);
+        this.uid = uid;
+        this.href = href;
+        this.etag = etag;
+    }
+
+    public final String getUid() {
+        return uid;
+    }
+
+    public final String getHref() {
+        return href;
+    }
+
+    public final String getEtag() {
+        return etag;
+    }
+}
@@ -47,20 +47,39 @@ import net.fortuna.ical4j.connector.ObjectStore;
  */
 public class ObjectStoreEvent<T> extends EventObject {
 
+    /**
+     * The type of change that occurred.
+     */
+    public enum Type {
+        COLLECTION_ADDED, COLLECTION_REMOVED, COMPONENT_ADDED, COMPONENT_UPDATED, COMPONENT_REMOVED
+    }
+
     /**
      * 
      */
     private static final long serialVersionUID = 2827740666506079428L;
 
     private final ObjectCollection<T> collection;
+
+    private final Type type;
     
     /**
      * @param source the event source
      * @param collection the affected collection
      */
     public ObjectStoreEvent(ObjectStore<ObjectCollection<T>> source, ObjectCollection<T> collection) {
+        this(source, collection, null);
+    }
+
+    /**
+     * @param source the event source
+     * @param collection the affected collection
+     * @param type the type of change
+     */
+    public ObjectStoreEvent(ObjectStore<ObjectCollection<T>> source, ObjectCollection<T> collection, Type type) {
         super(source);
         this.collection = collection;
+        this.type = type;
     }
 
     /**
@@ -76,4 +95,11 @@ public class ObjectStoreEvent<T> extends EventObject {
     public final ObjectCollection<T> getCollection() {
         return collection;
     }
+
+    /**
+     * @return the type of change, or null if not specified
+     */
+    public final Type getType() {
+        return type;
+    }
 }
@@ -0,0 +1,258 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.event;
+
+import net.fortuna.ical4j.connector.ObjectCollection;
+import net.fortuna.ical4j.connector.ObjectStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers events to {@link ObjectStoreListener}s asynchronously. Events are queued by the thread that modifies an
+ * object store and delivered in batches by a dedicated thread, such that listeners never delay modifications.
+ *
+ * The queue is bounded, and the {@link BackPressure} policy determines the behaviour where events are produced faster
+ * than listeners can process them.
+ *
+ * @param <T> the object type supported by the event source
+ */
+public class ObjectStoreEventDispatcher<T> implements AutoCloseable {
+
+    /**
+     * The behaviour where an event is dispatched when the queue is full.
+     */
+    public enum BackPressure {
+        /**
+         * Discard the oldest queued event to make room for the new event.
+         */
+        DROP_OLDEST,
+        /**
+         * Discard the new event.
+         */
+        DROP_NEWEST,
+        /**
+         * Block the dispatching thread until space is available. This policy guarantees delivery at the expense of
+         * delaying modifications.
+         */
+        BLOCK
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(ObjectStoreEventDispatcher.class);
+
+    private final BlockingDeque<ObjectStoreEvent<T>> queue;
+
+    private final int batchSize;
+
+    private final BackPressure backPressure;
+
+    private final List<ObjectStoreListener<T>> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong deliveredCount = new AtomicLong();
+
+    private final Thread worker;
+
+    private volatile boolean closed;
+
+    /**
+     * @param capacity the maximum number of queued events
+     * @param batchSize the maximum number of events delivered to listeners in a single batch
+     * @param backPressure the behaviour where the queue is full
+     */
+    public ObjectStoreEventDispatcher(int capacity, int batchSize, BackPressure backPressure) {
+        this.queue = new LinkedBlockingDeque<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.backPressure = backPressure;
+        this.worker = new Thread(this::run, "object-store-events");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public ObjectStoreEventDispatcher() {
+        this(10000, 100, BackPressure.DROP_OLDEST);
+    }
+
+    public void addListener(ObjectStoreListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ObjectStoreListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param source the event source
+     * @param collection the added collection
+     */
+    public void collectionAdded(ObjectStore<?> source, ObjectCollection<?> collection) {
+        dispatch(new ObjectStoreEvent<>(store(source), collection(collection), ObjectStoreEvent.Type.COLLECTION_ADDED));
+    }
+
+    /**
+     * @param source the event source
+     * @param collection the removed collection
+     */
+    public void collectionRemoved(ObjectStore<?> source, ObjectCollection<?> collection) {
+        dispatch(new ObjectStoreEvent<>(store(source), collection(collection),
+                ObjectStoreEvent.Type.COLLECTION_REMOVED));
+    }
+
+    /**
+     * @param source the event source
+     * @param collection the affected collection
+     * @param type the type of change
+     * @param uid the UID of the affected component
+     * @param href the location of the component, or null if not applicable
+     * @param etag the entity tag of the component following the change, or null if not applicable
+     */
+    public void componentChanged(ObjectStore<?> source, ObjectCollection<?> collection, ObjectStoreEvent.Type type,
+                                 String uid, String href, String etag) {
+        dispatch(new ComponentEvent<>(store(source), collection(collection), type, uid, href, etag));
+    }
+
+    /**
+     * Queues an event for delivery according to the back-pressure policy.
+     * @param event an event
+     */
+    public void dispatch(ObjectStoreEvent<T> event) {
+        if (closed || listeners.isEmpty()) {
+            return;
+        }
+        switch (backPressure) {
+            case BLOCK:
+                try {
+                    queue.put(event);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedCount.incrementAndGet();
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(event)) {
+                    if (queue.pollFirst() != null) {
+                        droppedCount.incrementAndGet();
+                    }
+                }
+                break;
+            default:
+                if (!queue.offer(event)) {
+                    droppedCount.incrementAndGet();
+                }
+        }
+    }
+
+    private void run() {
+        List<ObjectStoreEvent<T>> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                ObjectStoreEvent<T> first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                deliver(batch);
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(List<ObjectStoreEvent<T>> batch) {
+        List<ObjectStoreEvent<T>> events = Collections.unmodifiableList(batch);
+        for (ObjectStoreListener<T> listener : listeners) {
+            try {
+                listener.eventsDispatched(events);
+            } catch (RuntimeException e) {
+                LOG.error("Listener failed to process events", e);
+            }
+        }
+        deliveredCount.addAndGet(batch.size());
+    }
+
+    /**
+     * @return the number of events awaiting delivery
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @return the total number of events discarded due to back-pressure
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the total number of events delivered to listeners
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * Stops accepting events, and waits for queued events to be delivered. Where interrupted the wait is abandoned
+     * with the interrupt status restored, and queued events continue to be delivered in the background.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObjectStore<ObjectCollection<T>> store(ObjectStore<?> source) {
+        return (ObjectStore<ObjectCollection<T>>) source;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObjectCollection<T> collection(ObjectCollection<?> collection) {
+        return (ObjectCollection<T>) collection;
+    }
+}
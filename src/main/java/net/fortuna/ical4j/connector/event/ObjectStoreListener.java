@@ -32,6 +32,7 @@
 package net.fortuna.ical4j.connector.event;
 
 import java.util.EventListener;
+import java.util.List;
 
 /**
  * @param <T> the object type supported by the event source
@@ -53,4 +54,53 @@ public interface ObjectStoreListener<T> extends EventListener {
      * @param event an event instance
      */
     void collectionRemoved(ObjectStoreEvent<T> event);
+
+    /**
+     * @param event an event instance
+     */
+    default void componentAdded(ComponentEvent<T> event) {
+    }
+
+    /**
+     * @param event an event instance
+     */
+    default void componentUpdated(ComponentEvent<T> event) {
+    }
+
+    /**
+     * @param event an event instance
+     */
+    default void componentRemoved(ComponentEvent<T> event) {
+    }
+
+    /**
+     * Receives a batch of events in the order they occurred. By default each event is passed to the corresponding
+     * listener method, however listeners may override this method to process events in bulk (e.g. to update a
+     * search index).
+     * @param events a batch of events
+     */
+    default void eventsDispatched(List<ObjectStoreEvent<T>> events) {
+        for (ObjectStoreEvent<T> event : events) {
+            if (event.getType() == null) {
+                continue;
+            }
+            switch (event.getType()) {
+                case COLLECTION_ADDED:
+                    collectionAdded(event);
+                    break;
+                case COLLECTION_REMOVED:
+                    collectionRemoved(event);
+                    break;
+                case COMPONENT_ADDED:
+                    componentAdded((ComponentEvent<T>) event);
+                    break;
+                case COMPONENT_UPDATED:
+                    componentUpdated((ComponentEvent<T>) event);
+                    break;
+                case COMPONENT_REMOVED:
+                    componentRemoved((ComponentEvent<T>) event);
+                    break;
+            }
+        }
+    }
 }
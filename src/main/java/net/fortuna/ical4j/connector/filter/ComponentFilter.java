@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.filter;
+
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.ComponentContainer;
+import net.fortuna.ical4j.model.DateTime;
+import net.fortuna.ical4j.model.Period;
+import net.fortuna.ical4j.model.Property;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A backend-neutral filter for calendar objects, modelled on the calendar-query filter of RFC 4791 (section 9.7).
+ * The root filter matches the VCALENDAR component, and may contain nested filters on components, properties and
+ * parameters. All conditions of a filter must match.
+ *
+ * <pre>
+ * ComponentFilter filter = ComponentFilter.calendar()
+ *         .component(new ComponentFilter(Component.VEVENT)
+ *                 .timeRange(new TimeRange(start, end))
+ *                 .property(new PropertyFilter(Property.SUMMARY).textMatch("review")));
+ * </pre>
+ *
+ * A filter may be evaluated directly against a calendar object, or translated by an object store into an
+ * equivalent query that is evaluated by the backend.
+ */
+public final class ComponentFilter implements Predicate<Calendar> {
+
+    /**
+     * Bounds used to evaluate recurrences where a time range is unbounded.
+     */
+    private static final DateTime MIN_DATE = new DateTime(0L);
+
+    private static final DateTime MAX_DATE = new DateTime(253402300799000L);
+
+    private final String name;
+
+    private boolean notDefined;
+
+    private TimeRange timeRange;
+
+    private final List<ComponentFilter> componentFilters = new ArrayList<>();
+
+    private final List<PropertyFilter> propertyFilters = new ArrayList<>();
+
+    /**
+     * @param name a component name (e.g. VEVENT)
+     */
+    public ComponentFilter(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return a root filter matching all calendar objects, to which further conditions may be added
+     */
+    public static ComponentFilter calendar() {
+        return new ComponentFilter(Calendar.VCALENDAR);
+    }
+
+    /**
+     * @return this filter, modified to match where the component is not defined
+     */
+    public ComponentFilter notDefined() {
+        this.notDefined = true;
+        return this;
+    }
+
+    /**
+     * @param timeRange a range that the component (or a recurrence of it) must overlap
+     * @return this filter
+     */
+    public ComponentFilter timeRange(TimeRange timeRange) {
+        this.timeRange = timeRange;
+        return this;
+    }
+
+    /**
+     * @param componentFilter a condition on a sub-component
+     * @return this filter
+     */
+    public ComponentFilter component(ComponentFilter componentFilter) {
+        componentFilters.add(componentFilter);
+        return this;
+    }
+
+    /**
+     * @param propertyFilter a condition on a property of the component
+     * @return this filter
+     */
+    public ComponentFilter property(PropertyFilter propertyFilter) {
+        propertyFilters.add(propertyFilter);
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isNotDefined() {
+        return notDefined;
+    }
+
+    /**
+     * @return a range that the component must overlap, or null
+     */
+    public TimeRange getTimeRange() {
+        return timeRange;
+    }
+
+    public List<ComponentFilter> getComponentFilters() {
+        return Collections.unmodifiableList(componentFilters);
+    }
+
+    public List<PropertyFilter> getPropertyFilters() {
+        return Collections.unmodifiableList(propertyFilters);
+    }
+
+    /**
+     * @param calendar a calendar object
+     * @return true if the calendar object matches this (root) filter
+     */
+    @Override
+    public boolean test(Calendar calendar) {
+        if (!Calendar.VCALENDAR.equals(name)) {
+            throw new IllegalStateException("Not a calendar filter: " + name);
+        }
+        if (notDefined) {
+            return false;
+        }
+        for (PropertyFilter propertyFilter : propertyFilters) {
+            if (!propertyFilter.matches(calendar)) {
+                return false;
+            }
+        }
+        return matchesComponents(calendar);
+    }
+
+    private boolean matchesComponents(ComponentContainer<?> container) {
+        for (ComponentFilter componentFilter : componentFilters) {
+            if (!componentFilter.matches(container)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(ComponentContainer<?> container) {
+        List<? extends Component> components = container.getComponents(name);
+        if (notDefined) {
+            return components.isEmpty();
+        }
+        for (Component component : components) {
+            if (matches(component)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(Component component) {
+        if (timeRange != null && !overlaps(component)) {
+            return false;
+        }
+        for (PropertyFilter propertyFilter : propertyFilters) {
+            if (!propertyFilter.matches(component)) {
+                return false;
+            }
+        }
+        if (!componentFilters.isEmpty()) {
+            return component instanceof ComponentContainer && matchesComponents((ComponentContainer<?>) component);
+        }
+        return true;
+    }
+
+    private boolean overlaps(Component component) {
+        if (component.getProperty(Property.RRULE) == null && component.getProperty(Property.RDATE) == null) {
+            return timeRange.overlaps(TimeRange.span(component));
+        }
+        try {
+            Period period = new Period(timeRange.getStart() != null ? timeRange.getStart() : MIN_DATE,
+                    timeRange.getEnd() != null ? timeRange.getEnd() : MAX_DATE);
+            return !component.calculateRecurrenceSet(period).isEmpty();
+        } catch (RuntimeException e) {
+            // where recurrences cannot be calculated, match on the overall span..
+            return timeRange.overlaps(TimeRange.span(component));
+        }
+    }
+}
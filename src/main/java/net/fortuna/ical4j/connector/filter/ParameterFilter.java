@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.filter;
+
+import net.fortuna.ical4j.model.Parameter;
+import net.fortuna.ical4j.model.Property;
+
+/**
+ * Matches a parameter of a property (RFC 4791 section 9.7.3).
+ */
+public final class ParameterFilter {
+
+    private final String name;
+
+    private final TextMatch textMatch;
+
+    private final boolean notDefined;
+
+    private ParameterFilter(String name, TextMatch textMatch, boolean notDefined) {
+        this.name = name;
+        this.textMatch = textMatch;
+        this.notDefined = notDefined;
+    }
+
+    /**
+     * @param name a parameter name
+     * @return a filter matching properties where the parameter is defined
+     */
+    public static ParameterFilter defined(String name) {
+        return new ParameterFilter(name, null, false);
+    }
+
+    /**
+     * @param name a parameter name
+     * @return a filter matching properties where the parameter is not defined
+     */
+    public static ParameterFilter notDefined(String name) {
+        return new ParameterFilter(name, null, true);
+    }
+
+    /**
+     * @param name a parameter name
+     * @param textMatch a condition on the parameter value
+     * @return a filter matching properties where the parameter value matches
+     */
+    public static ParameterFilter textMatch(String name, TextMatch textMatch) {
+        return new ParameterFilter(name, textMatch, false);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return a condition on the parameter value, or null
+     */
+    public TextMatch getTextMatch() {
+        return textMatch;
+    }
+
+    public boolean isNotDefined() {
+        return notDefined;
+    }
+
+    boolean matches(Property property) {
+        if (notDefined) {
+            return property.getParameter(name) == null;
+        }
+        for (Parameter parameter : property.getParameters(name)) {
+            if (textMatch == null || textMatch.matches(parameter.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
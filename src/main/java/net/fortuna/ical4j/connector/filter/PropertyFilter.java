@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.filter;
+
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.PropertyContainer;
+import net.fortuna.ical4j.model.property.DateProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Matches a property of a calendar or component (RFC 4791 section 9.7.2). A property filter with no conditions
+ * matches where the property is defined.
+ */
+public final class PropertyFilter {
+
+    private final String name;
+
+    private boolean notDefined;
+
+    private TimeRange timeRange;
+
+    private TextMatch textMatch;
+
+    private final List<ParameterFilter> parameterFilters = new ArrayList<>();
+
+    /**
+     * @param name a property name (e.g. SUMMARY)
+     */
+    public PropertyFilter(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return this filter, modified to match where the property is not defined
+     */
+    public PropertyFilter notDefined() {
+        this.notDefined = true;
+        return this;
+    }
+
+    /**
+     * @param timeRange a range that a date-time property value must be within
+     * @return this filter
+     */
+    public PropertyFilter timeRange(TimeRange timeRange) {
+        this.timeRange = timeRange;
+        return this;
+    }
+
+    /**
+     * @param textMatch a condition on the property value
+     * @return this filter
+     */
+    public PropertyFilter textMatch(TextMatch textMatch) {
+        this.textMatch = textMatch;
+        return this;
+    }
+
+    /**
+     * @param text a substring of the property value (case-insensitive)
+     * @return this filter
+     */
+    public PropertyFilter textMatch(String text) {
+        return textMatch(new TextMatch(text));
+    }
+
+    /**
+     * @param parameterFilter a condition on a parameter of the property
+     * @return this filter
+     */
+    public PropertyFilter parameter(ParameterFilter parameterFilter) {
+        parameterFilters.add(parameterFilter);
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isNotDefined() {
+        return notDefined;
+    }
+
+    /**
+     * @return a range that a date-time property value must be within, or null
+     */
+    public TimeRange getTimeRange() {
+        return timeRange;
+    }
+
+    /**
+     * @return a condition on the property value, or null
+     */
+    public TextMatch getTextMatch() {
+        return textMatch;
+    }
+
+    public List<ParameterFilter> getParameterFilters() {
+        return Collections.unmodifiableList(parameterFilters);
+    }
+
+    boolean matches(PropertyContainer container) {
+        if (notDefined) {
+            return container.getProperty(name) == null;
+        }
+        for (Property property : container.getProperties(name)) {
+            if (matches(property)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(Property property) {
+        if (timeRange != null && !(property instanceof DateProperty
+                && ((DateProperty) property).getDate() != null
+                && timeRange.contains(((DateProperty) property).getDate()))) {
+            return false;
+        }
+        if (textMatch != null && !textMatch.matches(property.getValue())) {
+            return false;
+        }
+        for (ParameterFilter parameterFilter : parameterFilters) {
+            if (!parameterFilter.matches(property)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
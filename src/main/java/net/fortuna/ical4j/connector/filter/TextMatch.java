@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.filter;
+
+import java.util.Locale;
+
+/**
+ * A substring match on the value of a property or parameter (RFC 4791 section 9.7.5). Matching is case-insensitive
+ * (i;ascii-casemap collation) unless otherwise specified.
+ */
+public final class TextMatch {
+
+    /**
+     * Case-insensitive comparison of ASCII characters.
+     */
+    public static final String COLLATION_ASCII_CASEMAP = "i;ascii-casemap";
+
+    /**
+     * Case-sensitive comparison of octets.
+     */
+    public static final String COLLATION_OCTET = "i;octet";
+
+    private final String text;
+
+    private final boolean caseSensitive;
+
+    private final boolean negate;
+
+    /**
+     * @param text the substring to match
+     */
+    public TextMatch(String text) {
+        this(text, false, false);
+    }
+
+    /**
+     * @param text the substring to match
+     * @param caseSensitive indicates whether to compare case
+     * @param negate indicates that values not containing the substring match
+     */
+    public TextMatch(String text, boolean caseSensitive, boolean negate) {
+        this.text = text;
+        this.caseSensitive = caseSensitive;
+        this.negate = negate;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    public boolean isNegate() {
+        return negate;
+    }
+
+    /**
+     * @return the collation identifier for this match
+     */
+    public String getCollation() {
+        return caseSensitive ? COLLATION_OCTET : COLLATION_ASCII_CASEMAP;
+    }
+
+    /**
+     * @param value a property or parameter value
+     * @return true if the value matches
+     */
+    public boolean matches(String value) {
+        boolean contains;
+        if (value == null) {
+            contains = false;
+        } else if (caseSensitive) {
+            contains = value.contains(text);
+        } else {
+            contains = value.toLowerCase(Locale.ROOT).contains(text.toLowerCase(Locale.ROOT));
+        }
+        return contains != negate;
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.filter;
+
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.Date;
+import net.fortuna.ical4j.model.DateTime;
+import net.fortuna.ical4j.model.Property;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+import net.fortuna.ical4j.model.property.DateProperty;
+import net.fortuna.ical4j.model.property.Duration;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * A time range used to match components and date-time properties (RFC 4791 section 9.9). Either end of the range
+ * may be unbounded.
+ */
+public final class TimeRange {
+
+    private final DateTime start;
+
+    private final DateTime end;
+
+    /**
+     * @param start the inclusive start of the range, or null if unbounded
+     * @param end the exclusive end of the range, or null if unbounded
+     */
+    public TimeRange(DateTime start, DateTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @return the inclusive start of the range, or null if unbounded
+     */
+    public DateTime getStart() {
+        return start;
+    }
+
+    /**
+     * @return the exclusive end of the range, or null if unbounded
+     */
+    public DateTime getEnd() {
+        return end;
+    }
+
+    /**
+     * @param date an instant
+     * @return true if the instant is within this range
+     */
+    public boolean contains(java.util.Date date) {
+        return (start == null || !date.before(start)) && (end == null || date.before(end));
+    }
+
+    /**
+     * @param periodStart the start of a period, or null if unbounded
+     * @param periodEnd the end of a period, or null if unbounded
+     * @return true if the period overlaps this range. A period with no duration overlaps a range that contains it
+     */
+    public boolean overlaps(java.util.Date periodStart, java.util.Date periodEnd) {
+        if (periodStart != null && periodStart.equals(periodEnd)) {
+            return contains(periodStart);
+        }
+        return (start == null || periodEnd == null || periodEnd.after(start))
+                && (end == null || periodStart == null || periodStart.before(end));
+    }
+
+    /**
+     * @param range another time range
+     * @return true if the ranges overlap
+     */
+    public boolean overlaps(TimeRange range) {
+        return overlaps(range.getStart(), range.getEnd());
+    }
+
+    /**
+     * Determines the period spanned by all components of the specified type in a calendar object, including all
+     * recurrences. This is an approximation for indexing purposes, where recurring components are considered to
+     * have no end.
+     * @param calendar a calendar object
+     * @param componentType a component type
+     * @return the range spanned by the components, or null if the calendar contains no such components
+     */
+    public static TimeRange span(Calendar calendar, String componentType) {
+        TimeRange span = null;
+        for (CalendarComponent component : calendar.getComponents(componentType)) {
+            TimeRange componentSpan = span(component);
+            if (span == null) {
+                span = componentSpan;
+            } else {
+                span = new TimeRange(earliest(span.getStart(), componentSpan.getStart()),
+                        latest(span.getEnd(), componentSpan.getEnd()));
+            }
+        }
+        return span;
+    }
+
+    /**
+     * @param component a calendar component
+     * @return the range spanned by the component and any recurrences
+     */
+    static TimeRange span(Component component) {
+        Date start = getDate(component, Property.DTSTART);
+        Date end = getDate(component, Property.DTEND);
+        if (end == null) {
+            end = getDate(component, Property.DUE);
+        }
+        if (start == null) {
+            start = end;
+        }
+        if (end == null && start != null) {
+            Duration duration = component.getProperty(Property.DURATION);
+            if (duration != null) {
+                end = new DateTime(java.util.Date.from(ZonedDateTime.ofInstant(start.toInstant(), ZoneOffset.UTC)
+                        .plus(duration.getDuration()).toInstant()));
+            } else if (!(start instanceof DateTime)) {
+                // an all-day component spans the entire day..
+                end = new DateTime(start.getTime() + 24 * 60 * 60 * 1000L);
+            } else {
+                end = start;
+            }
+        }
+        if (component.getProperty(Property.RRULE) != null || component.getProperty(Property.RDATE) != null) {
+            end = null;
+        }
+        return new TimeRange(start != null ? new DateTime(start) : null, end != null ? new DateTime(end) : null);
+    }
+
+    @Override
+    public String toString() {
+        return (start != null ? start : "") + "/" + (end != null ? end : "");
+    }
+
+    private static Date getDate(Component component, String name) {
+        Property property = component.getProperty(name);
+        return property instanceof DateProperty ? ((DateProperty) property).getDate() : null;
+    }
+
+    private static DateTime earliest(DateTime a, DateTime b) {
+        return a == null || b == null ? null : a.before(b) ? a : b;
+    }
+
+    private static DateTime latest(DateTime a, DateTime b) {
+        return a == null || b == null ? null : a.after(b) ? a : b;
+    }
+}
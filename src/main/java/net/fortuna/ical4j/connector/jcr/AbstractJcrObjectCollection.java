@@ -36,6 +36,8 @@ import javax.jcr.PathNotFoundException;
 import javax.jcr.RepositoryException;
 
 import net.fortuna.ical4j.connector.ObjectCollection;
+import net.fortuna.ical4j.connector.event.ObjectStoreEvent;
+import net.fortuna.ical4j.connector.event.ObjectStoreEventDispatcher;
 
 import org.jcrom.AbstractJcrEntity;
 import org.jcrom.JcrMappingException;
@@ -121,6 +123,19 @@ public abstract class AbstractJcrObjectCollection<T> extends AbstractJcrEntity i
         this.store = store;
     }
 
+    /**
+     * Notifies the store event dispatcher (if any) of a change to an object in the collection.
+     * @param type the type of change
+     * @param uid the UID of the affected object
+     * @param path the repository path of the affected object
+     */
+    protected final void fireComponentEvent(ObjectStoreEvent.Type type, String uid, String path) {
+        ObjectStoreEventDispatcher<?> dispatcher = getStore() != null ? getStore().getEventDispatcher() : null;
+        if (dispatcher != null) {
+            dispatcher.componentChanged(getStore(), this, type, uid, path, null);
+        }
+    }
+
     /**
      * @return the underlying node
      * @throws PathNotFoundException where the repository path does not exist
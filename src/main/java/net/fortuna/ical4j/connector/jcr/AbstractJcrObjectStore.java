@@ -43,6 +43,7 @@ import javax.jcr.SimpleCredentials;
 import net.fortuna.ical4j.connector.ObjectNotFoundException;
 import net.fortuna.ical4j.connector.ObjectStore;
 import net.fortuna.ical4j.connector.ObjectStoreException;
+import net.fortuna.ical4j.connector.event.ObjectStoreEventDispatcher;
 import net.fortuna.ical4j.model.Calendar;
 
 import org.jcrom.Jcrom;
@@ -66,6 +67,8 @@ public abstract class AbstractJcrObjectStore<C extends AbstractJcrObjectCollecti
 
     private final Jcrom jcrom;
 
+    private volatile ObjectStoreEventDispatcher<?> eventDispatcher;
+
     /**
      * @param repository a repository instance
      * @param path a repository store path
@@ -176,6 +179,10 @@ public abstract class AbstractJcrObjectStore<C extends AbstractJcrObjectCollecti
         else {
             getCollectionDao().create(path + "/collections", collection);
         }
+        ObjectStoreEventDispatcher<?> dispatcher = eventDispatcher;
+        if (dispatcher != null) {
+            dispatcher.collectionAdded(this, collection);
+        }
         return collection;
     }
 
@@ -215,9 +222,27 @@ public abstract class AbstractJcrObjectStore<C extends AbstractJcrObjectCollecti
     public final C removeCollection(String name) throws ObjectStoreException, ObjectNotFoundException {
         C collection = getCollection(name);
         getCollectionDao().remove(getJcrom().getPath(collection));
+        ObjectStoreEventDispatcher<?> dispatcher = eventDispatcher;
+        if (dispatcher != null) {
+            dispatcher.collectionRemoved(this, collection);
+        }
         return collection;
     }
 
+    /**
+     * @return the dispatcher notified of changes to the store, or null if events are not enabled
+     */
+    public final ObjectStoreEventDispatcher<?> getEventDispatcher() {
+        return eventDispatcher;
+    }
+
+    /**
+     * @param eventDispatcher a dispatcher notified of changes to collections in the store and their objects
+     */
+    public final void setEventDispatcher(ObjectStoreEventDispatcher<?> eventDispatcher) {
+        this.eventDispatcher = eventDispatcher;
+    }
+
     /**
      * @return the session
      */
@@ -31,6 +31,7 @@
  */
 package net.fortuna.ical4j.connector.jcr;
 
+import net.fortuna.ical4j.connector.filter.TimeRange;
 import net.fortuna.ical4j.data.CalendarBuilder;
 import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.model.*;
@@ -53,6 +54,7 @@ import org.jcrom.annotations.JcrProperty;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -79,6 +81,12 @@ public class JcrCalendar extends AbstractJcrEntity {
     @JcrProperty private String uid;
     
     @JcrProperty private String summary;
+
+    @JcrProperty private List<String> componentTypes;
+
+    @JcrProperty private Date startTime;
+
+    @JcrProperty private Date endTime;
     
     @JcrFileNode private JcrFile description;
     
@@ -130,6 +138,38 @@ public class JcrCalendar extends AbstractJcrEntity {
         file.setMimeType(Calendars.getContentType(calendar, null));
         file.setLastModified(java.util.Calendar.getInstance());
         
+        // index the types and overall span of components, such that queries may exclude non-matching
+        // calendars without parsing..
+        componentTypes = new ArrayList<String>();
+        startTime = null;
+        endTime = null;
+        boolean unboundedStart = false;
+        boolean unboundedEnd = false;
+        for (Object component : calendar.getComponents()) {
+            String name = ((Component) component).getName();
+            if (Component.VTIMEZONE.equals(name) || componentTypes.contains(name)) {
+                continue;
+            }
+            componentTypes.add(name);
+            TimeRange span = TimeRange.span(calendar, name);
+            if (span.getStart() == null) {
+                unboundedStart = true;
+            } else if (startTime == null || span.getStart().before(startTime)) {
+                startTime = new Date(span.getStart().getTime());
+            }
+            if (span.getEnd() == null) {
+                unboundedEnd = true;
+            } else if (endTime == null || span.getEnd().after(endTime)) {
+                endTime = new Date(span.getEnd().getTime());
+            }
+        }
+        if (unboundedStart) {
+            startTime = null;
+        }
+        if (unboundedEnd) {
+            endTime = null;
+        }
+
         for (Object component : calendar.getComponents()) {
             
             // save first available summary..
@@ -187,4 +227,25 @@ public class JcrCalendar extends AbstractJcrEntity {
     public final String getUid() {
         return uid;
     }
+
+    /**
+     * @return the types of components (other than VTIMEZONE) in the calendar
+     */
+    public final List<String> getComponentTypes() {
+        return componentTypes;
+    }
+
+    /**
+     * @return the earliest start of all components, or null if unbounded
+     */
+    public final Date getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the latest end of all components (including recurrences), or null if unbounded
+     */
+    public final Date getEndTime() {
+        return endTime;
+    }
 }
@@ -32,10 +32,15 @@
 package net.fortuna.ical4j.connector.jcr;
 
 import net.fortuna.ical4j.connector.CalendarCollection;
+import net.fortuna.ical4j.connector.CalendarExporter;
+import net.fortuna.ical4j.connector.CalendarImporter;
 import net.fortuna.ical4j.connector.FailedOperationException;
 import net.fortuna.ical4j.connector.ObjectNotFoundException;
 import net.fortuna.ical4j.connector.ObjectStoreException;
 import net.fortuna.ical4j.connector.dav.enums.MediaType;
+import net.fortuna.ical4j.connector.event.ObjectStoreEvent;
+import net.fortuna.ical4j.connector.filter.ComponentFilter;
+import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.model.Calendar;
 import net.fortuna.ical4j.model.ConstraintViolationException;
 import net.fortuna.ical4j.model.property.Uid;
@@ -44,8 +49,13 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jcrom.annotations.JcrProperty;
 
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.PathNotFoundException;
 import javax.jcr.RepositoryException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -67,6 +77,11 @@ public class JcrCalendarCollection extends AbstractJcrObjectCollection<Calendar>
 
     private static final Log LOG = LogFactory.getLog(JcrCalendarCollection.class);
 
+    /**
+     * The number of calendar objects added between saving changes when merging a stream.
+     */
+    private static final int MERGE_BATCH_SIZE = 100;
+
 //    @JcrChildNode private List<JcrCalendar> calendars;
     
     @JcrProperty private Integer maxAttendeesPerInstance;
@@ -170,6 +185,10 @@ public class JcrCalendarCollection extends AbstractJcrObjectCollection<Calendar>
         else {
             getCalendarDao().create(getStore().getJcrom().getPath(this) + "/calendars", jcrCal);
         }
+        if (uid != null) {
+            fireComponentEvent(update ? ObjectStoreEvent.Type.COMPONENT_UPDATED : ObjectStoreEvent.Type.COMPONENT_ADDED,
+                    uid.getValue(), getStore().getJcrom().getPath(jcrCal));
+        }
 //        try {
 //            store.getJcrom().addNode(getNode(), jcrCal);
 //        }
@@ -185,21 +204,41 @@ public class JcrCalendarCollection extends AbstractJcrObjectCollection<Calendar>
      * {@inheritDoc}
      */
     public Calendar export() throws ObjectStoreException {
-        Calendar exported = new Calendar();
-        List<JcrCalendar> calendars = getCalendarDao().findAll(getStore().getJcrom().getPath(this) + "/calendars");
-        for (JcrCalendar jcrCal : calendars) {
+        List<JcrCalendar> jcrCalendars = getCalendarDao().findAll(getStore().getJcrom().getPath(this) + "/calendars");
+        List<Calendar> calendars = new ArrayList<Calendar>(jcrCalendars.size());
+        for (JcrCalendar jcrCal : jcrCalendars) {
             try {
-//            NodeIterator childNodes = getNode().getNodes();
-//            while (childNodes.hasNext()) {
-//                JcrCalendar jcrCal = store.getJcrom().fromNode(JcrCalendar.class, (Node) childNodes.next());
-                exported = Calendars.merge(exported, jcrCal.getCalendar());
-//            }
+                calendars.add(jcrCal.getCalendar());
             }
-            catch (Exception e) {
+            catch (IOException | ParserException e) {
                 throw new ObjectStoreException("Unexpected error", e);
             }
         }
-        return exported;
+        return CalendarExporter.aggregate(calendars, CalendarExporter.DEFAULT_PROD_ID);
+    }
+
+    /**
+     * Exports the collection by mapping each calendar node as it is iterated, such that only a single calendar
+     * object is held in memory at a time.
+     * @param writer the export destination
+     * @throws ObjectStoreException where an unexpected error occurs
+     * @throws IOException where an error occurs writing to the destination
+     */
+    @Override
+    public void export(Writer writer) throws ObjectStoreException, IOException {
+        CalendarExporter exporter = new CalendarExporter(writer);
+        try {
+            if (getNode().hasNode("calendars")) {
+                for (NodeIterator nodes = getNode().getNode("calendars").getNodes(); nodes.hasNext();) {
+                    JcrCalendar jcrCal = getStore().getJcrom().fromNode(JcrCalendar.class, (Node) nodes.next());
+                    exporter.add(jcrCal.getCalendar());
+                }
+            }
+        }
+        catch (RepositoryException | ParserException e) {
+            throw new ObjectStoreException("Unexpected error", e);
+        }
+        exporter.complete();
     }
 
     /**
@@ -257,6 +296,32 @@ public class JcrCalendarCollection extends AbstractJcrObjectCollection<Calendar>
         return retVal.toArray(new Calendar[retVal.size()]);
     }
 
+    /**
+     * Selects candidate calendars with a repository query on indexed properties, and evaluates the filter against
+     * each candidate.
+     * @param filter a root (VCALENDAR) filter
+     * @return the matching calendar objects
+     * @throws ObjectStoreException where an unexpected error occurs
+     */
+    @Override
+    public Calendar[] getComponents(ComponentFilter filter) throws ObjectStoreException {
+        List<Calendar> retVal = new ArrayList<Calendar>();
+        List<JcrCalendar> calendars = getCalendarDao().findByFilter(
+                getStore().getJcrom().getPath(this) + "/calendars", filter);
+        for (JcrCalendar jcrCal : calendars) {
+            try {
+                Calendar calendar = jcrCal.getCalendar();
+                if (filter.test(calendar)) {
+                    retVal.add(calendar);
+                }
+            }
+            catch (IOException | ParserException e) {
+                LOG.error("Unexpected error", e);
+            }
+        }
+        return retVal.toArray(new Calendar[retVal.size()]);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -331,7 +396,9 @@ public class JcrCalendarCollection extends AbstractJcrObjectCollection<Calendar>
         List<JcrCalendar> calendars = getCalendarDao().findByUid(
                 getStore().getJcrom().getPath(this) + "/calendars", uid);
         if (calendars.size() > 0) {
-            getCalendarDao().remove(getStore().getJcrom().getPath(calendars.get(0)));
+            String path = getStore().getJcrom().getPath(calendars.get(0));
+            getCalendarDao().remove(path);
+            fireComponentEvent(ObjectStoreEvent.Type.COMPONENT_REMOVED, uid, path);
         }
         saveChanges();
         return calendar;
@@ -353,6 +420,41 @@ public class JcrCalendarCollection extends AbstractJcrObjectCollection<Calendar>
         }
     }
 
+    /**
+     * Merges an iCalendar stream with this collection, saving changes periodically rather than for each calendar
+     * object.
+     * @param in a (UTF-8 encoded) iCalendar stream, which is not closed
+     * @return the number of calendar objects merged
+     * @throws ObjectStoreException where the stream cannot be parsed or a calendar object cannot be added
+     * @throws IOException where an error occurs reading the stream
+     */
+    @Override
+    public int merge(InputStream in) throws ObjectStoreException, IOException {
+        int[] pending = new int[1];
+        int count;
+        try {
+            count = new CalendarImporter((calendar, continuation) -> {
+                try {
+                    if (continuation) {
+                        calendar = CalendarImporter.append(getCalendar(Calendars.getUid(calendar).getValue()),
+                                calendar);
+                    }
+                    addCalendar(calendar, false);
+                } catch (ConstraintViolationException | ObjectNotFoundException e) {
+                    throw new ObjectStoreException("Unable to merge calendar object", e);
+                }
+                if (++pending[0] >= MERGE_BATCH_SIZE) {
+                    saveChanges();
+                    pending[0] = 0;
+                }
+            }).importCalendar(in);
+        } catch (ParserException e) {
+            throw new ObjectStoreException("Invalid calendar data", e);
+        }
+        saveChanges();
+        return count;
+    }
+
     /**
      * @param maxAttendeesPerInstance the maxAttendeesPerInstance to set
      */
@@ -35,6 +35,8 @@ import java.util.List;
 
 import javax.jcr.Session;
 
+import net.fortuna.ical4j.connector.filter.ComponentFilter;
+
 import org.jcrom.Jcrom;
 import org.jcrom.dao.AbstractJcrDAO;
 import org.jcrom.util.NodeFilter;
@@ -66,4 +68,14 @@ public class JcrCalendarDao extends AbstractJcrDAO<JcrCalendar> {
     public List<JcrCalendar> findByUid(String path, String uid) {
         return super.findByXPath("/jcr:root" + path + "/*[@uid='" + uid + "']", new NodeFilter("*", -1, -1));
     }
+
+    /**
+     * @param path a root repository path
+     * @param filter a calendar filter
+     * @return a list of calendars that may match the specified filter
+     * @see JcrCalendarQuery
+     */
+    public List<JcrCalendar> findByFilter(String path, ComponentFilter filter) {
+        return super.findBySql(JcrCalendarQuery.toSql(path, filter), new NodeFilter("*", -1, -1));
+    }
 }
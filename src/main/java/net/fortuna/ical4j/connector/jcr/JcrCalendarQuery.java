@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.jcr;
+
+import net.fortuna.ical4j.connector.filter.ComponentFilter;
+import net.fortuna.ical4j.connector.filter.PropertyFilter;
+import net.fortuna.ical4j.connector.filter.TextMatch;
+import net.fortuna.ical4j.connector.filter.TimeRange;
+import net.fortuna.ical4j.model.Property;
+
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Translates a calendar filter to a JCR-SQL2 query on the properties indexed by {@link JcrCalendar}. The query is
+ * conservative, in that it may select calendars that do not match the filter but never excludes those that do, and
+ * so results must still be evaluated against the filter. Calendars stored prior to the indexing of a property are
+ * always selected.
+ */
+final class JcrCalendarQuery {
+
+    private static final String SELECTOR = "c";
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+            .withZone(ZoneOffset.UTC);
+
+    private JcrCalendarQuery() {
+    }
+
+    /**
+     * @param path the repository path of calendar nodes
+     * @param filter a root (VCALENDAR) filter
+     * @return a JCR-SQL2 query
+     */
+    static String toSql(String path, ComponentFilter filter) {
+        List<String> constraints = new ArrayList<>();
+        constraints.add("ISCHILDNODE(" + SELECTOR + ", [" + path + "])");
+        for (ComponentFilter componentFilter : filter.getComponentFilters()) {
+            if (componentFilter.isNotDefined()) {
+                constraints.add(not(property("componentTypes") + " = " + literal(componentFilter.getName())));
+                continue;
+            }
+            constraints.add(absentOr("componentTypes",
+                    property("componentTypes") + " = " + literal(componentFilter.getName())));
+            if (componentFilter.getTimeRange() != null) {
+                addTimeRange(componentFilter.getTimeRange(), constraints);
+            }
+            for (PropertyFilter propertyFilter : componentFilter.getPropertyFilters()) {
+                if (Property.UID.equals(propertyFilter.getName()) && !propertyFilter.isNotDefined()
+                        && propertyFilter.getTextMatch() != null) {
+                    constraints.add(textMatch("uid", propertyFilter.getTextMatch()));
+                }
+            }
+        }
+        return "SELECT * FROM [nt:base] AS " + SELECTOR + " WHERE " + String.join(" AND ", constraints);
+    }
+
+    private static void addTimeRange(TimeRange timeRange, List<String> constraints) {
+        // inclusive comparisons allow for components of no duration..
+        if (timeRange.getStart() != null) {
+            constraints.add(absentOr("endTime", property("endTime") + " >= " + date(timeRange.getStart())));
+        }
+        if (timeRange.getEnd() != null) {
+            constraints.add(absentOr("startTime", property("startTime") + " <= " + date(timeRange.getEnd())));
+        }
+    }
+
+    private static String textMatch(String name, TextMatch textMatch) {
+        String pattern = literal("%" + escapeLike(textMatch.isCaseSensitive() ? textMatch.getText()
+                : textMatch.getText().toLowerCase(Locale.ROOT)) + "%");
+        String value = textMatch.isCaseSensitive() ? property(name) : "LOWER(" + property(name) + ")";
+        String constraint = value + " LIKE " + pattern;
+        return textMatch.isNegate() ? not(constraint) : constraint;
+    }
+
+    /**
+     * A constraint that is also satisfied where the named property is absent, as the property is either not indexed
+     * or indicates an unbounded range.
+     */
+    private static String absentOr(String name, String constraint) {
+        return "(" + not(property(name) + " IS NOT NULL") + " OR " + constraint + ")";
+    }
+
+    /**
+     * The negated constraint is enclosed in parentheses, as NOT otherwise applies to subsequent constraints.
+     */
+    private static String not(String constraint) {
+        return "(NOT " + constraint + ")";
+    }
+
+    private static String property(String name) {
+        return SELECTOR + ".[" + name + "]";
+    }
+
+    private static String date(Date date) {
+        return "CAST(" + literal(DATE_FORMAT.format(date.toInstant())) + " AS DATE)";
+    }
+
+    private static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
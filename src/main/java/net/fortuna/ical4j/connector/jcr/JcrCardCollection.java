@@ -35,6 +35,7 @@ import net.fortuna.ical4j.connector.CardCollection;
 import net.fortuna.ical4j.connector.FailedOperationException;
 import net.fortuna.ical4j.connector.ObjectNotFoundException;
 import net.fortuna.ical4j.connector.ObjectStoreException;
+import net.fortuna.ical4j.connector.event.ObjectStoreEvent;
 import net.fortuna.ical4j.model.ConstraintViolationException;
 import net.fortuna.ical4j.vcard.Property.Id;
 import net.fortuna.ical4j.vcard.VCard;
@@ -119,6 +120,10 @@ public class JcrCardCollection extends AbstractJcrObjectCollection<VCard> implem
         else {
             getCardDao().create(getStore().getJcrom().getPath(this) + "/cards", jcrCard);
         }
+        if (uid != null) {
+            fireComponentEvent(update ? ObjectStoreEvent.Type.COMPONENT_UPDATED : ObjectStoreEvent.Type.COMPONENT_ADDED,
+                    uid.getValue(), getStore().getJcrom().getPath(jcrCard));
+        }
     }
 
     @Override
@@ -1,6 +1,8 @@
 package net.fortuna.ical4j.connector.local;
 
 import net.fortuna.ical4j.connector.ObjectCollection;
+import net.fortuna.ical4j.connector.event.ObjectStoreEvent;
+import net.fortuna.ical4j.connector.event.ObjectStoreEventDispatcher;
 import net.fortuna.ical4j.data.CalendarOutputter;
 import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.model.Calendar;
@@ -29,6 +31,8 @@ public abstract class AbstractLocalObjectCollection<T> implements ObjectCollecti
 
     private final Properties properties;
 
+    private AbstractLocalObjectStore<?> store;
+
     public AbstractLocalObjectCollection(File root) {
         if (!root.isDirectory()) {
             throw new IllegalArgumentException("Root must be a directory");
@@ -46,6 +50,23 @@ public abstract class AbstractLocalObjectCollection<T> implements ObjectCollecti
         return root;
     }
 
+    void setStore(AbstractLocalObjectStore<?> store) {
+        this.store = store;
+    }
+
+    /**
+     * Notifies the store event dispatcher (if any) of a change to an object in the collection.
+     * @param type the type of change
+     * @param uid the UID of the affected object
+     * @param fileName the name of the file containing the object
+     */
+    protected void fireComponentEvent(ObjectStoreEvent.Type type, String uid, String fileName) {
+        ObjectStoreEventDispatcher<?> dispatcher = store != null ? store.getEventDispatcher() : null;
+        if (dispatcher != null) {
+            dispatcher.componentChanged(store, this, type, uid, fileName, null);
+        }
+    }
+
     @Override
     public String getDisplayName() {
         return properties.getProperty("DisplayName");
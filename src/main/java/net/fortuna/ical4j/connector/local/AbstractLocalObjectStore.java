@@ -3,6 +3,7 @@ package net.fortuna.ical4j.connector.local;
 import net.fortuna.ical4j.connector.ObjectNotFoundException;
 import net.fortuna.ical4j.connector.ObjectStore;
 import net.fortuna.ical4j.connector.ObjectStoreException;
+import net.fortuna.ical4j.connector.event.ObjectStoreEventDispatcher;
 import net.fortuna.ical4j.model.Calendar;
 
 import java.io.File;
@@ -13,6 +14,8 @@ public abstract  class AbstractLocalObjectStore<C extends AbstractLocalObjectCol
 
     private final File root;
 
+    private volatile ObjectStoreEventDispatcher<?> eventDispatcher;
+
     AbstractLocalObjectStore(File root) {
         if (root.exists() && !root.isDirectory()) {
             throw new IllegalArgumentException("Root must be a directory");
@@ -47,6 +50,7 @@ public abstract  class AbstractLocalObjectStore<C extends AbstractLocalObjectCol
     @Override
     public C addCollection(String id) throws ObjectStoreException {
         File collectionDir = new File(root, id);
+        boolean created = !collectionDir.exists();
         if ((collectionDir.exists() && !collectionDir.isDirectory()) ||
                 (!collectionDir.exists() && !collectionDir.mkdirs())) {
             throw new ObjectStoreException("Unable to initialise collection");
@@ -55,13 +59,23 @@ public abstract  class AbstractLocalObjectStore<C extends AbstractLocalObjectCol
         try {
             collection = getCollection(id);
         } catch (ObjectNotFoundException e) {
-            collection = newCollection(id);
+            collection = initCollection(id);
+        }
+        ObjectStoreEventDispatcher<?> dispatcher = eventDispatcher;
+        if (created && dispatcher != null) {
+            dispatcher.collectionAdded(this, collection);
         }
         return collection;
     }
 
     protected abstract C newCollection(String id);
 
+    private C initCollection(String id) {
+        C collection = newCollection(id);
+        collection.setStore(this);
+        return collection;
+    }
+
     @Override
     public C addCollection(String id, String displayName, String description, String[] supportedComponents, Calendar timezone) throws ObjectStoreException {
         C collection = addCollection(id);
@@ -87,11 +101,25 @@ public abstract  class AbstractLocalObjectStore<C extends AbstractLocalObjectCol
         if (!collectionDir.exists() || !collectionDir.isDirectory()) {
             throw new ObjectNotFoundException("Unable to retrieve collection");
         }
-        return newCollection(id);
+        return initCollection(id);
     }
 
     @Override
     public List<C> getCollections() throws ObjectStoreException, ObjectNotFoundException {
         return null;
     }
+
+    /**
+     * @return the dispatcher notified of changes to the store, or null if events are not enabled
+     */
+    public ObjectStoreEventDispatcher<?> getEventDispatcher() {
+        return eventDispatcher;
+    }
+
+    /**
+     * @param eventDispatcher a dispatcher notified of changes to collections in the store and their objects
+     */
+    public void setEventDispatcher(ObjectStoreEventDispatcher<?> eventDispatcher) {
+        this.eventDispatcher = eventDispatcher;
+    }
 }
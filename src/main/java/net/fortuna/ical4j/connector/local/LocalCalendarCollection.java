@@ -1,10 +1,14 @@
 package net.fortuna.ical4j.connector.local;
 
 import net.fortuna.ical4j.connector.CalendarCollection;
+import net.fortuna.ical4j.connector.CalendarExporter;
 import net.fortuna.ical4j.connector.FailedOperationException;
 import net.fortuna.ical4j.connector.ObjectNotFoundException;
 import net.fortuna.ical4j.connector.ObjectStoreException;
 import net.fortuna.ical4j.connector.dav.enums.MediaType;
+import net.fortuna.ical4j.connector.event.ObjectStoreEvent;
+import net.fortuna.ical4j.connector.filter.ComponentFilter;
+import net.fortuna.ical4j.connector.filter.TimeRange;
 import net.fortuna.ical4j.data.CalendarOutputter;
 import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.model.Calendar;
@@ -16,8 +20,11 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 public class LocalCalendarCollection extends AbstractLocalObjectCollection<Calendar> implements CalendarCollection {
 
@@ -26,8 +33,15 @@ public class LocalCalendarCollection extends AbstractLocalObjectCollection<Calen
         SUPPORTED_MEDIA_TYPES[0] = MediaType.ICALENDAR_2_0;
     }
 
+    private final LocalCalendarIndex index;
+
     public LocalCalendarCollection(File root) {
+        this(root, new LocalCalendarIndex());
+    }
+
+    LocalCalendarCollection(File root, LocalCalendarIndex index) {
         super(root);
+        this.index = index;
     }
 
     @Override
@@ -76,11 +90,16 @@ public class LocalCalendarCollection extends AbstractLocalObjectCollection<Calen
 
         }
 
-        try (FileWriter writer = new FileWriter(new File(getRoot(), uid.getValue() + ".ics"))) {
+        File file = new File(getRoot(), uid.getValue() + ".ics");
+        try (FileWriter writer = new FileWriter(file)) {
             new CalendarOutputter(false).output(calendar, writer);
         } catch (IOException e) {
+            index.remove(file);
             throw new ObjectStoreException("Error writing calendar file", e);
         }
+        // re-index, as a file of the same length and modification time may have been indexed previously..
+        index.put(file, calendar);
+        fireComponentEvent(ObjectStoreEvent.Type.COMPONENT_ADDED, uid.getValue(), uid.getValue() + ".ics");
     }
 
     @Override
@@ -95,9 +114,12 @@ public class LocalCalendarCollection extends AbstractLocalObjectCollection<Calen
     @Override
     public Calendar removeCalendar(String uid) throws FailedOperationException, ObjectNotFoundException {
         Calendar calendar = getCalendar(uid);
-        if (!new File(getRoot(), uid + ".ics").delete()) {
+        File file = new File(getRoot(), uid + ".ics");
+        if (!file.delete()) {
             throw new FailedOperationException("Unable to delete calendar: " + uid);
         }
+        index.remove(file);
+        fireComponentEvent(ObjectStoreEvent.Type.COMPONENT_REMOVED, uid, uid + ".ics");
         return calendar;
     }
 
@@ -107,7 +129,20 @@ public class LocalCalendarCollection extends AbstractLocalObjectCollection<Calen
 
     @Override
     public Calendar export() throws ObjectStoreException {
-        return null;
+        return CalendarExporter.aggregate(Arrays.asList(getComponents()), CalendarExporter.DEFAULT_PROD_ID);
+    }
+
+    @Override
+    public void export(Writer writer) throws ObjectStoreException, IOException {
+        CalendarExporter exporter = new CalendarExporter(writer);
+        for (File file : getCalendarFiles()) {
+            try {
+                exporter.add(Calendars.load(file.getAbsolutePath()));
+            } catch (ParserException e) {
+                throw new ObjectStoreException(e);
+            }
+        }
+        exporter.complete();
     }
 
     @Override
@@ -115,12 +150,7 @@ public class LocalCalendarCollection extends AbstractLocalObjectCollection<Calen
         List<Calendar> calendars = new ArrayList<>();
 
         try {
-            for (File file : getRoot().listFiles(new FileFilter() {
-                @Override
-                public boolean accept(File pathname) {
-                    return !pathname.isDirectory() && pathname.getName().endsWith(".ics");
-                }
-            })) {
+            for (File file : getCalendarFiles()) {
                 calendars.add(Calendars.load(file.getAbsolutePath()));
             }
         } catch (IOException | ParserException e) {
@@ -129,4 +159,42 @@ public class LocalCalendarCollection extends AbstractLocalObjectCollection<Calen
 
         return calendars.toArray(new Calendar[calendars.size()]);
     }
+
+    /**
+     * Excludes calendar files that cannot match the specified filter using the indexed component types and time
+     * ranges of each file, and evaluates the filter against the remaining calendars.
+     */
+    @Override
+    public Calendar[] getComponents(ComponentFilter filter) throws ObjectStoreException {
+        List<Calendar> calendars = new ArrayList<>();
+
+        try {
+            for (File file : getCalendarFiles()) {
+                Map<String, TimeRange> spans = index.get(file);
+                if (spans != null && !LocalCalendarIndex.mayMatch(spans, filter)) {
+                    continue;
+                }
+                Calendar calendar = Calendars.load(file.getAbsolutePath());
+                if (spans == null) {
+                    index.put(file, calendar);
+                }
+                if (filter.test(calendar)) {
+                    calendars.add(calendar);
+                }
+            }
+        } catch (IOException | ParserException e) {
+            throw new ObjectStoreException(e);
+        }
+
+        return calendars.toArray(new Calendar[calendars.size()]);
+    }
+
+    private File[] getCalendarFiles() {
+        return getRoot().listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File pathname) {
+                return !pathname.isDirectory() && pathname.getName().endsWith(".ics");
+            }
+        });
+    }
 }
@@ -0,0 +1,82 @@
+package net.fortuna.ical4j.connector.local;
+
+import net.fortuna.ical4j.connector.filter.ComponentFilter;
+import net.fortuna.ical4j.connector.filter.TimeRange;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.component.CalendarComponent;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the component types and time ranges spanned by each calendar file, such that files that cannot match a
+ * filter are excluded without parsing. An entry is discarded when the file is modified.
+ */
+class LocalCalendarIndex {
+
+    private final Map<File, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param file a calendar file
+     * @return the indexed spans of the file, keyed by component type, or null if the file is not indexed
+     */
+    Map<String, TimeRange> get(File file) {
+        Entry entry = entries.get(file);
+        if (entry != null && entry.lastModified == file.lastModified() && entry.length == file.length()) {
+            return entry.spans;
+        }
+        return null;
+    }
+
+    void put(File file, Calendar calendar) {
+        Map<String, TimeRange> spans = new HashMap<>();
+        for (CalendarComponent component : calendar.getComponents()) {
+            if (!Component.VTIMEZONE.equals(component.getName()) && !spans.containsKey(component.getName())) {
+                spans.put(component.getName(), TimeRange.span(calendar, component.getName()));
+            }
+        }
+        entries.put(file, new Entry(file.lastModified(), file.length(), spans));
+    }
+
+    void remove(File file) {
+        entries.remove(file);
+    }
+
+    /**
+     * @param spans the indexed spans of a calendar file
+     * @param filter a root (VCALENDAR) filter
+     * @return false if the calendar cannot match the filter
+     */
+    static boolean mayMatch(Map<String, TimeRange> spans, ComponentFilter filter) {
+        for (ComponentFilter componentFilter : filter.getComponentFilters()) {
+            TimeRange span = spans.get(componentFilter.getName());
+            if (componentFilter.isNotDefined()) {
+                if (span != null) {
+                    return false;
+                }
+            } else if (span == null || (componentFilter.getTimeRange() != null
+                    && !componentFilter.getTimeRange().overlaps(span))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Entry {
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final Map<String, TimeRange> spans;
+
+        private Entry(long lastModified, long length, Map<String, TimeRange> spans) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.spans = spans;
+        }
+    }
+}
@@ -7,12 +7,14 @@ import java.io.File;
 public class LocalCalendarStore extends AbstractLocalObjectStore<LocalCalendarCollection>
         implements CalendarStore<LocalCalendarCollection> {
 
+    private final LocalCalendarIndex index = new LocalCalendarIndex();
+
     public LocalCalendarStore(File root) {
         super(root);
     }
 
     @Override
     protected LocalCalendarCollection newCollection(String id) {
-        return new LocalCalendarCollection(new File(getRoot(), id));
+        return new LocalCalendarCollection(new File(getRoot(), id), index);
     }
 }
@@ -5,6 +5,7 @@ import net.fortuna.ical4j.connector.FailedOperationException;
 import net.fortuna.ical4j.connector.ObjectNotFoundException;
 import net.fortuna.ical4j.connector.ObjectStoreException;
 import net.fortuna.ical4j.connector.dav.enums.MediaType;
+import net.fortuna.ical4j.connector.event.ObjectStoreEvent;
 import net.fortuna.ical4j.data.ParserException;
 import net.fortuna.ical4j.model.ConstraintViolationException;
 import net.fortuna.ical4j.vcard.Property;
@@ -49,6 +50,7 @@ public class LocalCardCollection extends AbstractLocalObjectCollection<VCard> im
         } catch (IOException e) {
             throw new ObjectStoreException("Error writing card file", e);
         }
+        fireComponentEvent(ObjectStoreEvent.Type.COMPONENT_ADDED, uid.getValue(), uid.getValue() + ".vcf");
     }
 
     public VCard getCard(String uid) throws ObjectNotFoundException {
@@ -65,6 +67,7 @@ public class LocalCardCollection extends AbstractLocalObjectCollection<VCard> im
         if (!new File(getRoot(), uid + ".vcf").delete()) {
             throw new FailedOperationException("Unable to delete card: " + uid);
         }
+        fireComponentEvent(ObjectStoreEvent.Type.COMPONENT_REMOVED, uid, uid + ".vcf");
         return card;
     }
 
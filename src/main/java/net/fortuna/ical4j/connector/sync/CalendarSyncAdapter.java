@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.sync;
+
+import net.fortuna.ical4j.connector.CalendarCollection;
+import net.fortuna.ical4j.connector.FailedOperationException;
+import net.fortuna.ical4j.connector.ObjectNotFoundException;
+import net.fortuna.ical4j.connector.ObjectStoreException;
+import net.fortuna.ical4j.connector.dav.CalDavCalendarCollection;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.model.ConstraintViolationException;
+import net.fortuna.ical4j.model.property.Uid;
+import net.fortuna.ical4j.util.Calendars;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Synchronises the calendar objects of a {@link CalendarCollection}.
+ */
+public class CalendarSyncAdapter implements SyncAdapter<Calendar> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CalendarSyncAdapter.class);
+
+    private final CalendarCollection collection;
+
+    /**
+     * @param collection the collection to synchronise
+     */
+    public CalendarSyncAdapter(CalendarCollection collection) {
+        this.collection = collection;
+    }
+
+    @Override
+    public Map<String, Calendar> getObjects() throws ObjectStoreException {
+        Map<String, Calendar> objects = new LinkedHashMap<>();
+        for (Calendar calendar : collection.getComponents()) {
+            try {
+                Uid uid = Calendars.getUid(calendar);
+                if (uid != null) {
+                    objects.put(uid.getValue(), calendar);
+                }
+            } catch (ConstraintViolationException e) {
+                LOG.warn("Ignoring calendar object without a unique identifier", e);
+            }
+        }
+        return objects;
+    }
+
+    @Override
+    public String put(String uid, Calendar calendar, boolean exists) throws ObjectStoreException {
+        try {
+            if (exists && collection instanceof CalDavCalendarCollection) {
+                ((CalDavCalendarCollection) collection).updateCalendar(calendar);
+            } else {
+                if (exists) {
+                    remove(uid);
+                }
+                collection.addCalendar(calendar);
+            }
+        } catch (ConstraintViolationException e) {
+            throw new ObjectStoreException("Invalid calendar object: " + uid, e);
+        }
+        // read back the stored version as the collection may modify the object..
+        try {
+            return getVersion(collection.getCalendar(uid));
+        } catch (ObjectNotFoundException e) {
+            return getVersion(calendar);
+        }
+    }
+
+    @Override
+    public void remove(String uid) throws ObjectStoreException {
+        try {
+            collection.removeCalendar(uid);
+        } catch (ObjectNotFoundException e) {
+            LOG.debug("Calendar object already removed: " + uid);
+        } catch (FailedOperationException e) {
+            throw new ObjectStoreException("Unable to remove calendar object: " + uid, e);
+        }
+    }
+}
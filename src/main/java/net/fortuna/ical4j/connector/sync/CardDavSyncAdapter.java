@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.sync;
+
+import net.fortuna.ical4j.connector.ObjectStoreException;
+import net.fortuna.ical4j.connector.dav.CardDavCollection;
+import net.fortuna.ical4j.connector.dav.EntityTagStore;
+import net.fortuna.ical4j.connector.dav.SyncCollectionResult;
+import net.fortuna.ical4j.model.ConstraintViolationException;
+import net.fortuna.ical4j.vcard.Property;
+import net.fortuna.ical4j.vcard.VCard;
+import net.fortuna.ical4j.vcard.property.Uid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Synchronises the vCard objects of a {@link CardDavCollection} incrementally. Changes are listed using
+ * sync-collection reports (RFC 6578) and only changed vCard objects are retrieved. The version of each object is
+ * derived from its URI and entity tag, such that no content is compared.
+ */
+public class CardDavSyncAdapter extends CardSyncAdapter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CardDavSyncAdapter.class);
+
+    private final CardDavCollection collection;
+
+    /**
+     * The versions of objects retrieved from the collection.
+     */
+    private final Map<VCard, String> versions = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * @param collection the collection to synchronise
+     */
+    public CardDavSyncAdapter(CardDavCollection collection) {
+        super(collection);
+        this.collection = collection;
+    }
+
+    @Override
+    public SyncChanges<VCard> getChanges(String syncToken, Map<String, String> previousVersions)
+            throws ObjectStoreException {
+        versions.clear();
+        if (!collection.isSyncSupported()) {
+            return null;
+        }
+        Map<String, VCard> changed = new LinkedHashMap<>();
+        SyncCollectionResult result;
+        try {
+            result = collection.syncCards(syncToken, (uri, card) -> {
+                Uid uid = card.getProperty(Property.Id.UID);
+                if (uid != null) {
+                    changed.put(uid.getValue(), card);
+                    versions.put(card, version(uri));
+                } else {
+                    LOG.warn("Ignoring vCard object without a unique identifier: " + uri);
+                }
+            });
+        } catch (ObjectStoreException e) {
+            if (collection.isSyncSupported()) {
+                throw e;
+            }
+            // sync-collection not supported, so read all objects..
+            LOG.debug("sync-collection not supported, reading all vCard objects", e);
+            versions.clear();
+            return null;
+        }
+
+        // removed members are reported by URI..
+        Set<String> removed = new HashSet<>();
+        if (!result.getRemoved().isEmpty()) {
+            previousVersions.forEach((uid, version) -> {
+                if (result.getRemoved().contains(getUri(version)) && !changed.containsKey(uid)) {
+                    removed.add(uid);
+                }
+            });
+        }
+        return new SyncChanges<>(result.getSyncToken(), changed, removed, syncToken == null || result.isReset());
+    }
+
+    @Override
+    public String getVersion(VCard card) {
+        String version = versions.get(card);
+        return version != null ? version : super.getVersion(card);
+    }
+
+    @Override
+    public String put(String uid, VCard card, boolean exists) throws ObjectStoreException {
+        // a PUT replaces any existing object..
+        try {
+            collection.addCard(card);
+        } catch (ConstraintViolationException e) {
+            throw new ObjectStoreException("Invalid vCard object: " + uid, e);
+        }
+        return version(uid + ".vcf");
+    }
+
+    /**
+     * @return a version comprising the encoded URI and entity tag of an object
+     */
+    private String version(String uri) {
+        EntityTagStore.EntityTags tags = collection.getEntityTags().get(uri);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(uri.getBytes(StandardCharsets.UTF_8)) + "."
+                + (tags != null && tags.getEtag() != null
+                ? encoder.encodeToString(tags.getEtag().getBytes(StandardCharsets.UTF_8)) : "");
+    }
+
+    private static String getUri(String version) {
+        int separator = version.indexOf('.');
+        try {
+            return separator > 0 ? new String(Base64.getUrlDecoder().decode(version.substring(0, separator)),
+                    StandardCharsets.UTF_8) : null;
+        } catch (IllegalArgumentException e) {
+            // not a version recorded by this adapter..
+            return null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.sync;
+
+import net.fortuna.ical4j.connector.CardCollection;
+import net.fortuna.ical4j.connector.FailedOperationException;
+import net.fortuna.ical4j.connector.ObjectNotFoundException;
+import net.fortuna.ical4j.connector.ObjectStoreException;
+import net.fortuna.ical4j.model.ConstraintViolationException;
+import net.fortuna.ical4j.vcard.Property;
+import net.fortuna.ical4j.vcard.VCard;
+import net.fortuna.ical4j.vcard.property.Uid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Synchronises the vCard objects of a {@link CardCollection}.
+ */
+public class CardSyncAdapter implements SyncAdapter<VCard> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CardSyncAdapter.class);
+
+    private final CardCollection collection;
+
+    /**
+     * @param collection the collection to synchronise
+     */
+    public CardSyncAdapter(CardCollection collection) {
+        this.collection = collection;
+    }
+
+    @Override
+    public Map<String, VCard> getObjects() throws ObjectStoreException {
+        Map<String, VCard> objects = new LinkedHashMap<>();
+        for (VCard card : collection.getComponents()) {
+            Uid uid = card.getProperty(Property.Id.UID);
+            if (uid != null) {
+                objects.put(uid.getValue(), card);
+            } else {
+                LOG.warn("Ignoring vCard object without a unique identifier");
+            }
+        }
+        return objects;
+    }
+
+    @Override
+    public String put(String uid, VCard card, boolean exists) throws ObjectStoreException {
+        if (exists) {
+            remove(uid);
+        }
+        try {
+            collection.addCard(card);
+        } catch (ConstraintViolationException e) {
+            throw new ObjectStoreException("Invalid vCard object: " + uid, e);
+        }
+        return getVersion(card);
+    }
+
+    @Override
+    public void remove(String uid) throws ObjectStoreException {
+        try {
+            collection.removeCard(uid);
+        } catch (ObjectNotFoundException e) {
+            LOG.debug("vCard object already removed: " + uid);
+        } catch (FailedOperationException e) {
+            throw new ObjectStoreException("Unable to remove vCard object: " + uid, e);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.sync;
+
+import net.fortuna.ical4j.connector.CalendarCollection;
+import net.fortuna.ical4j.connector.CardCollection;
+import net.fortuna.ical4j.connector.ObjectStoreException;
+import net.fortuna.ical4j.connector.dav.CardDavCollection;
+import net.fortuna.ical4j.model.Calendar;
+import net.fortuna.ical4j.util.Configurator;
+import net.fortuna.ical4j.vcard.VCard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Synchronises the objects of two collections in both directions.
+ *
+ * Each synchronisation compares the current version of objects in both collections with the versions recorded in the
+ * {@link SyncState}. Where a {@link SyncAdapter} reports incremental changes (e.g. using the sync token of a DAV
+ * collection), only the changed objects of that collection are retrieved and compared, otherwise all objects are
+ * compared. Objects changed (or removed) in only one collection are copied to (or removed from) the other, and objects
+ * changed in both are resolved by the {@link ConflictPolicy}. Changes are applied in batches, and the state is
+ * written after each batch such that an interrupted synchronisation resumes where it left off. Sync tokens are
+ * recorded only once all changes are applied successfully.
+ *
+ * @param <T> the type of object synchronised
+ */
+public class CollectionSync<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CollectionSync.class);
+
+    private final String name;
+
+    private final SyncAdapter<T> source;
+
+    private final SyncAdapter<T> target;
+
+    private final ConflictPolicy<T> conflictPolicy;
+
+    private final SyncState state;
+
+    private final int batchSize;
+
+    /**
+     * @param name identifies the synchronisation in logs and results
+     * @param source the source collection
+     * @param target the target collection
+     * @param conflictPolicy resolves objects modified in both collections
+     * @param state the versions recorded by previous synchronisations
+     * @param batchSize the number of changes applied between saving state
+     */
+    public CollectionSync(String name, SyncAdapter<T> source, SyncAdapter<T> target, ConflictPolicy<T> conflictPolicy,
+                          SyncState state, int batchSize) {
+        this.name = name;
+        this.source = source;
+        this.target = target;
+        this.conflictPolicy = conflictPolicy;
+        this.state = state;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Synchronises two calendar collections. The batch size is configured with the
+     * <code>ical4j.connector.sync.batchsize</code> property (default 50).
+     * @param name identifies the synchronisation in logs and results
+     * @param source the source collection
+     * @param target the target collection
+     * @param conflictPolicy resolves objects modified in both collections
+     * @param stateFile a file in which to persist state, or null to retain state in memory only
+     * @return a new synchronisation
+     */
+    public static CollectionSync<Calendar> calendars(String name, CalendarCollection source,
+                                                     CalendarCollection target,
+                                                     ConflictPolicy<Calendar> conflictPolicy, Path stateFile) {
+        return new CollectionSync<>(name, new CalendarSyncAdapter(source), new CalendarSyncAdapter(target),
+                conflictPolicy, new SyncState(stateFile), getDefaultBatchSize());
+    }
+
+    /**
+     * Synchronises two vCard collections. Changes to CardDAV collections are retrieved incrementally. The batch size
+     * is configured with the <code>ical4j.connector.sync.batchsize</code> property (default 50).
+     * @param name identifies the synchronisation in logs and results
+     * @param source the source collection
+     * @param target the target collection
+     * @param conflictPolicy resolves objects modified in both collections
+     * @param stateFile a file in which to persist state, or null to retain state in memory only
+     * @return a new synchronisation
+     */
+    public static CollectionSync<VCard> cards(String name, CardCollection source, CardCollection target,
+                                              ConflictPolicy<VCard> conflictPolicy, Path stateFile) {
+        return new CollectionSync<>(name, newCardSyncAdapter(source), newCardSyncAdapter(target),
+                conflictPolicy, new SyncState(stateFile), getDefaultBatchSize());
+    }
+
+    private static CardSyncAdapter newCardSyncAdapter(CardCollection collection) {
+        if (collection instanceof CardDavCollection) {
+            return new CardDavSyncAdapter((CardDavCollection) collection);
+        }
+        return new CardSyncAdapter(collection);
+    }
+
+    private static int getDefaultBatchSize() {
+        return Integer.parseInt(Configurator.getProperty("ical4j.connector.sync.batchsize").orElse("50"));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SyncState getState() {
+        return state;
+    }
+
+    /**
+     * Applies changes made to either collection since the previous synchronisation.
+     * @return a summary of the changes applied
+     * @throws ObjectStoreException where either collection cannot be read
+     */
+    public SyncResult sync() throws ObjectStoreException {
+        Snapshot<T> sourceSnapshot = read(source, true);
+        Snapshot<T> targetSnapshot = read(target, false);
+        Map<String, T> sourceObjects = sourceSnapshot.objects;
+        Map<String, T> targetObjects = targetSnapshot.objects;
+        Map<String, String> sourceVersions = sourceSnapshot.versions;
+        Map<String, String> targetVersions = targetSnapshot.versions;
+
+        // identify changed objects..
+        Set<String> uids = new LinkedHashSet<>(sourceVersions.keySet());
+        uids.addAll(targetVersions.keySet());
+        uids.addAll(state.getUids());
+        List<String> changes = new ArrayList<>();
+        for (String uid : uids) {
+            SyncState.Entry entry = state.get(uid);
+            if (entry == null || !Objects.equals(sourceVersions.get(uid), entry.getSourceVersion())
+                    || !Objects.equals(targetVersions.get(uid), entry.getTargetVersion())) {
+                changes.add(uid);
+            }
+        }
+        LOG.debug(name + ": " + changes.size() + " changes of " + uids.size() + " objects");
+
+        SyncResult result = new SyncResult();
+        for (int i = 0; i < changes.size(); i += batchSize) {
+            for (String uid : changes.subList(i, Math.min(i + batchSize, changes.size()))) {
+                try {
+                    apply(uid, sourceObjects.get(uid), sourceVersions.get(uid),
+                            targetObjects.get(uid), targetVersions.get(uid), result);
+                } catch (ObjectStoreException e) {
+                    LOG.warn(name + ": unable to synchronise object: " + uid, e);
+                    result.failed(uid, e);
+                }
+            }
+            state.flush();
+        }
+        if (result.getFailures().isEmpty()) {
+            // failed changes are reported again by the current tokens..
+            state.setSourceToken(sourceSnapshot.syncToken);
+            state.setTargetToken(targetSnapshot.syncToken);
+        }
+        state.flush();
+        return result;
+    }
+
+    /**
+     * The objects of a collection to compare, and the current version of all objects.
+     */
+    private static final class Snapshot<T> {
+
+        private final Map<String, T> objects;
+
+        private final Map<String, String> versions;
+
+        private final String syncToken;
+
+        Snapshot(Map<String, T> objects, Map<String, String> versions, String syncToken) {
+            this.objects = objects;
+            this.versions = versions;
+            this.syncToken = syncToken;
+        }
+    }
+
+    /**
+     * Reads the objects of a collection changed since the previous synchronisation, or all objects where the
+     * collection does not report incremental changes. The versions of unchanged objects are those recorded in the
+     * state.
+     */
+    private Snapshot<T> read(SyncAdapter<T> adapter, boolean isSource) throws ObjectStoreException {
+        Map<String, String> recorded = new HashMap<>();
+        for (String uid : state.getUids()) {
+            SyncState.Entry entry = state.get(uid);
+            String version = entry != null ? (isSource ? entry.getSourceVersion() : entry.getTargetVersion()) : null;
+            if (version != null) {
+                recorded.put(uid, version);
+            }
+        }
+        SyncChanges<T> changes = adapter.getChanges(isSource ? state.getSourceToken() : state.getTargetToken(),
+                recorded);
+        if (changes == null) {
+            Map<String, T> objects = adapter.getObjects();
+            return new Snapshot<>(objects, versions(adapter, objects), null);
+        }
+        Map<String, String> versions = changes.isReset() ? new HashMap<>() : recorded;
+        changes.getRemoved().forEach(versions::remove);
+        changes.getChanged().forEach((uid, object) -> versions.put(uid, adapter.getVersion(object)));
+        return new Snapshot<>(changes.getChanged(), versions, changes.getSyncToken());
+    }
+
+    private void apply(String uid, T sourceObject, String sourceVersion, T targetObject, String targetVersion,
+                       SyncResult result) throws ObjectStoreException {
+
+        SyncState.Entry entry = state.get(uid);
+        boolean sourceChanged = entry == null ? sourceVersion != null
+                : !Objects.equals(sourceVersion, entry.getSourceVersion());
+        boolean targetChanged = entry == null ? targetVersion != null
+                : !Objects.equals(targetVersion, entry.getTargetVersion());
+
+        if (sourceChanged && !targetChanged) {
+            record(uid, sourceVersion, copy(uid, sourceObject, targetVersion, target,
+                    result::targetWritten, result::targetRemoved));
+        } else if (targetChanged && !sourceChanged) {
+            record(uid, copy(uid, targetObject, sourceVersion, source,
+                    result::sourceWritten, result::sourceRemoved), targetVersion);
+        } else if (Objects.equals(sourceVersion, targetVersion)) {
+            // identical changes (or removed from both)..
+            record(uid, sourceVersion, targetVersion);
+        } else {
+            T resolved = conflictPolicy.resolve(sourceObject, targetObject);
+            result.conflictResolved();
+            if (resolved == null) {
+                if (sourceObject != null) {
+                    source.remove(uid);
+                    result.sourceRemoved();
+                }
+                if (targetObject != null) {
+                    target.remove(uid);
+                    result.targetRemoved();
+                }
+                state.remove(uid);
+            } else {
+                String newSourceVersion = sourceVersion;
+                if (!Objects.equals(source.getVersion(resolved), sourceVersion)) {
+                    newSourceVersion = source.put(uid, resolved, sourceObject != null);
+                    result.sourceWritten();
+                }
+                String newTargetVersion = targetVersion;
+                if (!Objects.equals(target.getVersion(resolved), targetVersion)) {
+                    newTargetVersion = target.put(uid, resolved, targetObject != null);
+                    result.targetWritten();
+                }
+                state.put(uid, newSourceVersion, newTargetVersion);
+            }
+        }
+    }
+
+    /**
+     * Copies a changed object (or its removal) to the destination collection.
+     * @return the version of the object in the destination collection following the copy
+     */
+    private String copy(String uid, T object, String existingVersion, SyncAdapter<T> destination,
+                        Runnable written, Runnable removed) throws ObjectStoreException {
+        if (object == null) {
+            if (existingVersion != null) {
+                destination.remove(uid);
+                removed.run();
+            }
+            return null;
+        }
+        String version = destination.put(uid, object, existingVersion != null);
+        written.run();
+        return version;
+    }
+
+    private void record(String uid, String sourceVersion, String targetVersion) {
+        if (sourceVersion == null && targetVersion == null) {
+            state.remove(uid);
+        } else {
+            state.put(uid, sourceVersion, targetVersion);
+        }
+    }
+
+    private Map<String, String> versions(SyncAdapter<T> adapter, Map<String, T> objects) {
+        Map<String, String> versions = new HashMap<>();
+        objects.forEach((uid, object) -> versions.put(uid, adapter.getVersion(object)));
+        return versions;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
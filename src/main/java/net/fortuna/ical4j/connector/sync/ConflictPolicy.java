@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.sync;
+
+import net.fortuna.ical4j.connector.ObjectStoreException;
+
+/**
+ * Resolves an object that has been modified in both collections since the previous synchronisation.
+ *
+ * @param <T> the type of object synchronised
+ */
+@FunctionalInterface
+public interface ConflictPolicy<T> {
+
+    /**
+     * @param source the object in the source collection, or null if it was removed
+     * @param target the object in the target collection, or null if it was removed
+     * @return the object to store in both collections, or null to remove the object from both
+     * @throws ObjectStoreException where the conflict cannot be resolved
+     */
+    T resolve(T source, T target) throws ObjectStoreException;
+
+    /**
+     * @param <T> the type of object synchronised
+     * @return a policy that always applies the source version
+     */
+    static <T> ConflictPolicy<T> sourceWins() {
+        return (source, target) -> source;
+    }
+
+    /**
+     * @param <T> the type of object synchronised
+     * @return a policy that always applies the target version
+     */
+    static <T> ConflictPolicy<T> targetWins() {
+        return (source, target) -> target;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.sync;
+
+import net.fortuna.ical4j.connector.ObjectStoreException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Provides uniform access to the objects in a collection for synchronisation.
+ *
+ * Objects are identified by their UID, and changes are detected by comparing the version of each object with the
+ * version recorded by the previous synchronisation. By default the version is a hash of the object content, such
+ * that changes may be detected for any collection implementation. Adapters for collections that track changes (such
+ * as a DAV collection supporting sync-collection reports) may also report only the objects changed since the previous
+ * synchronisation, such that unchanged objects are neither retrieved nor compared.
+ *
+ * @param <T> the type of object in the collection
+ */
+public interface SyncAdapter<T> {
+
+    /**
+     * @return the current objects in the collection, keyed by UID
+     * @throws ObjectStoreException where the collection cannot be read
+     */
+    Map<String, T> getObjects() throws ObjectStoreException;
+
+    /**
+     * Returns the objects changed since a previous synchronisation, where supported by the collection.
+     * @param syncToken the token returned with the changes of the previous synchronisation, or null to report all
+     *                  objects
+     * @param versions the versions of objects recorded by the previous synchronisation, keyed by UID
+     * @return the changed objects, or null where the collection does not support incremental changes
+     * @throws ObjectStoreException where the collection cannot be read
+     */
+    default SyncChanges<T> getChanges(String syncToken, Map<String, String> versions) throws ObjectStoreException {
+        return null;
+    }
+
+    /**
+     * @param object an object in the collection
+     * @return a value that changes whenever the object is modified
+     */
+    default String getVersion(T object) {
+        return contentHash(object.toString());
+    }
+
+    /**
+     * Adds or replaces an object in the collection.
+     * @param uid the UID of the object
+     * @param object the object to write
+     * @param exists indicates whether the collection currently contains an object with the same UID
+     * @return the version of the object following the write
+     * @throws ObjectStoreException where the object cannot be written
+     */
+    String put(String uid, T object, boolean exists) throws ObjectStoreException;
+
+    /**
+     * @param uid the UID of an object to remove from the collection
+     * @throws ObjectStoreException where the object cannot be removed
+     */
+    void remove(String uid) throws ObjectStoreException;
+
+    /**
+     * @param content object content
+     * @return a (Base64-encoded) SHA-256 hash of the content
+     */
+    static String contentHash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
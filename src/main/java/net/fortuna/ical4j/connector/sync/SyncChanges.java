@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.sync;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The objects of a collection that have changed since a previous synchronisation, as reported by a
+ * {@link SyncAdapter} that supports incremental changes.
+ *
+ * @param <T> the type of object synchronised
+ */
+public class SyncChanges<T> {
+
+    private final String syncToken;
+
+    private final Map<String, T> changed;
+
+    private final Set<String> removed;
+
+    private final boolean reset;
+
+    /**
+     * @param syncToken the token identifying the current state of the collection
+     * @param changed added or modified objects, keyed by UID
+     * @param removed the UIDs of removed objects
+     * @param reset indicates that all objects are reported as changed, such that objects not reported have been removed
+     */
+    public SyncChanges(String syncToken, Map<String, T> changed, Set<String> removed, boolean reset) {
+        this.syncToken = syncToken;
+        this.changed = Collections.unmodifiableMap(changed);
+        this.removed = Collections.unmodifiableSet(removed);
+        this.reset = reset;
+    }
+
+    /**
+     * @return the token to use for the next synchronisation
+     */
+    public String getSyncToken() {
+        return syncToken;
+    }
+
+    /**
+     * @return added or modified objects, keyed by UID
+     */
+    public Map<String, T> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return the UIDs of removed objects
+     */
+    public Set<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return true if all objects are reported as changed
+     */
+    public boolean isReset() {
+        return reset;
+    }
+}
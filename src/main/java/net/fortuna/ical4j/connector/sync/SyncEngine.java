@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.sync;
+
+import net.fortuna.ical4j.connector.ObjectStoreException;
+import net.fortuna.ical4j.util.Configurator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Synchronises a number of collection pairs concurrently. The number of collections synchronised in parallel is
+ * configured with the <code>ical4j.connector.sync.parallelism</code> property (default 4).
+ */
+public class SyncEngine {
+
+    private final List<CollectionSync<?>> collections = new CopyOnWriteArrayList<>();
+
+    private final int parallelism;
+
+    /**
+     * @param parallelism the maximum number of collections synchronised concurrently
+     */
+    public SyncEngine(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public SyncEngine() {
+        this(Integer.parseInt(Configurator.getProperty("ical4j.connector.sync.parallelism").orElse("4")));
+    }
+
+    /**
+     * @param sync a collection pair to synchronise
+     * @return this engine
+     */
+    public SyncEngine add(CollectionSync<?> sync) {
+        collections.add(sync);
+        return this;
+    }
+
+    /**
+     * @param sync a collection pair to no longer synchronise
+     */
+    public void remove(CollectionSync<?> sync) {
+        collections.remove(sync);
+    }
+
+    public List<CollectionSync<?>> getCollections() {
+        return new ArrayList<>(collections);
+    }
+
+    /**
+     * Synchronises all collection pairs, waiting for completion.
+     * @return the result of synchronising each collection pair
+     * @throws ObjectStoreException where one or more collections could not be read. All other collections are
+     * synchronised regardless
+     */
+    public Map<CollectionSync<?>, SyncResult> syncAll() throws ObjectStoreException {
+        List<CollectionSync<?>> pending = getCollections();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, pending.size())),
+                r -> {
+                    Thread thread = new Thread(r, "collection-sync");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            Map<CollectionSync<?>, Future<SyncResult>> futures = new LinkedHashMap<>();
+            for (CollectionSync<?> sync : pending) {
+                futures.put(sync, executor.submit(sync::sync));
+            }
+
+            Map<CollectionSync<?>, SyncResult> results = new LinkedHashMap<>();
+            ObjectStoreException error = null;
+            for (Map.Entry<CollectionSync<?>, Future<SyncResult>> future : futures.entrySet()) {
+                try {
+                    results.put(future.getKey(), future.getValue().get());
+                } catch (ExecutionException e) {
+                    ObjectStoreException failure = new ObjectStoreException(
+                            "Unable to synchronise collection: " + future.getKey().getName(), e.getCause());
+                    if (error == null) {
+                        error = failure;
+                    } else {
+                        error.addSuppressed(failure);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ObjectStoreException("Synchronisation interrupted", e);
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.sync;
+
+import net.fortuna.ical4j.connector.ObjectStoreException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Summarises the changes applied by a single synchronisation of a pair of collections.
+ */
+public class SyncResult {
+
+    private int sourceWrites;
+
+    private int sourceRemovals;
+
+    private int targetWrites;
+
+    private int targetRemovals;
+
+    private int conflicts;
+
+    private final Map<String, ObjectStoreException> failures = new LinkedHashMap<>();
+
+    void sourceWritten() {
+        sourceWrites++;
+    }
+
+    void sourceRemoved() {
+        sourceRemovals++;
+    }
+
+    void targetWritten() {
+        targetWrites++;
+    }
+
+    void targetRemoved() {
+        targetRemovals++;
+    }
+
+    void conflictResolved() {
+        conflicts++;
+    }
+
+    void failed(String uid, ObjectStoreException error) {
+        failures.put(uid, error);
+    }
+
+    /**
+     * @return the number of objects added to or updated in the source collection
+     */
+    public int getSourceWrites() {
+        return sourceWrites;
+    }
+
+    /**
+     * @return the number of objects removed from the source collection
+     */
+    public int getSourceRemovals() {
+        return sourceRemovals;
+    }
+
+    /**
+     * @return the number of objects added to or updated in the target collection
+     */
+    public int getTargetWrites() {
+        return targetWrites;
+    }
+
+    /**
+     * @return the number of objects removed from the target collection
+     */
+    public int getTargetRemovals() {
+        return targetRemovals;
+    }
+
+    /**
+     * @return the number of objects modified in both collections and resolved by the conflict policy
+     */
+    public int getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * @return errors for objects that could not be synchronised, keyed by UID. These objects are retried by the next
+     * synchronisation
+     */
+    public Map<String, ObjectStoreException> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    @Override
+    public String toString() {
+        return "SyncResult{sourceWrites=" + sourceWrites + ", sourceRemovals=" + sourceRemovals
+                + ", targetWrites=" + targetWrites + ", targetRemovals=" + targetRemovals
+                + ", conflicts=" + conflicts + ", failures=" + failures.size() + "}";
+    }
+}
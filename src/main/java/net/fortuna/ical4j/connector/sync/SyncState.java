@@ -0,0 +1,305 @@
+/**
+ * Copyright (c) 2012, Ben Fortuna
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  o Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ *  o Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ *  o Neither the name of Ben Fortuna nor the names of any other contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.fortuna.ical4j.connector.sync;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Records the version of each object in a pair of collections at the time it was last synchronised, and the sync
+ * token of each collection that reports incremental changes. State may optionally be persisted to a file, such that
+ * synchronisation resumes incrementally following a restart.
+ *
+ * Changes are appended to the file as they are recorded (and written by {@link #flush()}), such that the cost of
+ * persisting state is proportional to the number of changes. The file is rewritten in full by {@link #save()}, or
+ * by {@link #flush()} once the appended changes outnumber the recorded objects.
+ */
+public class SyncState {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SyncState.class);
+
+    private static final String SOURCE_TOKEN = "sync-token.source";
+
+    private static final String TARGET_TOKEN = "sync-token.target";
+
+    /**
+     * The versions of a synchronised object.
+     */
+    public static final class Entry {
+
+        private final String sourceVersion;
+
+        private final String targetVersion;
+
+        Entry(String sourceVersion, String targetVersion) {
+            this.sourceVersion = sourceVersion;
+            this.targetVersion = targetVersion;
+        }
+
+        public String getSourceVersion() {
+            return sourceVersion;
+        }
+
+        public String getTargetVersion() {
+            return targetVersion;
+        }
+    }
+
+    private final Path file;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile String sourceToken;
+
+    private volatile String targetToken;
+
+    private Writer journal;
+
+    private int appended;
+
+    /**
+     * @param file a file in which to persist state, or null to retain state in memory only
+     */
+    public SyncState(Path file) {
+        this.file = file;
+        if (file != null && Files.exists(file)) {
+            load();
+        }
+    }
+
+    public SyncState() {
+        this(null);
+    }
+
+    /**
+     * @param uid an object UID
+     * @return the versions recorded for the object, or null if the object has not been synchronised
+     */
+    public Entry get(String uid) {
+        return entries.get(uid);
+    }
+
+    /**
+     * @param uid an object UID
+     * @param sourceVersion the version of the object in the source collection
+     * @param targetVersion the version of the object in the target collection
+     */
+    public void put(String uid, String sourceVersion, String targetVersion) {
+        entries.put(uid, new Entry(sourceVersion, targetVersion));
+        append(uid, sourceVersion + "|" + targetVersion);
+    }
+
+    /**
+     * @param uid the UID of an object removed from both collections
+     */
+    public void remove(String uid) {
+        if (entries.remove(uid) != null) {
+            // an empty value indicates removal..
+            append(uid, "");
+        }
+    }
+
+    /**
+     * @return the sync token of the source collection, or null if not known
+     */
+    public String getSourceToken() {
+        return sourceToken;
+    }
+
+    /**
+     * @param sourceToken the sync token of the source collection following synchronisation
+     */
+    public void setSourceToken(String sourceToken) {
+        this.sourceToken = sourceToken;
+        append(SOURCE_TOKEN, sourceToken != null ? sourceToken : "");
+    }
+
+    /**
+     * @return the sync token of the target collection, or null if not known
+     */
+    public String getTargetToken() {
+        return targetToken;
+    }
+
+    /**
+     * @param targetToken the sync token of the target collection following synchronisation
+     */
+    public void setTargetToken(String targetToken) {
+        this.targetToken = targetToken;
+        append(TARGET_TOKEN, targetToken != null ? targetToken : "");
+    }
+
+    /**
+     * @return the UIDs of all synchronised objects
+     */
+    public Set<String> getUids() {
+        return new HashSet<>(entries.keySet());
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        sourceToken = null;
+        targetToken = null;
+        // replace the file on the next flush..
+        appended = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Writes changes recorded since the previous flush to the file (if any).
+     */
+    public synchronized void flush() {
+        if (appended > entries.size()) {
+            save();
+        } else if (journal != null) {
+            try {
+                journal.flush();
+            } catch (IOException e) {
+                LOG.warn("Unable to persist synchronisation state: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the current state to the file (if any), replacing any changes previously appended.
+     */
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        closeJournal();
+        appended = 0;
+        Properties properties = new Properties();
+        entries.forEach((uid, entry) -> properties.setProperty(uid,
+                entry.getSourceVersion() + "|" + entry.getTargetVersion()));
+        if (sourceToken != null) {
+            properties.setProperty(SOURCE_TOKEN, sourceToken);
+        }
+        if (targetToken != null) {
+            properties.setProperty(TARGET_TOKEN, targetToken);
+        }
+        try {
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Synchronisation state");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Unable to persist synchronisation state: " + file, e);
+        }
+    }
+
+    private void load() {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+            // changes appended by previous synchronisations..
+            try (Stream<String> lines = Files.lines(file, StandardCharsets.ISO_8859_1)) {
+                appended = (int) Math.max(0, lines.filter(line -> !line.isEmpty() && !line.startsWith("#")).count()
+                        - properties.size());
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to load synchronisation state: " + file, e);
+            return;
+        }
+        sourceToken = properties.getProperty(SOURCE_TOKEN, "");
+        sourceToken = sourceToken.isEmpty() ? null : sourceToken;
+        properties.remove(SOURCE_TOKEN);
+        targetToken = properties.getProperty(TARGET_TOKEN, "");
+        targetToken = targetToken.isEmpty() ? null : targetToken;
+        properties.remove(TARGET_TOKEN);
+        for (String uid : properties.stringPropertyNames()) {
+            // sourceVersion|targetVersion, or empty where removed..
+            String[] values = properties.getProperty(uid).split("\\|", -1);
+            if (values.length == 2) {
+                entries.put(uid, new Entry(values[0], values[1]));
+            }
+        }
+    }
+
+    /**
+     * Appends a change to the file, in the same format such that the latest value of each property applies when the
+     * file is loaded.
+     */
+    private synchronized void append(String key, String value) {
+        if (file == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty(key, value);
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        try {
+            properties.store(entry, null);
+            if (journal == null) {
+                journal = Files.newBufferedWriter(file, StandardCharsets.ISO_8859_1, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            }
+            for (String line : new String(entry.toByteArray(), StandardCharsets.ISO_8859_1).split("\\R")) {
+                // omit the timestamp comment..
+                if (!line.startsWith("#")) {
+                    journal.write(line);
+                    journal.write(System.lineSeparator());
+                }
+            }
+            appended = Math.max(appended, appended + 1);
+        } catch (IOException e) {
+            LOG.warn("Unable to persist synchronisation state: " + file, e);
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOG.warn("Unable to persist synchronisation state: " + file, e);
+            }
+            journal = null;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package net.fortuna.ical4j.connector.dav
+
+import net.fortuna.ical4j.connector.dav.method.ReportMethod
+import org.apache.jackrabbit.webdav.xml.DomUtil
+import spock.lang.Specification
+
+import static net.fortuna.ical4j.connector.dav.AddressbookQuery.MatchType.CONTAINS
+import static net.fortuna.ical4j.connector.dav.AddressbookQuery.MatchType.STARTS_WITH
+
+class AddressbookQueryTest extends Specification {
+
+    def 'test query with filter and property selection'() {
+        given: 'a query for email addresses containing a domain'
+        def query = new AddressbookQuery()
+                .propFilter(new AddressbookQuery.PropFilter('EMAIL').textMatch('example.com', CONTAINS))
+                .properties('FN', 'EMAIL', 'TEL')
+                .limit(20)
+
+        when: 'the query is serialized as a report'
+        def report = XmlSupport.newReportInfo(ReportMethod.ADDRESSBOOK_QUERY,
+                query.toXml(XmlSupport.newDocument()), 1).toXml(XmlSupport.newDocument())
+
+        then: 'the report content is in the order specified by RFC 6352'
+        report.localName == 'addressbook-query'
+        DomUtil.getChildren(report).toList()*.localName == ['prop', 'filter', 'limit']
+
+        and: 'only the selected properties are requested'
+        def prop = DomUtil.getChildElement(report, 'prop', DavConstants.NAMESPACE)
+        def addressData = DomUtil.getChildElement(prop, 'address-data', CalDavConstants.CARDDAV_NAMESPACE)
+        DomUtil.getChildren(addressData).toList()*.getAttribute('name') == ['FN', 'EMAIL', 'TEL']
+
+        and: 'the filter matches the email domain'
+        def filter = DomUtil.getChildElement(report, 'filter', CalDavConstants.CARDDAV_NAMESPACE)
+        def propFilter = DomUtil.getChildElement(filter, 'prop-filter', CalDavConstants.CARDDAV_NAMESPACE)
+        propFilter.getAttribute('name') == 'EMAIL'
+        def textMatch = DomUtil.getChildElement(propFilter, 'text-match', CalDavConstants.CARDDAV_NAMESPACE)
+        textMatch.textContent == 'example.com'
+        textMatch.getAttribute('match-type') == 'contains'
+        textMatch.getAttribute('collation') == AddressbookQuery.DEFAULT_COLLATION
+
+        and: 'the number of results is limited'
+        DomUtil.getChildText(DomUtil.getChildElement(report, 'limit', CalDavConstants.CARDDAV_NAMESPACE),
+                'nresults', CalDavConstants.CARDDAV_NAMESPACE) == '20'
+    }
+
+    def 'test property filters with parameter conditions'() {
+        given: 'a query matching all of multiple conditions'
+        def query = new AddressbookQuery().allOf()
+                .propFilter(new AddressbookQuery.PropFilter('TEL').paramFilter('TYPE', 'work', STARTS_WITH))
+                .propFilter(new AddressbookQuery.PropFilter('PHOTO').isNotDefined())
+
+        when: 'the query is serialized'
+        def filter = DomUtil.getChildElement(query.toXml(XmlSupport.newDocument()), 'filter',
+                CalDavConstants.CARDDAV_NAMESPACE)
+        def propFilters = DomUtil.getChildren(filter).toList()
+
+        then: 'all filters must match'
+        filter.getAttribute('test') == 'allof'
+
+        and: 'parameter conditions are included'
+        def paramFilter = DomUtil.getChildElement(propFilters[0], 'param-filter', CalDavConstants.CARDDAV_NAMESPACE)
+        paramFilter.getAttribute('name') == 'TYPE'
+        DomUtil.getChildText(paramFilter, 'text-match', CalDavConstants.CARDDAV_NAMESPACE) == 'work'
+
+        and: 'undefined properties are matched'
+        DomUtil.hasChildElement(propFilters[1], 'is-not-defined', CalDavConstants.CARDDAV_NAMESPACE)
+    }
+}
@@ -0,0 +1,136 @@
+package net.fortuna.ical4j.connector.dav
+
+import com.sun.net.httpserver.HttpServer
+import net.fortuna.ical4j.connector.FailedOperationException
+import org.apache.http.HttpHost
+import org.apache.http.impl.auth.BasicScheme
+import org.apache.http.impl.auth.DigestScheme
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class AuthSchemeCacheTest extends Specification {
+
+    HttpServer server
+
+    def requests = new AtomicInteger()
+
+    def challenges = new AtomicInteger()
+
+    def passwords = ['user': 'secret']
+
+    URL url
+
+    def setup() {
+        server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/') { exchange ->
+            requests.incrementAndGet()
+            exchange.requestBody.bytes
+            def authorization = exchange.requestHeaders.getFirst('Authorization')
+            if (authorization == null) {
+                challenges.incrementAndGet()
+                exchange.responseHeaders.add('WWW-Authenticate', 'Basic realm="test"')
+                exchange.sendResponseHeaders(401, -1)
+            } else if (passwords.any { user, password ->
+                authorization == "Basic ${"${user}:${password}".bytes.encodeBase64()}".toString() }) {
+                exchange.sendResponseHeaders(200, 2)
+                exchange.responseBody.withStream { it.write('OK'.bytes) }
+            } else {
+                exchange.responseHeaders.add('WWW-Authenticate', 'Basic realm="test"')
+                exchange.sendResponseHeaders(401, -1)
+            }
+            exchange.close()
+        }
+        server.start()
+        url = new URL("http://localhost:${server.address.port}/")
+    }
+
+    def cleanup() {
+        server?.stop(0)
+    }
+
+    def client(String username, String password, boolean shared) {
+        DavClient.builder(url).principalPath('/principals/user/').sharedAuthCache(shared)
+                .credentials(username, password.toCharArray()).build()
+    }
+
+    def 'test negotiated scheme is used by all requests of a client'() {
+        given: 'a client'
+        def davClient = client('user', 'secret', false)
+
+        when: 'multiple requests are executed'
+        3.times { davClient.supportedFeatures }
+
+        then: 'only the first request is challenged'
+        challenges.get() == 1
+        requests.get() == 4
+
+        when: 'another client connects'
+        client('user', 'secret', false).supportedFeatures
+
+        then: 'the scheme is not shared by default'
+        challenges.get() == 2
+    }
+
+    def 'test negotiated scheme is shared by clients of the same user'() {
+        given: 'a user'
+        passwords['shared-user'] = 'secret'
+
+        when: 'multiple clients connect'
+        3.times {
+            client('shared-user', 'secret', true).supportedFeatures
+        }
+
+        then: 'only the first client is challenged'
+        challenges.get() == 1
+        requests.get() == 4
+
+        and: 'the scheme is cached for the user'
+        AuthSchemeCache.getShared('shared-user').getSchemeName(new HttpHost('localhost', server.address.port,
+                'http')) == 'basic'
+    }
+
+    def 'test failed authentication does not affect other users of a host'() {
+        given: 'two users of the same host'
+        passwords['user-a'] = 'secret'
+        passwords['user-b'] = 'secret'
+        def host = new HttpHost('localhost', server.address.port, 'http')
+
+        and: 'each user has authenticated'
+        client('user-a', 'secret', true).supportedFeatures
+        client('user-b', 'secret', true).supportedFeatures
+
+        when: 'the password of one user is changed'
+        passwords['user-b'] = 'changed'
+
+        and: 'the user connects with the previous password'
+        client('user-b', 'secret', true).supportedFeatures
+
+        then: 'authentication fails'
+        thrown(FailedOperationException)
+
+        and: 'only that user is no longer authenticated preemptively'
+        AuthSchemeCache.getShared('user-b').getSchemeName(host) == null
+        AuthSchemeCache.getShared('user-a').getSchemeName(host) == 'basic'
+
+        when: 'the other user connects'
+        challenges.set(0)
+        client('user-a', 'secret', true).supportedFeatures
+
+        then: 'the request is authenticated preemptively'
+        challenges.get() == 0
+    }
+
+    def 'test digest schemes are not cached'() {
+        given: 'an auth cache'
+        def cache = new AuthSchemeCache()
+        def host = new HttpHost('dav.example.com', 443, 'https')
+
+        when: 'a digest scheme is cached'
+        cache.put(host, new BasicScheme())
+        cache.put(host, new DigestScheme())
+
+        then: 'no scheme is cached for the host'
+        cache.get(host) == null
+    }
+}
@@ -0,0 +1,78 @@
+package net.fortuna.ical4j.connector.dav
+
+import com.sun.net.httpserver.HttpServer
+import org.apache.http.client.methods.HttpGet
+import spock.lang.Specification
+
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class BearerTokenManagerTest extends Specification {
+
+    def 'test concurrent callers share a single refresh'() {
+        given: 'a slow token supplier'
+        def count = new AtomicInteger()
+        BearerTokenManager manager = [{
+            Thread.sleep(200)
+            new BearerToken("token-${count.incrementAndGet()}", System.currentTimeMillis() + 3600000)
+        } as BearerTokenSupplier]
+
+        when: 'tokens are requested concurrently'
+        def executor = Executors.newFixedThreadPool(10)
+        def tokens = (1..10).collect { executor.submit({ manager.getToken() } as java.util.concurrent.Callable) }
+                .collect { it.get(5, TimeUnit.SECONDS) }
+
+        then: 'a single token is obtained'
+        count.get() == 1
+        tokens.unique() == ['token-1']
+
+        cleanup:
+        executor?.shutdown()
+    }
+
+    def 'test rejected token is refreshed once'() {
+        given: 'a token manager'
+        def count = new AtomicInteger()
+        BearerTokenManager manager = [{
+            new BearerToken("token-${count.incrementAndGet()}", System.currentTimeMillis() + 3600000)
+        } as BearerTokenSupplier]
+        def rejected = manager.getToken()
+
+        when: 'the token is rejected by multiple requests'
+        def first = manager.refresh(rejected)
+        def second = manager.refresh(rejected)
+
+        then: 'the token is refreshed once'
+        first == 'token-2'
+        second == 'token-2'
+        count.get() == 2
+    }
+
+    def 'test requests are authenticated with a refreshed token'() {
+        given: 'a server that only accepts the refreshed token'
+        def server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/') { exchange ->
+            def status = exchange.requestHeaders.getFirst('Authorization') == 'Bearer token-2' ? 200 : 401
+            exchange.sendResponseHeaders(status, 2)
+            exchange.responseBody.withStream { it.write('OK'.bytes) }
+        }
+        server.start()
+
+        and: 'a client with a token supplier'
+        def count = new AtomicInteger()
+        def client = DavClient.builder(new URL("http://localhost:${server.address.port}/"))
+                .bearerTokenSupplier({ new BearerToken("token-${count.incrementAndGet()}") } as BearerTokenSupplier)
+                .build()
+
+        when: 'a request is executed'
+        def response = client.executeAndRelease(new HttpGet('/'))
+
+        then: 'the request is authenticated with the refreshed token'
+        response.statusLine.statusCode == 200
+        count.get() == 2
+
+        cleanup:
+        server?.stop(0)
+    }
+}
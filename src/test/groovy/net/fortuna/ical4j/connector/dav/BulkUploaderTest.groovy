@@ -0,0 +1,146 @@
+package net.fortuna.ical4j.connector.dav
+
+import com.sun.net.httpserver.HttpServer
+import net.fortuna.ical4j.data.CalendarBuilder
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.concurrent.atomic.AtomicInteger
+
+class BulkUploaderTest extends Specification {
+
+    HttpServer server
+
+    def requests = Collections.synchronizedList([])
+
+    /**
+     * Responds to each PUT request with the [status, headers] returned by the handler.
+     */
+    def handler = { String path -> [201, [ETag: "\"${path.hashCode()}\"".toString()]] }
+
+    CalDavCalendarCollection collection
+
+    def setup() {
+        server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.executor = java.util.concurrent.Executors.newCachedThreadPool()
+        server.createContext('/') { exchange ->
+            exchange.requestBody.getText('UTF-8')
+            requests << [path: exchange.requestURI.path, time: System.currentTimeMillis()]
+            def response = handler(exchange.requestURI.path)
+            response[1].each { k, v -> exchange.responseHeaders.add(k, v) }
+            exchange.sendResponseHeaders(response[0], -1)
+            exchange.close()
+        }
+        server.start()
+        def store = new CalDavCalendarStore('-//Ben Fortuna//iCal4j Connector 1.0//EN',
+                new URL("http://localhost:${server.address.port}/"), PathResolver.CALENDAR_SERVER)
+        store.connect()
+        collection = new CalDavCalendarCollection(store, '/calendars/test/')
+    }
+
+    def cleanup() {
+        server?.stop(0)
+        server?.executor?.shutdownNow()
+    }
+
+    static calendar(String uid) {
+        new CalendarBuilder().build(new StringReader("""BEGIN:VCALENDAR
+PRODID:-//Ben Fortuna//iCal4j 1.0//EN
+VERSION:2.0
+BEGIN:VEVENT
+UID:${uid}
+DTSTAMP:20261019T000000Z
+DTSTART:20261019T100000Z
+SUMMARY:Event ${uid}
+END:VEVENT
+END:VCALENDAR
+""".replace('\n', '\r\n')))
+    }
+
+    def 'test concurrency is decreased for all uploaders to a host when throttled'() {
+        given: 'a server that throttles the first upload'
+        def count = new AtomicInteger()
+        handler = { path -> count.incrementAndGet() == 1 ? [429, ['Retry-After': '0']]
+                : [201, [ETag: '"1"']] }
+
+        and: 'uploaders to the same host'
+        def uploader = new BulkUploader(collection, 4, 3)
+        def other = new BulkUploader(new CalDavCalendarCollection(collection.store, '/calendars/other/'), 4, 3)
+
+        when: 'a calendar object is uploaded'
+        def results = uploader.upload([calendar('1')], null)
+
+        then: 'the upload is retried by the uploader only'
+        results*.status == [BulkUploader.Status.UPLOADED]
+        requests.size() == 2
+
+        and: 'concurrency is decreased for the host'
+        uploader.concurrency == 2
+        other.concurrency == 2
+    }
+
+    def 'test uploads are paused as requested by the server'() {
+        given: 'a server that throttles the first upload'
+        def count = new AtomicInteger()
+        handler = { path -> count.incrementAndGet() == 1 ? [503, ['Retry-After': '1']]
+                : [201, [ETag: '"1"']] }
+
+        when: 'calendar objects are uploaded'
+        def results = new BulkUploader(collection, 1, 3).upload([calendar('1'), calendar('2')], null)
+
+        then: 'all uploads succeed'
+        results*.status == [BulkUploader.Status.UPLOADED, BulkUploader.Status.UPLOADED]
+
+        and: 'uploads resume after the requested delay'
+        requests.size() == 3
+        requests[1].time - requests[0].time >= 900
+    }
+
+    def 'test uploads are resumed from a checkpoint'() {
+        given: 'a checkpoint recording a completed upload'
+        def file = Files.createTempFile('checkpoint', '.txt')
+        Files.write(file, ['2.ics'])
+
+        when: 'calendar objects are uploaded'
+        def checkpoint = new BulkUploader.FileCheckpoint(file)
+        def results = new BulkUploader(collection, 2, 3).upload([calendar('1'), calendar('2'),
+                                                                 calendar('3')], checkpoint)
+        checkpoint.close()
+
+        then: 'completed uploads are skipped'
+        results*.status == [BulkUploader.Status.UPLOADED, BulkUploader.Status.SKIPPED,
+                            BulkUploader.Status.UPLOADED]
+        requests*.path.sort() == ['/calendars/test/1.ics', '/calendars/test/3.ics']
+
+        and: 'new uploads are recorded'
+        Files.readAllLines(file).sort() == ['1.ics', '2.ics', '3.ics']
+
+        cleanup:
+        Files.deleteIfExists(file)
+    }
+
+    def 'test file checkpoint is restored'() {
+        given: 'a checkpoint file'
+        def file = Files.createTempFile('checkpoint', '.txt')
+
+        and: 'completed uploads are recorded'
+        def checkpoint = new BulkUploader.FileCheckpoint(file)
+        checkpoint.complete('1.ics')
+        checkpoint.complete('2.ics')
+        checkpoint.complete('1.ics')
+        checkpoint.close()
+
+        when: 'the checkpoint is reopened'
+        def restored = new BulkUploader.FileCheckpoint(file)
+
+        then: 'completed uploads are restored'
+        restored.isComplete('1.ics')
+        restored.isComplete('2.ics')
+        !restored.isComplete('3.ics')
+        Files.readAllLines(file).size() == 2
+
+        cleanup:
+        restored?.close()
+        Files.deleteIfExists(file)
+    }
+}
@@ -0,0 +1,450 @@
+package net.fortuna.ical4j.connector.dav
+
+import com.sun.net.httpserver.HttpServer
+import net.fortuna.ical4j.connector.ObjectStoreException
+import net.fortuna.ical4j.model.DateTime
+import net.fortuna.ical4j.model.Property
+import spock.lang.Specification
+
+class CalDavCalendarCollectionTest extends Specification {
+
+    static final String EVENT = '''BEGIN:VCALENDAR
+PRODID:-//Ben Fortuna//iCal4j 1.0//EN
+VERSION:2.0
+BEGIN:VEVENT
+UID:event-1
+DTSTAMP:20261019T000000Z
+DTSTART:20261019T100000Z
+DTEND:20261019T110000Z
+SUMMARY:Meeting
+END:VEVENT
+END:VCALENDAR
+'''
+
+    HttpServer server
+
+    def requests = Collections.synchronizedList([])
+
+    /**
+     * Responds to each request with the [status, body, headers] returned by the handler.
+     */
+    def handler = { String method, String path, String body, Map headers -> [404, ''] }
+
+    CalDavCalendarStore store
+
+    CalDavCalendarCollection collection
+
+    def setup() {
+        server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.executor = java.util.concurrent.Executors.newCachedThreadPool()
+        server.createContext('/') { exchange ->
+            String body = exchange.requestBody.getText('UTF-8')
+            def headers = exchange.requestHeaders.collectEntries { k, v -> [k.toLowerCase(), v[0]] }
+            requests << [method: exchange.requestMethod, path: exchange.requestURI.path, body: body, headers: headers]
+            def response = handler(exchange.requestMethod, exchange.requestURI.path, body, headers)
+            (response.size() > 2 ? response[2] : [:]).each { k, v -> exchange.responseHeaders.add(k, v) }
+            byte[] content = response[1].getBytes('UTF-8')
+            exchange.sendResponseHeaders(response[0], content.length ?: -1)
+            if (content.length) {
+                exchange.responseBody.withStream { it.write(content) }
+            } else {
+                // the response is already complete, so writing would fail and close the connection..
+                exchange.close()
+            }
+        }
+        server.start()
+        store = new CalDavCalendarStore('-//Ben Fortuna//iCal4j Connector 1.0//EN',
+                new URL("http://localhost:${server.address.port}/"), PathResolver.CALENDAR_SERVER)
+        store.connect()
+        collection = new CalDavCalendarCollection(store, '/calendars/test/')
+    }
+
+    def cleanup() {
+        server?.stop(0)
+        server?.executor?.shutdownNow()
+    }
+
+    static String multistatus(Map<String, String> calendars) {
+        """<?xml version="1.0" encoding="UTF-8"?>
+<D:multistatus xmlns:D="DAV:" xmlns:C="urn:ietf:params:xml:ns:caldav">
+${calendars.collect { href, data -> """  <D:response>
+    <D:href>${href}</D:href>
+    <D:propstat>
+      <D:prop>
+        <D:getetag>"${href.hashCode()}"</D:getetag>
+        <C:calendar-data>${data.replace('&', '&amp;').replace('<', '&lt;')}</C:calendar-data>
+      </D:prop>
+      <D:status>HTTP/1.1 200 OK</D:status>
+    </D:propstat>
+  </D:response>""" }.join('\n')}
+</D:multistatus>""".toString()
+    }
+
+    def 'test free-busy is calculated locally where the report is not supported'() {
+        given: 'a server that does not support free-busy-query'
+        handler = { method, path, body, headers ->
+            body.contains('free-busy-query') ? [501, ''] : [207, multistatus(['/calendars/test/event-1.ics': EVENT]),
+                                                           ['Content-Type': 'application/xml']]
+        }
+
+        when: 'free-busy time is requested'
+        def freeBusy = collection.doFreeBusyQuery(new DateTime('20261019T000000Z'), new DateTime('20261020T000000Z'))
+
+        then: 'busy time is calculated from the events in the collection'
+        requests.size() == 2
+        freeBusy.getProperty(Property.FREEBUSY).value == '20261019T100000Z/20261019T110000Z'
+    }
+
+    def 'test free-busy failures are reported'() {
+        given: 'a server that rejects the report'
+        handler = { method, path, body, headers -> [status, ''] }
+
+        when: 'free-busy time is requested'
+        collection.doFreeBusyQuery(new DateTime('20261019T000000Z'), new DateTime('20261020T000000Z'))
+
+        then: 'the failure is reported without calculating busy time locally'
+        thrown(ObjectStoreException)
+        requests.size() == 1
+
+        where:
+        status << [401, 403, 404]
+    }
+
+    def 'test free-busy falls back on an unsupported report precondition'() {
+        given: 'a server reporting the report is not supported'
+        handler = { method, path, body, headers ->
+            body.contains('free-busy-query') ? [status, '<D:error xmlns:D="DAV:"><D:supported-report/></D:error>',
+                                                ['Content-Type': 'application/xml']]
+                    : [207, multistatus([:]), ['Content-Type': 'application/xml']]
+        }
+
+        when: 'free-busy time is requested'
+        def freeBusy = collection.doFreeBusyQuery(new DateTime('20261019T000000Z'), new DateTime('20261020T000000Z'))
+
+        then: 'busy time is calculated locally'
+        requests.size() == 2
+        freeBusy.getProperty(Property.FREEBUSY) == null
+
+        where:
+        status << [400, 403]
+    }
+
+    def 'test unmodified calendars are served from the cache'() {
+        given: 'a server supporting conditional retrieval'
+        handler = { method, path, body, headers ->
+            headers['if-none-match'] == '"1"' ? [304, '', ['ETag': '"1"']]
+                    : [200, EVENT, ['ETag': '"1"', 'Content-Type': 'text/calendar; charset=utf-8']]
+        }
+
+        when: 'a calendar is retrieved and modified by the caller'
+        def first = collection.getCalendar('event-1')
+        first.getComponent('VEVENT').getProperty('SUMMARY').value = 'Modified'
+
+        and: 'the calendar is retrieved again'
+        def second = collection.getCalendar('event-1')
+
+        then: 'the second request is conditional'
+        requests*.headers*.get('if-none-match') == [null, '"1"']
+
+        and: 'the cached calendar is unaffected by changes to previously returned instances'
+        second.getComponent('VEVENT').getProperty('SUMMARY').value == 'Meeting'
+    }
+
+    def 'test updates are conditional on the last known tags'() {
+        given: 'a server returning tags for stored calendars'
+        handler = { method, path, body, headers -> [method == 'PUT' ? 204 : 200, method == 'PUT' ? '' : EVENT,
+                                                   ['ETag': '"2"', 'Content-Type': 'text/calendar']] }
+
+        and: 'known tags for a calendar object'
+        collection.entityTags.put('event-1.ics', '"1"', scheduleTag)
+
+        when: 'the calendar is updated'
+        def etag = collection.writeCalendarOnServer('event-1.ics', new net.fortuna.ical4j.data.CalendarBuilder()
+                .build(new StringReader(EVENT)), false)
+
+        then: 'the update is conditional on the tag'
+        requests[0].headers[header] == expected
+        requests[0].headers[otherHeader] == null
+
+        and: 'the new entity tag is recorded'
+        etag == '"2"'
+        collection.entityTags.get('event-1.ics').etag == '"2"'
+
+        where:
+        scheduleTag | header                   | otherHeader              | expected
+        null        | 'if-match'               | 'if-schedule-tag-match'  | '"1"'
+        '"s1"'      | 'if-schedule-tag-match'  | 'if-match'               | '"s1"'
+    }
+
+    def 'test new calendars are created only where they do not exist'() {
+        given: 'a server'
+        handler = { method, path, body, headers -> [201, '', ['ETag': '"1"']] }
+
+        when: 'a calendar is added'
+        collection.addCalendar(new net.fortuna.ical4j.data.CalendarBuilder().build(new StringReader(EVENT)))
+
+        then: 'creation is conditional on no existing resource'
+        requests[0].path == '/calendars/test/event-1.ics'
+        requests[0].headers['if-none-match'] == '*'
+    }
+
+    def 'test conflicting updates are resolved'() {
+        given: 'a server with a modified calendar object'
+        handler = { method, path, body, headers ->
+            if (method == 'PUT') {
+                headers['if-match'] == '"2"' ? [204, '', ['ETag': '"3"']] : [412, '']
+            } else {
+                [200, EVENT.replace('Meeting', 'Remote'), ['ETag': '"2"', 'Content-Type': 'text/calendar']]
+            }
+        }
+        collection.entityTags.put('event-1.ics', '"1"', null)
+
+        and: 'a conflict resolver'
+        def conflicts = []
+        collection.conflictResolver = { local, remote ->
+            conflicts << remote.getComponent('VEVENT').getProperty('SUMMARY').value
+            local
+        }
+
+        when: 'the calendar is updated'
+        def etag = collection.writeCalendarOnServer('event-1.ics', new net.fortuna.ical4j.data.CalendarBuilder()
+                .build(new StringReader(EVENT)), false)
+
+        then: 'the remote version is passed to the resolver'
+        conflicts == ['Remote']
+
+        and: 'the merged calendar is written conditional on the remote version'
+        requests*.method == ['PUT', 'GET', 'PUT']
+        requests[2].headers['if-match'] == '"2"'
+        etag == '"3"'
+    }
+
+    def 'test unresolved conflicts are reported'() {
+        given: 'a server with a modified calendar object'
+        handler = { method, path, body, headers -> [412, ''] }
+        collection.entityTags.put('event-1.ics', '"1"', null)
+
+        when: 'the calendar is updated'
+        collection.writeCalendarOnServer('event-1.ics', new net.fortuna.ical4j.data.CalendarBuilder()
+                .build(new StringReader(EVENT)), false)
+
+        then: 'the conflict is reported'
+        def e = thrown(PreconditionFailedException)
+        e.etag == '"1"'
+        collection.entityTags.get('event-1.ics') == null
+    }
+
+    static String zonedEvent(String uid, String start) {
+        """BEGIN:VCALENDAR
+PRODID:-//Ben Fortuna//iCal4j 1.0//EN
+VERSION:2.0
+BEGIN:VTIMEZONE
+TZID:Europe/Paris
+BEGIN:STANDARD
+DTSTART:19701025T030000
+TZOFFSETFROM:+0200
+TZOFFSETTO:+0100
+END:STANDARD
+END:VTIMEZONE
+BEGIN:VEVENT
+UID:${uid}
+DTSTAMP:20261019T000000Z
+DTSTART;TZID=Europe/Paris:${start}
+SUMMARY:Event ${uid} & more
+END:VEVENT
+END:VCALENDAR
+""".toString()
+    }
+
+    def 'test collection is exported as a single calendar'() {
+        given: 'a server with calendar objects sharing a timezone'
+        handler = { method, path, body, headers ->
+            [207, multistatus(['/calendars/test/event-1.ics': zonedEvent('event-1', '20261019T100000'),
+                               '/calendars/test/event-2.ics': zonedEvent('event-2', '20261020T100000')]),
+             ['Content-Type': 'application/xml']]
+        }
+
+        when: 'the collection is exported'
+        def writer = new StringWriter()
+        collection.export(writer)
+        def exported = new net.fortuna.ical4j.data.CalendarBuilder().build(new StringReader(writer.toString()))
+
+        then: 'all objects are retrieved using a single calendar-query'
+        requests*.method == ['REPORT']
+        requests[0].body.contains('calendar-query')
+
+        and: 'the export contains a single calendar with each object and timezone'
+        writer.toString().count('BEGIN:VCALENDAR') == 1
+        exported.getComponents('VEVENT')*.getProperty('UID')*.value == ['event-1', 'event-2']
+        exported.getComponents('VEVENT')*.getProperty('SUMMARY')*.value.every { it.endsWith('& more') }
+        exported.getComponents('VTIMEZONE').size() == 1
+
+        and: 'the tags of exported objects are recorded'
+        collection.entityTags.get('event-1.ics').etag == "\"${'/calendars/test/event-1.ics'.hashCode()}\""
+    }
+
+    def 'test tags are not recorded for partial query results'() {
+        given: 'a server returning the selected properties of an event'
+        handler = { method, path, body, headers ->
+            method == 'REPORT' ? [207, multistatus(['/calendars/test/event-1.ics': EVENT]),
+                                  ['Content-Type': 'application/xml']] : [204, '']
+        }
+
+        when: 'the selected properties are queried'
+        def calendars = collection.query(new CalendarQuery('VEVENT').properties('UID', 'SUMMARY'))
+
+        then: 'no tags are recorded for the partial object'
+        calendars.length == 1
+        collection.entityTags.get('event-1.ics') == null
+
+        when: 'the partial object is written'
+        collection.updateCalendar(calendars[0])
+
+        then: 'the update is not conditional on the tags of the partial object'
+        requests[1].method == 'PUT'
+        requests[1].headers['if-match'] == null
+
+        when: 'the full objects are queried'
+        collection.query(new CalendarQuery('VEVENT'))
+
+        then: 'the tags are recorded'
+        collection.entityTags.get('event-1.ics').etag == "\"${'/calendars/test/event-1.ics'.hashCode()}\""
+    }
+
+    def 'test paged query divides windows truncated by the server'() {
+        given: 'a server that truncates the results of the first query'
+        def truncated = '<D:response><D:href>/calendars/test/</D:href>' +
+                '<D:status>HTTP/1.1 507 Insufficient Storage</D:status></D:response></D:multistatus>'
+        handler = { method, path, body, headers ->
+            switch (requests.size()) {
+                case 1: return [207, multistatus(['/calendars/test/event-1.ics': EVENT])
+                        .replace('</D:multistatus>', truncated), ['Content-Type': 'application/xml']]
+                case 2: return [207, multistatus(['/calendars/test/event-1.ics': EVENT]),
+                                ['Content-Type': 'application/xml']]
+                default: return [207, multistatus(['/calendars/test/event-2.ics': EVENT.replace('event-1', 'event-2')]),
+                                 ['Content-Type': 'application/xml']]
+            }
+        }
+
+        when: 'all pages are retrieved'
+        def pages = collection.getComponentsByType('VEVENT', 1)
+        def results = []
+        while (pages.hasNext()) {
+            results.addAll(pages.next())
+        }
+
+        then: 'the truncated window is divided and each half queried with the page size as limit'
+        requests.size() == 3
+        requests.every { it.method == 'REPORT' && it.body.contains('calendar-query') && it.body =~ /limit/ }
+        results.collect { it.getComponent('VEVENT').getProperty('UID').value } == ['event-1', 'event-2']
+
+        and: 'the tags of returned objects are recorded'
+        collection.entityTags.get('event-2.ics') != null
+    }
+
+    def 'test paging through truncated and timed out queries does not open the circuit'() {
+        given: 'the default resilience policy with a short socket timeout'
+        System.setProperty('ical4j.connector.dav.timeout.socket', '500')
+        def pagingStore = new CalDavCalendarStore('-//Ben Fortuna//iCal4j Connector 1.0//EN',
+                new URL("http://localhost:${server.address.port}/"), PathResolver.CALENDAR_SERVER)
+        pagingStore.connect()
+        def pagingCollection = new CalDavCalendarCollection(pagingStore, '/calendars/test/')
+
+        and: 'a server that times out, and then truncates the results of several queries'
+        handler = { method, path, body, headers ->
+            if (requests.size() <= 2) {
+                Thread.sleep(1500)
+            }
+            requests.size() <= 8 ? [507, ''] : [207, multistatus(['/calendars/test/event-1.ics': EVENT]),
+                                                ['Content-Type': 'application/xml']]
+        }
+
+        when: 'all pages are retrieved'
+        def pages = pagingCollection.getComponentsByType('VEVENT', 10)
+        def results = []
+        while (pages.hasNext()) {
+            results.addAll(pages.next())
+        }
+
+        then: 'the truncated windows are divided and the event is returned once'
+        requests.size() > 8
+        results.collect { it.getComponent('VEVENT').getProperty('UID').value } == ['event-1']
+
+        and: 'the circuit remains closed'
+        pagingStore.client.circuitBreaker.state == CircuitBreaker.State.CLOSED
+        pagingStore.client.circuitBreaker.consecutiveFailures == 0
+
+        cleanup:
+        System.clearProperty('ical4j.connector.dav.timeout.socket')
+    }
+
+    def 'test export fails where the response is not a multistatus'() {
+        given: 'a server returning an unexpected response'
+        handler = { method, path, body, headers -> [200, '<?xml version="1.0"?><html/>',
+                                                     ['Content-Type': 'application/xml']] }
+
+        when: 'the collection is exported'
+        collection.export(new StringWriter())
+
+        then: 'the failure is reported'
+        thrown(ObjectStoreException)
+    }
+
+    def 'test non-adjacent components are merged as they are parsed'() {
+        given: 'a server storing calendar objects'
+        def stored = Collections.synchronizedMap([:])
+        handler = { method, path, body, headers ->
+            if (method == 'PUT') {
+                stored[path] = body
+                [201, '', ['ETag': "\"${body.hashCode()}\"".toString()]]
+            } else {
+                stored[path] ? [200, stored[path], ['ETag': "\"${stored[path].hashCode()}\"".toString(),
+                                                   'Content-Type': 'text/calendar; charset=utf-8']] : [404, '']
+            }
+        }
+
+        and: 'a stream with components for one UID split across the stream'
+        def stream = """BEGIN:VCALENDAR
+PRODID:-//Ben Fortuna//iCal4j 1.0//EN
+VERSION:2.0
+BEGIN:VEVENT
+UID:event-1
+DTSTAMP:20261019T000000Z
+DTSTART:20261019T100000Z
+RRULE:FREQ=DAILY;COUNT=3
+END:VEVENT
+BEGIN:VEVENT
+UID:event-2
+DTSTAMP:20261019T000000Z
+DTSTART:20261019T100000Z
+END:VEVENT
+BEGIN:VEVENT
+UID:event-1
+DTSTAMP:20261019T000000Z
+RECURRENCE-ID:20261020T100000Z
+DTSTART:20261020T110000Z
+END:VEVENT
+BEGIN:VEVENT
+UID:event-3
+DTSTAMP:20261019T000000Z
+DTSTART:20261019T100000Z
+END:VEVENT
+END:VCALENDAR
+"""
+
+        when: 'the stream is merged'
+        def results = collection.merge(new ByteArrayInputStream(stream.getBytes('UTF-8')), null)
+
+        then: 'each calendar object is uploaded'
+        results*.status.every { it == BulkUploader.Status.UPLOADED }
+        results.size() == 3
+
+        and: 'the continuation is merged before later objects are parsed'
+        def requested = requests.collect { "${it.method} ${it.path}".toString() }
+        requested.indexOf('GET /calendars/test/event-1.ics') < requested.indexOf('PUT /calendars/test/event-3.ics')
+        requests.find { it.method == 'PUT' && it.path.endsWith('event-1.ics') && it.headers['if-match'] } != null
+
+        and: 'the stored calendar object contains all components'
+        stored['/calendars/test/event-1.ics'].count('BEGIN:VEVENT') == 2
+    }
+}
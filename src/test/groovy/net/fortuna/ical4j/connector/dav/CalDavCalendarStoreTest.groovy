@@ -0,0 +1,196 @@
+package net.fortuna.ical4j.connector.dav
+
+import com.sun.net.httpserver.HttpServer
+import net.fortuna.ical4j.model.DateTime
+import net.fortuna.ical4j.model.property.Attendee
+import net.fortuna.ical4j.model.property.DtEnd
+import net.fortuna.ical4j.model.property.DtStart
+import net.fortuna.ical4j.model.property.Organizer
+import org.apache.jackrabbit.webdav.DavException
+import spock.lang.Specification
+
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+class CalDavCalendarStoreTest extends Specification {
+
+    HttpServer server
+
+    def inFlight = new AtomicInteger()
+
+    def maxInFlight = new AtomicInteger()
+
+    def posts = new AtomicInteger()
+
+    /**
+     * Returns the [status, body] response to a schedule outbox request for the specified recipients.
+     */
+    def outbox = { String originator, List<String> recipients ->
+        [200, """<?xml version="1.0" encoding="UTF-8"?>
+<C:schedule-response xmlns:D="DAV:" xmlns:C="urn:ietf:params:xml:ns:caldav">
+${recipients.collect { """  <C:response>
+    <C:recipient><D:href>${it}</D:href></C:recipient>
+    <C:request-status>2.0;Success</C:request-status>
+    <C:calendar-data>BEGIN:VCALENDAR
+PRODID:-//Test//EN
+VERSION:2.0
+BEGIN:VFREEBUSY
+UID:${originator}-${it}
+DTSTAMP:20261019T000000Z
+ORGANIZER:${originator}
+END:VFREEBUSY
+END:VCALENDAR
+</C:calendar-data>
+  </C:response>""" }.join('\n')}
+</C:schedule-response>""".toString()]
+    }
+
+    CalDavCalendarStore store
+
+    def setup() {
+        server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.executor = Executors.newCachedThreadPool()
+        server.createContext('/') { exchange ->
+            def response
+            if (exchange.requestMethod == 'PROPFIND') {
+                response = [207, '''<?xml version="1.0" encoding="UTF-8"?>
+<D:multistatus xmlns:D="DAV:" xmlns:C="urn:ietf:params:xml:ns:caldav">
+  <D:response>
+    <D:href>/dav/user/</D:href>
+    <D:propstat>
+      <D:prop><C:schedule-outbox-URL><D:href>/outbox/</D:href></C:schedule-outbox-URL></D:prop>
+      <D:status>HTTP/1.1 200 OK</D:status>
+    </D:propstat>
+  </D:response>
+</D:multistatus>''']
+            } else {
+                posts.incrementAndGet()
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math.&max)
+                try {
+                    Thread.sleep(100)
+                    response = outbox(exchange.requestHeaders.getFirst('Originator'),
+                            exchange.requestHeaders.getFirst('Recipient').split(',') as List)
+                } finally {
+                    inFlight.decrementAndGet()
+                }
+            }
+            byte[] content = response[1].getBytes('UTF-8')
+            exchange.responseHeaders.add('Content-Type', 'application/xml; charset=utf-8')
+            exchange.sendResponseHeaders(response[0], content.length ?: -1)
+            exchange.responseBody.withStream { it.write(content) }
+        }
+        server.start()
+        store = new CalDavCalendarStore('-//Ben Fortuna//iCal4j Connector 1.0//EN',
+                new URL("http://localhost:${server.address.port}/"), PathResolver.CALENDAR_SERVER)
+        store.connect()
+    }
+
+    def cleanup() {
+        server?.stop(0)
+        server?.executor?.shutdownNow()
+    }
+
+    def lookups(int organizers) {
+        (1..organizers).collectEntries { i ->
+            [new Organizer("mailto:organizer${i}@example.com"), [
+                    new Attendee("mailto:attendee${i}@example.com"), new Attendee('mailto:room@example.com')]]
+        }
+    }
+
+    def 'test free-busy lookups are bounded by the maximum requests in flight'() {
+        given: 'lookups for many organizers'
+        def lookups = lookups(6)
+
+        when: 'free-busy information is requested'
+        def responses = store.findFreeBusyInfo(lookups, new DtStart(new DateTime('20261019T000000Z')),
+                new DtEnd(new DateTime('20261020T000000Z')), 2)
+
+        then: 'a request is sent for each organizer, with no more than two in flight'
+        posts.get() == 6
+        maxInFlight.get() <= 2
+
+        and: 'responses are returned for each organizer'
+        responses.keySet() as List == lookups.keySet() as List
+        responses.every { organizer, recipients -> recipients.size() == 2 }
+
+        and: 'a recipient shared by organizers has a response for each'
+        responses.collect { organizer, recipients ->
+            recipients['mailto:room@example.com'].calendarData.getComponent('VFREEBUSY').getProperty('ORGANIZER').value
+        } == lookups.keySet().collect { it.value }
+    }
+
+    def 'test rejected lookups are reported for each recipient'() {
+        given: 'a server rejecting schedule requests'
+        outbox = { originator, recipients -> [403, ''] }
+
+        when: 'free-busy information is requested'
+        def responses = store.findFreeBusyInfo(lookups(2), new DtStart(new DateTime('20261019T000000Z')),
+                new DtEnd(new DateTime('20261020T000000Z')), 2)
+
+        then: 'a response of unknown request status is returned for each recipient with the rejected status'
+        responses.size() == 2
+        responses.values().every { recipients -> recipients.size() == 2 }
+        responses.values().every { recipients ->
+            recipients.values().every { !it.requestStatusKnown && !it.success && it.statusCode == 403 && !it.error }
+        }
+    }
+
+    def 'test multistatus responses are parsed'() {
+        given: 'a server returning multistatus responses to schedule requests'
+        outbox = { originator, recipients ->
+            [207, """<?xml version="1.0" encoding="UTF-8"?>
+<D:multistatus xmlns:D="DAV:">
+${recipients.collect { """  <D:response><D:href>${it}</D:href><D:status>HTTP/1.1 ${it.contains('room') ? '404 Not Found' : '200 OK'}</D:status></D:response>""" }.join('\n')}
+</D:multistatus>""".toString()]
+        }
+
+        when: 'free-busy information is requested'
+        def responses = store.findFreeBusyInfo(lookups(1), new DtStart(new DateTime('20261019T000000Z')),
+                new DtEnd(new DateTime('20261020T000000Z')), 1)
+
+        then: 'a response is returned for each recipient with the reported status'
+        def recipients = responses.values().first()
+        recipients['mailto:attendee1@example.com'].statusCode == 200
+        recipients['mailto:room@example.com'].statusCode == 404
+
+        and: 'no request status is inferred from the reported status'
+        recipients.values().every { !it.requestStatusKnown && !it.success && it.requestStatusMessage == null }
+    }
+
+    def 'test invalid responses are reported for each recipient'() {
+        given: 'a server returning invalid responses'
+        outbox = { originator, recipients -> [200, 'not xml'] }
+
+        when: 'free-busy information is requested'
+        def responses = store.findFreeBusyInfo(lookups(3), new DtStart(new DateTime('20261019T000000Z')),
+                new DtEnd(new DateTime('20261020T000000Z')), 2)
+
+        then: 'a request is sent for each organizer'
+        posts.get() == 3
+
+        and: 'the failure is returned for each recipient'
+        responses.size() == 3
+        responses.values().every { recipients ->
+            recipients.size() == 2 && recipients.values().every { !it.success && it.error instanceof DavException }
+        }
+    }
+
+    def 'test a failed lookup does not affect other organizers'() {
+        given: 'a server failing the schedule requests of one organizer'
+        def delegate = outbox
+        outbox = { String originator, List<String> recipients ->
+            originator.contains('organizer2') ? [200, 'not xml'] : delegate(originator, recipients)
+        }
+
+        when: 'free-busy information is requested'
+        def responses = store.findFreeBusyInfo(lookups(3), new DtStart(new DateTime('20261019T000000Z')),
+                new DtEnd(new DateTime('20261020T000000Z')), 1)
+
+        then: 'the failure is returned for the recipients of the failed organizer only'
+        responses.collectEntries { organizer, recipients ->
+            [organizer.value, recipients.values().collect { it.success }]
+        } == ['mailto:organizer1@example.com': [true, true], 'mailto:organizer2@example.com': [false, false],
+              'mailto:organizer3@example.com': [true, true]]
+        responses.find { it.key.value.contains('organizer2') }.value.values().every { it.error }
+    }
+}
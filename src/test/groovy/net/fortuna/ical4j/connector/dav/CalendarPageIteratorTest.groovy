@@ -0,0 +1,290 @@
+package net.fortuna.ical4j.connector.dav
+
+import net.fortuna.ical4j.connector.ObjectStoreException
+import net.fortuna.ical4j.connector.filter.TimeRange
+import net.fortuna.ical4j.model.Calendar
+import net.fortuna.ical4j.model.Component
+import net.fortuna.ical4j.model.ContentBuilder
+import net.fortuna.ical4j.model.DateTime
+import spock.lang.Specification
+
+class CalendarPageIteratorTest extends Specification {
+
+    def events = (1..20).collectEntries { day ->
+        String date = String.format('202101%02d', day)
+        ["/calendar/event-${day}.ics".toString(), new ContentBuilder().with {
+            calendar {
+                prodid '-//Ben Fortuna//iCal4j 1.0//EN'
+                version '2.0'
+                vevent {
+                    uid "event-${day}".toString()
+                    dtstamp()
+                    dtstart "${date}T090000Z".toString()
+                    // the last event spans the remaining period..
+                    dtend day == 20 ? '20210201T000000Z' : "${date}T100000Z".toString()
+                }
+            }
+        }]
+    }
+
+    def queries = []
+
+    def limits = []
+
+    /**
+     * A server that returns at most the specified number of results, indicating truncation where more results match.
+     */
+    def server = { TimeRange window, int limit, consumer ->
+        queries << window
+        limits << limit
+        def matches = events.findAll { href, Calendar calendar ->
+            window.overlaps(TimeRange.span(calendar, Component.VEVENT))
+        }
+        (limit > 0 ? matches.take(limit) : matches).each { href, calendar -> consumer.accept(href, calendar) }
+        limit == 0 || matches.size() <= limit
+    } as CalendarPageIterator.WindowQuery
+
+    def 'test truncated windows are divided'() {
+        given: 'a paged query over a time period'
+        def pages = new CalendarPageIterator(server, new CalendarPageIterator.Continuation(Component.VEVENT, 5,
+                new DateTime('20210101T000000Z'), new DateTime('20210201T000000Z')))
+
+        when: 'all pages are retrieved'
+        def results = []
+        while (pages.hasNext()) {
+            def page = pages.next()
+            assert page.length <= 5
+            results.addAll(page)
+        }
+
+        then: 'all events are returned once'
+        results.size() == 20
+        results.collect { it.getComponent(Component.VEVENT).uid.value }.toSet().size() == 20
+
+        and: 'the time period was divided'
+        queries.size() > 1
+        queries[0].start == new DateTime('20210101T000000Z')
+    }
+
+    def 'test unbounded query is divided'() {
+        given: 'a paged query with no time period'
+        def pages = new CalendarPageIterator(server, new CalendarPageIterator.Continuation(Component.VEVENT, 10,
+                null, null))
+
+        when: 'all pages are retrieved'
+        def results = []
+        while (pages.hasNext()) {
+            results.addAll(pages.next())
+        }
+
+        then: 'all events are returned'
+        results.size() == 20
+    }
+
+    def 'test timed out windows are divided'() {
+        given: 'a server that times out for windows longer than a week'
+        def timeouts = 0
+        def slowServer = { TimeRange window, int limit, consumer ->
+            if (window.end.time - window.start.time > 7 * 24 * 60 * 60 * 1000L) {
+                timeouts++
+                throw new SocketTimeoutException()
+            }
+            server.query(window, limit, consumer)
+        } as CalendarPageIterator.WindowQuery
+
+        and: 'a paged query over a time period'
+        def pages = new CalendarPageIterator(slowServer, new CalendarPageIterator.Continuation(Component.VEVENT, 50,
+                new DateTime('20210101T000000Z'), new DateTime('20210201T000000Z')))
+
+        when: 'all pages are retrieved'
+        def results = []
+        while (pages.hasNext()) {
+            results.addAll(pages.next())
+        }
+
+        then: 'all events are returned'
+        timeouts > 0
+        results.size() == 20
+    }
+
+    def 'test windows are divided where the request times out'() {
+        given: 'a server that exceeds the request timeout for windows longer than a week'
+        def timeouts = 0
+        def slowServer = { TimeRange window, int limit, consumer ->
+            if (window.end.time - window.start.time > 7 * 24 * 60 * 60 * 1000L) {
+                timeouts++
+                throw new RequestTimeoutException('REPORT /calendar/ timed out')
+            }
+            server.query(window, limit, consumer)
+        } as CalendarPageIterator.WindowQuery
+
+        and: 'a paged query over a time period'
+        def pages = new CalendarPageIterator(slowServer, new CalendarPageIterator.Continuation(Component.VEVENT, 50,
+                new DateTime('20210101T000000Z'), new DateTime('20210201T000000Z')))
+
+        when: 'all pages are retrieved'
+        def results = []
+        while (pages.hasNext()) {
+            results.addAll(pages.next())
+        }
+
+        then: 'all events are returned'
+        timeouts > 0
+        results.size() == 20
+    }
+
+    def 'test other interruptions are not divided'() {
+        given: 'a server where the request is interrupted'
+        def pages = new CalendarPageIterator({ window, limit, consumer -> throw new InterruptedIOException() }
+                as CalendarPageIterator.WindowQuery, new CalendarPageIterator.Continuation(Component.VEVENT, 5,
+                new DateTime('20210101T000000Z'), new DateTime('20210201T000000Z')))
+
+        when: 'a page is retrieved'
+        pages.next()
+
+        then: 'the failure is reported'
+        def e = thrown(ObjectStoreException)
+        e.cause instanceof InterruptedIOException
+    }
+
+    def 'test minimum window is queried without a limit where still truncated'() {
+        given: 'more events starting at the same time than the page size'
+        events = (1..8).collectEntries { n ->
+            ["/calendar/event-${n}.ics".toString(), new ContentBuilder().with {
+                calendar {
+                    prodid '-//Ben Fortuna//iCal4j 1.0//EN'
+                    version '2.0'
+                    vevent {
+                        uid "event-${n}".toString()
+                        dtstamp()
+                        dtstart '20210101T090000Z'
+                        dtend '20210101T100000Z'
+                    }
+                }
+            }]
+        }
+
+        and: 'a paged query over a time period'
+        def pages = new CalendarPageIterator(server, new CalendarPageIterator.Continuation(Component.VEVENT, 5,
+                new DateTime('20210101T000000Z'), new DateTime('20210102T000000Z')))
+
+        when: 'all pages are retrieved'
+        def results = []
+        while (pages.hasNext()) {
+            results.addAll(pages.next())
+        }
+
+        then: 'all events are returned once'
+        results.size() == 8
+        results.collect { it.getComponent(Component.VEVENT).uid.value }.toSet().size() == 8
+
+        and: 'the smallest window was queried without a limit'
+        limits.contains(0)
+        queries[limits.indexOf(0)].end.time - queries[limits.indexOf(0)].start.time <= 60 * 1000L
+    }
+
+    def 'test paged query is resumed from continuation'() {
+        given: 'a paged query that is partially retrieved'
+        def pages = new CalendarPageIterator(server, new CalendarPageIterator.Continuation(Component.VEVENT, 5,
+                new DateTime('20210101T000000Z'), new DateTime('20210201T000000Z')))
+        def results = []
+        results.addAll(pages.next())
+        results.addAll(pages.next())
+
+        when: 'the continuation is serialized and resumed'
+        def out = new ByteArrayOutputStream()
+        new ObjectOutputStream(out).writeObject(pages.continuation)
+        def continuation = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray())).readObject()
+        def resumed = new CalendarPageIterator(server, continuation)
+        while (resumed.hasNext()) {
+            results.addAll(resumed.next())
+        }
+
+        then: 'the remaining events are returned once'
+        results.size() == 20
+        continuation.componentType == Component.VEVENT
+    }
+
+    def 'test truncation of minimum window fails'() {
+        given: 'a server that always truncates results'
+        def pages = new CalendarPageIterator({ window, limit, consumer -> false } as CalendarPageIterator.WindowQuery,
+                new CalendarPageIterator.Continuation(Component.VEVENT, 5, new DateTime('20210101T000000Z'),
+                        new DateTime('20210102T000000Z')))
+
+        when: 'a page is retrieved'
+        pages.next()
+
+        then: 'an exception is thrown'
+        thrown(ObjectStoreException)
+    }
+
+    def 'test windows are divided a limited number of times where the query times out'() {
+        given: 'a server that always times out'
+        def timeouts = 0
+        def pages = new CalendarPageIterator({ window, limit, consumer ->
+            timeouts++
+            throw new SocketTimeoutException()
+        } as CalendarPageIterator.WindowQuery, new CalendarPageIterator.Continuation(Component.VEVENT, 5,
+                new DateTime('20210101T000000Z'), new DateTime('20210201T000000Z')))
+
+        when: 'a page is retrieved'
+        pages.next()
+
+        then: 'the timeout is reported once the window has been divided the maximum number of times'
+        def e = thrown(ObjectStoreException)
+        e.cause instanceof SocketTimeoutException
+        timeouts == CalendarPageIterator.MAX_TIMEOUT_SPLITS + 1
+    }
+
+    def 'test only hrefs of objects overlapping remaining windows are retained'() {
+        given: 'long and recurring events in addition to the events of each day'
+        events['/calendar/long.ics'] = event('long', '20210102T000000Z', '20210201T000000Z', null)
+        events['/calendar/recurring.ics'] = event('recurring', '20210101T120000Z', '20210101T130000Z', 'FREQ=WEEKLY')
+
+        and: 'a paged query over a time period'
+        def pages = new CalendarPageIterator(server, new CalendarPageIterator.Continuation(Component.VEVENT, 5,
+                new DateTime('20210101T000000Z'), new DateTime('20210201T000000Z')))
+
+        when: 'pages are retrieved until the events of the first week are returned'
+        def results = []
+        while (results.size() < 10) {
+            results.addAll(pages.next())
+        }
+
+        then: 'only events that may overlap the remaining windows are retained'
+        def retained = pages.continuation.hrefs.keySet()
+        retained.containsAll(['/calendar/long.ics', '/calendar/recurring.ics'])
+        !retained.contains('/calendar/event-1.ics')
+        retained.size() < results.size()
+
+        when: 'the remaining pages are retrieved'
+        while (pages.hasNext()) {
+            results.addAll(pages.next())
+        }
+
+        then: 'all events are returned once'
+        results.size() == 22
+        results.collect { it.getComponent(Component.VEVENT).uid.value }.toSet().size() == 22
+
+        and: 'no hrefs are retained'
+        pages.continuation.hrefs.isEmpty()
+    }
+
+    static Calendar event(String eventUid, String start, String end, String recurrence) {
+        new ContentBuilder().with {
+            calendar {
+                prodid '-//Ben Fortuna//iCal4j 1.0//EN'
+                version '2.0'
+                vevent {
+                    uid eventUid
+                    dtstamp()
+                    dtstart start
+                    dtend end
+                    if (recurrence) {
+                        rrule recurrence
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package net.fortuna.ical4j.connector.dav
+
+import net.fortuna.ical4j.connector.filter.ComponentFilter
+import net.fortuna.ical4j.connector.filter.ParameterFilter
+import net.fortuna.ical4j.connector.filter.PropertyFilter
+import net.fortuna.ical4j.connector.filter.TextMatch
+import net.fortuna.ical4j.connector.filter.TimeRange
+import net.fortuna.ical4j.model.Component
+import net.fortuna.ical4j.model.DateTime
+import net.fortuna.ical4j.model.Property
+import org.apache.jackrabbit.webdav.xml.DomUtil
+import spock.lang.Specification
+
+class CalendarQueryTest extends Specification {
+
+    def 'test query with property projection'() {
+        given: 'a query for event summaries in a time range'
+        def start = new DateTime('20210101T000000Z')
+        def end = new DateTime('20210201T000000Z')
+        def query = new CalendarQuery(Component.VEVENT)
+                .timeRange(start, end)
+                .properties(Property.UID, Property.SUMMARY, Property.DTSTART)
+                .limitRecurrenceSet(start, end)
+                .limit(50)
+
+        when: 'the query is serialized'
+        def report = query.toXml(XmlSupport.newDocument())
+
+        then: 'the report content is in the order specified by RFC 4791'
+        report.localName == 'calendar-query'
+        DomUtil.getChildren(report).toList()*.localName == ['prop', 'filter', 'limit']
+
+        and: 'only the selected event properties are requested'
+        def calendarData = DomUtil.getChildElement(DomUtil.getChildElement(report, 'prop', DavConstants.NAMESPACE),
+                'calendar-data', CalDavConstants.CALDAV_NAMESPACE)
+        def calendar = DomUtil.getChildElement(calendarData, 'comp', CalDavConstants.CALDAV_NAMESPACE)
+        def components = DomUtil.getChildren(calendar, 'comp', CalDavConstants.CALDAV_NAMESPACE).toList()
+        components*.getAttribute('name') == ['VTIMEZONE', 'VEVENT']
+        DomUtil.getChildren(components[1]).toList()*.getAttribute('name') == ['UID', 'SUMMARY', 'DTSTART']
+
+        and: 'recurrence overrides are limited to the time range'
+        DomUtil.getChildElement(calendarData, 'limit-recurrence-set', CalDavConstants.CALDAV_NAMESPACE)
+                .getAttribute('start') == '20210101T000000Z'
+
+        and: 'events are filtered by time range'
+        def filter = DomUtil.getChildElement(report, 'filter', CalDavConstants.CALDAV_NAMESPACE)
+        def eventFilter = DomUtil.getChildElement(DomUtil.getChildElement(filter, 'comp-filter',
+                CalDavConstants.CALDAV_NAMESPACE), 'comp-filter', CalDavConstants.CALDAV_NAMESPACE)
+        eventFilter.getAttribute('name') == 'VEVENT'
+        DomUtil.getChildElement(eventFilter, 'time-range', CalDavConstants.CALDAV_NAMESPACE)
+                .getAttribute('end') == '20210201T000000Z'
+    }
+
+    def 'test query without projection requests complete calendar data'() {
+        when: 'a query is serialized without selected properties'
+        def report = new CalendarQuery(Component.VTODO).toXml(XmlSupport.newDocument())
+
+        then: 'calendar data is requested without restriction'
+        def calendarData = DomUtil.getChildElement(DomUtil.getChildElement(report, 'prop', DavConstants.NAMESPACE),
+                'calendar-data', CalDavConstants.CALDAV_NAMESPACE)
+        !DomUtil.hasContent(calendarData)
+
+        and: 'the number of results is not limited'
+        !DomUtil.hasChildElement(report, 'limit', CalDavConstants.CALDAV_NAMESPACE)
+    }
+
+    def 'test query with typed filter'() {
+        given: 'a filter for accepted events containing a keyword'
+        def filter = ComponentFilter.calendar().component(new ComponentFilter(Component.VEVENT)
+                .timeRange(new TimeRange(new DateTime('20210101T000000Z'), null))
+                .property(new PropertyFilter(Property.SUMMARY).textMatch(new TextMatch('review', false, true)))
+                .property(new PropertyFilter(Property.ATTENDEE).parameter(ParameterFilter.notDefined('ROLE')))
+                .component(new ComponentFilter(Component.VALARM).notDefined()))
+
+        when: 'a query with the filter is serialized'
+        def report = new CalendarQuery(Component.VEVENT).filter(filter).toXml(XmlSupport.newDocument())
+
+        then: 'the filter is translated to the equivalent CalDAV filter'
+        def calendarFilter = DomUtil.getChildElement(DomUtil.getChildElement(report, 'filter',
+                CalDavConstants.CALDAV_NAMESPACE), 'comp-filter', CalDavConstants.CALDAV_NAMESPACE)
+        calendarFilter.getAttribute('name') == 'VCALENDAR'
+        def eventFilter = DomUtil.getChildElement(calendarFilter, 'comp-filter', CalDavConstants.CALDAV_NAMESPACE)
+        DomUtil.getChildren(eventFilter).toList()*.localName == ['time-range', 'prop-filter', 'prop-filter',
+                                                                 'comp-filter']
+
+        and: 'open-ended time ranges have no end'
+        def timeRange = DomUtil.getChildElement(eventFilter, 'time-range', CalDavConstants.CALDAV_NAMESPACE)
+        timeRange.getAttribute('start') == '20210101T000000Z'
+        !timeRange.hasAttribute('end')
+
+        and: 'text matches include the collation and negation'
+        def propFilters = DomUtil.getChildren(eventFilter, 'prop-filter', CalDavConstants.CALDAV_NAMESPACE).toList()
+        def textMatch = DomUtil.getChildElement(propFilters[0], 'text-match', CalDavConstants.CALDAV_NAMESPACE)
+        DomUtil.getText(textMatch) == 'review'
+        textMatch.getAttribute('collation') == 'i;ascii-casemap'
+        textMatch.getAttribute('negate-condition') == 'yes'
+
+        and: 'parameter and component conditions are included'
+        def paramFilter = DomUtil.getChildElement(propFilters[1], 'param-filter', CalDavConstants.CALDAV_NAMESPACE)
+        paramFilter.getAttribute('name') == 'ROLE'
+        DomUtil.hasChildElement(paramFilter, 'is-not-defined', CalDavConstants.CALDAV_NAMESPACE)
+        DomUtil.hasChildElement(DomUtil.getChildElement(eventFilter, 'comp-filter', CalDavConstants.CALDAV_NAMESPACE),
+                'is-not-defined', CalDavConstants.CALDAV_NAMESPACE)
+    }
+}
@@ -0,0 +1,159 @@
+package net.fortuna.ical4j.connector.dav
+
+import com.sun.net.httpserver.HttpServer
+import net.fortuna.ical4j.connector.FailedOperationException
+import net.fortuna.ical4j.connector.dav.enums.SupportedFeature
+import org.apache.http.client.HttpResponseException
+import org.apache.http.client.methods.HttpGet
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.concurrent.atomic.AtomicInteger
+
+class CapabilityCacheTest extends Specification {
+
+    def 'test capabilities are persisted'() {
+        given: 'a persistent capability cache'
+        def file = Files.createTempFile('capabilities', '.properties')
+        CapabilityCache cache = [60000, file]
+
+        when: 'capabilities are cached'
+        cache.put('https://dav.example.com:443/principals/user/', new CapabilityCache.Capabilities(
+                [SupportedFeature.CALENDAR_ACCESS, SupportedFeature.CALENDAR_PROXY], 'Digest',
+                System.currentTimeMillis()))
+
+        and: 'the cache is reloaded'
+        CapabilityCache reloaded = [60000, file]
+
+        then: 'the capabilities are restored'
+        def capabilities = reloaded.get('https://dav.example.com:443/principals/user/')
+        capabilities.supportedFeatures == [SupportedFeature.CALENDAR_ACCESS, SupportedFeature.CALENDAR_PROXY]
+        capabilities.authScheme == 'Digest'
+
+        cleanup:
+        Files.deleteIfExists(file)
+    }
+
+    def 'test expired capabilities are ignored'() {
+        given: 'a capability cache'
+        CapabilityCache cache = [60000, null]
+
+        when: 'expired capabilities are cached'
+        cache.put('key', new CapabilityCache.Capabilities([], null, System.currentTimeMillis() - 60000))
+
+        then: 'the capabilities are not returned'
+        cache.get('key') == null
+        cache.isStale('key')
+    }
+
+    def 'test discovery is skipped for cached capabilities'() {
+        given: 'a server'
+        def requests = new AtomicInteger()
+        def server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/') { exchange ->
+            requests.incrementAndGet()
+            exchange.responseHeaders.add('DAV', '1, 2, calendar-access')
+            exchange.sendResponseHeaders(200, 2)
+            exchange.responseBody.withStream { it.write('OK'.bytes) }
+        }
+        server.start()
+
+        and: 'a capability cache'
+        CapabilityCache cache = [60000, null]
+        def url = new URL("http://localhost:${server.address.port}/")
+
+        when: 'multiple clients connect'
+        def features = (1..3).collect {
+            DavClient.builder(url).principalPath('/principals/user/').capabilityCache(cache)
+                    .credentials('user', 'secret'.toCharArray()).build().supportedFeatures
+        }
+
+        then: 'discovery is performed once'
+        requests.get() == 1
+        features.every { it == [SupportedFeature.CALENDAR_ACCESS] }
+
+        cleanup:
+        server?.stop(0)
+    }
+
+    def 'test cached capabilities are not used with other credentials'() {
+        given: 'a server requiring authentication'
+        def requests = new AtomicInteger()
+        def password = 'secret'
+        def server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/') { exchange ->
+            requests.incrementAndGet()
+            exchange.requestBody.bytes
+            if (exchange.requestHeaders.getFirst('Authorization') != "Basic ${"user:${password}".bytes.encodeBase64()}") {
+                exchange.responseHeaders.add('WWW-Authenticate', 'Basic realm="test"')
+                exchange.sendResponseHeaders(401, -1)
+            } else {
+                exchange.responseHeaders.add('DAV', '1, 2, calendar-access')
+                exchange.sendResponseHeaders(200, 2)
+                exchange.responseBody.withStream { it.write('OK'.bytes) }
+            }
+            exchange.close()
+        }
+        server.start()
+
+        and: 'a capability cache containing capabilities for the user'
+        CapabilityCache cache = [60000, null]
+        def url = new URL("http://localhost:${server.address.port}/")
+        def client = { String secret ->
+            DavClient.builder(url).principalPath('/principals/user/').capabilityCache(cache)
+                    .credentials('user', secret.toCharArray()).build()
+        }
+        client('secret').supportedFeatures
+
+        when: 'a client connects with an incorrect password'
+        client('wrong').supportedFeatures
+
+        then: 'discovery is performed and the connection fails'
+        thrown(FailedOperationException)
+
+        when: 'the password is changed on the server'
+        password = 'changed'
+
+        and: 'a client connects using cached capabilities'
+        def revoked = client('secret')
+        revoked.supportedFeatures
+        revoked.executeAndRelease(new HttpGet('/'))
+
+        then: 'the first request fails authentication'
+        thrown(HttpResponseException)
+
+        when: 'the client connects again'
+        requests.set(0)
+        client('secret').supportedFeatures
+
+        then: 'the cached capabilities are evicted'
+        thrown(FailedOperationException)
+        requests.get() > 0
+
+        cleanup:
+        server?.stop(0)
+    }
+
+    def 'test credential digest is persisted'() {
+        given: 'a persistent capability cache'
+        def file = Files.createTempFile('capabilities', '.properties')
+        CapabilityCache cache = [60000, file]
+        def key = cache.key('https://dav.example.com:443', '/principals/user/', 'user', 'secret')
+        cache.put(key, new CapabilityCache.Capabilities([SupportedFeature.CALENDAR_ACCESS], 'Basic',
+                System.currentTimeMillis()))
+
+        when: 'the cache is reloaded'
+        CapabilityCache reloaded = [60000, file]
+
+        then: 'keys for the same credentials match'
+        reloaded.key('https://dav.example.com:443', '/principals/user/', 'user', 'secret') == key
+        reloaded.get(key) != null
+
+        and: 'keys for other credentials differ'
+        reloaded.key('https://dav.example.com:443', '/principals/user/', 'user', 'other') != key
+        !Files.readAllLines(file).any { it.contains('secret') }
+
+        cleanup:
+        Files.deleteIfExists(file)
+    }
+}
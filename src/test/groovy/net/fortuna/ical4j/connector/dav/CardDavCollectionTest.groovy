@@ -0,0 +1,259 @@
+package net.fortuna.ical4j.connector.dav
+
+import com.sun.net.httpserver.HttpServer
+import net.fortuna.ical4j.connector.ObjectNotFoundException
+import net.fortuna.ical4j.connector.ObjectStoreException
+import net.fortuna.ical4j.vcard.Property
+import spock.lang.Specification
+
+class CardDavCollectionTest extends Specification {
+
+    static final String PATH = '/addressbooks/test/'
+
+    HttpServer server
+
+    def requests = Collections.synchronizedList([])
+
+    /**
+     * Responds to each request with the [status, body, headers] returned by the handler.
+     */
+    def handler = { String method, String path, String body, Map headers -> [404, ''] }
+
+    CardDavStore store
+
+    CardDavCollection collection
+
+    def setup() {
+        server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.executor = java.util.concurrent.Executors.newCachedThreadPool()
+        server.createContext('/') { exchange ->
+            String body = exchange.requestBody.getText('UTF-8')
+            def headers = exchange.requestHeaders.collectEntries { k, v -> [k.toLowerCase(), v[0]] }
+            requests << [method: exchange.requestMethod, path: exchange.requestURI.path, body: body, headers: headers]
+            def response = handler(exchange.requestMethod, exchange.requestURI.path, body, headers)
+            (response.size() > 2 ? response[2] : [:]).each { k, v -> exchange.responseHeaders.add(k, v) }
+            byte[] content = response[1].getBytes('UTF-8')
+            exchange.sendResponseHeaders(response[0], content.length ?: -1)
+            if (content.length) {
+                exchange.responseBody.withStream { it.write(content) }
+            } else {
+                // the response is already complete, so writing would fail and close the connection..
+                exchange.close()
+            }
+        }
+        server.start()
+        store = new CardDavStore('-//Ben Fortuna//iCal4j Connector 1.0//EN',
+                new URL("http://localhost:${server.address.port}/"), PathResolver.CALENDAR_SERVER)
+        store.connect()
+        collection = new CardDavCollection(store, PATH)
+    }
+
+    def cleanup() {
+        server?.stop(0)
+        server?.executor?.shutdownNow()
+    }
+
+    static String card(String cardUid, String name) {
+        "BEGIN:VCARD\r\nVERSION:4.0\r\nUID:${cardUid}\r\nFN:${name}\r\nEND:VCARD\r\n"
+    }
+
+    /**
+     * @param responses the response elements of a multistatus body
+     */
+    static String multistatus(String... responses) {
+        '<?xml version="1.0" encoding="UTF-8"?>' +
+                '<D:multistatus xmlns:D="DAV:" xmlns:C="urn:ietf:params:xml:ns:carddav">' +
+                responses.join('') + '</D:multistatus>'
+    }
+
+    static String member(String name, String etag, String data = null) {
+        "<D:response><D:href>${PATH}${name}</D:href><D:propstat><D:prop><D:getetag>\"${etag}\"</D:getetag>" +
+                (data ? "<C:address-data>${data}</C:address-data>" : '') +
+                '</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>'
+    }
+
+    static String status(String href, int statusCode, String reason) {
+        "<D:response><D:href>${href}</D:href><D:status>HTTP/1.1 ${statusCode} ${reason}</D:status></D:response>"
+    }
+
+    static String syncToken(String token) {
+        "<D:sync-token>${token}</D:sync-token>"
+    }
+
+    /**
+     * Responds to addressbook-multiget reports with a vCard object for each requested href.
+     */
+    static String multiget(String body) {
+        multistatus(*(body =~ /href[^>]*>([^<]+)</).collect { match ->
+            def name = match[1].substring(PATH.length())
+            member(name, name, card(name - '.vcf', "Card ${name - '.vcf'}"))
+        })
+    }
+
+    def requests(String report) {
+        requests.findAll { it.method == 'REPORT' && it.body.contains(report) }
+    }
+
+    def 'members are retrieved in batches of addressbook-multiget reports'() {
+        given: 'a collection with more members than the default batch size'
+        def names = (1..250).collect { "${it}.vcf".toString() }
+        handler = { String method, String path, String body, Map headers ->
+            body.contains('sync-collection')
+                    ? [207, multistatus(*names.collect { member(it, '1') }, syncToken('1'))]
+                    : [207, multiget(body)]
+        }
+
+        when: 'all members are retrieved'
+        def cards = collection.components
+
+        then: 'members are listed once and retrieved in batches'
+        requests('sync-collection').size() == 1
+        requests('addressbook-multiget').collect { (it.body =~ /href[^>]*>([^<]+)</).size() } == [100, 100, 50]
+        cards.length == 250
+        cards.collect { it.getProperty(Property.Id.UID).value } == (1..250).collect { it as String }
+    }
+
+    def 'truncated sync-collection results are requested again with the new token'() {
+        given: 'a server that truncates the first result'
+        handler = { String method, String path, String body, Map headers ->
+            if (!body.contains('sync-collection')) {
+                [207, multiget(body)]
+            } else if (body =~ /sync-token>1</) {
+                [207, multistatus(member('2.vcf', '1'), syncToken('2'))]
+            } else {
+                [207, multistatus(member('1.vcf', '1'), status(PATH, 507, 'Insufficient Storage'), syncToken('1'))]
+            }
+        }
+
+        when: 'the collection is synchronised'
+        def cards = []
+        def result = collection.syncCards(null) { uri, card -> cards << uri }
+
+        then: 'changes are listed until the result is complete'
+        requests('sync-collection').size() == 2
+        requests('sync-collection')[1].body =~ /sync-token>1</
+        !result.truncated
+        result.syncToken == '2'
+        result.changed.keySet() as List == ['1.vcf', '2.vcf']
+
+        and: 'the changed members are retrieved together'
+        requests('addressbook-multiget').size() == 1
+        cards == ['1.vcf', '2.vcf']
+    }
+
+    def 'a rejected sync token results in a full listing'() {
+        given: 'a server that no longer recognises a sync token'
+        handler = { String method, String path, String body, Map headers ->
+            if (!body.contains('sync-collection')) {
+                [207, multiget(body)]
+            } else if (body =~ /sync-token>stale</) {
+                [403, multistatus(), ['Content-Type': 'application/xml']]
+            } else {
+                [207, multistatus(member('1.vcf', '1'), syncToken('5'))]
+            }
+        }
+
+        when: 'the collection is synchronised with the stale token'
+        def result = collection.syncCards('stale') { uri, card -> }
+
+        then: 'all members are listed and the result is marked as a reset'
+        requests('sync-collection').size() == 2
+        !(requests('sync-collection')[1].body =~ /sync-token>stale</)
+        result.reset
+        result.syncToken == '5'
+        result.changed.keySet() as List == ['1.vcf']
+    }
+
+    def 'a card is deleted at the href resolved by its UID'() {
+        given: 'a card stored at a URI not derived from its UID'
+        handler = { String method, String path, String body, Map headers ->
+            if (method == 'REPORT' && body.contains('addressbook-query')) {
+                [207, multistatus(member('abc-123.vcf', 'e1', card('card-1', 'Card 1')))]
+            } else if (method == 'DELETE') {
+                [204, '']
+            } else {
+                [404, '']
+            }
+        }
+
+        when: 'the card is removed'
+        def removed = collection.removeCard('card-1')
+
+        then: 'the card is resolved with an addressbook-query on UID'
+        requests('addressbook-query').size() == 1
+        requests('addressbook-query')[0].body.contains('card-1')
+        removed.getProperty(Property.Id.UID).value == 'card-1'
+
+        and: 'the card is deleted at the resolved href with its entity tag'
+        def delete = requests.find { it.method == 'DELETE' }
+        delete.path == "${PATH}abc-123.vcf"
+        delete.headers['if-match'] == '"e1"'
+        collection.entityTags.get('abc-123.vcf') == null
+    }
+
+    def 'removing an unknown card fails without a delete'() {
+        given: 'a server with no matching card'
+        handler = { String method, String path, String body, Map headers -> [207, multistatus()] }
+
+        when: 'the card is removed'
+        collection.removeCard('card-1')
+
+        then: 'the card is not found'
+        thrown(ObjectNotFoundException)
+        !requests.any { it.method == 'DELETE' }
+    }
+
+    def 'tags are not recorded for partial query results'() {
+        given: 'a server returning the selected properties of a card'
+        handler = { String method, String path, String body, Map headers ->
+            [207, multistatus(member('1.vcf', 'e1', card('1', 'Card 1')))]
+        }
+
+        when: 'the selected properties are queried'
+        def cards = collection.query(new AddressbookQuery().properties('UID', 'FN'))
+
+        then: 'no tags are recorded for the partial object'
+        cards.length == 1
+        collection.entityTags.get('1.vcf') == null
+
+        when: 'the full objects are queried'
+        collection.query(new AddressbookQuery())
+
+        then: 'the tags are recorded'
+        collection.entityTags.get('1.vcf').etag == '"e1"'
+    }
+
+    def 'an unsupported sync-collection report is remembered'() {
+        given: 'a server that does not implement sync-collection'
+        handler = { String method, String path, String body, Map headers ->
+            body.contains('sync-collection') ? [501, '']
+                    : [207, multistatus(member('1.vcf', '1', card('1', 'Card 1')))]
+        }
+
+        when: 'all members are retrieved twice'
+        def first = collection.components
+        def second = collection.components
+
+        then: 'addressbook-query is used without requesting sync-collection again'
+        requests('sync-collection').size() == 1
+        requests('addressbook-query').size() == 2
+        !collection.syncSupported
+        first.length == 1
+        second.length == 1
+    }
+
+    def 'sync-collection failures are not masked by a fallback'() {
+        given: 'a server that fails sync-collection'
+        handler = { String method, String path, String body, Map headers ->
+            body.contains('sync-collection') ? [500, ''] : [207, multistatus()]
+        }
+
+        when: 'all members are retrieved'
+        collection.components
+
+        then: 'the failure is reported'
+        thrown(ObjectStoreException)
+        requests('addressbook-query').empty
+        collection.syncSupported
+    }
+}
@@ -0,0 +1,59 @@
+package net.fortuna.ical4j.connector.dav
+
+import spock.lang.Specification
+
+class CircuitBreakerTest extends Specification {
+
+    def 'test circuit opens after consecutive failures'() {
+        given: 'a circuit breaker'
+        CircuitBreaker breaker = ['test', 2, 60000]
+
+        when: 'consecutive failures are recorded'
+        breaker.tryAcquire()
+        breaker.recordFailure()
+        breaker.tryAcquire()
+        breaker.recordFailure()
+
+        then: 'the circuit is open'
+        breaker.state == CircuitBreaker.State.OPEN
+
+        and: 'requests are rejected'
+        !breaker.tryAcquire()
+        breaker.rejectedCount == 1
+    }
+
+    def 'test single trial request permitted when half open'() {
+        given: 'an open circuit breaker'
+        CircuitBreaker breaker = ['test', 1, 0]
+        breaker.tryAcquire()
+        breaker.recordFailure()
+
+        expect: 'a single trial request is permitted'
+        breaker.tryAcquire()
+        breaker.state == CircuitBreaker.State.HALF_OPEN
+        !breaker.tryAcquire()
+
+        when: 'the trial succeeds'
+        breaker.recordSuccess()
+
+        then: 'the circuit is closed'
+        breaker.state == CircuitBreaker.State.CLOSED
+        breaker.tryAcquire()
+    }
+
+    def 'test released trial request permits another trial'() {
+        given: 'a half open circuit breaker with a trial request in flight'
+        CircuitBreaker breaker = ['test', 1, 0]
+        breaker.tryAcquire()
+        breaker.recordFailure()
+        breaker.tryAcquire()
+
+        when: 'the trial is released without an outcome'
+        breaker.release()
+
+        then: 'the circuit remains half open and another trial is permitted'
+        breaker.state == CircuitBreaker.State.HALF_OPEN
+        breaker.consecutiveFailures == 1
+        breaker.tryAcquire()
+    }
+}
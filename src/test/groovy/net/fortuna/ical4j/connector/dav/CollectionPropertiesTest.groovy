@@ -0,0 +1,116 @@
+package net.fortuna.ical4j.connector.dav
+
+import com.sun.net.httpserver.HttpServer
+import net.fortuna.ical4j.connector.dav.enums.MediaType
+import net.fortuna.ical4j.connector.dav.enums.ResourceType
+import net.fortuna.ical4j.connector.dav.property.BaseDavPropertyName
+import net.fortuna.ical4j.connector.dav.property.CalDavPropertyName
+import net.fortuna.ical4j.connector.dav.property.ICalPropertyName
+import org.apache.jackrabbit.webdav.property.DavPropertyName
+import org.apache.jackrabbit.webdav.property.DavPropertySet
+import org.apache.jackrabbit.webdav.property.DefaultDavProperty
+import org.apache.jackrabbit.webdav.xml.DomUtil
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class CollectionPropertiesTest extends Specification {
+
+    def document = XmlSupport.newDocument()
+
+    def element(String name, org.apache.jackrabbit.webdav.xml.Namespace namespace, Map attributes = [:]) {
+        def element = DomUtil.createElement(document, name, namespace)
+        attributes.each { k, v -> element.setAttribute(k, v) }
+        element
+    }
+
+    def 'test collection properties are converted to typed values'() {
+        given: 'properties of a calendar collection'
+        def properties = new DavPropertySet()
+        properties.add(new DefaultDavProperty(DavPropertyName.DISPLAYNAME, 'Work'))
+        properties.add(new DefaultDavProperty(ICalPropertyName.CALENDAR_COLOR, '#FF0000'))
+        properties.add(new DefaultDavProperty(ICalPropertyName.CALENDAR_ORDER, '3'))
+        properties.add(new DefaultDavProperty(CalDavPropertyName.MAX_RESOURCE_SIZE, '1048576'))
+        properties.add(new DefaultDavProperty(CalDavPropertyName.SUPPORTED_CALENDAR_COMPONENT_SET, [
+                element('comp', CalDavConstants.CALDAV_NAMESPACE, [name: 'VEVENT']),
+                element('comp', CalDavConstants.CALDAV_NAMESPACE, [name: 'VTODO'])]))
+        properties.add(new DefaultDavProperty(CalDavPropertyName.SUPPORTED_CALENDAR_DATA, [
+                element('calendar-data', CalDavConstants.CALDAV_NAMESPACE,
+                        ['content-type': 'text/calendar', version: '2.0'])]))
+        properties.add(new DefaultDavProperty(BaseDavPropertyName.RESOURCETYPE, [
+                element('collection', DavConstants.NAMESPACE),
+                element('calendar', CalDavConstants.CALDAV_NAMESPACE)]))
+
+        when: 'a collection is created with the properties'
+        def collection = new CalDavCalendarCollection(null, '/calendars/work/', properties)
+
+        then: 'getters return typed values'
+        collection.displayName == 'Work'
+        collection.color == '#FF0000'
+        collection.order == 3
+        collection.maxResourceSize == 1048576L
+        collection.supportedComponentTypes == ['VEVENT', 'VTODO'] as String[]
+        collection.supportedMediaTypes == [MediaType.ICALENDAR_2_0] as MediaType[]
+        collection.resourceTypes.contains(ResourceType.CALENDAR)
+
+        and: 'undefined properties have default values'
+        collection.maxInstances == null
+        collection.quotaUsedBytes == 0L
+
+        and: 'generic property access is converted without reflection'
+        collection.getProperty(ICalPropertyName.CALENDAR_ORDER, Integer) == 3
+        collection.getProperty(CalDavPropertyName.SUPPORTED_CALENDAR_COMPONENT_SET, ArrayList).size() == 2
+    }
+
+    def 'test collection properties are refreshed only on request'() {
+        given: 'a server returning collection properties'
+        def requests = new AtomicInteger()
+        def server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/') { exchange ->
+            requests.incrementAndGet()
+            byte[] body = """<?xml version="1.0" encoding="UTF-8"?>
+<D:multistatus xmlns:D="DAV:" xmlns:C="urn:ietf:params:xml:ns:caldav">
+  <D:response>
+    <D:href>/calendars/work/</D:href>
+    <D:propstat>
+      <D:prop>
+        <D:displayname>Renamed</D:displayname>
+        <C:supported-calendar-component-set><C:comp name="VEVENT"/></C:supported-calendar-component-set>
+      </D:prop>
+      <D:status>HTTP/1.1 200 OK</D:status>
+    </D:propstat>
+  </D:response>
+</D:multistatus>""".getBytes('UTF-8')
+            exchange.responseHeaders.add('Content-Type', 'application/xml; charset=utf-8')
+            exchange.sendResponseHeaders(207, body.length)
+            exchange.responseBody.withStream { it.write(body) }
+        }
+        server.start()
+
+        and: 'a collection in a connected store'
+        def store = new CalDavCalendarStore('-//Ben Fortuna//iCal4j Connector 1.0//EN',
+                new URL("http://localhost:${server.address.port}/"), PathResolver.CALENDAR_SERVER)
+        store.connect()
+        def properties = new DavPropertySet()
+        properties.add(new DefaultDavProperty(DavPropertyName.DISPLAYNAME, 'Work'))
+        def collection = new CalDavCalendarCollection(store, '/calendars/work/', properties)
+
+        when: 'getters are called repeatedly'
+        def names = (1..100).collect { collection.displayName }
+
+        then: 'the server is not contacted'
+        names.every { it == 'Work' }
+        requests.get() == 0
+
+        when: 'the properties are refreshed'
+        collection.refreshProperties()
+
+        then: 'getters return the current values'
+        requests.get() == 1
+        collection.displayName == 'Renamed'
+        collection.supportedComponentTypes == ['VEVENT'] as String[]
+
+        cleanup:
+        server.stop(0)
+    }
+}
@@ -0,0 +1,82 @@
+package net.fortuna.ical4j.connector.dav
+
+import org.apache.http.HttpVersion
+import org.apache.http.entity.ByteArrayEntity
+import org.apache.http.message.BasicHttpRequest
+import org.apache.http.message.BasicHttpResponse
+import org.apache.http.util.EntityUtils
+import spock.lang.Specification
+
+import java.util.zip.GZIPOutputStream
+
+class ContentCompressionTest extends Specification {
+
+    def 'test compressed responses are requested when enabled'() {
+        given: 'a request'
+        def request = new BasicHttpRequest('REPORT', '/calendars/test/')
+
+        when: 'the request is processed'
+        new ContentCompression(enabled).process(request, null)
+
+        then: 'compressed responses are requested'
+        request.getFirstHeader('Accept-Encoding')?.value == expected
+
+        where:
+        enabled | expected
+        true    | 'gzip, deflate'
+        false   | null
+    }
+
+    def 'test compressed responses are decompressed and measured'() {
+        given: 'a gzip-encoded response'
+        def body = 'BEGIN:VCALENDAR\r\n' * 1000
+        def bytes = new ByteArrayOutputStream()
+        new GZIPOutputStream(bytes).withStream { it.write(body.bytes) }
+
+        def entity = new ByteArrayEntity(bytes.toByteArray())
+        entity.contentEncoding = 'gzip'
+        def response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 207, 'Multi-Status')
+        response.entity = entity
+        response.addHeader('Content-Encoding', 'gzip')
+
+        and: 'a content compression interceptor'
+        ContentCompression compression = [true]
+
+        when: 'the response is processed and read'
+        compression.process(response, null)
+        def content = EntityUtils.toString(response.entity)
+
+        then: 'the body is decompressed'
+        content == body
+        !response.containsHeader('Content-Encoding')
+
+        and: 'compressed and uncompressed sizes are recorded'
+        compression.compressedBytes == bytes.size()
+        compression.uncompressedBytes == body.length()
+    }
+
+    def 'test uncompressed responses are not counted as compressed'() {
+        given: 'a response without a content encoding'
+        def body = 'BEGIN:VCALENDAR\r\n' * 10
+        def response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, 'OK')
+        response.entity = new ByteArrayEntity(body.bytes)
+
+        and: 'a content compression interceptor'
+        ContentCompression compression = [true]
+
+        when: 'the response is processed and read'
+        compression.process(response, null)
+        EntityUtils.toString(response.entity)
+
+        then: 'only uncompressed bytes are recorded'
+        compression.compressedBytes == 0
+        compression.uncompressedBytes == body.length()
+    }
+
+    def 'test compression is requested by default'() {
+        expect: 'new clients request compressed responses'
+        DavClient.builder(new URL('http://dav.example.com/')).build().contentCompression.enabled
+        new DavClientFactory(false).newInstance(new URL('http://dav.example.com/'), '/', '/')
+                .contentCompression.enabled
+    }
+}
@@ -0,0 +1,119 @@
+package net.fortuna.ical4j.connector.dav
+
+import com.sun.net.httpserver.HttpServer
+import org.apache.http.client.methods.HttpGet
+import org.apache.http.client.methods.HttpPut
+import org.apache.http.entity.StringEntity
+import org.apache.http.util.EntityUtils
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class DavClientConcurrencyTest extends Specification {
+
+    def 'test client is safe for concurrent use'() {
+        given: 'a server storing resources and requiring authentication'
+        def resources = new ConcurrentHashMap<String, String>()
+        def challenges = new AtomicInteger()
+        def server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.executor = Executors.newFixedThreadPool(16)
+        server.createContext('/') { exchange ->
+            def path = exchange.requestURI.path
+            byte[] body = 'OK'.bytes
+            int status
+            if (exchange.requestHeaders.getFirst('Authorization') != "Basic ${'user:secret'.bytes.encodeBase64()}") {
+                challenges.incrementAndGet()
+                exchange.responseHeaders.add('WWW-Authenticate', 'Basic realm="test"')
+                status = 401
+            } else if (exchange.requestMethod == 'PUT') {
+                resources[path] = exchange.requestBody.text
+                status = 201
+            } else if (resources.containsKey(path)) {
+                body = resources[path].bytes
+                status = 200
+            } else {
+                status = 404
+            }
+            exchange.sendResponseHeaders(status, body.length)
+            exchange.responseBody.withStream { it.write(body) }
+        }
+        server.start()
+
+        and: 'a single client'
+        def client = DavClient.builder(new URL("http://localhost:${server.address.port}/"))
+                .credentials('user', 'secret'.toCharArray()).maxConnections(8).build()
+
+        when: 'resources are written and read concurrently from many threads'
+        def threads = 16
+        def iterations = 25
+        def start = new CountDownLatch(1)
+        def executor = Executors.newFixedThreadPool(threads)
+        def futures = (1..threads).collect { t ->
+            executor.submit({
+                start.await()
+                (1..iterations).collect { i ->
+                    def path = "/calendar/${t}-${i}.ics"
+                    def put = new HttpPut(path)
+                    put.entity = new StringEntity("${t}:${i}")
+                    def written = client.executeAndRelease(put).statusLine.statusCode
+                    def read = client.execute(new HttpGet(path)) { response ->
+                        EntityUtils.toString(response.entity)
+                    }
+                    written == 201 && read == "${t}:${i}"
+                }.every()
+            } as Callable<Boolean>)
+        }
+        start.countDown()
+        def results = futures.collect { it.get(60, TimeUnit.SECONDS) }
+
+        then: 'every request succeeds with the expected content'
+        results.every()
+        resources.size() == threads * iterations
+
+        and: 'requests are authenticated preemptively once the scheme is known'
+        challenges.get() <= threads
+
+        and: 'no requests remain in flight'
+        client.rateLimiter.inFlight == 0
+
+        cleanup:
+        executor?.shutdownNow()
+        client?.close()
+        server?.stop(0)
+        server?.executor?.shutdownNow()
+    }
+
+    def 'test connections are pooled across sessions'() {
+        given: 'a server recording the connection of each request'
+        def ports = Collections.synchronizedList([])
+        def server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/') { exchange ->
+            ports << exchange.remoteAddress.port
+            exchange.sendResponseHeaders(200, 2)
+            exchange.responseBody.withStream { it.write('OK'.bytes) }
+        }
+        server.start()
+
+        and: 'a client'
+        DavClient client = [new URL("http://localhost:${server.address.port}/"), '/', '/']
+
+        when: 'requests are executed in successive sessions'
+        (1..3).each {
+            client.begin(new org.apache.http.impl.client.BasicCredentialsProvider())
+            client.executeAndRelease(new HttpGet('/'))
+        }
+
+        then: 'each session uses the same pooled connection'
+        ports.size() == 3
+        ports.unique().size() == 1
+
+        cleanup:
+        client?.close()
+        server?.stop(0)
+    }
+}
@@ -0,0 +1,109 @@
+package net.fortuna.ical4j.connector.dav
+
+import org.apache.http.HttpVersion
+import org.apache.http.message.BasicHttpResponse
+import spock.lang.Specification
+
+class EntityTagStoreTest extends Specification {
+
+    def 'test tags are recorded from response headers'() {
+        given: 'a response to a PUT request'
+        def response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 201, 'Created')
+        response.addHeader('ETag', '"abc"')
+        response.addHeader('Schedule-Tag', '"s1"')
+
+        and: 'an entity tag store'
+        EntityTagStore store = []
+
+        when: 'the response is recorded'
+        store.update('1.ics', response)
+
+        then: 'the tags are available'
+        store.get('1.ics').etag == '"abc"'
+        store.get('1.ics').scheduleTag == '"s1"'
+
+        when: 'a response without an ETag is recorded'
+        store.update('1.ics', new BasicHttpResponse(HttpVersion.HTTP_1_1, 204, 'No Content'))
+
+        then: 'the stale tags are removed'
+        store.get('1.ics') == null
+    }
+
+    def 'test uri from href'() {
+        expect:
+        EntityTagStore.uriFromHref(href) == expected
+
+        where:
+        href                                          | expected
+        '/calendars/user/home/1.ics'                  | '1.ics'
+        'https://example.com/calendars/user/home/2.ics' | '2.ics'
+        '3.ics'                                       | '3.ics'
+        '/calendars/user/home/abc%40host.ics'         | 'abc@host.ics'
+        '/calendars/user/home/a+b.ics'                | 'a+b.ics'
+    }
+
+    def 'test schedule tag is retained for an unchanged entity tag'() {
+        given: 'a store with the tags of a scheduling object'
+        EntityTagStore store = []
+        store.put('1.ics', '"abc"', '"s1"')
+
+        when: 'a response with the same entity tag and no schedule tag is recorded'
+        def response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 304, 'Not Modified')
+        response.addHeader('ETag', '"abc"')
+        store.update('1.ics', response)
+
+        then: 'the schedule tag is retained'
+        store.get('1.ics').scheduleTag == '"s1"'
+
+        when: 'a response with a new entity tag and no schedule tag is recorded'
+        response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, 'OK')
+        response.addHeader('ETag', '"def"')
+        store.update('1.ics', response)
+
+        then: 'the schedule tag is discarded'
+        store.get('1.ics').scheduleTag == null
+    }
+
+    def 'test content of least recently used resources is discarded'() {
+        given: 'a store retaining content for two resources'
+        EntityTagStore store = [2]
+
+        when: 'content of three resources is added'
+        store.put('a.ics', '"1"', null, 'a')
+        store.put('b.ics', '"2"', null, 'b')
+        store.get('a.ics')
+        store.put('c.ics', '"3"', null, 'c')
+
+        then: 'the content of the least recently used resource is discarded'
+        store.get('a.ics').content == 'a'
+        store.get('b.ics').content == null
+        store.get('c.ics').content == 'c'
+
+        and: 'the tags of all resources are retained'
+        store.get('b.ics').etag == '"2"'
+    }
+
+    def 'test content is discarded when the entity tag changes'() {
+        given: 'a store with retained content'
+        EntityTagStore store = [10]
+        store.put('a.ics', '"1"', null, 'a')
+
+        when: 'the entity tag is unchanged'
+        store.put('a.ics', '"1"', null)
+
+        then: 'the content is retained'
+        store.get('a.ics').content == 'a'
+
+        when: 'the entity tag changes'
+        store.put('a.ics', '"2"', null)
+
+        then: 'the content is discarded'
+        store.get('a.ics').content == null
+
+        when: 'the resource is updated without an etag'
+        store.put('a.ics', null, null, 'a2')
+
+        then: 'the tags are removed'
+        store.get('a.ics') == null
+    }
+}
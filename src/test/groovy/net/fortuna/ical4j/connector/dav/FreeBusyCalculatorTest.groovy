@@ -0,0 +1,61 @@
+package net.fortuna.ical4j.connector.dav
+
+import net.fortuna.ical4j.model.ContentBuilder
+import net.fortuna.ical4j.model.DateTime
+import net.fortuna.ical4j.model.ParameterList
+import net.fortuna.ical4j.model.Property
+import net.fortuna.ical4j.model.parameter.FbType
+import net.fortuna.ical4j.model.property.FreeBusy
+import spock.lang.Specification
+
+class FreeBusyCalculatorTest extends Specification {
+
+    def 'test overlapping events are merged'() {
+        given: 'a free-busy calculator'
+        FreeBusyCalculator calculator = [new DateTime('20210101T000000Z'), new DateTime('20210102T000000Z')]
+
+        and: 'overlapping events'
+        def events = new ContentBuilder().with {
+            [vevent {
+                uid '1'
+                dtstart '20210101T090000Z'
+                dtend '20210101T110000Z'
+            }, vevent {
+                uid '2'
+                dtstart '20210101T100000Z'
+                dtend '20210101T120000Z'
+            }, vevent {
+                uid '3'
+                dtstart '20210101T140000Z'
+                dtend '20210101T150000Z'
+                transp 'TRANSPARENT'
+            }]
+        }
+
+        when: 'the events are added'
+        events.each { calculator.add(it) }
+
+        then: 'a single merged busy period is produced'
+        def freeBusy = calculator.toVFreeBusy().getProperties(Property.FREEBUSY)
+        freeBusy.size() == 1
+        freeBusy[0].periods.toString() == '20210101T090000Z/20210101T120000Z'
+    }
+
+    def 'test free-busy periods are clipped to range and grouped by type'() {
+        given: 'a free-busy calculator'
+        FreeBusyCalculator calculator = [new DateTime('20210101T000000Z'), new DateTime('20210102T000000Z')]
+
+        when: 'free-busy properties are added'
+        calculator.add(new FreeBusy('20201231T230000Z/20210101T010000Z'))
+        calculator.add(new FreeBusy(new ParameterList(),
+                '20210101T050000Z/20210101T060000Z').with { it.parameters.add(FbType.BUSY_TENTATIVE); it })
+        calculator.add(new FreeBusy(new ParameterList(),
+                '20210101T070000Z/20210101T080000Z').with { it.parameters.add(FbType.FREE); it })
+
+        then: 'busy and tentative periods are reported separately'
+        def freeBusy = calculator.toVFreeBusy().getProperties(Property.FREEBUSY)
+        freeBusy.size() == 2
+        freeBusy[0].periods.toString() == '20210101T000000Z/20210101T010000Z'
+        freeBusy[1].getParameter('FBTYPE') == FbType.BUSY_TENTATIVE
+    }
+}
@@ -0,0 +1,125 @@
+package net.fortuna.ical4j.connector.dav
+
+import net.fortuna.ical4j.model.parameter.Cn
+import net.fortuna.ical4j.model.parameter.CuType
+import net.fortuna.ical4j.model.property.Attendee
+import spock.lang.Specification
+
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+class PrincipalDirectoryTest extends Specification {
+
+    static Attendee principal(String name, String email, CuType type) {
+        def attendee = new Attendee("mailto:$email")
+        attendee.parameters.add(new Cn(name))
+        attendee.parameters.add(type)
+        attendee
+    }
+
+    def principals = [
+            principal('Board Room', 'boardroom@example.com', CuType.ROOM),
+            principal('Training Room 2', 'training2@example.com', CuType.ROOM),
+            principal('Projector', 'projector-a@example.com', CuType.RESOURCE)
+    ]
+
+    def 'test search matches word prefixes before substrings'() {
+        given: 'a principal directory'
+        int loads = 0
+        PrincipalDirectory directory = [{ loads++; principals }, 60000]
+
+        expect: 'matching principals are returned'
+        directory.search(query)*.value == expected
+
+        and: 'principals are loaded only once'
+        loads == 1
+
+        where:
+        query       | expected
+        'room'      | ['mailto:boardroom@example.com', 'mailto:training2@example.com']
+        'TRAIN'     | ['mailto:training2@example.com']
+        'oom'       | ['mailto:boardroom@example.com', 'mailto:training2@example.com']
+        'projector' | ['mailto:projector-a@example.com']
+        'xyz'       | []
+    }
+
+    def 'test search by type and limit'() {
+        given: 'a principal directory'
+        PrincipalDirectory directory = [{ principals }, 60000]
+
+        expect: 'results are filtered by type and limited'
+        directory.search(CuType.RESOURCE, 'o', 10)*.value == ['mailto:projector-a@example.com']
+        directory.search(CuType.ROOM, '', 1).size() == 1
+        directory.getAll(CuType.ROOM).size() == 2
+    }
+
+    def 'test expired directory is stale'() {
+        given: 'a principal directory with no time-to-live'
+        PrincipalDirectory directory = [{ principals }, -1]
+
+        when: 'the directory is loaded'
+        directory.refresh()
+
+        then: 'it is immediately stale'
+        directory.stale
+    }
+
+    def 'test stale directory is reloaded in the background'() {
+        given: 'a loaded principal directory with no time-to-live'
+        def threads = new LinkedBlockingQueue<String>()
+        PrincipalDirectory directory = [{ threads << Thread.currentThread().name; principals }, -1]
+        directory.refresh()
+        threads.clear()
+
+        when: 'the directory is searched'
+        def results = directory.search('room')
+
+        then: 'the previous snapshot is returned'
+        results.size() == 2
+
+        and: 'the directory is reloaded on a dedicated thread'
+        threads.poll(5, TimeUnit.SECONDS) == 'dav-principal-reload'
+    }
+
+    def 'test returned principals do not modify the directory'() {
+        given: 'a principal directory'
+        PrincipalDirectory directory = [{ principals }, 60000]
+
+        when: 'returned principals are modified'
+        directory.search('board')[0].parameters.replace(new Cn('Modified'))
+        directory.getAll(CuType.ROOM)[0].setValue('mailto:modified@example.com')
+
+        then: 'the directory contents are unchanged'
+        directory.search('board')*.getParameter('CN')*.value == ['Board Room']
+        directory.getAll(CuType.ROOM)*.value == ['mailto:boardroom@example.com', 'mailto:training2@example.com']
+        principals[0].getParameter('CN').value == 'Board Room'
+    }
+
+    def 'test failed background reload is not retried on every lookup'() {
+        given: 'a loaded principal directory with no time-to-live that fails to reload'
+        def attempts = new LinkedBlockingQueue<Integer>()
+        int loads = 0
+        PrincipalDirectory directory = [{
+            attempts << ++loads
+            if (loads > 1) {
+                throw new IOException('Directory unavailable')
+            }
+            principals
+        }, -1]
+        directory.refresh()
+        attempts.clear()
+
+        when: 'the directory is searched and the reload fails'
+        directory.search('room')
+        def attempt = attempts.poll(5, TimeUnit.SECONDS)
+        Thread.sleep(200)
+
+        and: 'the directory is searched again'
+        def results = (1..5).collect { directory.search('room') }
+
+        then: 'the previous snapshot is returned without another reload'
+        attempt == 2
+        results.every { it.size() == 2 }
+        attempts.poll(200, TimeUnit.MILLISECONDS) == null
+    }
+}
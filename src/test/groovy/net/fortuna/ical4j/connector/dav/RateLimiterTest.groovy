@@ -0,0 +1,90 @@
+package net.fortuna.ical4j.connector.dav
+
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class RateLimiterTest extends Specification {
+
+    def 'test limits are reduced when throttled'() {
+        given: 'a rate limiter'
+        RateLimiter limiter = ['test', 10, 10, 8]
+
+        when: 'a request is throttled'
+        limiter.acquire()
+        limiter.release(true)
+
+        then: 'the limits are halved'
+        limiter.rate == 5
+        limiter.inFlightLimit == 4
+        limiter.throttledCount == 1
+    }
+
+    def 'test concurrent requests are limited'() {
+        given: 'a rate limiter allowing a single request in flight'
+        RateLimiter limiter = ['test', 0, 1, 1]
+
+        and: 'a request in flight'
+        limiter.acquire()
+
+        when: 'another request is attempted'
+        def acquired = new CountDownLatch(1)
+        Thread.start {
+            limiter.acquire()
+            acquired.countDown()
+        }
+
+        then: 'the request waits for the first to complete'
+        !acquired.await(200, TimeUnit.MILLISECONDS)
+
+        when: 'the first request is complete'
+        limiter.release(false)
+
+        then: 'the waiting request proceeds'
+        acquired.await(5, TimeUnit.SECONDS)
+        limiter.inFlight == 1
+    }
+
+    def 'test request rate is limited'() {
+        given: 'a rate limiter allowing 20 requests per second with no burst'
+        RateLimiter limiter = ['test', 20, 1, 0]
+
+        when: 'several requests are made'
+        def start = System.nanoTime()
+        5.times {
+            limiter.acquire()
+            limiter.release(false)
+        }
+
+        then: 'requests are spaced according to the rate'
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 180
+    }
+
+    def 'test waiting for a permit is bounded'() {
+        given: 'a rate limiter allowing a single request in flight'
+        RateLimiter limiter = ['test', 0, 1, 1]
+
+        and: 'a request in flight'
+        limiter.acquire()
+
+        when: 'another request is attempted with a timeout'
+        def start = System.nanoTime()
+        def acquired = limiter.tryAcquire(200, TimeUnit.MILLISECONDS)
+
+        then: 'the request is not permitted once the timeout elapses'
+        !acquired
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 180
+        limiter.inFlight == 1
+    }
+
+    def 'test waiting for the request rate is bounded'() {
+        given: 'a rate limiter allowing one request per second'
+        RateLimiter limiter = ['test', 1, 1, 0]
+        limiter.acquire()
+        limiter.release(false)
+
+        expect: 'a request is not permitted where the timeout elapses before the next token'
+        !limiter.tryAcquire(100, TimeUnit.MILLISECONDS)
+    }
+}
@@ -0,0 +1,177 @@
+package net.fortuna.ical4j.connector.dav
+
+import com.sun.net.httpserver.HttpServer
+import org.apache.http.client.methods.HttpGet
+import org.apache.http.client.methods.HttpPost
+import org.apache.http.client.methods.HttpPut
+import org.apache.http.entity.StringEntity
+import org.apache.http.util.EntityUtils
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class ResiliencePolicyTest extends Specification {
+
+    def 'test retry delay is bounded'() {
+        given: 'a resilience policy'
+        ResiliencePolicy policy = [{ name ->
+            Optional.ofNullable(['ical4j.connector.dav.retry.max': '3', 'ical4j.connector.dav.retry.backoff': '100',
+                                 'ical4j.connector.dav.retry.maxbackoff': '1000'][name]) }]
+
+        expect: 'retry delay is within the expected bounds'
+        def delay = policy.getRetryDelay(retry, retryAfter)
+        delay >= min && delay <= max
+
+        where:
+        retry | retryAfter | min  | max
+        1     | -1         | 50   | 100
+        3     | -1         | 200  | 400
+        2     | 800        | 800  | 800
+        2     | 5000       | -1   | -1
+        4     | -1         | -1   | -1
+    }
+
+    def 'test idempotent requests are retryable'() {
+        given: 'a resilience policy'
+        ResiliencePolicy policy = []
+
+        expect: 'only idempotent requests are retryable'
+        policy.isRetryable(new HttpGet('/'))
+        !policy.isRetryable(new HttpPost('/'))
+    }
+
+    def 'test conditional requests are not retryable on error'() {
+        given: 'a resilience policy'
+        ResiliencePolicy policy = []
+
+        and: 'a request'
+        def put = new HttpPut('/1.ics')
+        if (header) {
+            put.addHeader(header, '"1"')
+        }
+
+        expect: 'only unconditional requests are retryable on error'
+        policy.isRetryable(put)
+        policy.isRetryableOnError(put) == retryable
+
+        where:
+        header                  | retryable
+        null                    | true
+        'If-Match'              | false
+        'If-None-Match'         | false
+        'If-Schedule-Tag-Match' | false
+    }
+
+    def 'test conditional requests are not retried after a connection failure'() {
+        given: 'a server that drops the first connection'
+        def requests = new AtomicInteger()
+        def server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/') { exchange ->
+            exchange.requestBody.bytes
+            if (requests.incrementAndGet() == 1) {
+                exchange.close()
+            } else {
+                exchange.sendResponseHeaders(201, -1)
+                exchange.close()
+            }
+        }
+        server.start()
+
+        and: 'a client'
+        DavClient client = [new URL("http://localhost:${server.address.port}/"), '/', '/']
+        client.begin()
+
+        when: 'a conditional request is executed'
+        def put = new HttpPut('/1.ics')
+        put.addHeader('If-None-Match', '*')
+        put.entity = new StringEntity('BEGIN:VCALENDAR')
+        client.executeAndRelease(put)
+
+        then: 'the request is not retried'
+        thrown(IOException)
+        requests.get() == 1
+
+        when: 'an unconditional request is executed'
+        put = new HttpPut('/2.ics')
+        put.entity = new StringEntity('BEGIN:VCALENDAR')
+        requests.set(0)
+        def response = client.executeAndRelease(put)
+
+        then: 'the request is retried'
+        response.statusLine.statusCode == 201
+        requests.get() == 2
+
+        cleanup:
+        server?.stop(0)
+    }
+
+    def 'test transient failures are retried'() {
+        given: 'a server that is temporarily unavailable'
+        def requests = new AtomicInteger()
+        def server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/') { exchange ->
+            def status = requests.incrementAndGet() < 3 ? 503 : 200
+            exchange.responseHeaders.add('Retry-After', '0')
+            exchange.sendResponseHeaders(status, 2)
+            exchange.responseBody.withStream { it.write('OK'.bytes) }
+        }
+        server.start()
+
+        and: 'a client'
+        DavClient client = [new URL("http://localhost:${server.address.port}/"), '/', '/']
+        client.begin()
+
+        when: 'a request is executed'
+        def response = client.executeAndRelease(new HttpGet('/'))
+
+        then: 'the request is retried until successful'
+        response.statusLine.statusCode == 200
+        requests.get() == 3
+        client.circuitBreaker.state == CircuitBreaker.State.CLOSED
+
+        cleanup:
+        server?.stop(0)
+    }
+
+    def 'test concurrency and rate limits apply by default'() {
+        expect: 'an adaptive concurrency limit is applied to all hosts'
+        new ResiliencePolicy({ name -> Optional.empty() }).getRateLimiter('http://default.example.com').inFlightLimit == 20
+
+        and: 'known server implementations apply a request rate limit'
+        new ResiliencePolicy(PathResolver.ICLOUD.&getProfileProperty)
+                .getRateLimiter('https://icloud.example.com').rate == 10
+        new ResiliencePolicy(PathResolver.GCAL.&getProfileProperty)
+                .getRateLimiter('https://gcal.example.com').rate == 5
+        new ResiliencePolicy(PathResolver.CALENDAR_SERVER.&getProfileProperty)
+                .getRateLimiter('https://other.example.com').rate == 0
+    }
+
+    def 'test concurrency limit applies until the response is consumed'() {
+        given: 'a server'
+        def server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/') { exchange ->
+            exchange.sendResponseHeaders(200, 2)
+            exchange.responseBody.withStream { it.write('OK'.bytes) }
+        }
+        server.start()
+
+        and: 'a client'
+        DavClient client = [new URL("http://localhost:${server.address.port}/"), '/', '/']
+        client.begin()
+
+        when: 'a request is executed'
+        def response = client.execute(new HttpGet('/'))
+
+        then: 'the request remains in flight until the response is consumed'
+        client.rateLimiter.inFlight == 1
+
+        when: 'the response is consumed'
+        EntityUtils.consume(response.entity)
+
+        then: 'the request is complete'
+        client.rateLimiter.inFlight == 0
+
+        cleanup:
+        server?.stop(0)
+    }
+}
@@ -0,0 +1,42 @@
+package net.fortuna.ical4j.connector.dav
+
+import spock.lang.Specification
+
+class SyncCollectionResultTest extends Specification {
+
+    def 'test sync-collection response is parsed'() {
+        given: 'a sync-collection response'
+        def response = '''<?xml version="1.0" encoding="utf-8"?>
+<D:multistatus xmlns:D="DAV:">
+  <D:response>
+    <D:href>/addressbooks/user/contacts/1.vcf</D:href>
+    <D:propstat>
+      <D:prop><D:getetag>"e1"</D:getetag></D:prop>
+      <D:status>HTTP/1.1 200 OK</D:status>
+    </D:propstat>
+  </D:response>
+  <D:response>
+    <D:href>/addressbooks/user/contacts/2.vcf</D:href>
+    <D:status>HTTP/1.1 404 Not Found</D:status>
+  </D:response>
+  <D:response>
+    <D:href>/addressbooks/user/contacts/</D:href>
+    <D:status>HTTP/1.1 507 Insufficient Storage</D:status>
+  </D:response>
+  <D:sync-token>http://example.com/sync/2</D:sync-token>
+</D:multistatus>'''
+
+        when: 'the response is parsed'
+        def result = SyncCollectionResult.fromXml(XmlSupport.parse(
+                new ByteArrayInputStream(response.getBytes('UTF-8'))).documentElement, false)
+
+        then: 'changed and removed members are reported'
+        result.changed == ['1.vcf': '"e1"']
+        result.removed == ['2.vcf'] as Set
+
+        and: 'the result is truncated with a new sync token'
+        result.truncated
+        !result.reset
+        result.syncToken == 'http://example.com/sync/2'
+    }
+}
@@ -0,0 +1,98 @@
+package net.fortuna.ical4j.connector.dav
+
+import net.fortuna.ical4j.connector.dav.method.ReportMethod
+import net.fortuna.ical4j.model.Component
+import org.apache.jackrabbit.webdav.xml.DomUtil
+import org.xml.sax.SAXException
+import spock.lang.Specification
+
+class XmlSupportTest extends Specification {
+
+    def 'test template copies are populated independently'() {
+        when: 'two time-range filters are created'
+        def first = XmlSupport.newTimeRangeFilter(Component.VEVENT, '20210101T000000Z', '20210102T000000Z')
+        def second = XmlSupport.newTimeRangeFilter(Component.VTODO, '20210201T000000Z', '20210202T000000Z')
+
+        then: 'each filter has its own parameters'
+        def eventFilter = DomUtil.getChildElement(first, 'comp-filter', CalDavConstants.CALDAV_NAMESPACE)
+        eventFilter.getAttribute('name') == 'VEVENT'
+        DomUtil.getChildElement(eventFilter, 'time-range', CalDavConstants.CALDAV_NAMESPACE)
+                .getAttribute('start') == '20210101T000000Z'
+
+        def todoFilter = DomUtil.getChildElement(second, 'comp-filter', CalDavConstants.CALDAV_NAMESPACE)
+        todoFilter.getAttribute('name') == 'VTODO'
+        DomUtil.getChildElement(todoFilter, 'time-range', CalDavConstants.CALDAV_NAMESPACE)
+                .getAttribute('end') == '20210202T000000Z'
+    }
+
+    def 'test principal search matches name and email'() {
+        when: 'a principal search by name is created'
+        def search = XmlSupport.newPrincipalsByName('ROOM', 'Board')
+
+        then: 'both property searches match the name'
+        search.getAttribute('type') == 'ROOM'
+        def matches = search.getElementsByTagNameNS(DavConstants.NAMESPACE.URI, 'match')
+        matches.length == 2
+        (0..<matches.length).every { matches.item(it).textContent == 'Board' }
+    }
+
+    def 'test document builders are not shared between threads'() {
+        given: 'the document builder for this thread'
+        def builder = XmlSupport.documentBuilder
+
+        when: 'a document builder is requested from another thread'
+        def other = null
+        def thread = Thread.start { other = XmlSupport.documentBuilder }
+        thread.join()
+
+        then: 'a different builder is returned'
+        other != null
+        !other.is(builder)
+        XmlSupport.documentBuilder.is(builder)
+    }
+
+    def 'test addressbook-multiget preserves content order'() {
+        when: 'a multiget report is created'
+        def info = XmlSupport.newReportInfo(ReportMethod.ADDRESSBOOK_MULTIGET,
+                XmlSupport.newAddressbookMultiget(['/contacts/1.vcf', '/contacts/2.vcf']), 0)
+        def report = info.toXml(XmlSupport.newDocument())
+
+        then: 'properties are requested before the hrefs'
+        report.localName == 'addressbook-multiget'
+        def children = DomUtil.getChildren(report).toList()
+        children*.localName == ['prop', 'href', 'href']
+        children[1].textContent == '/contacts/1.vcf'
+
+        and: 'address data is requested'
+        DomUtil.getChildElement(children[0], 'address-data', CalDavConstants.CARDDAV_NAMESPACE) != null
+    }
+
+    def 'test sync-collection includes sync token'() {
+        expect: 'the sync token is included where specified'
+        DomUtil.hasChildElement(XmlSupport.newSyncCollection(token), 'sync-token', DavConstants.NAMESPACE)
+        DomUtil.getChildText(XmlSupport.newSyncCollection(token), 'sync-token', DavConstants.NAMESPACE) == expected
+
+        where:
+        token                   | expected
+        null                    | null
+        'http://example.com/1'  | 'http://example.com/1'
+    }
+
+    def 'test documents with external entities are rejected'() {
+        given: 'a response referencing a local file as an external entity'
+        def secret = File.createTempFile('secret', '.txt')
+        secret.text = 'secret'
+        def xml = '<?xml version="1.0"?>' +
+                "<!DOCTYPE multistatus [<!ENTITY xxe SYSTEM \"${secret.toURI()}\">]>" +
+                '<D:multistatus xmlns:D="DAV:"><D:href>&xxe;</D:href></D:multistatus>'
+
+        when: 'the response is parsed'
+        XmlSupport.parse(new ByteArrayInputStream(xml.getBytes('UTF-8')))
+
+        then: 'the document type is rejected'
+        thrown(SAXException)
+
+        cleanup:
+        secret.delete()
+    }
+}
@@ -0,0 +1,56 @@
+package net.fortuna.ical4j.connector.dav.method
+
+import net.fortuna.ical4j.data.CalendarBuilder
+import net.fortuna.ical4j.model.ContentBuilder
+import spock.lang.Specification
+
+import java.util.zip.GZIPInputStream
+
+class PutMethodTest extends Specification {
+
+    def calendar = new ContentBuilder().calendar {
+        prodid '-//Ben Fortuna//iCal4j Connector 1.0//EN'
+        version '2.0'
+        vevent {
+            uid '1'
+            dtstamp '20210101T000000Z'
+            dtstart '20210101T090000Z'
+            summary 'Test event'
+        }
+    }
+
+    def 'test calendar is streamed to the request'() {
+        given: 'a put method'
+        PutMethod method = ['/calendars/test/1.ics']
+
+        when: 'a calendar is set'
+        method.setCalendar(calendar)
+
+        then: 'the request body is streamed'
+        method.entity.chunked
+        method.entity.repeatable
+        method.entity.contentEncoding == null
+
+        and: 'the body can be written more than once'
+        2.times {
+            def out = new ByteArrayOutputStream()
+            method.entity.writeTo(out)
+            assert new CalendarBuilder().build(new ByteArrayInputStream(out.toByteArray())) == calendar
+        }
+    }
+
+    def 'test calendar is compressed'() {
+        given: 'a put method with gzip encoding'
+        PutMethod method = ['/calendars/test/1.ics']
+        method.encoding = StreamingEntity.Encoding.GZIP
+
+        when: 'a calendar is set'
+        method.setCalendar(calendar)
+        def out = new ByteArrayOutputStream()
+        method.entity.writeTo(out)
+
+        then: 'the request body is compressed'
+        method.entity.contentEncoding.value == 'gzip'
+        new CalendarBuilder().build(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) == calendar
+    }
+}
@@ -0,0 +1,158 @@
+package net.fortuna.ical4j.connector.event
+
+import net.fortuna.ical4j.connector.local.LocalCalendarCollection
+import net.fortuna.ical4j.connector.local.LocalCalendarStore
+import net.fortuna.ical4j.model.Calendar
+import net.fortuna.ical4j.model.ContentBuilder
+import net.fortuna.ical4j.util.RandomUidGenerator
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class ObjectStoreEventDispatcherTest extends Specification {
+
+    def 'test events are delivered in batches'() {
+        given: 'a dispatcher with a listener'
+        LocalCalendarStore store = [new File('build', 'local')]
+        ObjectStoreEventDispatcher<Calendar> dispatcher = [100, 10, ObjectStoreEventDispatcher.BackPressure.BLOCK]
+        def batches = new CopyOnWriteArrayList<List<ObjectStoreEvent<Calendar>>>()
+        dispatcher.addListener(new RecordingListener(batches: batches))
+
+        when: 'events are dispatched'
+        25.times {
+            dispatcher.componentChanged(store, null, ObjectStoreEvent.Type.COMPONENT_ADDED, "uid-$it", null, null)
+        }
+        dispatcher.close()
+
+        then: 'all events are delivered in order'
+        batches.flatten()*.uid == (0..<25).collect { "uid-$it" }
+
+        and: 'no batch exceeds the batch size'
+        batches.every { it.size() <= 10 }
+        dispatcher.deliveredCount == 25
+    }
+
+    def 'test oldest events are dropped when the queue is full'() {
+        given: 'a dispatcher with a blocked listener'
+        LocalCalendarStore store = [new File('build', 'local')]
+        ObjectStoreEventDispatcher<Calendar> dispatcher = [2, 1, ObjectStoreEventDispatcher.BackPressure.DROP_OLDEST]
+        def blocked = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def received = new CopyOnWriteArrayList<String>()
+        dispatcher.addListener(new ObjectStoreListener<Calendar>() {
+            void collectionAdded(ObjectStoreEvent<Calendar> event) {}
+            void collectionRemoved(ObjectStoreEvent<Calendar> event) {}
+            void componentAdded(ComponentEvent<Calendar> event) {
+                blocked.countDown()
+                release.await(5, TimeUnit.SECONDS)
+                received << event.uid
+            }
+        })
+
+        when: 'events are dispatched faster than they are delivered'
+        dispatcher.componentChanged(store, null, ObjectStoreEvent.Type.COMPONENT_ADDED, 'first', null, null)
+        blocked.await(5, TimeUnit.SECONDS)
+        ['a', 'b', 'c', 'd'].each {
+            dispatcher.componentChanged(store, null, ObjectStoreEvent.Type.COMPONENT_ADDED, it, null, null)
+        }
+
+        and: 'the listener is released'
+        release.countDown()
+        dispatcher.close()
+
+        then: 'the oldest queued events are dropped'
+        dispatcher.droppedCount == 2
+        received == ['first', 'c', 'd']
+    }
+
+    def 'test local store changes are dispatched'() {
+        given: 'a local calendar store with an event dispatcher'
+        LocalCalendarStore calendarStore = [new File('build', 'local')]
+        ObjectStoreEventDispatcher<Calendar> dispatcher = []
+        def batches = new CopyOnWriteArrayList<List<ObjectStoreEvent<Calendar>>>()
+        dispatcher.addListener(new RecordingListener(batches: batches))
+        calendarStore.eventDispatcher = dispatcher
+        LocalCalendarCollection collection = calendarStore.addCollection('events')
+
+        and: 'a calendar object'
+        def calendarUid = new RandomUidGenerator().generateUid()
+        Calendar calendar = new ContentBuilder().with {
+            calendar {
+                prodid '-//Ben Fortuna//iCal4j 1.0//EN'
+                version '2.0'
+                vevent {
+                    uid calendarUid
+                    dtstamp()
+                    dtstart('20090810', parameters: parameters { value 'DATE' })
+                }
+            }
+        }
+
+        when: 'the calendar is added and removed'
+        collection.addCalendar(calendar)
+        collection.removeCalendar(calendarUid.value)
+        dispatcher.close()
+
+        then: 'component events are dispatched'
+        def events = batches.flatten().findAll { it instanceof ComponentEvent }
+        events*.type == [ObjectStoreEvent.Type.COMPONENT_ADDED, ObjectStoreEvent.Type.COMPONENT_REMOVED]
+        events*.uid == [calendarUid.value, calendarUid.value]
+        events*.href == ["${calendarUid.value}.ics", "${calendarUid.value}.ics"]
+        events.every { it.collection == collection }
+    }
+
+    def 'test interrupted close restores the interrupt status'() {
+        given: 'a dispatcher with a blocked listener'
+        LocalCalendarStore store = [new File('build', 'local')]
+        ObjectStoreEventDispatcher<Calendar> dispatcher = [10, 1, ObjectStoreEventDispatcher.BackPressure.BLOCK]
+        def blocked = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def received = new CopyOnWriteArrayList<String>()
+        dispatcher.addListener(new ObjectStoreListener<Calendar>() {
+            void collectionAdded(ObjectStoreEvent<Calendar> event) {}
+            void collectionRemoved(ObjectStoreEvent<Calendar> event) {}
+            void componentAdded(ComponentEvent<Calendar> event) {
+                blocked.countDown()
+                release.await(5, TimeUnit.SECONDS)
+                received << event.uid
+            }
+        })
+        dispatcher.componentChanged(store, null, ObjectStoreEvent.Type.COMPONENT_ADDED, 'first', null, null)
+        blocked.await(5, TimeUnit.SECONDS)
+
+        when: 'the dispatcher is closed by an interrupted thread'
+        Thread.currentThread().interrupt()
+        dispatcher.close()
+        def interrupted = Thread.interrupted()
+
+        and: 'the listener is released'
+        release.countDown()
+        dispatcher.close()
+
+        then: 'the interrupt status is restored'
+        interrupted
+
+        and: 'queued events are still delivered'
+        received == ['first']
+    }
+
+    static class RecordingListener implements ObjectStoreListener<Calendar> {
+
+        List<List<ObjectStoreEvent<Calendar>>> batches
+
+        @Override
+        void collectionAdded(ObjectStoreEvent<Calendar> event) {
+        }
+
+        @Override
+        void collectionRemoved(ObjectStoreEvent<Calendar> event) {
+        }
+
+        @Override
+        void eventsDispatched(List<ObjectStoreEvent<Calendar>> events) {
+            batches << new ArrayList<>(events)
+        }
+    }
+}
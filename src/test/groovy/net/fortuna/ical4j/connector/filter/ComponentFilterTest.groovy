@@ -0,0 +1,102 @@
+package net.fortuna.ical4j.connector.filter
+
+import net.fortuna.ical4j.model.Calendar
+import net.fortuna.ical4j.model.Component
+import net.fortuna.ical4j.model.ContentBuilder
+import net.fortuna.ical4j.model.DateTime
+import net.fortuna.ical4j.model.Parameter
+import net.fortuna.ical4j.model.Property
+import spock.lang.Shared
+import spock.lang.Specification
+
+class ComponentFilterTest extends Specification {
+
+    @Shared
+    Calendar meeting = new ContentBuilder().with {
+        calendar {
+            prodid '-//Ben Fortuna//iCal4j 1.0//EN'
+            version '2.0'
+            vevent {
+                uid 'meeting'
+                dtstamp()
+                dtstart '20210104T090000Z'
+                dtend '20210104T100000Z'
+                summary 'Weekly Review'
+                rrule 'FREQ=WEEKLY;COUNT=4'
+                attendee('mailto:jo@example.com', parameters: parameters { partstat 'ACCEPTED' })
+                valarm {
+                    action 'DISPLAY'
+                    trigger '-PT15M'
+                }
+            }
+        }
+    }
+
+    @Shared
+    Calendar task = new ContentBuilder().with {
+        calendar {
+            prodid '-//Ben Fortuna//iCal4j 1.0//EN'
+            version '2.0'
+            vtodo {
+                uid 'task'
+                dtstamp()
+                due '20210110T000000Z'
+                summary 'File report'
+            }
+        }
+    }
+
+    def 'test filter evaluation'() {
+        expect: 'calendar objects are matched by the filter'
+        filter.test(meeting) == matchesMeeting
+        filter.test(task) == matchesTask
+
+        where:
+        filter                                                                      | matchesMeeting | matchesTask
+        ComponentFilter.calendar()                                                  | true           | true
+        ComponentFilter.calendar().component(new ComponentFilter(Component.VEVENT)) | true           | false
+        ComponentFilter.calendar().component(new ComponentFilter(Component.VTODO).notDefined()) | true | false
+        ComponentFilter.calendar().component(new ComponentFilter(Component.VEVENT)
+                .property(new PropertyFilter(Property.SUMMARY).textMatch('review')))  | true           | false
+        ComponentFilter.calendar().component(new ComponentFilter(Component.VEVENT)
+                .property(new PropertyFilter(Property.SUMMARY)
+                .textMatch(new TextMatch('review', true, false))))                    | false          | false
+        ComponentFilter.calendar().component(new ComponentFilter(Component.VTODO)
+                .property(new PropertyFilter(Property.DESCRIPTION).notDefined()))     | false          | true
+        ComponentFilter.calendar().component(new ComponentFilter(Component.VEVENT)
+                .property(new PropertyFilter(Property.ATTENDEE).parameter(ParameterFilter
+                .textMatch(Parameter.PARTSTAT, new TextMatch('ACCEPTED')))))          | true           | false
+        ComponentFilter.calendar().component(new ComponentFilter(Component.VEVENT)
+                .component(new ComponentFilter(Component.VALARM)))                   | true           | false
+        ComponentFilter.calendar().component(new ComponentFilter(Component.VTODO)
+                .property(new PropertyFilter(Property.DUE).timeRange(new TimeRange(
+                new DateTime('20210101T000000Z'), new DateTime('20210201T000000Z'))))) | false         | true
+    }
+
+    def 'test time range evaluation includes recurrences'() {
+        expect: 'a recurring event matches where any recurrence overlaps the time range'
+        ComponentFilter.calendar().component(new ComponentFilter(Component.VEVENT)
+                .timeRange(new TimeRange(new DateTime(start), new DateTime(end)))).test(meeting) == expected
+
+        where:
+        start              | end                | expected
+        '20210118T093000Z' | '20210118T110000Z' | true
+        '20210119T000000Z' | '20210125T000000Z' | false
+        '20210201T000000Z' | '20210301T000000Z' | false
+    }
+
+    def 'test calendar span'() {
+        when: 'the span of components in a calendar object is determined'
+        def span = TimeRange.span(task, Component.VTODO)
+
+        then: 'the span is the due date'
+        span.start == new DateTime('20210110T000000Z')
+        span.end == new DateTime('20210110T000000Z')
+
+        and: 'recurring components have no end'
+        TimeRange.span(meeting, Component.VEVENT).end == null
+
+        and: 'there is no span for absent components'
+        TimeRange.span(meeting, Component.VTODO) == null
+    }
+}
@@ -1,9 +1,15 @@
 package net.fortuna.ical4j.connector.local
 
+import net.fortuna.ical4j.connector.filter.ComponentFilter
+import net.fortuna.ical4j.connector.filter.PropertyFilter
+import net.fortuna.ical4j.connector.filter.TimeRange
+import net.fortuna.ical4j.data.CalendarBuilder
 import net.fortuna.ical4j.model.Calendar
 import net.fortuna.ical4j.model.Component
 import net.fortuna.ical4j.model.ContentBuilder
+import net.fortuna.ical4j.model.DateTime
 import net.fortuna.ical4j.model.Property
+import net.fortuna.ical4j.model.TimeZoneRegistryFactory
 import net.fortuna.ical4j.util.Calendars
 import net.fortuna.ical4j.util.RandomUidGenerator
 import spock.lang.Specification
@@ -69,4 +75,232 @@ class LocalCalendarCollectionTest extends Specification {
         and: 'removed calendar is identical to added'
         removed == calendar
     }
+
+    def 'test export collection with shared timezones'() {
+        given: 'a local calendar collection'
+        LocalCalendarStore calendarStore = [new File('build', 'local')]
+        LocalCalendarCollection collection = calendarStore.addCollection('export')
+        collection.components.each { collection.removeCalendar(Calendars.getUid(it).value) }
+
+        and: 'calendar objects that include the same timezone'
+        def timezone = TimeZoneRegistryFactory.instance.createRegistry().getTimeZone('Australia/Melbourne').vTimeZone
+        2.times {
+            Calendar calendar = new ContentBuilder().with {
+                calendar {
+                    prodid '-//Ben Fortuna//iCal4j 1.0//EN'
+                    version '2.0'
+                    vevent {
+                        uid new RandomUidGenerator().generateUid()
+                        dtstamp()
+                        dtstart('20090810T090000', parameters: parameters { tzid 'Australia/Melbourne' })
+                    }
+                }
+            }
+            calendar.components.add(timezone)
+            collection.addCalendar(calendar)
+        }
+
+        when: 'the collection is exported'
+        def writer = new StringWriter()
+        collection.export(writer)
+        def exported = writer.toString()
+
+        then: 'a single calendar is written with the timezone included once'
+        exported.count('BEGIN:VCALENDAR') == 1
+        exported.count('BEGIN:VTIMEZONE') == 1
+        exported.count('BEGIN:VEVENT') == 2
+
+        and: 'the export is a valid calendar'
+        def calendar = new CalendarBuilder().build(new StringReader(exported))
+        calendar.getComponents(Component.VEVENT).size() == 2
+
+        and: 'the exported calendar object is equivalent'
+        collection.export().getComponents(Component.VEVENT).size() == 2
+        collection.export().getComponents(Component.VTIMEZONE).size() == 1
+    }
+
+    def 'test merge calendar stream into collection'() {
+        given: 'a local calendar collection'
+        LocalCalendarStore calendarStore = [new File('build', 'local')]
+        LocalCalendarCollection collection = calendarStore.addCollection('merge')
+        collection.components.each { collection.removeCalendar(Calendars.getUid(it).value) }
+
+        and: 'a calendar stream with a shared timezone and components for one UID split across the stream'
+        def timezone = TimeZoneRegistryFactory.instance.createRegistry().getTimeZone('Australia/Melbourne').vTimeZone
+        def stream = """BEGIN:VCALENDAR
+PRODID:-//Ben Fortuna//iCal4j 1.0//EN
+VERSION:2.0
+${timezone}BEGIN:VEVENT
+UID:recurring
+DTSTAMP:20090801T000000Z
+DTSTART;TZID=Australia/Melbourne:20090810T090000
+RRULE:FREQ=WEEKLY;COUNT=4
+END:VEVENT
+BEGIN:VEVENT
+UID:recurring
+DTSTAMP:20090801T000000Z
+RECURRENCE-ID;TZID=Australia/Melbourne:20090817T090000
+DTSTART;TZID=Australia/Melbourne:20090817T100000
+END:VEVENT
+BEGIN:VEVENT
+UID:single
+DTSTAMP:20090801T000000Z
+DTSTART;VALUE=DATE:20090810
+END:VEVENT
+BEGIN:VEVENT
+UID:recurring
+DTSTAMP:20090801T000000Z
+RECURRENCE-ID;TZID=Australia/Melbourne:20090824T090000
+DTSTART;TZID=Australia/Melbourne:20090824T100000
+END:VEVENT
+END:VCALENDAR
+""".normalize().replace('\n', '\r\n')
+
+        when: 'the stream is merged into the collection'
+        def count = collection.merge(new ByteArrayInputStream(stream.getBytes('UTF-8')))
+
+        then: 'each group of components is merged'
+        count == 3
+        collection.components.length == 2
+
+        and: 'components for the same UID are combined with the referenced timezone'
+        def recurring = collection.getCalendar('recurring')
+        recurring.getComponents(Component.VEVENT).size() == 3
+        recurring.getComponents(Component.VTIMEZONE).size() == 1
+
+        and: 'unreferenced timezones are not included'
+        collection.getCalendar('single').getComponents(Component.VTIMEZONE).isEmpty()
+    }
+
+    def 'test merge calendar stream with timezones following the components that reference them'() {
+        given: 'a local calendar collection'
+        LocalCalendarStore calendarStore = [new File('build', 'local')]
+        LocalCalendarCollection collection = calendarStore.addCollection('merge-deferred')
+        collection.components.each { collection.removeCalendar(Calendars.getUid(it).value) }
+
+        and: 'a calendar stream with the timezone at the end'
+        def timezone = TimeZoneRegistryFactory.instance.createRegistry().getTimeZone('Australia/Melbourne').vTimeZone
+        def stream = """BEGIN:VCALENDAR
+PRODID:-//Ben Fortuna//iCal4j 1.0//EN
+VERSION:2.0
+BEGIN:VEVENT
+UID:zoned
+DTSTAMP:20090801T000000Z
+DTSTART;TZID=Australia/Melbourne:20090810T090000
+END:VEVENT
+BEGIN:VEVENT
+UID:single
+DTSTAMP:20090801T000000Z
+DTSTART;VALUE=DATE:20090810
+END:VEVENT
+BEGIN:VEVENT
+UID:zoned
+DTSTAMP:20090801T000000Z
+RECURRENCE-ID;TZID=Australia/Melbourne:20090817T090000
+DTSTART;TZID=Australia/Melbourne:20090817T100000
+END:VEVENT
+${timezone}END:VCALENDAR
+"""
+
+        when: 'the stream is merged into the collection'
+        def count = collection.merge(new ByteArrayInputStream(stream.getBytes('UTF-8')))
+
+        then: 'components waiting for the timezone are combined'
+        count == 2
+        def zoned = collection.getCalendar('zoned')
+        zoned.getComponents(Component.VEVENT).size() == 2
+
+        and: 'the timezone is included once it is parsed'
+        zoned.getComponents(Component.VTIMEZONE).size() == 1
+        collection.getCalendar('single').getComponents(Component.VTIMEZONE).isEmpty()
+    }
+
+    def 'test get calendars matching filter'() {
+        given: 'a local calendar collection'
+        LocalCalendarStore calendarStore = [new File('build', 'local')]
+        LocalCalendarCollection collection = calendarStore.addCollection('filter')
+        collection.components.each { collection.removeCalendar(Calendars.getUid(it).value) }
+
+        and: 'events on consecutive days'
+        ['20210104', '20210105', '20210106'].each { date ->
+            collection.addCalendar(new ContentBuilder().with {
+                calendar {
+                    prodid '-//Ben Fortuna//iCal4j 1.0//EN'
+                    version '2.0'
+                    vevent {
+                        uid "event-$date".toString()
+                        dtstamp()
+                        dtstart("${date}T090000Z".toString())
+                        dtend("${date}T100000Z".toString())
+                        summary "Event on $date".toString()
+                    }
+                }
+            })
+        }
+
+        and: 'a filter on time range and summary'
+        def filter = { String start, String end, String text ->
+            ComponentFilter.calendar().component(new ComponentFilter(Component.VEVENT)
+                    .timeRange(new TimeRange(new DateTime(start), new DateTime(end)))
+                    .property(new PropertyFilter(Property.SUMMARY).textMatch(text)))
+        }
+
+        expect: 'only calendars matching the filter are returned'
+        collection.getComponents(filter('20210105T000000Z', '20210107T000000Z', 'event'))
+                .collect { Calendars.getUid(it).value }.sort() == ['event-20210105', 'event-20210106']
+
+        and: 'indexed calendars are filtered consistently'
+        collection.getComponents(filter('20210105T000000Z', '20210107T000000Z', '0106'))
+                .collect { Calendars.getUid(it).value } == ['event-20210106']
+        collection.getComponents(filter('20210201T000000Z', '20210301T000000Z', 'event')).length == 0
+
+        and: 'other collections in the store share the index'
+        calendarStore.getCollection('filter').getComponents(filter('20210104T000000Z', '20210105T000000Z', 'event'))
+                .collect { Calendars.getUid(it).value } == ['event-20210104']
+    }
+
+    def 'test overwritten calendars are re-indexed'() {
+        given: 'a local calendar collection'
+        LocalCalendarStore calendarStore = [new File('build', 'local')]
+        LocalCalendarCollection collection = calendarStore.addCollection('reindex')
+        collection.components.each { collection.removeCalendar(Calendars.getUid(it).value) }
+
+        and: 'an event that has been indexed'
+        def event = { String date ->
+            new ContentBuilder().with {
+                calendar {
+                    prodid '-//Ben Fortuna//iCal4j 1.0//EN'
+                    version '2.0'
+                    vevent {
+                        uid 'event-1'
+                        dtstamp '20261019T000000Z'
+                        dtstart("${date}T090000Z".toString())
+                        dtend("${date}T100000Z".toString())
+                        summary 'Event'
+                    }
+                }
+            }
+        }
+        collection.addCalendar(event('20261019'))
+        def file = new File(collection.root, 'event-1.ics')
+        def lastModified = file.lastModified()
+        def length = file.length()
+        def filter = { String start, String end ->
+            ComponentFilter.calendar().component(new ComponentFilter(Component.VEVENT)
+                    .timeRange(new TimeRange(new DateTime(start), new DateTime(end))))
+        }
+        // indexes the file..
+        collection.getComponents(filter('20261020T000000Z', '20261021T000000Z'))
+
+        when: 'the file is replaced with an event of the same length and modification time'
+        file.delete()
+        collection.addCalendar(event('20261020'))
+        file.setLastModified(lastModified)
+
+        then: 'the changed event is matched'
+        file.length() == length
+        collection.getComponents(filter('20261020T000000Z', '20261021T000000Z'))
+                .collect { it.getComponent(Component.VEVENT).getProperty(Property.DTSTART).value } == ['20261020T090000Z']
+        collection.getComponents(filter('20261019T000000Z', '20261020T000000Z')).length == 0
+    }
 }
@@ -0,0 +1,285 @@
+package net.fortuna.ical4j.connector.sync
+
+import com.sun.net.httpserver.HttpServer
+import net.fortuna.ical4j.connector.dav.CardDavCollection
+import net.fortuna.ical4j.connector.dav.CardDavStore
+import net.fortuna.ical4j.connector.dav.PathResolver
+import net.fortuna.ical4j.connector.local.LocalCalendarCollection
+import net.fortuna.ical4j.connector.local.LocalCalendarStore
+import net.fortuna.ical4j.connector.local.LocalCardCollection
+import net.fortuna.ical4j.connector.local.LocalCardStore
+import net.fortuna.ical4j.model.Calendar
+import net.fortuna.ical4j.model.ContentBuilder
+import net.fortuna.ical4j.vcard.Property
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class CollectionSyncTest extends Specification {
+
+    LocalCalendarStore store
+
+    Path stateFile
+
+    def setup() {
+        File root = Files.createTempDirectory(new File('build').toPath(), 'sync').toFile()
+        store = [root]
+        stateFile = root.toPath().resolve('state.properties')
+    }
+
+    def 'test new objects are copied in both directions'() {
+        given: 'a pair of collections with different objects'
+        LocalCalendarCollection source = store.addCollection('source')
+        LocalCalendarCollection target = store.addCollection('target')
+        source.addCalendar(event('1', 'Source event'))
+        target.addCalendar(event('2', 'Target event'))
+
+        when: 'the collections are synchronised'
+        def result = CollectionSync.calendars('test', source, target, ConflictPolicy.sourceWins(), stateFile).sync()
+
+        then: 'each collection contains both objects'
+        result.targetWrites == 1
+        result.sourceWrites == 1
+        source.components.length == 2
+        target.components.length == 2
+    }
+
+    def 'test synchronisation resumes from persisted state'() {
+        given: 'a pair of synchronised collections'
+        LocalCalendarCollection source = store.addCollection('source')
+        LocalCalendarCollection target = store.addCollection('target')
+        source.addCalendar(event('1', 'Event'))
+        CollectionSync.calendars('test', source, target, ConflictPolicy.sourceWins(), stateFile).sync()
+
+        when: 'the collections are synchronised again with restored state'
+        def result = CollectionSync.calendars('test', source, target, ConflictPolicy.sourceWins(), stateFile).sync()
+
+        then: 'no changes are applied'
+        result.targetWrites == 0
+        result.sourceWrites == 0
+        result.conflicts == 0
+    }
+
+    def 'test modifications and removals are propagated'() {
+        given: 'a pair of synchronised collections'
+        LocalCalendarCollection source = store.addCollection('source')
+        LocalCalendarCollection target = store.addCollection('target')
+        source.addCalendar(event('1', 'Event 1'))
+        source.addCalendar(event('2', 'Event 2'))
+        def sync = CollectionSync.calendars('test', source, target, ConflictPolicy.sourceWins(), stateFile)
+        sync.sync()
+
+        and: 'an object is modified in the target and another removed from the source'
+        target.removeCalendar('1')
+        target.addCalendar(event('1', 'Modified'))
+        source.removeCalendar('2')
+
+        when: 'the collections are synchronised'
+        def result = sync.sync()
+
+        then: 'the changes are applied to the other collection'
+        result.sourceWrites == 1
+        result.targetRemovals == 1
+        source.getCalendar('1').getComponent('VEVENT').getProperty('SUMMARY').value == 'Modified'
+        target.components.length == 1
+        sync.state.uids == ['1'] as Set
+    }
+
+    def 'test conflicts are resolved by policy'() {
+        given: 'a pair of synchronised collections'
+        LocalCalendarCollection source = store.addCollection('source')
+        LocalCalendarCollection target = store.addCollection('target')
+        source.addCalendar(event('1', 'Event'))
+        def sync = CollectionSync.calendars('test', source, target, ConflictPolicy.targetWins(), stateFile)
+        sync.sync()
+
+        and: 'the object is modified in both collections'
+        source.removeCalendar('1')
+        source.addCalendar(event('1', 'Source change'))
+        target.removeCalendar('1')
+        target.addCalendar(event('1', 'Target change'))
+
+        when: 'the collections are synchronised'
+        def result = sync.sync()
+
+        then: 'the conflict is resolved in favour of the target'
+        result.conflicts == 1
+        result.sourceWrites == 1
+        result.targetWrites == 0
+        source.getCalendar('1').getComponent('VEVENT').getProperty('SUMMARY').value == 'Target change'
+    }
+
+    def 'test collections are synchronised in parallel'() {
+        given: 'a sync engine with multiple collection pairs'
+        SyncEngine engine = [2]
+        def pairs = (1..3).collect {
+            LocalCalendarCollection source = store.addCollection("source$it")
+            LocalCalendarCollection target = store.addCollection("target$it")
+            source.addCalendar(event("$it", "Event $it"))
+            CollectionSync.calendars("pair$it", source, target, ConflictPolicy.sourceWins(), null)
+        }
+        pairs.each { engine.add(it) }
+
+        when: 'all collections are synchronised'
+        def results = engine.syncAll()
+
+        then: 'each pair is synchronised'
+        results.size() == 3
+        results.values().every { it.targetWrites == 1 }
+    }
+
+    def 'test sync state is journaled incrementally'() {
+        given: 'persisted sync state'
+        SyncState state = [stateFile]
+        (1..10).each { state.put("$it", 'a', 'b') }
+        state.setSourceToken('token-1')
+        state.save()
+        def size = Files.size(stateFile)
+
+        when: 'the state is modified and flushed'
+        state.put('11', 'e', 'f')
+        state.remove('1')
+        state.setSourceToken('token-2')
+        state.flush()
+
+        then: 'changes are appended to the existing file'
+        Files.size(stateFile) > size
+        Files.readAllLines(stateFile).size() > 5
+
+        and: 'the changes are restored from the journal'
+        SyncState restored = [stateFile]
+        restored.uids == (2..11).collect { "$it".toString() } as Set
+        restored.get('11').targetVersion == 'f'
+        restored.sourceToken == 'token-2'
+        restored.targetToken == null
+    }
+
+    def 'test CardDAV collections are synchronised incrementally'() {
+        given: 'a CardDAV server with two vCard objects'
+        def server = cardDavServer()
+        server.cards['1.vcf'] = card('1', 'Card 1')
+        server.cards['2.vcf'] = card('2', 'Card 2')
+
+        and: 'a local collection to synchronise with'
+        CardDavStore davStore = ['-//Ben Fortuna//iCal4j Connector 1.0//EN',
+                                 new URL("http://localhost:${server.http.address.port}/"),
+                                 PathResolver.CALENDAR_SERVER]
+        davStore.connect()
+        CardDavCollection source = [davStore, '/addressbooks/test/']
+        LocalCardCollection target = new LocalCardStore(stateFile.parent.toFile()).addCollection('target')
+
+        when: 'the collections are synchronised'
+        def result = CollectionSync.cards('test', source, target, ConflictPolicy.sourceWins(), stateFile).sync()
+
+        then: 'all vCard objects are retrieved'
+        result.targetWrites == 2
+        target.components.length == 2
+        server.multigets == ['/addressbooks/test/1.vcf', '/addressbooks/test/2.vcf']
+
+        when: 'a vCard object is modified and another removed'
+        server.multigets.clear()
+        server.change('1.vcf', card('1', 'Modified'))
+        server.change('2.vcf', null)
+
+        and: 'the collections are synchronised again with restored state'
+        result = CollectionSync.cards('test', source, target, ConflictPolicy.sourceWins(), stateFile).sync()
+
+        then: 'only the changes are retrieved and applied'
+        server.syncTokens == [null, '1']
+        server.multigets == ['/addressbooks/test/1.vcf']
+        result.targetWrites == 1
+        result.targetRemovals == 1
+        result.sourceWrites == 0
+        target.components*.getProperty(Property.Id.FN)*.value == ['Modified']
+
+        when: 'the collections are synchronised without changes'
+        server.multigets.clear()
+        result = CollectionSync.cards('test', source, target, ConflictPolicy.sourceWins(), stateFile).sync()
+
+        then: 'no vCard objects are retrieved'
+        server.multigets.empty
+        result.targetWrites == 0
+        result.sourceWrites == 0
+
+        cleanup:
+        server.http.stop(0)
+    }
+
+    /**
+     * A minimal CardDAV server supporting sync-collection and addressbook-multiget reports.
+     */
+    def cardDavServer() {
+        def server = [cards: [:], removed: [] as Set, versions: [:], token: 1, syncTokens: [], multigets: []]
+        server.change = { String name, String data ->
+            server.token++
+            if (data) {
+                server.cards[name] = data
+                server.removed.remove(name)
+            } else {
+                server.cards.remove(name)
+                server.removed << name
+            }
+            server.versions[name] = server.token
+        }
+        server.http = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.http.createContext('/') { exchange ->
+            def body = exchange.requestBody.getText('UTF-8')
+            def responses = new StringBuilder()
+            def path = '/addressbooks/test/'
+            if (body.contains('sync-collection')) {
+                def match = body =~ /sync-token>([^<]*)</
+                def since = match.find() ? match.group(1) as int : 0
+                server.syncTokens << (since ? since as String : null)
+                server.cards.keySet().findAll { (server.versions[it] ?: 1) > since }.each {
+                    responses << "<D:response><D:href>${path}${it}</D:href><D:propstat><D:prop>" +
+                            "<D:getetag>\"${server.versions[it] ?: 1}\"</D:getetag></D:prop>" +
+                            '<D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>'
+                }
+                server.removed.findAll { since && server.versions[it] > since }.each {
+                    responses << "<D:response><D:href>${path}${it}</D:href>" +
+                            '<D:status>HTTP/1.1 404 Not Found</D:status></D:response>'
+                }
+                responses << "<D:sync-token>${server.token}</D:sync-token>"
+            } else {
+                (body =~ /href[^>]*>([^<]+)</).each { match ->
+                    def href = match[1]
+                    server.multigets << href
+                    def name = href.substring(path.length())
+                    responses << "<D:response><D:href>${href}</D:href><D:propstat><D:prop>" +
+                            "<D:getetag>\"${server.versions[name] ?: 1}\"</D:getetag>" +
+                            "<C:address-data>${server.cards[name]}</C:address-data></D:prop>" +
+                            '<D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>'
+                }
+            }
+            def xml = '<?xml version="1.0" encoding="UTF-8"?>' +
+                    '<D:multistatus xmlns:D="DAV:" xmlns:C="urn:ietf:params:xml:ns:carddav">' +
+                    responses + '</D:multistatus>'
+            def bytes = xml.getBytes('UTF-8')
+            exchange.responseHeaders.add('Content-Type', 'application/xml; charset=utf-8')
+            exchange.sendResponseHeaders(207, bytes.length)
+            exchange.responseBody.withStream { it.write(bytes) }
+        }
+        server.http.start()
+        server
+    }
+
+    static String card(String cardUid, String name) {
+        "BEGIN:VCARD\r\nVERSION:4.0\r\nUID:${cardUid}\r\nFN:${name}\r\nEND:VCARD\r\n"
+    }
+
+    Calendar event(String eventUid, String eventSummary) {
+        new ContentBuilder().with {
+            calendar {
+                prodid '-//Ben Fortuna//iCal4j 1.0//EN'
+                version '2.0'
+                vevent {
+                    uid eventUid
+                    dtstamp '20200101T000000Z'
+                    dtstart('20090810', parameters: parameters { value 'DATE' })
+                    summary eventSummary
+                }
+            }
+        }
+    }
+}
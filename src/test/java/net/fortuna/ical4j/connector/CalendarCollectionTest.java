@@ -31,8 +31,13 @@
  */
 package net.fortuna.ical4j.connector;
 
+import net.fortuna.ical4j.connector.filter.ComponentFilter;
+import net.fortuna.ical4j.connector.filter.PropertyFilter;
+import net.fortuna.ical4j.connector.filter.TextMatch;
+import net.fortuna.ical4j.data.CalendarBuilder;
 import net.fortuna.ical4j.model.Calendar;
 import net.fortuna.ical4j.model.Component;
+import net.fortuna.ical4j.model.Property;
 import net.fortuna.ical4j.model.property.Uid;
 import net.fortuna.ical4j.util.Calendars;
 import org.apache.commons.io.filefilter.DirectoryFileFilter;
@@ -41,9 +46,12 @@ import org.junit.Ignore;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * $Id$
@@ -195,4 +203,47 @@ public class CalendarCollectionTest<T extends CalendarCollection> extends Object
         Calendar[] calendars = getCollection().getComponents();
         assertNotNull(calendars);
     }
+
+    /**
+     * @throws ObjectStoreException
+     */
+    public void testGetComponentsByFilter() throws ObjectStoreException, ObjectNotFoundException {
+        ComponentFilter eventFilter = ComponentFilter.calendar().component(new ComponentFilter(Component.VEVENT));
+        Calendar[] events = getCollection().getComponents(eventFilter);
+        assertEquals(Arrays.stream(getCollection().getComponents()).filter(eventFilter).count(), events.length);
+
+        for (int i = 0; i < calendarUids.length; i++) {
+            ComponentFilter uidFilter = ComponentFilter.calendar();
+            Calendar cal = getCollection().getCalendar(calendarUids[i]);
+            String componentType = cal.getComponents().stream().filter(c -> c.getProperty(Property.UID) != null)
+                    .findFirst().get().getName();
+            uidFilter.component(new ComponentFilter(componentType).property(new PropertyFilter(Property.UID)
+                    .textMatch(new TextMatch(calendarUids[i], true, false))));
+            Calendar[] matches = getCollection().getComponents(uidFilter);
+            assertEquals("Calendar for uid: [" + calendarUids[i] + "] not matched", 1, matches.length);
+        }
+    }
+
+    /**
+     * Test method for {@link CalendarCollection#export(java.io.Writer)}.
+     *
+     * @throws Exception
+     */
+    public void testExport() throws Exception {
+        StringWriter writer = new StringWriter();
+        getCollection().export(writer);
+        Calendar exported = new CalendarBuilder().build(new StringReader(writer.toString()));
+
+        Set<String> exportedUids = exported.getComponents().stream().map(c -> (Uid) c.getProperty(Property.UID))
+                .filter(uid -> uid != null).map(Uid::getValue).collect(Collectors.toSet());
+        for (int i = 0; i < calendarUids.length; i++) {
+            assertTrue("Calendar for uid: [" + calendarUids[i] + "] not exported",
+                    exportedUids.contains(calendarUids[i]));
+        }
+
+        // each timezone is exported once..
+        long timezones = exported.getComponents(Component.VTIMEZONE).size();
+        assertEquals(timezones, exported.getComponents(Component.VTIMEZONE).stream()
+                .map(c -> c.getProperty(Property.TZID).getValue()).distinct().count());
+    }
 }
@@ -87,6 +87,9 @@ public class CalDavCalendarCollectionIntegrationTest extends TestSuite {
         suite.addTest(new CalendarCollectionTest<CalDavCalendarCollection>("testGetCalendars",
                 new CalDavCalendarStoreLifecycle(url, PathResolver.CHANDLER), username, password));
 
+        suite.addTest(new CalendarCollectionTest<CalDavCalendarCollection>("testExport",
+                new CalDavCalendarStoreLifecycle(url, PathResolver.CHANDLER), username, password));
+
         return suite;
     }
 
@@ -67,6 +67,12 @@ public class JcrCalendarCollectionIntegrationTest extends TestSuite {
         suite.addTest(new CalendarCollectionTest<JcrCalendarCollection>("testGetCalendars",
                 new JcrCalendarStoreLifecycle("JcrCalendarCollection-testGetCalendars"), username, password));
 
+        suite.addTest(new CalendarCollectionTest<JcrCalendarCollection>("testGetComponentsByFilter",
+                new JcrCalendarStoreLifecycle("JcrCalendarCollection-testGetComponentsByFilter"), username, password));
+
+        suite.addTest(new CalendarCollectionTest<JcrCalendarCollection>("testExport",
+                new JcrCalendarStoreLifecycle("JcrCalendarCollection-testExport"), username, password));
+
         // suite.addTest(new CalendarCollectionTest("testGetMaxAttendeesPerInstance",
         // new JcrCalendarStoreLifecycle("JcrCalendarCollection-testGetMaxAttendeesPerInstance"), USERNAME, PASSWORD));
 